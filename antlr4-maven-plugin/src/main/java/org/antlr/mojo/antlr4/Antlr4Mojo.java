@@ -105,6 +105,21 @@ public class Antlr4Mojo extends AbstractMojo {
 	@Parameter(property = "antlr4.forceATN", defaultValue = "false")
 	protected boolean forceATN;
 
+	/**
+	 * Process grammars that don't depend on each other in parallel.
+	 */
+	@Parameter(property = "antlr4.parallel", defaultValue = "false")
+	protected boolean parallel;
+
+	/**
+	 * Keep the generated files and the analysis of unchanged grammars in this
+	 * directory, and reuse them instead of processing the grammars again. Point
+	 * the modules of a multi-module build at the same directory to share the
+	 * analysis of grammars they have in common.
+	 */
+	@Parameter(property = "antlr4.cacheDirectory")
+	protected File cacheDirectory;
+
 	/**
 	 * A list of grammar options to explicitly specify to the tool. These
 	 * options are passed to the tool using the
@@ -273,6 +288,7 @@ public class Antlr4Mojo extends AbstractMojo {
 
 		log.debug("Output directory base will be " + outputDirectory.getAbsolutePath());
 		log.info("ANTLR 4: Processing source directory " + sourceDirectory.getAbsolutePath());
+		boolean analyzed = false;
 		for (List<String> args : argumentSets) {
 			try {
 				// Create an instance of the ANTLR 4 build tool
@@ -282,12 +298,17 @@ public class Antlr4Mojo extends AbstractMojo {
 				throw new MojoFailureException("Error creating an instanceof the ANTLR tool.", e);
 			}
 
-            try {
-                dependencies.analyze(grammarFiles, importGrammarFiles, tool);
-            } catch (Exception e) {
-                log.error("Dependency analysis failed, see exception report for details",
-                    e);
-                throw new MojoFailureException("Dependency analysis failed.", e);
+            // the dependencies don't depend on the arguments, so one analysis will do
+            if (!analyzed) {
+                try {
+                    dependencies.analyze(grammarFiles, importGrammarFiles, tool);
+                } catch (Exception e) {
+                    log.error("Dependency analysis failed, see exception report for details",
+                        e);
+                    throw new MojoFailureException("Dependency analysis failed.", e);
+                }
+
+                analyzed = true;
             }
 
 			// Set working directory for ANTLR to be the base source directory
@@ -302,6 +323,11 @@ public class Antlr4Mojo extends AbstractMojo {
 			}
 		}
 
+        if (cacheDirectory != null && !argumentSets.isEmpty()) {
+            // files restored from the cache are not written through the build context
+            buildContext.refresh(outputDirectory);
+        }
+
         if (project != null) {
             // Tell Maven that there are some new source files underneath the output directory.
             addSourceRoot(this.getOutputDirectory());
@@ -362,6 +388,15 @@ public class Antlr4Mojo extends AbstractMojo {
 			args.add("-Xforce-atn");
 		}
 
+		if (parallel) {
+			args.add("-Xparallel");
+		}
+
+		if (cacheDirectory != null) {
+			args.add("-Xcache");
+			args.add(cacheDirectory.getAbsolutePath());
+		}
+
 		if (options != null) {
 			for (Map.Entry<String, String> option : options.entrySet()) {
 				args.add(String.format("-D%s=%s", option.getKey(), option.getValue()));
@@ -496,7 +531,7 @@ public class Antlr4Mojo extends AbstractMojo {
     }
 
     private File getDependenciesStatusFile() {
-        File statusFile = new File(statusDirectory, "dependencies.ser");
+        File statusFile = new File(statusDirectory, "dependencies.txt");
 
         if (!statusFile.getParentFile().exists()) {
             statusFile.getParentFile().mkdirs();
@@ -518,6 +553,14 @@ public class Antlr4Mojo extends AbstractMojo {
 			super.process(g, gencode);
 		}
 
+		@Override
+		protected void processWithCache(Grammar g) {
+			long start = System.nanoTime();
+			super.processWithCache(g);
+			long millis = (System.nanoTime() - start) / 1000000;
+			getLog().info("Grammar " + g.fileName + " took " + millis + " ms");
+		}
+
 		@Override
 		public Writer getOutputFileWriter(Grammar g, String fileName) throws IOException {
 			if (outputDirectory == null) {
@@ -543,6 +586,7 @@ public class Antlr4Mojo extends AbstractMojo {
 
 			URI relativePath = project.getBasedir().toURI().relativize(outputFile.toURI());
 			getLog().debug("  Writing file: " + relativePath);
+			recordOutputFile(outputFile);
 			OutputStream outputStream = buildContext.newFileOutputStream(outputFile);
 			if ( outputEncoding!=null && !outputEncoding.isEmpty()) {
 				return new BufferedWriter(new OutputStreamWriter(outputStream, outputEncoding));
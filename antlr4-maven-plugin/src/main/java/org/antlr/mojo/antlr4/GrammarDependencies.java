@@ -14,24 +14,37 @@ import org.antlr.v4.tool.ast.GrammarAST;
 import org.antlr.v4.tool.ast.GrammarRootAST;
 import org.apache.maven.plugin.logging.Log;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 class GrammarDependencies {
+    /**
+     * The references of the grammars parsed in this JVM, by path and checksum, so the
+     * modules of a reactor build don't all parse the same libraries.
+     */
+    private static final Map<String, References> parsedGrammars =
+        new ConcurrentHashMap<String, References>();
+
     private final Graph<String> graph = new Graph<String>();
     private final File sourceDirectory;
     private final File libDirectory;
@@ -40,6 +53,14 @@ class GrammarDependencies {
 
     /** Map grammars to their checksum and references. */
     private final Map<File, Map.Entry<byte[], Collection<String>>> grammars;
+
+    /** The entries of {@link #grammars} that differ from the status file. */
+    private final Map<File, Map.Entry<byte[], Collection<String>>> changed =
+        new LinkedHashMap<File, Map.Entry<byte[], Collection<String>>>();
+
+    /** The number of entries in the status file, including overridden ones. */
+    private int statusEntries;
+
     private final Log log;
 
     public GrammarDependencies(File sourceDirectory, File libDirectory,
@@ -69,19 +90,44 @@ class GrammarDependencies {
             : null;
     }
 
+    /**
+     * Persists the dependency status. Only the entries that changed since the status
+     * file was loaded are appended to it; the file is rewritten once more than half of
+     * its entries are overridden.
+     */
     public void save() throws IOException {
-        if (!grammars.isEmpty()) {
-            log.debug("Persisting grammars dependency status: " + statusFile);
+        if (changed.isEmpty()) {
+            return;
+        }
 
-            ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(
-                        statusFile));
+        boolean append = statusFile.exists() && statusEntries + changed.size() <= 2 * grammars.size();
+        log.debug((append ? "Appending to" : "Persisting") + " grammars dependency status: " + statusFile);
 
-            try {
-                out.writeObject(grammars);
-            } finally {
-                out.close();
+        Writer out = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(statusFile, append), StandardCharsets.UTF_8));
+
+        try {
+            Map<File, Map.Entry<byte[], Collection<String>>> entries = append ? changed : grammars;
+
+            for (Map.Entry<File, Map.Entry<byte[], Collection<String>>> e : entries.entrySet()) {
+                out.write(toHex(e.getValue().getKey()));
+                out.write('\t');
+                out.write(e.getKey().getPath());
+
+                for (String usage : e.getValue().getValue()) {
+                    out.write('\t');
+                    out.write(usage);
+                }
+
+                out.write('\n');
             }
+
+            statusEntries = append ? statusEntries + changed.size() : grammars.size();
+        } finally {
+            out.close();
         }
+
+        changed.clear();
     }
 
     /**
@@ -112,9 +158,7 @@ class GrammarDependencies {
             Collection<String> usages = findUsages(getRelativePath(grammarFile));
 
             if (!usages.isEmpty()) {
-                grammars.put(grammarFile,
-                    new AbstractMap.SimpleImmutableEntry<byte[], Collection<String>>(
-                        MojoUtils.checksum(grammarFile), usages));
+                put(grammarFile, usages);
 
                 log.debug("  " + getRelativePath(grammarFile) + " used by " + usages);
             }
@@ -125,9 +169,7 @@ class GrammarDependencies {
             Collection<String> usages = findUsages(grammarFile.getName());
 
             if (!usages.isEmpty()) {
-                grammars.put(grammarFile,
-                    new AbstractMap.SimpleImmutableEntry<byte[], Collection<String>>(
-                        MojoUtils.checksum(grammarFile), usages));
+                put(grammarFile, usages);
 
                 log.debug("  " + grammarFile.getName() + " imported by " + usages);
             }
@@ -136,6 +178,19 @@ class GrammarDependencies {
         return this;
     }
 
+    private void put(File grammarFile, Collection<String> usages) throws IOException {
+        byte[] checksum = MojoUtils.checksum(grammarFile);
+        Map.Entry<byte[], Collection<String>> previous = grammars.get(grammarFile);
+
+        if (previous == null || !Arrays.equals(previous.getKey(), checksum) ||
+            !previous.getValue().equals(usages)) {
+            Map.Entry<byte[], Collection<String>> entry =
+                new AbstractMap.SimpleImmutableEntry<byte[], Collection<String>>(checksum, usages);
+            grammars.put(grammarFile, entry);
+            changed.put(grammarFile, entry);
+        }
+    }
+
 
     /**
      * Determines whether a grammar used by the given grammar was modified since the last
@@ -209,20 +264,63 @@ class GrammarDependencies {
         }
     }
 
-    private void analyse(File grammarFile, Collection<File> grammarFiles, Tool tool) {
+    private void analyse(File grammarFile, Collection<File> grammarFiles, Tool tool)
+        throws IOException {
+        References references = getReferences(grammarFile, tool);
+
+        if (references == null)
+            return;
+
+        for (String id : references.imports) {
+            String grammarPath = getRelativePath(grammarFile);
+
+            graph.addEdge(id + ".g4", grammarPath);
+        }
+
+        for (String value : references.tokenVocabs) {
+            String name = stripQuotes(value);
+            // the grammar name may be qualified, but we resolve the path anyway
+            String grammarName = stripPath(name);
+            String grammarPath = MojoUtils.findSourceSubdir(sourceDirectory,
+                    grammarFile);
+            File depGrammarFile = resolve(grammarName, grammarPath);
+
+            // if a package has been given, we use it instead of the file directory path
+            // (files probably reside in the root directory anyway with such a configuration )
+            if (packageName != null)
+                grammarPath = packageName;
+
+            graph.addEdge(getRelativePath(depGrammarFile),
+                grammarPath + grammarFile.getName());
+        }
+    }
+
+    /**
+     * Parses the given grammar, unless a grammar with the same path and content was
+     * parsed before in this JVM.
+     *
+     * @return  the references of the grammar, or {@code null} if it could not be parsed.
+     */
+    private References getReferences(File grammarFile, Tool tool) throws IOException {
+        String key = grammarFile.getAbsolutePath() + '\t' + toHex(MojoUtils.checksum(grammarFile));
+        References references = parsedGrammars.get(key);
+
+        if (references != null)
+            return references;
+
         GrammarRootAST grammar = tool.parseGrammar(grammarFile.getAbsolutePath());
 
         if (grammar == null)
-            return;
+            return null;
+
+        references = new References();
 
         for (GrammarAST importDecl : grammar.getAllChildrenWithType(ANTLRParser.IMPORT)) {
             for (Tree id: importDecl.getAllChildrenWithType(ANTLRParser.ID)) {
                 // missing id is not valid, but we don't want to prevent the root cause from
                 // being reported by the ANTLR tool
                 if (id != null) {
-                    String grammarPath = getRelativePath(grammarFile);
-
-                    graph.addEdge(id.getText() + ".g4", grammarPath);
+                    references.imports.add(id.getText());
                 }
             }
         }
@@ -232,28 +330,21 @@ class GrammarDependencies {
                 Tree option = options.getChild(i);
 
                 if (option.getType() == ANTLRParser.ASSIGN) {
-                    String key = option.getChild(0).getText();
+                    String optionName = option.getChild(0).getText();
                     String value = option.getChild(1).getText();
 
-                    if ("tokenVocab".equals(key)) {
-                        String name = stripQuotes(value);
-                        // the grammar name may be qualified, but we resolve the path anyway
-                        String grammarName = stripPath(name);
-                        String grammarPath = MojoUtils.findSourceSubdir(sourceDirectory,
-                                grammarFile);
-                        File depGrammarFile = resolve(grammarName, grammarPath);
-
-                        // if a package has been given, we use it instead of the file directory path
-                        // (files probably reside in the root directory anyway with such a configuration )
-                        if (packageName != null)
-                            grammarPath = packageName;
-
-                        graph.addEdge(getRelativePath(depGrammarFile),
-                            grammarPath + grammarFile.getName());
+                    if ("tokenVocab".equals(optionName)) {
+                        references.tokenVocabs.add(value);
                     }
                 }
             }
         }
+
+        // grammars with syntax errors are parsed again, so the errors are reported again
+        if (!grammar.hasErrors)
+            parsedGrammars.put(key, references);
+
+        return references;
     }
 
     /**
@@ -278,30 +369,69 @@ class GrammarDependencies {
         return new File(libDirectory, name + ".tokens");
     }
 
+    /**
+     * Loads the dependency status. Each line holds the checksum, path and usages of a
+     * grammar, separated by tabs; later lines override earlier ones for the same path.
+     */
     private Map<File, Map.Entry<byte[], Collection<String>>> loadStatus(File statusFile) {
+        Map<File, Map.Entry<byte[], Collection<String>>> data =
+            new HashMap<File, Map.Entry<byte[], Collection<String>>>();
+
         if (statusFile.exists()) {
             log.debug("Load grammars dependency status: " + statusFile);
 
             try {
-                ObjectInputStream in = new ObjectInputStream(new FileInputStream(
-                            statusFile));
+                BufferedReader in = new BufferedReader(new InputStreamReader(
+                            new FileInputStream(statusFile), StandardCharsets.UTF_8));
 
                 try {
-                    @SuppressWarnings("unchecked")
-                    Map<File, Map.Entry<byte[], Collection<String>>> data =
-                        (Map<File, Map.Entry<byte[], Collection<String>>>)
-                        in.readObject();
+                    String line;
+
+                    while ((line = in.readLine()) != null) {
+                        String[] fields = line.split("\t");
 
-                    return data;
+                        if (fields.length < 2)
+                            continue; // truncated by an interrupted build
+
+                        Collection<String> usages = new ArrayList<String>(
+                                Arrays.asList(fields).subList(2, fields.length));
+                        data.put(new File(fields[1]),
+                            new AbstractMap.SimpleImmutableEntry<byte[], Collection<String>>(
+                                fromHex(fields[0]), usages));
+                        statusEntries++;
+                    }
                 } finally {
                     in.close();
                 }
             } catch (Exception ex) {
                 log.warn("Could not load grammar dependency status information", ex);
+                data.clear();
+                statusEntries = 0;
             }
         }
 
-        return new HashMap<File, Map.Entry<byte[], Collection<String>>>();
+        return data;
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder buf = new StringBuilder(bytes.length * 2);
+
+        for (byte b : bytes) {
+            buf.append(Character.forDigit((b >> 4) & 0xF, 16));
+            buf.append(Character.forDigit(b & 0xF, 16));
+        }
+
+        return buf.toString();
+    }
+
+    private static byte[] fromHex(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte)Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+        }
+
+        return bytes;
     }
 
     private String stripPath(String str) {
@@ -311,4 +441,10 @@ class GrammarDependencies {
     private String stripQuotes(String str) {
         return str.replaceAll("\\A'|'\\Z", "");
     }
+
+    /** The grammars a grammar refers to. */
+    private static final class References {
+        final List<String> imports = new ArrayList<String>();
+        final List<String> tokenVocabs = new ArrayList<String>();
+    }
 }
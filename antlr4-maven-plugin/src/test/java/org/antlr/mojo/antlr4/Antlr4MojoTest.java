@@ -19,6 +19,7 @@ import org.junit.rules.ExpectedException;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
@@ -312,6 +313,58 @@ public class Antlr4MojoTest {
         assertTrue(Arrays.equals(origHelloSum, checksum(genHello)));
     }
 
+    @Test
+    public void parallelCachedGeneration() throws Exception {
+        Path baseDir = resources.getBasedir("importsStandard").toPath();
+        Path generatedSources = baseDir.resolve("target/generated-sources/antlr4");
+        Path cacheDir = baseDir.resolve("target/antlr4-cache");
+
+        Path genTestLexer = generatedSources.resolve("test/TestLexer.java");
+        Path genTestParser = generatedSources.resolve("test/TestParser.java");
+        Path genHello = generatedSources.resolve("test/HelloParser.java");
+
+        MavenProject project = maven.readMavenProject(baseDir.toFile());
+        MavenSession session = maven.newMavenSession(project);
+        MojoExecution exec = maven.newMojoExecution("antlr4",
+                TestMavenRuntime.newParameter("parallel", "true"),
+                TestMavenRuntime.newParameter("cacheDirectory", cacheDir.toString()));
+
+        ////////////////////////////////////////////////////////////////////////
+        // 1st - all grammars have to be processed
+        ////////////////////////////////////////////////////////////////////////
+
+        maven.executeMojo(session, project, exec);
+
+        assertTrue(Files.exists(genHello));
+        assertTrue(Files.exists(genTestParser));
+        assertTrue(Files.exists(genTestLexer));
+        assertTrue(Files.isDirectory(cacheDir.resolve("outputs")));
+        byte[] origTestLexerSum = checksum(genTestLexer);
+        byte[] origTestParserSum = checksum(genTestParser);
+        byte[] origHelloSum = checksum(genHello);
+
+        ////////////////////////////////////////////////////////////////////////
+        // 2nd - the generated files are gone, they are restored from the cache
+        ////////////////////////////////////////////////////////////////////////
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(generatedSources.resolve("test"))) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(generatedSources, "*.tokens")) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+
+        maven.executeMojo(session, project, exec);
+
+        assertTrue(Arrays.equals(origTestLexerSum, checksum(genTestLexer)));
+        assertTrue(Arrays.equals(origTestParserSum, checksum(genTestParser)));
+        assertTrue(Arrays.equals(origHelloSum, checksum(genHello)));
+    }
+
     @Test
     public void processWhenDependencyRemoved() throws Exception {
         Path baseDir = resources.getBasedir("dependencyRemoved").toPath();
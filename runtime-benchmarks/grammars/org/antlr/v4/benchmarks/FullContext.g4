@@ -0,0 +1,27 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+/** The alternatives of {@code stat} only differ in what follows the rule,
+ *  so SLL prediction conflicts on every statement and falls back to full
+ *  LL prediction, which looks at the invoking rules.
+ */
+grammar FullContext;
+
+file
+	:	(	stat ';'
+		|	'(' stat ')'
+		|	'{' stat '}' ';'
+		)*
+		EOF
+	;
+
+stat
+	:	ID ('.' ID)*
+	|	ID ('.' ID)* ';'
+	;
+
+ID	:	[a-zA-Z_] [a-zA-Z_0-9]* ;
+WS	:	[ \t\r\n]+ -> skip ;
@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.benchmarks;
+
+import org.openjdk.jmh.Main;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/** The main class of {@code benchmarks.jar}. It runs JMH with the given
+ *  arguments, but writes the results as JSON to {@value #DEFAULT_RESULT_FILE}
+ *  unless {@code -rf} or {@code -rff} says otherwise, so every run leaves a
+ *  file that regressions can be tracked with.
+ *
+ *  $ java -jar runtime-benchmarks/target/benchmarks.jar [jmh-options] [benchmark-regexp]
+ */
+public class BenchmarkRunner {
+	public static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+	public static void main(String[] args) throws Exception {
+		List<String> jmhArgs = new ArrayList<String>(Arrays.asList(args));
+		if (!jmhArgs.contains("-rf")) {
+			jmhArgs.add("-rf");
+			jmhArgs.add("json");
+		}
+		if (!jmhArgs.contains("-rff")) {
+			jmhArgs.add("-rff");
+			jmhArgs.add(DEFAULT_RESULT_FILE);
+		}
+		Main.main(jmhArgs.toArray(new String[jmhArgs.size()]));
+	}
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.benchmarks;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/** Reading input into a {@link CharStream}. The {@code latin1} input has
+ *  characters that are two bytes in UTF-8 and the {@code utf8} input ones
+ *  outside Latin-1 and outside the BMP, which take the wider code point
+ *  buffers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CharStreamsBenchmark {
+	@Param({"ascii", "latin1", "utf8"})
+	public String content;
+
+	@Param({"20"})
+	public int files;
+
+	private String text;
+	private Path file;
+
+	@Setup
+	public void setup() throws IOException {
+		StringBuilder buf = new StringBuilder();
+		for (String source : Corpus.java(files, 10)) {
+			buf.append(source);
+		}
+		text = buf.toString();
+		if (content.equals("latin1")) {
+			text = text.replace("value", "v\u00e4lue");
+		}
+		else if (content.equals("utf8")) {
+			text = text.replace("value", "v\u00e4lue\u4e2d\ud83d\ude00");
+		}
+		file = Files.createTempFile("antlr-benchmark", ".txt");
+		Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		Files.delete(file);
+	}
+
+	@Benchmark
+	public CharStream fromPath() throws IOException {
+		return CharStreams.fromPath(file, StandardCharsets.UTF_8);
+	}
+
+	@Benchmark
+	public CharStream fromString() {
+		return CharStreams.fromString(text);
+	}
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/** Generates the inputs of the benchmarks. The same seed always gives the
+ *  same corpus, so results are comparable between runs and revisions.
+ */
+public class Corpus {
+	public static final long SEED = 0x414E544CL;
+
+	private static final String[] NAMES = {
+		"value", "count", "items", "result", "index", "buffer", "offset", "name",
+		"node", "parent", "left", "right", "key", "size", "total", "state"
+	};
+
+	private static final String[] TYPES = {
+		"int", "long", "String", "List<String>", "Map<String, List<Integer>>", "Object[]", "boolean"
+	};
+
+	private final Random random;
+
+	public Corpus(long seed) {
+		this.random = new Random(seed);
+	}
+
+	/** Get {@code n} Java compilation units of about {@code methods} methods
+	 *  each, in the syntax of the JavaLR grammar.
+	 */
+	public static List<String> java(int n, int methods) {
+		Corpus corpus = new Corpus(SEED);
+		List<String> files = new ArrayList<String>(n);
+		for (int i = 0; i < n; i++) {
+			files.add(corpus.javaFile(i, methods));
+		}
+		return files;
+	}
+
+	/** Get {@code n} inputs of the FullContext grammar with {@code items}
+	 *  items each.
+	 */
+	public static List<String> fullContext(int n, int items) {
+		Corpus corpus = new Corpus(SEED);
+		List<String> files = new ArrayList<String>(n);
+		for (int i = 0; i < n; i++) {
+			files.add(corpus.fullContextFile(items));
+		}
+		return files;
+	}
+
+	public String javaFile(int index, int methods) {
+		StringBuilder buf = new StringBuilder();
+		buf.append("/*\n * Generated benchmark input ").append(index).append(".\n */\n");
+		buf.append("package org.example.p").append(index % 7).append(";\n\n");
+		buf.append("import java.util.ArrayList;\n");
+		buf.append("import java.util.List;\n");
+		buf.append("import java.util.Map;\n\n");
+		buf.append("public class C").append(index).append(" extends Base implements Runnable {\n");
+		buf.append("\tpublic static final String NAME = \"C").append(index).append("\";\n");
+		for (int f = 0; f < 4; f++) {
+			buf.append("\tprivate ").append(pick(TYPES)).append(' ').append(pick(NAMES)).append(f).append(";\n");
+		}
+		buf.append('\n');
+		buf.append("\tpublic C").append(index).append("(int a, String b) {\n");
+		buf.append("\t\tsuper(a);\n");
+		buf.append("\t\tthis.value0 = a;\n");
+		buf.append("\t}\n\n");
+		for (int m = 0; m < methods; m++) {
+			method(buf, m);
+		}
+		buf.append("\t@Override\n");
+		buf.append("\tpublic void run() {\n");
+		buf.append("\t\tm0(3, new ArrayList<String>());\n");
+		buf.append("\t}\n");
+		buf.append("}\n");
+		return buf.toString();
+	}
+
+	protected void method(StringBuilder buf, int m) {
+		buf.append("\t// method ").append(m).append('\n');
+		buf.append("\tpublic int m").append(m).append("(int x, List<String> names) {\n");
+		buf.append("\t\tint total = 0;\n");
+		int n = 4 + random.nextInt(8);
+		for (int i = 0; i < n; i++) {
+			statement(buf, "\t\t", 2);
+		}
+		buf.append("\t\treturn total + x;\n");
+		buf.append("\t}\n\n");
+	}
+
+	protected void statement(StringBuilder buf, String indent, int depth) {
+		String v = pick(NAMES);
+		switch (random.nextInt(depth > 0 ? 10 : 6)) {
+			case 0:
+				buf.append(indent).append("int ").append(v).append(" = ").append(expression(3)).append(";\n");
+				buf.append(indent).append("total += ").append(v).append(";\n");
+				break;
+			case 1:
+				buf.append(indent).append("total = ").append(expression(4)).append(";\n");
+				break;
+			case 2:
+				buf.append(indent).append("String s = \"").append(v).append(" \" + total + NAME;\n");
+				buf.append(indent).append("names.add(s.trim().substring(1));\n");
+				break;
+			case 3:
+				buf.append(indent).append("Map<String, List<Integer>> ").append(v).append(" = null;\n");
+				break;
+			case 4:
+				buf.append(indent).append("int[] ").append(v).append(" = new int[] {1, 2, 3};\n");
+				buf.append(indent).append(v).append("[0] = x > 0 ? ").append(v).append("[1] : ").append(v).append("[2];\n");
+				break;
+			case 5:
+				buf.append(indent).append("total++;\n");
+				break;
+			case 6:
+				buf.append(indent).append("for (int i = 0; i < x; i++) {\n");
+				statement(buf, indent + "\t", depth - 1);
+				buf.append(indent).append("}\n");
+				break;
+			case 7:
+				buf.append(indent).append("if (").append(expression(2)).append(" > 10 && x != 0 || !names.isEmpty()) {\n");
+				statement(buf, indent + "\t", depth - 1);
+				buf.append(indent).append("}\n");
+				buf.append(indent).append("else {\n");
+				statement(buf, indent + "\t", depth - 1);
+				buf.append(indent).append("}\n");
+				break;
+			case 8:
+				buf.append(indent).append("while (total > 100) {\n");
+				buf.append(indent).append("\ttotal /= 2;\n");
+				buf.append(indent).append("}\n");
+				break;
+			default:
+				buf.append(indent).append("try {\n");
+				statement(buf, indent + "\t", depth - 1);
+				buf.append(indent).append("}\n");
+				buf.append(indent).append("catch (IllegalStateException | IllegalArgumentException e) {\n");
+				buf.append(indent).append("\tthrow new RuntimeException(e.getMessage(), e);\n");
+				buf.append(indent).append("}\n");
+				break;
+		}
+	}
+
+	protected String expression(int depth) {
+		if (depth == 0) {
+			switch (random.nextInt(4)) {
+				case 0: return String.valueOf(random.nextInt(1000));
+				case 1: return "x";
+				case 2: return "total";
+				default: return "names.get(" + random.nextInt(10) + ").length()";
+			}
+		}
+		switch (random.nextInt(6)) {
+			case 0: return expression(depth - 1) + " + " + expression(depth - 1);
+			case 1: return expression(depth - 1) + " * " + expression(depth - 1);
+			case 2: return "(" + expression(depth - 1) + " - " + expression(depth - 1) + ")";
+			case 3: return expression(depth - 1) + " << 2";
+			case 4: return "Math.max(" + expression(depth - 1) + ", " + expression(depth - 1) + ")";
+			default: return expression(depth - 1) + " % 7";
+		}
+	}
+
+	public String fullContextFile(int items) {
+		StringBuilder buf = new StringBuilder();
+		for (int i = 0; i < items; i++) {
+			StringBuilder name = new StringBuilder(pick(NAMES));
+			int n = random.nextInt(5);
+			for (int j = 0; j < n; j++) {
+				name.append('.').append(pick(NAMES));
+			}
+			boolean semi = random.nextBoolean();
+			switch (random.nextInt(3)) {
+				case 0: buf.append(name).append(semi ? ";;" : ";"); break;
+				case 1: buf.append('(').append(name).append(semi ? ";)" : ")"); break;
+				default: buf.append('{').append(name).append(semi ? ";};" : "};"); break;
+			}
+			buf.append(i % 8 == 7 ? '\n' : ' ');
+		}
+		return buf.toString();
+	}
+
+	protected String pick(String[] choices) {
+		return choices[random.nextInt(choices.length)];
+	}
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.benchmarks;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Full-context prediction: every statement of the FullContext grammar
+ *  takes an SLL conflict and a full LL prediction, which the DFA can't
+ *  cache. {@code SLL} mode, which resolves the conflicts to the minimum
+ *  alternative, shows what the fallback costs; it gets syntax errors.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FullContextBenchmark {
+	@Param({"LL", "LL_EXACT_AMBIG_DETECTION", "SLL"})
+	public PredictionMode mode;
+
+	@Param({"20"})
+	public int files;
+
+	private final List<CommonTokenStream> inputs = new ArrayList<CommonTokenStream>();
+	private FullContextParser parser;
+
+	@Setup
+	public void setup() {
+		for (String source : Corpus.fullContext(files, 400)) {
+			CommonTokenStream tokens = new CommonTokenStream(new FullContextLexer(CharStreams.fromString(source)));
+			tokens.fill();
+			inputs.add(tokens);
+		}
+		parser = new FullContextParser(null);
+		parser.setBuildParseTree(false);
+		parser.removeErrorListeners();
+		parser.getInterpreter().setPredictionMode(mode);
+	}
+
+	/** Return the number of syntax errors. */
+	@Benchmark
+	public int parse() {
+		int errors = 0;
+		for (CommonTokenStream tokens : inputs) {
+			tokens.seek(0);
+			parser.setInputStream(tokens);
+			parser.file();
+			errors += parser.getNumberOfSyntaxErrors();
+		}
+		return errors;
+	}
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.benchmarks;
+
+import org.antlr.v4.benchmarks.java.JavaLRLexer;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.Token;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Lexing the Java corpus. With a {@code cold} DFA every pass builds the
+ *  lexer DFA again from the ATN, which is what the first files an
+ *  application lexes pay for.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LexerBenchmark {
+	@Param({"warm", "cold"})
+	public String dfa;
+
+	@Param({"20"})
+	public int files;
+
+	private final List<CharStream> inputs = new ArrayList<CharStream>();
+	private JavaLRLexer lexer;
+
+	@Setup
+	public void setup() {
+		for (String source : Corpus.java(files, 10)) {
+			inputs.add(CharStreams.fromString(source));
+		}
+		lexer = new JavaLRLexer(null);
+		lex();
+	}
+
+	@Setup(Level.Invocation)
+	public void clearDFA() {
+		if (dfa.equals("cold")) {
+			lexer.getInterpreter().clearDFA();
+		}
+	}
+
+	/** Return the number of tokens. */
+	@Benchmark
+	public int lex() {
+		int n = 0;
+		for (CharStream input : inputs) {
+			input.seek(0);
+			lexer.setInputStream(input);
+			while (lexer.nextToken().getType() != Token.EOF) {
+				n++;
+			}
+		}
+		return n;
+	}
+}
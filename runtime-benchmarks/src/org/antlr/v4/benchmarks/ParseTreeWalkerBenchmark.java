@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.benchmarks;
+
+import org.antlr.v4.benchmarks.java.JavaLRBaseListener;
+import org.antlr.v4.benchmarks.java.JavaLRLexer;
+import org.antlr.v4.benchmarks.java.JavaLRParser;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.tree.ArrayStackParseTreeWalker;
+import org.antlr.v4.runtime.tree.IterativeParseTreeWalker;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+import org.antlr.v4.runtime.tree.TerminalNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Walking the parse trees of the Java corpus with a listener generated
+ *  for the grammar, with each of the runtime's walkers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ParseTreeWalkerBenchmark {
+	@Param({"recursive", "iterative", "arrayStack"})
+	public String walker;
+
+	@Param({"20"})
+	public int files;
+
+	private final List<ParseTree> trees = new ArrayList<ParseTree>();
+	private final CountingListener listener = new CountingListener();
+	private ParseTreeWalker treeWalker;
+
+	/** Counts the events a listener of the grammar gets. */
+	public static class CountingListener extends JavaLRBaseListener {
+		public int events;
+
+		@Override
+		public void enterEveryRule(ParserRuleContext ctx) {
+			events++;
+		}
+
+		@Override
+		public void exitEveryRule(ParserRuleContext ctx) {
+			events++;
+		}
+
+		@Override
+		public void visitTerminal(TerminalNode node) {
+			events++;
+		}
+	}
+
+	@Setup
+	public void setup() {
+		for (String source : Corpus.java(files, 10)) {
+			JavaLRParser parser = new JavaLRParser(new CommonTokenStream(new JavaLRLexer(CharStreams.fromString(source))));
+			trees.add(parser.compilationUnit());
+		}
+		if (walker.equals("recursive")) {
+			treeWalker = ParseTreeWalker.DEFAULT;
+		}
+		else if (walker.equals("iterative")) {
+			treeWalker = new IterativeParseTreeWalker();
+		}
+		else {
+			treeWalker = new ArrayStackParseTreeWalker();
+		}
+	}
+
+	/** Return the number of listener events. */
+	@Benchmark
+	public int walk() {
+		listener.events = 0;
+		for (ParseTree tree : trees) {
+			treeWalker.walk(listener, tree);
+		}
+		return listener.events;
+	}
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.benchmarks;
+
+import org.antlr.v4.benchmarks.java.JavaLRLexer;
+import org.antlr.v4.benchmarks.java.JavaLRParser;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Parsing the pre-lexed Java corpus without building trees, so the time
+ *  goes to {@code ParserATNSimulator.adaptivePredict} and matching. With a
+ *  {@code cold} DFA the DFA is cleared before each pass and every decision
+ *  is simulated on the ATN again.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PredictionBenchmark {
+	@Param({"warm", "cold"})
+	public String dfa;
+
+	@Param({"LL", "SLL"})
+	public PredictionMode mode;
+
+	@Param({"20"})
+	public int files;
+
+	private final List<CommonTokenStream> inputs = new ArrayList<CommonTokenStream>();
+	private JavaLRParser parser;
+
+	@Setup
+	public void setup() {
+		for (String source : Corpus.java(files, 10)) {
+			CommonTokenStream tokens = new CommonTokenStream(new JavaLRLexer(CharStreams.fromString(source)));
+			tokens.fill();
+			inputs.add(tokens);
+		}
+		parser = new JavaLRParser(null);
+		parser.setBuildParseTree(false);
+		parser.removeErrorListeners();
+		parser.getInterpreter().setPredictionMode(mode);
+		parse();
+	}
+
+	@Setup(Level.Invocation)
+	public void clearDFA() {
+		if (dfa.equals("cold")) {
+			parser.getInterpreter().clearDFA();
+		}
+	}
+
+	/** Return the number of syntax errors, which is 0 for the LL mode. */
+	@Benchmark
+	public int parse() {
+		int errors = 0;
+		for (CommonTokenStream tokens : inputs) {
+			tokens.seek(0);
+			parser.setInputStream(tokens);
+			parser.compilationUnit();
+			errors += parser.getNumberOfSyntaxErrors();
+		}
+		return errors;
+	}
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.benchmarks;
+
+import org.antlr.v4.runtime.atn.PredictionContext;
+import org.antlr.v4.runtime.atn.SingletonPredictionContext;
+import org.antlr.v4.runtime.misc.DoubleKeyMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/** {@link PredictionContext#merge} of call stacks like those of the
+ *  configurations of one prediction: singleton stacks that share their
+ *  bottom frames, and array stacks built by merging a few of those.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PredictionContextMergeBenchmark {
+	private static final int PAIRS = 256;
+
+	@Param({"true", "false"})
+	public boolean rootIsWildcard;
+
+	@Param({"true", "false"})
+	public boolean mergeCache;
+
+	private final PredictionContext[] singletonsA = new PredictionContext[PAIRS];
+	private final PredictionContext[] singletonsB = new PredictionContext[PAIRS];
+	private final PredictionContext[] arraysA = new PredictionContext[PAIRS];
+	private final PredictionContext[] arraysB = new PredictionContext[PAIRS];
+
+	@Setup
+	public void setup() {
+		Random random = new Random(Corpus.SEED);
+		PredictionContext[] bottoms = new PredictionContext[8];
+		for (int i = 0; i < bottoms.length; i++) {
+			bottoms[i] = push(PredictionContext.EMPTY, 1 + random.nextInt(4), random);
+		}
+		for (int i = 0; i < PAIRS; i++) {
+			PredictionContext bottom = bottoms[random.nextInt(bottoms.length)];
+			singletonsA[i] = push(bottom, 1 + random.nextInt(6), random);
+			singletonsB[i] = push(bottom, 1 + random.nextInt(6), random);
+		}
+		for (int i = 0; i < PAIRS; i++) {
+			arraysA[i] = mergeAll(singletonsA, random, 2 + random.nextInt(6));
+			arraysB[i] = mergeAll(singletonsB, random, 2 + random.nextInt(6));
+		}
+	}
+
+	private static PredictionContext push(PredictionContext parent, int depth, Random random) {
+		PredictionContext context = parent;
+		for (int i = 0; i < depth; i++) {
+			context = SingletonPredictionContext.create(context, 1 + random.nextInt(200));
+		}
+		return context;
+	}
+
+	private PredictionContext mergeAll(PredictionContext[] contexts, Random random, int n) {
+		PredictionContext context = contexts[random.nextInt(contexts.length)];
+		for (int i = 1; i < n; i++) {
+			context = PredictionContext.merge(context, contexts[random.nextInt(contexts.length)], rootIsWildcard, null);
+		}
+		return context;
+	}
+
+	@Benchmark
+	public void mergeSingletons(Blackhole blackhole) {
+		merge(singletonsA, singletonsB, blackhole);
+	}
+
+	@Benchmark
+	public void mergeArrays(Blackhole blackhole) {
+		merge(arraysA, arraysB, blackhole);
+	}
+
+	private void merge(PredictionContext[] a, PredictionContext[] b, Blackhole blackhole) {
+		DoubleKeyMap<PredictionContext, PredictionContext, PredictionContext> cache =
+			mergeCache ? new DoubleKeyMap<PredictionContext, PredictionContext, PredictionContext>() : null;
+		for (int i = 0; i < a.length; i++) {
+			blackhole.consume(PredictionContext.merge(a[i], b[i], rootIsWildcard, cache));
+		}
+	}
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.benchmarks;
+
+import org.antlr.v4.benchmarks.java.JavaLRLexer;
+import org.antlr.v4.benchmarks.java.JavaLRParser;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/** Lexing and parsing Java files on all cores, with a new lexer and parser
+ *  per file as applications do. The generated recognizers share their DFA
+ *  between all instances, so the threads contend on adding DFA states and
+ *  edges; with a {@code cold} DFA it is cleared before every iteration and
+ *  the threads build it concurrently.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(Threads.MAX)
+public class SharedDFABenchmark {
+	@State(Scope.Benchmark)
+	public static class SharedState {
+		@Param({"warm", "cold"})
+		public String dfa;
+
+		@Param({"50"})
+		public int files;
+
+		public List<String> sources;
+
+		@Setup
+		public void setup() {
+			sources = Corpus.java(files, 10);
+		}
+
+		@Setup(Level.Iteration)
+		public void clearDFA() {
+			if (dfa.equals("cold")) {
+				new JavaLRLexer(null).getInterpreter().clearDFA();
+				new JavaLRParser(null).getInterpreter().clearDFA();
+			}
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class ThreadState {
+		public int next;
+
+		@Setup
+		public void setup() {
+			// threads start at different files
+			next = ThreadLocalRandom.current().nextInt(1000);
+		}
+	}
+
+	@Benchmark
+	public ParserRuleContext parse(SharedState shared, ThreadState thread) {
+		String source = shared.sources.get(thread.next++ % shared.sources.size());
+		JavaLRParser parser = new JavaLRParser(new CommonTokenStream(new JavaLRLexer(CharStreams.fromString(source))));
+		return parser.compilationUnit();
+	}
+}
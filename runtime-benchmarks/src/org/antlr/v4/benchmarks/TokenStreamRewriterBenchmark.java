@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.benchmarks;
+
+import org.antlr.v4.benchmarks.java.JavaLRLexer;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.TokenStreamRewriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** {@link TokenStreamRewriter#getText()} of the Java corpus with an
+ *  insertion, replacement or deletion every {@code editInterval} tokens.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TokenStreamRewriterBenchmark {
+	@Param({"2", "10", "100"})
+	public int editInterval;
+
+	@Param({"20"})
+	public int files;
+
+	private final List<TokenStreamRewriter> rewriters = new ArrayList<TokenStreamRewriter>();
+
+	@Setup
+	public void setup() {
+		for (String source : Corpus.java(files, 10)) {
+			CommonTokenStream tokens = new CommonTokenStream(new JavaLRLexer(CharStreams.fromString(source)));
+			tokens.fill();
+			TokenStreamRewriter rewriter = new TokenStreamRewriter(tokens);
+			// stop before EOF
+			for (int i = 0; i < tokens.size() - 1; i += editInterval) {
+				switch (i / editInterval % 4) {
+					case 0: rewriter.insertBefore(i, "/* before */"); break;
+					case 1: rewriter.replace(i, "replaced"); break;
+					case 2: rewriter.insertAfter(i, " "); break;
+					default: rewriter.delete(i); break;
+				}
+			}
+			rewriters.add(rewriter);
+		}
+	}
+
+	/** Return the length of the rewritten text. */
+	@Benchmark
+	public int getText() {
+		int n = 0;
+		for (TokenStreamRewriter rewriter : rewriters) {
+			n += rewriter.getText().length();
+		}
+		return n;
+	}
+}
@@ -0,0 +1,23 @@
+grammar LabeledBlock;
+
+file
+	:	block EOF
+	;
+
+block
+	:	'{' first=stat stats+=stat* '}'
+	;
+
+stat
+	:	ID '=' value=expr ';'
+	|	block
+	;
+
+expr
+	:	ID
+	|	INT
+	;
+
+ID : [a-z]+;
+INT : [0-9]+;
+WS : [ \t\r\n]+ -> channel(HIDDEN);
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+package org.antlr.v4.test.runtime.java.api;
+
+import org.antlr.v4.runtime.CommonToken;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.tree.ArrayStackParseTreeWalker;
+import org.antlr.v4.runtime.tree.ErrorNode;
+import org.antlr.v4.runtime.tree.ErrorNodeImpl;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.ParseTreeListener;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+import org.antlr.v4.runtime.tree.TerminalNode;
+import org.antlr.v4.runtime.tree.TerminalNodeImpl;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestArrayStackParseTreeWalker {
+	/**
+	 * Records every event with the text of the node it is for.
+	 */
+	static class RecordingListener implements ParseTreeListener {
+		final StringBuilder events = new StringBuilder();
+
+		@Override
+		public void visitTerminal(TerminalNode node) { events.append(" t:").append(node.getText()); }
+
+		@Override
+		public void visitErrorNode(ErrorNode node) { events.append(" e:").append(node.getText()); }
+
+		@Override
+		public void enterEveryRule(ParserRuleContext ctx) { events.append(" (").append(ctx.getAltNumber()); }
+
+		@Override
+		public void exitEveryRule(ParserRuleContext ctx) { events.append(" )").append(ctx.getAltNumber()); }
+	}
+
+	/**
+	 * Walks a subtree with the walker that is running at the first error
+	 * node, as a listener may do from an event.
+	 */
+	static class NestingListener extends RecordingListener {
+		final ParseTreeWalker walker;
+		final ParseTree subtree;
+		boolean nested;
+
+		NestingListener(ParseTreeWalker walker, ParseTree subtree) {
+			this.walker = walker;
+			this.subtree = subtree;
+		}
+
+		@Override
+		public void visitErrorNode(ErrorNode node) {
+			super.visitErrorNode(node);
+			if (!nested) {
+				nested = true;
+				walker.walk(this, subtree);
+			}
+		}
+	}
+
+	/**
+	 * This test verifies that the events and their order match those of
+	 * {@link ParseTreeWalker#DEFAULT} on a nested tree with error nodes,
+	 * including when the stacks have to grow.
+	 */
+	@Test
+	public void testSameEventsAsDefaultWalker() {
+		ParseTree tree = createTree();
+		String expected = walk(ParseTreeWalker.DEFAULT, tree);
+		Assert.assertEquals(" (1 t:a (2 e:b (3 (4 t:c e:d )4 )3 t:e )2 (5 )5 e:f t:g )1", expected);
+
+		ArrayStackParseTreeWalker walker = new ArrayStackParseTreeWalker(1);
+		Assert.assertEquals(expected, walk(walker, tree));
+		// again with the stacks grown by the first walk
+		Assert.assertEquals(expected, walk(walker, tree));
+		Assert.assertEquals(expected, walk(new ArrayStackParseTreeWalker(), tree));
+	}
+
+	/**
+	 * This test verifies that a walker can be used again by a listener while
+	 * it walks a tree, and that the outer walk goes on where it was.
+	 */
+	@Test
+	public void testReentrantWalk() {
+		ParseTree tree = createTree();
+		ParseTree subtree = tree.getChild(1).getChild(1);
+
+		NestingListener expected = new NestingListener(ParseTreeWalker.DEFAULT, subtree);
+		ParseTreeWalker.DEFAULT.walk(expected, tree);
+		Assert.assertEquals(" (1 t:a (2 e:b (3 (4 t:c e:d )4 )3 (3 (4 t:c e:d )4 )3 t:e )2 (5 )5 e:f t:g )1",
+							expected.events.toString());
+
+		ArrayStackParseTreeWalker walker = new ArrayStackParseTreeWalker(1);
+		NestingListener listener = new NestingListener(walker, subtree);
+		walker.walk(listener, tree);
+		Assert.assertEquals(expected.events.toString(), listener.events.toString());
+		Assert.assertEquals(walk(ParseTreeWalker.DEFAULT, tree), walk(walker, tree));
+	}
+
+	private static String walk(ParseTreeWalker walker, ParseTree tree) {
+		RecordingListener listener = new RecordingListener();
+		walker.walk(listener, tree);
+		return listener.events.toString();
+	}
+
+	/**
+	 * Builds {@code (1 a (2 <b> (3 (4 c <d>)) e) (5) <f> g)}, where the
+	 * numbers are the alternatives of the contexts and {@code <x>} are
+	 * error nodes.
+	 */
+	private static ParseTree createTree() {
+		ParserRuleContext root = context(null, 1);
+		terminal(root, "a");
+		ParserRuleContext second = context(root, 2);
+		error(second, "b");
+		ParserRuleContext third = context(second, 3);
+		ParserRuleContext fourth = context(third, 4);
+		terminal(fourth, "c");
+		error(fourth, "d");
+		terminal(second, "e");
+		context(root, 5);
+		error(root, "f");
+		terminal(root, "g");
+		return root;
+	}
+
+	private static ParserRuleContext context(ParserRuleContext parent, final int alt) {
+		ParserRuleContext ctx = new ParserRuleContext(parent, -1) {
+			@Override
+			public int getAltNumber() { return alt; }
+		};
+		if (parent != null) {
+			parent.addChild(ctx);
+		}
+		return ctx;
+	}
+
+	private static void terminal(ParserRuleContext parent, String text) {
+		parent.addChild(new TerminalNodeImpl(new CommonToken(1, text)));
+	}
+
+	private static void error(ParserRuleContext parent, String text) {
+		parent.addErrorNode(new ErrorNodeImpl(new CommonToken(1, text)));
+	}
+}
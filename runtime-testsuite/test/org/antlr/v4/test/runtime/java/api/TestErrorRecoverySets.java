@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+package org.antlr.v4.test.runtime.java.api;
+
+import org.antlr.v4.runtime.ANTLRErrorStrategy;
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.Parser;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.RuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.atn.ATN;
+import org.antlr.v4.runtime.atn.ATNState;
+import org.antlr.v4.runtime.atn.RuleTransition;
+import org.antlr.v4.runtime.misc.IntervalSet;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestErrorRecoverySets {
+	private static final String[] INPUTS = {
+		"class T { void f() { int x = ; g(x)); } }",
+		"class T { int x y; void f( { } }",
+		"class { } class T { void f() { for (;;) { if (x { } } } int }",
+		"class T { void f() { a = b + * c; return return; } void g() { } }",
+		"class T extends { void f() { switch (x) { case : break; } } }",
+	};
+
+	/**
+	 * Computes the sets on every error, as before they were cached.
+	 */
+	static class UncachedErrorStrategy extends DefaultErrorStrategy {
+		@Override
+		protected IntervalSet getExpectedTokens(Parser recognizer) {
+			return recognizer.getExpectedTokens();
+		}
+
+		@Override
+		protected IntervalSet getErrorRecoverySet(Parser recognizer) {
+			ATN atn = recognizer.getInterpreter().atn;
+			RuleContext ctx = recognizer.getContext();
+			IntervalSet recoverSet = new IntervalSet();
+			while (ctx != null && ctx.invokingState >= 0) {
+				ATNState invokingState = atn.states.get(ctx.invokingState);
+				RuleTransition rt = (RuleTransition)invokingState.transition(0);
+				recoverSet.addAll(atn.nextTokens(rt.followState));
+				ctx = ctx.parent;
+			}
+			recoverSet.remove(Token.EPSILON);
+			return recoverSet;
+		}
+	}
+
+	/**
+	 * Changes the sets it gets from {@link DefaultErrorStrategy}, which must
+	 * therefore be copies.
+	 */
+	static class ModifyingErrorStrategy extends DefaultErrorStrategy {
+		@Override
+		protected IntervalSet getExpectedTokens(Parser recognizer) {
+			IntervalSet expected = super.getExpectedTokens(recognizer);
+			IntervalSet copy = new IntervalSet(expected);
+			expected.clear();
+			return copy;
+		}
+
+		@Override
+		protected IntervalSet getErrorRecoverySet(Parser recognizer) {
+			IntervalSet recoverSet = super.getErrorRecoverySet(recognizer);
+			IntervalSet copy = new IntervalSet(recoverSet);
+			recoverSet.clear();
+			return copy;
+		}
+	}
+
+	/**
+	 * This test verifies that the reported errors and the recovered trees
+	 * are the same with the cached sets as without, with a cold and a warm
+	 * cache.
+	 */
+	@Test
+	public void testRecoveryMatchesUncachedSets() {
+		for (String input : INPUTS) {
+			String expected = parse(input, new UncachedErrorStrategy());
+			Assert.assertTrue(expected, expected.contains("line 1:"));
+			Assert.assertEquals(expected, parse(input, new DefaultErrorStrategy()));
+			Assert.assertEquals(expected, parse(input, new DefaultErrorStrategy()));
+		}
+	}
+
+	/**
+	 * This test verifies that the sets returned to subclasses can be changed
+	 * without changing the cached sets.
+	 */
+	@Test
+	public void testReturnedSetsAreCopies() {
+		for (String input : INPUTS) {
+			String expected = parse(input, new UncachedErrorStrategy());
+			Assert.assertEquals(expected, parse(input, new ModifyingErrorStrategy()));
+			Assert.assertEquals(expected, parse(input, new DefaultErrorStrategy()));
+		}
+	}
+
+	private static String parse(String input, ANTLRErrorStrategy errorStrategy) {
+		JavaLexer lexer = new JavaLexer(CharStreams.fromString(input));
+		JavaParser parser = new JavaParser(new CommonTokenStream(lexer));
+		final StringBuilder errors = new StringBuilder();
+		parser.removeErrorListeners();
+		parser.addErrorListener(new BaseErrorListener() {
+			@Override
+			public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol,
+									int line, int charPositionInLine, String msg, RecognitionException e)
+			{
+				errors.append("line ").append(line).append(':').append(charPositionInLine)
+					.append(' ').append(msg).append('\n');
+			}
+		});
+		parser.setErrorHandler(errorStrategy);
+		String tree = parser.compilationUnit().toStringTree(parser);
+		return errors + tree;
+	}
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+package org.antlr.v4.test.runtime.java.api;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.IncrementalReparser;
+import org.antlr.v4.runtime.IncrementalTokenStream;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+public class TestIncrementalReparser {
+	private static final String INPUT =
+		"class T {\n" +
+		"    void f() {\n" +
+		"        int x = 1;\n" +
+		"        g(x);\n" +
+		"    }\n" +
+		"    void g(int y) { return; }\n" +
+		"}\n";
+
+	@Test
+	public void testEditInsideMethodBody() {
+		JavaParser parser = newParser(INPUT);
+		ParserRuleContext tree = parser.compilationUnit();
+		IncrementalReparser reparser = new IncrementalReparser(parser);
+
+		int offset = INPUT.indexOf("1;");
+		ParserRuleContext result = reparser.reparse(tree, offset, 1, "2 + x * 3");
+		String edited = INPUT.substring(0, offset) + "2 + x * 3" + INPUT.substring(offset + 1);
+
+		Assert.assertSame(tree, result);
+		Assert.assertNotNull(reparser.getLastReparsedContext());
+		Assert.assertNotSame(tree, reparser.getLastReparsedContext());
+		assertSameAsFullParse(parser, result, edited);
+	}
+
+	@Test
+	public void testEditInHiddenTextOnlyShiftsTokens() {
+		JavaParser parser = newParser(INPUT);
+		ParserRuleContext tree = parser.compilationUnit();
+		IncrementalReparser reparser = new IncrementalReparser(parser);
+
+		int offset = INPUT.indexOf("g(x)");
+		ParserRuleContext result = reparser.reparse(tree, offset, 0, "/* call */\n        ");
+		String edited = INPUT.substring(0, offset) + "/* call */\n        " + INPUT.substring(offset);
+
+		Assert.assertSame(tree, result);
+		Assert.assertNull(reparser.getLastReparsedContext());
+		assertSameAsFullParse(parser, result, edited);
+	}
+
+	@Test
+	public void testEditInsideMultiCharacterToken() {
+		JavaParser parser = newParser(INPUT);
+		ParserRuleContext tree = parser.compilationUnit();
+		IncrementalReparser reparser = new IncrementalReparser(parser);
+
+		// the keyword int becomes the identifier iXnt
+		int offset = INPUT.indexOf("int x") + 1;
+		ParserRuleContext result = reparser.reparse(tree, offset, 0, "X");
+		String edited = INPUT.substring(0, offset) + "X" + INPUT.substring(offset);
+
+		Assert.assertSame(tree, result);
+		Assert.assertNotNull(reparser.getLastReparsedContext());
+		assertSameAsFullParse(parser, result, edited);
+
+		// and two identifiers join into one
+		offset = edited.indexOf("iXnt x") + "iXnt".length();
+		result = reparser.reparse(result, offset, 1, "");
+		edited = edited.substring(0, offset) + edited.substring(offset + 1);
+		Assert.assertSame(tree, result);
+		assertSameAsFullParse(parser, result, edited);
+	}
+
+	@Test
+	public void testFullReparseWithoutIncrementalTokenStream() {
+		JavaLexer lexer = new JavaLexer(CharStreams.fromString(INPUT));
+		JavaParser parser = new JavaParser(new CommonTokenStream(lexer));
+		ParserRuleContext tree = parser.compilationUnit();
+		IncrementalReparser reparser = new IncrementalReparser(parser);
+
+		int offset = INPUT.indexOf("1;");
+		ParserRuleContext result = reparser.reparse(tree, offset, 1, "2");
+		String edited = INPUT.substring(0, offset) + "2" + INPUT.substring(offset + 1);
+
+		Assert.assertNotSame(tree, result);
+		Assert.assertSame(result, reparser.getLastReparsedContext());
+		assertSameAsFullParse(parser, result, edited);
+	}
+
+	@Test
+	public void testFullReparseWhenNoRuleCanBeReparsed() {
+		JavaParser parser = newParser(INPUT);
+		ParserRuleContext tree = parser.compilationUnit();
+		IncrementalReparser reparser = new IncrementalReparser(parser);
+
+		// the edit changes the declaration that encloses everything else
+		int offset = INPUT.indexOf("class T");
+		ParserRuleContext result = reparser.reparse(tree, offset, "class T".length(), "interface I");
+		String edited = INPUT.replace("class T", "interface I");
+
+		Assert.assertNotSame(tree, result);
+		Assert.assertSame(result, reparser.getLastReparsedContext());
+		assertSameAsFullParse(parser, result, edited);
+	}
+
+	/**
+	 * This test verifies that nodes held by labels of their parent are not
+	 * spliced, so that the labels and the children of every node agree
+	 * after a reparse.
+	 */
+	@Test
+	public void testLabeledContextsAreNotSpliced() {
+		String input = "{ a = 1; b = c; { d = 2; } }";
+		LabeledBlockParser parser = newLabeledBlockParser(input);
+		LabeledBlockParser.FileContext tree = parser.file();
+		IncrementalReparser reparser = new IncrementalReparser(parser);
+
+		// value=expr and first=stat are labeled; block is not
+		int offset = input.indexOf("1;");
+		ParserRuleContext result = reparser.reparse(tree, offset, 1, "x");
+		Assert.assertSame(tree, result);
+		Assert.assertTrue(reparser.getLastReparsedContext() instanceof LabeledBlockParser.BlockContext);
+		assertLabelsMatchChildren(tree.block());
+
+		// the nested block is not labeled either, so it is reparsed alone
+		String edited = input.replace("1;", "x;");
+		offset = edited.indexOf("2;");
+		LabeledBlockParser.BlockContext outer = tree.block();
+		result = reparser.reparse(tree, offset, 1, "y");
+		Assert.assertSame(tree, result);
+		Assert.assertSame(outer, tree.block());
+		Assert.assertSame(outer.stats.get(1).block(), reparser.getLastReparsedContext());
+		assertLabelsMatchChildren(tree.block());
+
+		edited = edited.replace("2;", "y;");
+		LabeledBlockParser fresh = newLabeledBlockParser(edited);
+		Assert.assertEquals(fresh.file().toStringTree(fresh), tree.toStringTree(parser));
+	}
+
+	private static void assertLabelsMatchChildren(LabeledBlockParser.BlockContext block) {
+		Assert.assertSame(block.first, block.getChild(1));
+		for (int i = 0; i < block.stats.size(); i++) {
+			Assert.assertSame(block.stats.get(i), block.getChild(i + 2));
+		}
+		for (LabeledBlockParser.StatContext stat : block.stat()) {
+			Assert.assertSame(block, stat.getParent());
+			if (stat.block() != null) {
+				assertLabelsMatchChildren(stat.block());
+			}
+			else {
+				Assert.assertSame(stat.value, stat.getChild(2));
+				Assert.assertSame(stat, stat.value.getParent());
+			}
+		}
+	}
+
+	private static LabeledBlockParser newLabeledBlockParser(String input) {
+		LabeledBlockLexer lexer = new LabeledBlockLexer(CharStreams.fromString(input));
+		return new LabeledBlockParser(new IncrementalTokenStream(lexer));
+	}
+
+	private static void assertSameAsFullParse(JavaParser parser, ParserRuleContext tree, String input) {
+		JavaParser fresh = newParser(input);
+		Assert.assertEquals(fresh.compilationUnit().toStringTree(fresh), tree.toStringTree(parser));
+
+		List<Token> expected = ((CommonTokenStream)fresh.getTokenStream()).getTokens();
+		List<Token> actual = ((CommonTokenStream)parser.getTokenStream()).getTokens();
+		Assert.assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			Token e = expected.get(i);
+			Token a = actual.get(i);
+			Assert.assertEquals(e.getText(), a.getText());
+			Assert.assertEquals(e.getTokenIndex(), a.getTokenIndex());
+			Assert.assertEquals(e.getStartIndex(), a.getStartIndex());
+			Assert.assertEquals(e.getLine(), a.getLine());
+			Assert.assertEquals(e.getCharPositionInLine(), a.getCharPositionInLine());
+		}
+	}
+
+	private static JavaParser newParser(String input) {
+		JavaLexer lexer = new JavaLexer(CharStreams.fromString(input));
+		return new JavaParser(new IncrementalTokenStream(lexer));
+	}
+}
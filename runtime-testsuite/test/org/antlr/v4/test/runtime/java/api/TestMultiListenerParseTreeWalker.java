@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+package org.antlr.v4.test.runtime.java.api;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.tree.ArrayStackParseTreeWalker;
+import org.antlr.v4.runtime.tree.IterativeParseTreeWalker;
+import org.antlr.v4.runtime.tree.MultiListenerParseTreeWalker;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+import org.antlr.v4.runtime.tree.TerminalNode;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class TestMultiListenerParseTreeWalker {
+	private static final String INPUT = "1 + 2 * 3 - 4 / 5";
+
+	/**
+	 * Records generic and rule-specific events so that we can check that each
+	 * listener sees the same events as with its own walk.
+	 */
+	static class RecordingListener extends VisitorCalcBaseListener {
+		final StringBuilder events = new StringBuilder();
+
+		@Override
+		public void enterEveryRule(ParserRuleContext ctx) { events.append('(').append(ctx.getRuleIndex()); }
+
+		@Override
+		public void exitEveryRule(ParserRuleContext ctx) { events.append(')'); }
+
+		@Override
+		public void visitTerminal(TerminalNode node) { events.append(' ').append(node.getText()); }
+
+		@Override
+		public void enterMultiply(VisitorCalcParser.MultiplyContext ctx) { events.append(" mul{"); }
+
+		@Override
+		public void exitMultiply(VisitorCalcParser.MultiplyContext ctx) { events.append('}'); }
+	}
+
+	@Test
+	public void testFusedWalk() {
+		ParseTree tree = parse();
+		String expected = walkAlone(tree);
+
+		List<RecordingListener> listeners = Arrays.asList(new RecordingListener(), new RecordingListener(), new RecordingListener());
+		MultiListenerParseTreeWalker.DEFAULT.walk(listeners, tree);
+		for (RecordingListener listener : listeners) {
+			Assert.assertEquals(expected, listener.events.toString());
+		}
+	}
+
+	@Test
+	public void testPipelinedWalk() {
+		ParseTree tree = parse();
+		String expected = walkAlone(tree);
+
+		List<RecordingListener> listeners = Arrays.asList(new RecordingListener(), new RecordingListener(), new RecordingListener());
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			MultiListenerParseTreeWalker.DEFAULT.walk(listeners, tree, executor);
+		}
+		finally {
+			executor.shutdown();
+		}
+
+		for (RecordingListener listener : listeners) {
+			Assert.assertEquals(expected, listener.events.toString());
+		}
+	}
+
+	@Test
+	public void testWalkerIsReused() {
+		ParseTree tree = parse(INPUT);
+		String expected = walkAlone(tree);
+
+		ArrayStackParseTreeWalker walker = new ArrayStackParseTreeWalker();
+		MultiListenerParseTreeWalker multiWalker = new MultiListenerParseTreeWalker(walker);
+		for (int i = 0; i < 2; i++) {
+			RecordingListener listener = new RecordingListener();
+			multiWalker.walk(Collections.singletonList(listener), tree);
+			Assert.assertEquals(expected, listener.events.toString());
+		}
+	}
+
+	/**
+	 * This test verifies that a walk with many more events than fit in the
+	 * listener queues completes and that every listener sees all of them.
+	 */
+	@Test(timeout = 60000)
+	public void testPipelinedWalkOfLargeTree() {
+		StringBuilder input = new StringBuilder("1");
+		for (int i = 0; i < 20000; i++) {
+			input.append(" + ").append(i);
+		}
+		ParseTree tree = parse(input.toString());
+		RecordingListener alone = new RecordingListener();
+		new IterativeParseTreeWalker().walk(alone, tree);
+
+		List<RecordingListener> listeners = Arrays.asList(new RecordingListener(), new RecordingListener());
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			MultiListenerParseTreeWalker.DEFAULT.walk(listeners, tree, executor);
+		}
+		finally {
+			executor.shutdown();
+		}
+
+		for (RecordingListener listener : listeners) {
+			Assert.assertEquals(alone.events.toString(), listener.events.toString());
+		}
+	}
+
+	/**
+	 * This test verifies that a listener that throws doesn't leave the
+	 * traversal waiting for room in its queue.
+	 */
+	@Test(timeout = 60000)
+	public void testPipelinedListenerFailure() {
+		StringBuilder input = new StringBuilder("1");
+		for (int i = 0; i < 20000; i++) {
+			input.append(" * ").append(i);
+		}
+		ParseTree tree = parse(input.toString());
+
+		RecordingListener failing = new RecordingListener() {
+			@Override
+			public void visitTerminal(TerminalNode node) {
+				throw new IllegalStateException("listener failed");
+			}
+		};
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			MultiListenerParseTreeWalker.DEFAULT.walk(Arrays.asList(failing, new RecordingListener()), tree, executor);
+			Assert.fail("expected the listener's exception");
+		}
+		catch (IllegalStateException e) {
+			Assert.assertEquals("listener failed", e.getMessage());
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test(timeout = 60000)
+	public void testCallerThreadExecutorIsRejected() {
+		ParseTree tree = parse(INPUT);
+		try {
+			MultiListenerParseTreeWalker.DEFAULT.walk(Arrays.asList(new RecordingListener()), tree, new DirectExecutorService());
+			Assert.fail("expected the direct executor to be rejected");
+		}
+		catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	/** Runs every task on the thread that submits it. */
+	static class DirectExecutorService extends AbstractExecutorService {
+		@Override
+		public void execute(Runnable command) { command.run(); }
+
+		@Override
+		public void shutdown() { }
+
+		@Override
+		public List<Runnable> shutdownNow() { return Collections.emptyList(); }
+
+		@Override
+		public boolean isShutdown() { return false; }
+
+		@Override
+		public boolean isTerminated() { return false; }
+
+		@Override
+		public boolean awaitTermination(long timeout, TimeUnit unit) { return true; }
+	}
+
+	private static String walkAlone(ParseTree tree) {
+		RecordingListener listener = new RecordingListener();
+		ParseTreeWalker.DEFAULT.walk(listener, tree);
+		return listener.events.toString();
+	}
+
+	private static ParseTree parse() {
+		return parse(INPUT);
+	}
+
+	private static ParseTree parse(String input) {
+		VisitorCalcLexer lexer = new VisitorCalcLexer(CharStreams.fromString(input));
+		VisitorCalcParser parser = new VisitorCalcParser(new CommonTokenStream(lexer));
+		return parser.s();
+	}
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+package org.antlr.v4.test.runtime.java.api;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.misc.IntervalSet;
+import org.antlr.v4.runtime.tree.ErrorNode;
+import org.antlr.v4.runtime.tree.ParseTreeListener;
+import org.antlr.v4.runtime.tree.TerminalNode;
+import org.antlr.v4.runtime.tree.TerminalNodeImpl;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestOmittedTerminalNodes {
+	/**
+	 * This test verifies that only rule nodes are built when terminal nodes
+	 * are turned off, and that the generated accessors still find the tokens.
+	 */
+	@Test
+	public void testRuleNodesOnly() {
+		VisitorCalcParser parser = createParser("2 * 3 + 4");
+		parser.setBuildTerminalNodes(false);
+
+		VisitorCalcParser.SContext s = parser.s();
+		Assert.assertEquals("(s (expr (expr expr expr) expr))", s.toStringTree(parser));
+		Assert.assertNotNull(s.EOF());
+
+		VisitorCalcParser.AddContext add = (VisitorCalcParser.AddContext)s.expr();
+		Assert.assertEquals("+", add.ADD().getText());
+		Assert.assertSame(add, add.ADD().getParent());
+		Assert.assertNull(add.SUB());
+
+		VisitorCalcParser.MultiplyContext mul = (VisitorCalcParser.MultiplyContext)add.expr(0);
+		Assert.assertEquals("*", mul.MUL().getText());
+		Assert.assertEquals("3", ((VisitorCalcParser.NumberContext)mul.expr(1)).INT().getText());
+		Assert.assertEquals("4", ((VisitorCalcParser.NumberContext)add.expr(1)).INT().getText());
+	}
+
+	/**
+	 * This test verifies that the retained token types are still added to the
+	 * tree and merged in input order with the omitted ones.
+	 */
+	@Test
+	public void testRetainedTerminalTypes() {
+		VisitorCalcParser parser = createParser("1 + 2 - 3");
+		parser.setRetainedTerminalTypes(IntervalSet.of(VisitorCalcParser.INT));
+
+		VisitorCalcParser.SContext s = parser.s();
+		Assert.assertEquals("(s (expr (expr (expr 1) (expr 2)) (expr 3)))", s.toStringTree(parser));
+
+		VisitorCalcParser.AddContext add = (VisitorCalcParser.AddContext)s.expr();
+		TerminalNode sub = add.SUB();
+		Assert.assertEquals("-", sub.getText());
+		Assert.assertEquals(1, add.getTokens(VisitorCalcParser.SUB).size());
+		Assert.assertEquals(0, add.getTokens(VisitorCalcParser.ADD).size());
+		Assert.assertEquals(1, ((VisitorCalcParser.AddContext)add.expr(0)).getTokens(VisitorCalcParser.ADD).size());
+	}
+
+	/**
+	 * This test verifies that the omitted terminals are resolved once the
+	 * rule has stopped and the same nodes are returned by later calls.
+	 */
+	@Test
+	public void testOmittedTerminalsAreStable() {
+		VisitorCalcParser parser = createParser("1 + 2 + 3");
+		parser.setBuildTerminalNodes(false);
+
+		VisitorCalcParser.AddContext add = (VisitorCalcParser.AddContext)parser.s().expr();
+		Assert.assertSame(add.ADD(), add.ADD());
+		Assert.assertSame(add.ADD(), add.getTokens(VisitorCalcParser.ADD).get(0));
+		Assert.assertSame(add, add.ADD().getParent());
+		Assert.assertEquals(6, add.ADD().getSymbol().getTokenIndex());
+		Assert.assertSame(parser.getTokenStream(), add.getOmittedTerminalSource());
+	}
+
+	/**
+	 * This test verifies that a parse listener sees the omitted terminals of
+	 * a rule that is still running, up to the token just consumed. EOF is
+	 * never consumed, so it is only found once the rule has stopped.
+	 */
+	@Test
+	public void testOmittedTerminalsWhileRuleRuns() {
+		VisitorCalcParser parser = createParser("2 * 3 + 4");
+		parser.setBuildTerminalNodes(false);
+		final List<String> seen = new ArrayList<String>();
+		parser.addParseListener(new ParseTreeListener() {
+			@Override
+			public void visitTerminal(TerminalNode node) {
+				if (node.getSymbol().getType() == VisitorCalcParser.EOF) {
+					return;
+				}
+				ParserRuleContext ctx = (ParserRuleContext)node.getParent();
+				List<TerminalNode> tokens = ctx.getTokens(node.getSymbol().getType());
+				Assert.assertFalse(node.getText(), tokens.isEmpty());
+				seen.add(tokens.get(tokens.size() - 1).getText());
+			}
+
+			@Override
+			public void visitErrorNode(ErrorNode node) { }
+
+			@Override
+			public void enterEveryRule(ParserRuleContext ctx) { }
+
+			@Override
+			public void exitEveryRule(ParserRuleContext ctx) { }
+		});
+
+		VisitorCalcParser.SContext s = parser.s();
+		Assert.assertEquals("[2, *, 3, +, 4]", seen.toString());
+		Assert.assertNotNull(s.EOF());
+	}
+
+	/**
+	 * This test verifies that omitted terminals are created by the parser's
+	 * {@link VisitorCalcParser#createTerminalNode} like the built ones.
+	 */
+	@Test
+	public void testOmittedTerminalsUseNodeFactory() {
+		VisitorCalcLexer lexer = new VisitorCalcLexer(CharStreams.fromString("1 + 2"));
+		VisitorCalcParser parser = new VisitorCalcParser(new CommonTokenStream(lexer)) {
+			@Override
+			public TerminalNode createTerminalNode(ParserRuleContext parent, Token t) {
+				return new CustomTerminalNode(t);
+			}
+		};
+		parser.setRetainedTerminalTypes(IntervalSet.of(VisitorCalcParser.INT));
+
+		VisitorCalcParser.AddContext add = (VisitorCalcParser.AddContext)parser.s().expr();
+		Assert.assertTrue(add.ADD() instanceof CustomTerminalNode);
+		Assert.assertSame(add, add.ADD().getParent());
+		Assert.assertTrue(((VisitorCalcParser.NumberContext)add.expr(0)).INT() instanceof CustomTerminalNode);
+	}
+
+	private static class CustomTerminalNode extends TerminalNodeImpl {
+		CustomTerminalNode(Token symbol) {
+			super(symbol);
+		}
+	}
+
+	private static VisitorCalcParser createParser(String input) {
+		VisitorCalcLexer lexer = new VisitorCalcLexer(CharStreams.fromString(input));
+		return new VisitorCalcParser(new CommonTokenStream(lexer));
+	}
+}
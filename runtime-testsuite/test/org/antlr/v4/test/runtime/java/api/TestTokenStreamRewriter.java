@@ -15,6 +15,11 @@ import org.antlr.v4.tool.LexerGrammar;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
@@ -935,4 +940,34 @@ public class TestTokenStreamRewriter extends BaseJavaTest {
 		assertEquals(expecting, result);
 	}
 
+	@Test
+	public void testWriteMatchesGetText() throws Exception {
+		LexerGrammar g = new LexerGrammar(
+											 "lexer grammar T;\n"+
+											 "A : 'a';\n" +
+											 "B : 'b';\n" +
+											 "C : 'c';\n");
+		String input = "abcccba";
+		LexerInterpreter lexEngine = g.createLexerInterpreter(new ANTLRInputStream(input));
+		CommonTokenStream stream = new CommonTokenStream(lexEngine);
+		stream.fill();
+		TokenStreamRewriter tokens = new TokenStreamRewriter(stream);
+		tokens.delete(2, 3);
+		tokens.insertBefore(3, "x");
+		tokens.delete(2, 2);
+		tokens.insertAfter(6, "!");
+		String expecting = "abcba!";
+		assertEquals(expecting, tokens.getText());
+		// rendering doesn't change the program
+		assertEquals(expecting, tokens.getText());
+
+		StringWriter writer = new StringWriter();
+		tokens.write(writer);
+		assertEquals(expecting, writer.toString());
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		tokens.write(TokenStreamRewriter.DEFAULT_PROGRAM_NAME, Interval.of(0, stream.size()-1),
+					 Channels.newChannel(bytes), StandardCharsets.UTF_8);
+		assertEquals(expecting, new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+	}
 }
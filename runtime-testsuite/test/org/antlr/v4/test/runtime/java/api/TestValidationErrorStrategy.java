@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+package org.antlr.v4.test.runtime.java.api;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.ValidationErrorStrategy;
+import org.antlr.v4.runtime.ValidationResult;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestValidationErrorStrategy {
+	@Test
+	public void testValidInput() {
+		ValidationErrorStrategy validator = new ValidationErrorStrategy();
+		ValidationResult result = validate(validator, "class T { void f() { int x = 1; } }");
+
+		Assert.assertTrue(result.isValid());
+		Assert.assertNull(result.getOffendingToken());
+		Assert.assertEquals(-1, result.getLine());
+	}
+
+	@Test
+	public void testReportsFirstError() {
+		ValidationErrorStrategy validator = new ValidationErrorStrategy();
+		ValidationResult result = validate(validator, "class T {\n  void f() { int x = ; }\n  void g( { }\n}");
+
+		Assert.assertFalse(result.isValid());
+		Assert.assertEquals(";", result.getOffendingToken().getText());
+		Assert.assertEquals(2, result.getLine());
+		Assert.assertEquals(21, result.getCharPositionInLine());
+
+		// the result is refilled by the next run
+		result = validate(validator, "class T { }");
+		Assert.assertTrue(result.isValid());
+	}
+
+	@Test
+	public void testParserSettingsRestored() {
+		final JavaParser parser = newParser("class T { void f() { int x = ; } }");
+		new ValidationErrorStrategy().validate(parser, new Runnable() {
+			@Override
+			public void run() {
+				parser.compilationUnit();
+			}
+		});
+
+		Assert.assertTrue(parser.getBuildParseTree());
+		Assert.assertTrue(parser.getErrorHandler() instanceof DefaultErrorStrategy);
+		Assert.assertFalse(parser.getErrorHandler() instanceof ValidationErrorStrategy);
+	}
+
+	private static ValidationResult validate(ValidationErrorStrategy validator, String input) {
+		final JavaParser parser = newParser(input);
+		return validator.validate(parser, new Runnable() {
+			@Override
+			public void run() {
+				parser.compilationUnit();
+			}
+		});
+	}
+
+	private static JavaParser newParser(String input) {
+		JavaLexer lexer = new JavaLexer(CharStreams.fromString(input));
+		JavaParser parser = new JavaParser(new CommonTokenStream(lexer));
+		parser.removeErrorListeners();
+		return parser;
+	}
+}
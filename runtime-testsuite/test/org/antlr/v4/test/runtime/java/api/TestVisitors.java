@@ -235,4 +235,54 @@ public class TestVisitors {
 		Assert.assertEquals(expected, result);
 	}
 
+	/**
+	 * This test verifies that {@link AbstractParseTreeVisitor#visitChildrenInParallel} aggregates the child results in
+	 * child order, giving the same result as a sequential visit.
+	 */
+	@Test
+	public void testVisitChildrenInParallel() {
+		StringBuilder input = new StringBuilder("0");
+		for (int i = 1; i < 200; i++) {
+			input.append(i % 2 == 0 ? " + " : " * ").append(i);
+		}
+		VisitorCalcLexer lexer = new VisitorCalcLexer(new ANTLRInputStream(input.toString()));
+		VisitorCalcParser parser = new VisitorCalcParser(new CommonTokenStream(lexer));
+		VisitorCalcParser.SContext context = parser.s();
+
+		class TokenTextVisitor extends VisitorCalcBaseVisitor<String> {
+			final boolean parallel;
+
+			TokenTextVisitor(boolean parallel) {
+				this.parallel = parallel;
+			}
+
+			@Override
+			public String visitTerminal(TerminalNode node) {
+				return node.getText() + " ";
+			}
+
+			@Override
+			protected String defaultResult() {
+				return "";
+			}
+
+			@Override
+			protected String aggregateResult(String aggregate, String nextResult) {
+				return aggregate + nextResult;
+			}
+
+			@Override
+			protected boolean shouldVisitChildrenInParallel(RuleNode node) {
+				return parallel;
+			}
+
+			@Override
+			protected int getParallelGranularity() {
+				return 2;
+			}
+		}
+
+		String expected = new TokenTextVisitor(false).visit(context);
+		Assert.assertEquals(expected, new TokenTextVisitor(true).visit(context));
+	}
 }
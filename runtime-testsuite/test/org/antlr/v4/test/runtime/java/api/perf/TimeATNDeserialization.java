@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.test.runtime.java.api.perf;
+
+import org.antlr.v4.runtime.atn.ATN;
+import org.antlr.v4.runtime.atn.ATNDeserializer;
+import org.antlr.v4.runtime.atn.ATNSerializer;
+import org.antlr.v4.test.runtime.java.api.JavaLexer;
+import org.antlr.v4.test.runtime.java.api.JavaParser;
+
+/** Compare the time it takes to load the Java grammar's ATNs from the
+ *  string constant the generated recognizers carry and from the binary
+ *  form written for {@code -Xbinary-atn}.
+ *
+ *  Times have the top 20% stripped off before doing the average
+ *  to account for issues with the garbage collection and compilation pauses.
+ *
+ *  @since 4.7.2
+ */
+public class TimeATNDeserialization { // don't call it Test else it'll run during "mvn test"
+	public boolean output = true;
+
+	public static void main(String[] args) throws Exception {
+		TimeATNDeserialization tests = new TimeATNDeserialization();
+
+		System.out.print("Warming up Java compiler");
+		tests.output = false;
+		for (int i = 0; i<3; i++) {
+			tests.fromString("JavaParser", JavaParser._serializedATN, 20);
+			tests.fromBytes("JavaParser", ATNSerializer.getSerializedAsBytes(JavaParser._ATN), 20);
+			System.out.print('.');
+		}
+		System.out.println();
+		tests.output = true;
+
+		int n = 200;
+		tests.fromString("JavaLexer", JavaLexer._serializedATN, n);
+		tests.fromBytes("JavaLexer", ATNSerializer.getSerializedAsBytes(JavaLexer._ATN), n);
+		tests.fromString("JavaParser", JavaParser._serializedATN, n);
+		tests.fromBytes("JavaParser", ATNSerializer.getSerializedAsBytes(JavaParser._ATN), n);
+	}
+
+	public void fromString(String name, String serializedATN, int n) {
+		long[] times = new long[n];
+		ATN atn = null;
+		for (int i = 0; i<n; i++) {
+			long start = System.nanoTime();
+			atn = new ATNDeserializer().deserialize(serializedATN.toCharArray());
+			long stop = System.nanoTime();
+			times[i] = (stop-start)/1000;
+		}
+		report(name, "string", times, serializedATN.length()*2, atn);
+	}
+
+	public void fromBytes(String name, byte[] serializedATN, int n) {
+		long[] times = new long[n];
+		ATN atn = null;
+		for (int i = 0; i<n; i++) {
+			long start = System.nanoTime();
+			atn = new ATNDeserializer().deserialize(serializedATN);
+			long stop = System.nanoTime();
+			times[i] = (stop-start)/1000;
+		}
+		report(name, "binary", times, serializedATN.length, atn);
+	}
+
+	private void report(String name, String format, long[] times, int size, ATN atn) {
+		if ( output ) {
+			System.out.printf("%12s %6s average time %6dus over %4d runs; %7d bytes, %5d states\n",
+			                  name,
+			                  format,
+			                  (int)TimeParseTreeWalkers.avgDroppingTop20(times),
+			                  times.length,
+			                  size,
+			                  atn.states.size());
+		}
+	}
+}
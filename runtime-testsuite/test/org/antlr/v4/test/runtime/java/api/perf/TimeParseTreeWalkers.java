@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.test.runtime.java.api.perf;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.tree.ArrayStackParseTreeWalker;
+import org.antlr.v4.runtime.tree.ErrorNode;
+import org.antlr.v4.runtime.tree.IterativeParseTreeWalker;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.ParseTreeListener;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+import org.antlr.v4.runtime.tree.TerminalNode;
+import org.antlr.v4.test.runtime.java.api.JavaBaseListener;
+import org.antlr.v4.test.runtime.java.api.JavaLexer;
+import org.antlr.v4.test.runtime.java.api.JavaParser;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/** Compare the time it takes {@link ParseTreeWalker#DEFAULT},
+ *  {@link IterativeParseTreeWalker} and {@link ArrayStackParseTreeWalker}
+ *  to walk the parse tree of Parser.java, both with a plain
+ *  {@link ParseTreeListener} and with a generated grammar listener. The
+ *  tree is built once; only the walks are timed.
+ *
+ *  Walk times have the top 20% stripped off before doing the average
+ *  to account for issues with the garbage collection and compilation pauses.
+ *
+ *  @since 4.7.2
+ */
+public class TimeParseTreeWalkers { // don't call it Test else it'll run during "mvn test"
+	public static final String Parser_java_file = TimeLexerSpeed.Parser_java_file;
+
+	public boolean output = true;
+
+	public static class CountingListener implements ParseTreeListener {
+		public int n;
+		@Override public void visitTerminal(TerminalNode node) { n++; }
+		@Override public void visitErrorNode(ErrorNode node) { n++; }
+		@Override public void enterEveryRule(ParserRuleContext ctx) { n++; }
+		@Override public void exitEveryRule(ParserRuleContext ctx) { n++; }
+	}
+
+	public static class CountingJavaListener extends JavaBaseListener {
+		public int n;
+		@Override public void visitTerminal(TerminalNode node) { n++; }
+		@Override public void enterEveryRule(ParserRuleContext ctx) { n++; }
+		@Override public void enterExpression(JavaParser.ExpressionContext ctx) { n++; }
+	}
+
+	public static void main(String[] args) throws Exception {
+		TimeParseTreeWalkers tests = new TimeParseTreeWalkers();
+		ParseTree tree = tests.parse(Parser_java_file);
+
+		System.out.print("Warming up Java compiler");
+		tests.output = false;
+		for (int i = 0; i<3; i++) {
+			tests.walk_recursive(tree, 200);
+			tests.walk_iterative(tree, 200);
+			tests.walk_array_stack(tree, 200);
+			System.out.print('.');
+		}
+		System.out.println();
+		tests.output = true;
+
+		int n = 2000;
+		tests.walk_recursive(tree, n);
+		tests.walk_iterative(tree, n);
+		tests.walk_array_stack(tree, n);
+	}
+
+	public ParseTree parse(String resourceName) throws Exception {
+		ClassLoader loader = TimeParseTreeWalkers.class.getClassLoader();
+		try (InputStream is = loader.getResourceAsStream(resourceName)) {
+			long size = TimeLexerSpeed.getResourceSize(loader, resourceName);
+			CharStream input = CharStreams.fromStream(is, StandardCharsets.UTF_8, size);
+			JavaParser parser = new JavaParser(new CommonTokenStream(new JavaLexer(input)));
+			return parser.compilationUnit();
+		}
+	}
+
+	public void walk_recursive(ParseTree tree, int n) {
+		time(ParseTreeWalker.DEFAULT, tree, n, "walk_recursive");
+	}
+
+	public void walk_iterative(ParseTree tree, int n) {
+		time(new IterativeParseTreeWalker(), tree, n, "walk_iterative");
+	}
+
+	public void walk_array_stack(ParseTree tree, int n) {
+		time(new ArrayStackParseTreeWalker(), tree, n, "walk_array_stack");
+	}
+
+	public void time(ParseTreeWalker walker, ParseTree tree, int n, String name) {
+		CountingListener plain = new CountingListener();
+		CountingJavaListener generated = new CountingJavaListener();
+		long[] plainTimes = new long[n];
+		long[] generatedTimes = new long[n];
+		for (int i = 0; i<n; i++) {
+			long start = System.nanoTime();
+			walker.walk(plain, tree);
+			long stop = System.nanoTime();
+			plainTimes[i] = (stop-start)/1000;
+
+			start = System.nanoTime();
+			walker.walk(generated, tree);
+			stop = System.nanoTime();
+			generatedTimes[i] = (stop-start)/1000;
+		}
+		if ( output ) {
+			System.out.printf("%20s average time %5dus over %4d walks with ParseTreeListener, %5dus with JavaListener (%d events)\n",
+			                  name,
+			                  (int)avgDroppingTop20(plainTimes),
+			                  n,
+			                  (int)avgDroppingTop20(generatedTimes),
+			                  plain.n / n);
+		}
+	}
+
+	public static double avgDroppingTop20(long[] times) {
+		Arrays.sort(times);
+		times = Arrays.copyOfRange(times, 0, times.length-(int)(times.length*.2));
+		double sum = 0.0;
+		for (long v : times) {
+			sum += v;
+		}
+		return sum / times.length;
+	}
+}
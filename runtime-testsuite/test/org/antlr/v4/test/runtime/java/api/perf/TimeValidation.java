@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.test.runtime.java.api.perf;
+
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ListTokenSource;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.ValidationErrorStrategy;
+import org.antlr.v4.runtime.ValidationResult;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.antlr.v4.test.runtime.java.api.JavaLexer;
+import org.antlr.v4.test.runtime.java.api.JavaParser;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/** Compare the time it takes {@link BailErrorStrategy} and
+ *  {@link ValidationErrorStrategy} to decide whether inputs are valid.
+ *  The inputs are copies of Parser.java, each corrupted at one random
+ *  place, plus the intact file. The inputs are lexed up front; only the
+ *  parses are timed.
+ *
+ *  Times have the top 20% stripped off before doing the average
+ *  to account for issues with the garbage collection and compilation pauses.
+ *
+ *  @since 4.7.2
+ */
+public class TimeValidation { // don't call it Test else it'll run during "mvn test"
+	public static final String Parser_java_file = TimeLexerSpeed.Parser_java_file;
+
+	/** Text spliced into the input to break it. */
+	public static final String[] CORRUPTIONS = {"(", ")", "{", "}", ";", "=", "class", "@", "+ +"};
+
+	public boolean output = true;
+
+	public static void main(String[] args) throws Exception {
+		TimeValidation tests = new TimeValidation();
+		String text = tests.load(Parser_java_file);
+		List<List<Token>> corrupted = tests.corrupt(text, 200, 42);
+		List<List<Token>> intact = new ArrayList<List<Token>>();
+		intact.add(tests.lex(text));
+
+		System.out.print("Warming up Java compiler");
+		tests.output = false;
+		for (int i = 0; i<3; i++) {
+			tests.bail(corrupted, 5);
+			tests.validate(corrupted, 5);
+			System.out.print('.');
+		}
+		System.out.println();
+		tests.output = true;
+
+		int n = 50;
+		tests.bail(corrupted, n);
+		tests.validate(corrupted, n);
+		tests.bail(intact, n);
+		tests.validate(intact, n);
+	}
+
+	public String load(String resourceName) throws Exception {
+		ClassLoader loader = TimeValidation.class.getClassLoader();
+		try (InputStream is = loader.getResourceAsStream(resourceName)) {
+			long size = TimeLexerSpeed.getResourceSize(loader, resourceName);
+			return CharStreams.fromStream(is, StandardCharsets.UTF_8, size).toString();
+		}
+	}
+
+	/** Make {@code n} copies of {@code text}, each with one corruption at a
+	 *  random offset, and lex them.
+	 */
+	public List<List<Token>> corrupt(String text, int n, long seed) {
+		Random random = new Random(seed);
+		List<List<Token>> inputs = new ArrayList<List<Token>>();
+		for (int i = 0; i<n; i++) {
+			int offset = random.nextInt(text.length());
+			String corruption = CORRUPTIONS[random.nextInt(CORRUPTIONS.length)];
+			inputs.add(lex(text.substring(0, offset)+" "+corruption+" "+text.substring(offset)));
+		}
+		return inputs;
+	}
+
+	public List<Token> lex(String text) {
+		JavaLexer lexer = new JavaLexer(CharStreams.fromString(text));
+		lexer.removeErrorListeners();
+		return new ArrayList<Token>(lexer.getAllTokens());
+	}
+
+	public void bail(List<List<Token>> inputs, int n) {
+		long[] times = new long[n];
+		int invalid = 0;
+		for (int i = 0; i<n; i++) {
+			invalid = 0;
+			long start = System.nanoTime();
+			for (List<Token> tokens : inputs) {
+				JavaParser parser = newParser(tokens);
+				parser.setErrorHandler(new BailErrorStrategy());
+				try {
+					parser.compilationUnit();
+				}
+				catch (ParseCancellationException e) {
+					invalid++;
+				}
+			}
+			long stop = System.nanoTime();
+			times[i] = (stop-start)/1000;
+		}
+		report("bail", times, inputs.size(), invalid);
+	}
+
+	public void validate(List<List<Token>> inputs, int n) {
+		long[] times = new long[n];
+		int invalid = 0;
+		ValidationErrorStrategy validator = new ValidationErrorStrategy();
+		for (int i = 0; i<n; i++) {
+			invalid = 0;
+			long start = System.nanoTime();
+			for (List<Token> tokens : inputs) {
+				final JavaParser parser = newParser(tokens);
+				ValidationResult result = validator.validate(parser, new Runnable() {
+					@Override
+					public void run() {
+						parser.compilationUnit();
+					}
+				});
+				if ( !result.isValid() ) {
+					invalid++;
+				}
+			}
+			long stop = System.nanoTime();
+			times[i] = (stop-start)/1000;
+		}
+		report("validate", times, inputs.size(), invalid);
+	}
+
+	private static JavaParser newParser(List<Token> tokens) {
+		JavaParser parser = new JavaParser(new CommonTokenStream(new ListTokenSource(tokens)));
+		parser.removeErrorListeners();
+		return parser;
+	}
+
+	private void report(String name, long[] times, int inputs, int invalid) {
+		if ( output ) {
+			System.out.printf("%10s average time %7dus over %4d runs of %3d inputs (%3d invalid)\n",
+			                  name,
+			                  (int)TimeParseTreeWalkers.avgDroppingTop20(times),
+			                  times.length,
+			                  inputs,
+			                  invalid);
+		}
+	}
+}
@@ -8,7 +8,6 @@ package org.antlr.v4.runtime;
 
 import org.antlr.v4.runtime.atn.ATN;
 import org.antlr.v4.runtime.atn.ATNState;
-import org.antlr.v4.runtime.atn.RuleTransition;
 import org.antlr.v4.runtime.misc.IntervalSet;
 import org.antlr.v4.runtime.misc.Pair;
 
@@ -273,7 +272,8 @@ public class DefaultErrorStrategy implements ANTLRErrorStrategy {
 		case ATNState.STAR_LOOP_BACK:
 //			System.err.println("at loop back: "+s.getClass().getSimpleName());
 			reportUnwantedToken(recognizer);
-			IntervalSet expecting = recognizer.getExpectedTokens();
+			IntervalSet expecting = recognizer.getATN().getRecoverySets()
+				.getExpectedTokens(recognizer.getState(), recognizer.getContext());
 			IntervalSet whatFollowsLoopIterationOrRule =
 				expecting.or(getErrorRecoverySet(recognizer));
 			consumeUntil(recognizer, whatFollowsLoopIterationOrRule);
@@ -513,7 +513,7 @@ public class DefaultErrorStrategy implements ANTLRErrorStrategy {
 		ATNState currentState = recognizer.getInterpreter().atn.states.get(recognizer.getState());
 		ATNState next = currentState.transition(0).target;
 		ATN atn = recognizer.getInterpreter().atn;
-		IntervalSet expectingAtLL2 = atn.nextTokens(next, recognizer._ctx);
+		IntervalSet expectingAtLL2 = atn.getRecoverySets().getExpectedTokens(next.stateNumber, recognizer._ctx);
 //		System.out.println("LT(2) set="+expectingAtLL2.toString(recognizer.getTokenNames()));
 		if ( expectingAtLL2.contains(currentSymbolType) ) {
 			reportMissingToken(recognizer);
@@ -603,8 +603,14 @@ public class DefaultErrorStrategy implements ANTLRErrorStrategy {
 	}
 
 
+	/**
+	 * Get the tokens that may follow the current parser state, as
+	 * {@link Parser#getExpectedTokens} does. The set is a copy of the one
+	 * cached in {@link ATN#getRecoverySets}.
+	 */
 	protected IntervalSet getExpectedTokens(Parser recognizer) {
-		return recognizer.getExpectedTokens();
+		return new IntervalSet(recognizer.getATN().getRecoverySets()
+			.getExpectedTokens(recognizer.getState(), recognizer.getContext()));
 	}
 
 	/** How should a token be displayed in an error message? The default
@@ -737,22 +743,13 @@ public class DefaultErrorStrategy implements ANTLRErrorStrategy {
 	 *
 	 *  Like Grosch I implement context-sensitive FOLLOW sets that are combined
 	 *  at run-time upon error to avoid overhead during parsing.
+	 *
+	 *  The sets are cached per invocation stack in
+	 *  {@link ATN#getRecoverySets}; this returns a copy.
 	 */
 	protected IntervalSet getErrorRecoverySet(Parser recognizer) {
 		ATN atn = recognizer.getInterpreter().atn;
-		RuleContext ctx = recognizer._ctx;
-		IntervalSet recoverSet = new IntervalSet();
-		while ( ctx!=null && ctx.invokingState>=0 ) {
-			// compute what follows who invoked us
-			ATNState invokingState = atn.states.get(ctx.invokingState);
-			RuleTransition rt = (RuleTransition)invokingState.transition(0);
-			IntervalSet follow = atn.nextTokens(rt.followState);
-			recoverSet.addAll(follow);
-			ctx = ctx.parent;
-		}
-        recoverSet.remove(Token.EPSILON);
-//		System.out.println("recover set "+recoverSet.toString(recognizer.getTokenNames()));
-		return recoverSet;
+		return new IntervalSet(atn.getRecoverySets().getErrorRecoverySet(recognizer._ctx));
 	}
 
 	/** Consume tokens until one matches the given token set. */
@@ -0,0 +1,424 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.runtime;
+
+import org.antlr.v4.runtime.atn.RuleStartState;
+import org.antlr.v4.runtime.misc.Interval;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.antlr.v4.runtime.tree.ParseTree;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Updates a parse tree after an edit to its input text, re-lexing and
+ * reparsing as little of the input as possible.
+ *
+ * <p>The parser must read from an {@link IncrementalTokenStream} whose lexer
+ * tokenized the input, and the tree must be the result of parsing that
+ * stream. An edit is handled in three steps:</p>
+ *
+ * <ol>
+ * <li>The lexer restarts at the first token whose lookahead reached the edit
+ * and runs until it produces a token that lines up with an old token after
+ * the edit. The tokens in between replace the old ones in the token stream.
+ * The old tokens after the edit are kept, with their indexes and positions
+ * shifted, so the tree nodes that refer to them stay valid.</li>
+ * <li>If only hidden tokens changed, the tree is returned unchanged.
+ * Otherwise the smallest rule node whose first and last tokens both lie
+ * outside the changed tokens is parsed again. The generated rule method is
+ * invoked with the node's parent as the current context and its
+ * {@link RuleContext#invokingState}, so full-context prediction sees the same
+ * outer context as the original parse. If that parse reports a syntax error
+ * or does not end at the node's last token, the next enclosing node is
+ * tried.</li>
+ * <li>The new subtree replaces the old node in its parent; all other nodes of
+ * the tree are reused.</li>
+ * </ol>
+ *
+ * <p>When no node qualifies, the whole input is parsed again with the
+ * parser's own error strategy and the new tree is returned. The whole input
+ * is also lexed and parsed again for other {@link BufferedTokenStream}s and
+ * for lexers with more than one mode, because the lexer state at a token
+ * boundary can't be recovered from the tokens.</p>
+ *
+ * <p>Nodes of left-recursive rules are never reparsed on their own, because
+ * the precedence they were parsed with is not recorded in the tree; the
+ * enclosing rule is reparsed instead. Rules with parameters are skipped for
+ * the same reason. Nodes that a field of their parent refers to, such as the
+ * rule labels {@code a=stat} and {@code stats+=stat} and the implicit labels
+ * of rules referenced in actions, are skipped too: the parent's actions
+ * already copied values from the old node, and the fields would still point
+ * at it. The result is a valid parse of the new input and equals a
+ * full parse unless the grammar is ambiguous for that input or uses
+ * predicates or actions that depend on state outside the reparsed rule.</p>
+ *
+ * <p>Instances are not thread-safe; the parser and lexer are reused.</p>
+ *
+ * @since 4.7.2
+ */
+public class IncrementalReparser {
+	protected final Parser parser;
+
+	/** The public no-argument rule methods of the parser, by rule index. */
+	private final Method[] ruleMethods;
+
+	private ParserRuleContext lastReparsedContext;
+
+	public IncrementalReparser(Parser parser) {
+		this.parser = parser;
+		String[] ruleNames = parser.getRuleNames();
+		this.ruleMethods = new Method[ruleNames.length];
+		for (int i = 0; i < ruleNames.length; i++) {
+			try {
+				Method method = parser.getClass().getMethod(ruleNames[i]);
+				if ( ParserRuleContext.class.isAssignableFrom(method.getReturnType()) ) {
+					ruleMethods[i] = method;
+				}
+			}
+			catch (NoSuchMethodException e) {
+				// rule takes arguments or has an escaped name; never reparse it
+			}
+		}
+	}
+
+	public Parser getParser() {
+		return parser;
+	}
+
+	/**
+	 * Get the root of the subtree that the last call to {@link #reparse}
+	 * built, or {@code null} if the tree did not change.
+	 */
+	public ParserRuleContext getLastReparsedContext() {
+		return lastReparsedContext;
+	}
+
+	/**
+	 * Replace the {@code oldLength} code points at {@code offset} in the
+	 * current input with {@code newText} and update {@code tree} to match.
+	 *
+	 * @return {@code tree}, updated in place, or a new tree if the whole input
+	 * had to be parsed again
+	 */
+	public ParserRuleContext reparse(ParserRuleContext tree, int offset, int oldLength, String newText) {
+		CharStream input = getLexer().getInputStream();
+		int size = input.size();
+		if ( offset<0 || oldLength<0 || offset+oldLength>size ) {
+			throw new IllegalArgumentException("edit "+offset+".."+(offset+oldLength)+" is outside the input (size="+size+")");
+		}
+
+		StringBuilder text = new StringBuilder(size - oldLength + newText.length());
+		text.append(input.getText(Interval.of(0, offset - 1)));
+		text.append(newText);
+		text.append(input.getText(Interval.of(offset + oldLength, size - 1)));
+		CharStream newInput = CharStreams.fromString(text.toString(), input.getSourceName());
+		return reparse(tree, newInput, offset, oldLength, newText.codePointCount(0, newText.length()));
+	}
+
+	/**
+	 * Update {@code tree} for {@code newInput}, which is the current input
+	 * with the {@code oldLength} code points at {@code offset} replaced by
+	 * {@code newLength} new ones.
+	 *
+	 * @return {@code tree}, updated in place, or a new tree if the whole input
+	 * had to be parsed again
+	 */
+	public ParserRuleContext reparse(ParserRuleContext tree, CharStream newInput, int offset, int oldLength, int newLength) {
+		BufferedTokenStream tokens = getTokenStream();
+		lastReparsedContext = null;
+		if ( !(tokens instanceof IncrementalTokenStream) ) {
+			return parseAll(tree, newInput);
+		}
+
+		IncrementalTokenStream stream = (IncrementalTokenStream)tokens;
+		IncrementalTokenStream.Window window = stream.relex(newInput, offset, oldLength, newLength);
+		if ( window==null ) {
+			return parseAll(tree, newInput);
+		}
+
+		boolean visibleChange = hasVisibleToken(stream, stream.getTokens().subList(window.start, window.stop)) ||
+								hasVisibleToken(stream, window.tokens);
+		List<ParserRuleContext> candidates = visibleChange ? findEnclosingContexts(tree, window.start, window.stop) : null;
+		stream.replace(window);
+
+		if ( !visibleChange ) {
+			return tree;
+		}
+
+		for (ParserRuleContext candidate : candidates) {
+			ParserRuleContext node = reparseContext(candidate);
+			if ( node!=null ) {
+				lastReparsedContext = node;
+				return tree;
+			}
+		}
+
+		return parseAll(tree, null);
+	}
+
+	/**
+	 * Parse the whole input again with the parser's own error strategy,
+	 * starting at the rule of {@code tree}. If {@code newInput} is not
+	 * {@code null}, the lexer switches to it first.
+	 */
+	protected ParserRuleContext parseAll(ParserRuleContext tree, CharStream newInput) {
+		BufferedTokenStream tokens = getTokenStream();
+		if ( tokens instanceof IncrementalTokenStream && newInput!=null ) {
+			((IncrementalTokenStream)tokens).setInput(newInput);
+		}
+		else if ( newInput!=null ) {
+			getLexer().setInputStream(newInput);
+			tokens.setTokenSource(getLexer());
+		}
+		parser.setTokenStream(tokens);
+		tokens.seek(0);
+
+		Method method = ruleMethods[tree.getRuleIndex()];
+		if ( method==null ) {
+			throw new IllegalStateException("can't invoke start rule "+parser.getRuleNames()[tree.getRuleIndex()]);
+		}
+
+		ParserRuleContext result = invoke(method);
+		lastReparsedContext = result;
+		return result;
+	}
+
+	/**
+	 * Parse {@code ctx}'s rule again at its position and splice the result
+	 * into the tree.
+	 *
+	 * @return the new subtree, or {@code null} if the new parse failed or did
+	 * not cover exactly the tokens of {@code ctx}
+	 */
+	protected ParserRuleContext reparseContext(ParserRuleContext ctx) {
+		ParserRuleContext parent = ctx.getParent();
+		int childIndex = indexOfChild(parent, ctx);
+		if ( childIndex<0 ) {
+			return null;
+		}
+
+		int childCount = parent.children.size();
+		BufferedTokenStream tokens = getTokenStream();
+		ANTLRErrorStrategy errorHandler = parser.getErrorHandler();
+		boolean buildParseTrees = parser.getBuildParseTree();
+		ParserRuleContext result = null;
+		try {
+			parser.setTokenStream(tokens);
+			parser.setErrorHandler(new FailFastErrorStrategy());
+			parser.setBuildParseTree(true);
+			tokens.seek(ctx.getStart().getTokenIndex());
+			parser.setContext(parent);
+			parser.setState(ctx.invokingState);
+			result = invoke(ruleMethods[ctx.getRuleIndex()]);
+		}
+		catch (ParseCancellationException e) {
+			result = null;
+		}
+		finally {
+			parser.setErrorHandler(errorHandler);
+			parser.setBuildParseTree(buildParseTrees);
+			parser.setContext(null);
+			// the parser added the new context as the last child of parent
+			while ( parent.children.size() > childCount ) {
+				parent.removeLastChild();
+			}
+		}
+
+		if ( result==null || result.getStop()==null ||
+			 result.getStart()!=ctx.getStart() || result.getStop()!=ctx.getStop() )
+		{
+			return null;
+		}
+
+		parent.children.set(childIndex, result);
+		result.parent = parent;
+		return result;
+	}
+
+	/**
+	 * Get the nodes whose first token comes before {@code from} and whose
+	 * last token is at or after {@code to} (old token indexes), innermost
+	 * first, skipping the nodes that can't be reparsed on their own.
+	 */
+	protected List<ParserRuleContext> findEnclosingContexts(ParserRuleContext tree, int from, int to) {
+		List<ParserRuleContext> path = new ArrayList<ParserRuleContext>();
+		ParserRuleContext ctx = tree;
+		while ( ctx!=null && encloses(ctx, from, to) ) {
+			path.add(0, ctx);
+			ParserRuleContext child = null;
+			for (int i = 0; i < ctx.getChildCount(); i++) {
+				ParseTree c = ctx.getChild(i);
+				if ( c instanceof ParserRuleContext && encloses((ParserRuleContext)c, from, to) ) {
+					child = (ParserRuleContext)c;
+					break;
+				}
+			}
+			ctx = child;
+		}
+
+		List<ParserRuleContext> candidates = new ArrayList<ParserRuleContext>(path.size());
+		for (ParserRuleContext c : path) {
+			if ( c.getParent()!=null && c.invokingState>=0 && canReparse(c.getRuleIndex()) &&
+				 !isReferencedByParent(c) )
+			{
+				candidates.add(c);
+			}
+		}
+		return candidates;
+	}
+
+	/** Can a node of rule {@code ruleIndex} be reparsed on its own? */
+	protected boolean canReparse(int ruleIndex) {
+		if ( ruleMethods[ruleIndex]==null ) {
+			return false;
+		}
+
+		RuleStartState start = parser.getATN().ruleToStartState[ruleIndex];
+		return !start.isLeftRecursiveRule;
+	}
+
+	/**
+	 * Does a field of the parent of {@code ctx}, or a list held by one,
+	 * refer to {@code ctx}? The fields of the generated context classes are
+	 * the labels, parameters, return values and locals of the rule.
+	 */
+	protected boolean isReferencedByParent(ParserRuleContext ctx) {
+		ParserRuleContext parent = ctx.getParent();
+		for (Class<?> c = parent.getClass(); c != ParserRuleContext.class && c != null; c = c.getSuperclass()) {
+			for (Field field : c.getDeclaredFields()) {
+				if ( Modifier.isStatic(field.getModifiers()) || field.getType().isPrimitive() ) {
+					continue;
+				}
+
+				Object value;
+				try {
+					field.setAccessible(true);
+					value = field.get(parent);
+				}
+				catch (RuntimeException e) {
+					// can't look at the field; assume it refers to ctx
+					return true;
+				}
+				catch (IllegalAccessException e) {
+					return true;
+				}
+
+				if ( value==ctx ) {
+					return true;
+				}
+				if ( value instanceof List<?> ) {
+					for (Object element : (List<?>)value) {
+						if ( element==ctx ) {
+							return true;
+						}
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	private static boolean encloses(ParserRuleContext ctx, int from, int to) {
+		Token start = ctx.getStart();
+		Token stop = ctx.getStop();
+		return start!=null && stop!=null &&
+			   start.getTokenIndex() < from && stop.getTokenIndex() >= to &&
+			   stop.getTokenIndex() >= start.getTokenIndex();
+	}
+
+	private static int indexOfChild(ParserRuleContext parent, ParseTree child) {
+		if ( parent==null || parent.children==null ) {
+			return -1;
+		}
+
+		for (int i = 0; i < parent.children.size(); i++) {
+			if ( parent.children.get(i)==child ) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private ParserRuleContext invoke(Method method) {
+		try {
+			return (ParserRuleContext)method.invoke(parser);
+		}
+		catch (IllegalAccessException e) {
+			throw new IllegalStateException(e);
+		}
+		catch (InvocationTargetException e) {
+			Throwable cause = e.getCause();
+			if ( cause instanceof RuntimeException ) {
+				throw (RuntimeException)cause;
+			}
+			if ( cause instanceof Error ) {
+				throw (Error)cause;
+			}
+			throw new IllegalStateException(cause);
+		}
+	}
+
+	/** Can the parser see any token of {@code tokens}? */
+	private static boolean hasVisibleToken(BufferedTokenStream stream, List<Token> tokens) {
+		if ( !(stream instanceof CommonTokenStream) ) {
+			return !tokens.isEmpty();
+		}
+
+		int channel = ((CommonTokenStream)stream).channel;
+		for (Token t : tokens) {
+			if ( t.getChannel()==channel ) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private BufferedTokenStream getTokenStream() {
+		TokenStream tokens = parser.getTokenStream();
+		if ( !(tokens instanceof BufferedTokenStream) ) {
+			throw new IllegalStateException("the parser must read from a BufferedTokenStream");
+		}
+		return (BufferedTokenStream)tokens;
+	}
+
+	private Lexer getLexer() {
+		TokenSource source = getTokenStream().getTokenSource();
+		if ( !(source instanceof Lexer) ) {
+			throw new IllegalStateException("the token stream must read from a Lexer");
+		}
+		return (Lexer)source;
+	}
+
+	/**
+	 * Gives up on the first syntax error without reporting it or touching
+	 * the contexts of the existing tree.
+	 */
+	private static class FailFastErrorStrategy extends DefaultErrorStrategy {
+		@Override
+		public void reportError(Parser recognizer, RecognitionException e) {
+		}
+
+		@Override
+		public void recover(Parser recognizer, RecognitionException e) {
+			throw new ParseCancellationException(e);
+		}
+
+		@Override
+		public Token recoverInline(Parser recognizer) {
+			throw new ParseCancellationException(new InputMismatchException(recognizer));
+		}
+
+		@Override
+		public void sync(Parser recognizer) {
+		}
+	}
+}
@@ -0,0 +1,417 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.runtime;
+
+import org.antlr.v4.runtime.misc.IntegerList;
+import org.antlr.v4.runtime.misc.Interval;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link CommonTokenStream} whose tokens can be lexed again in place after
+ * an edit to the input text, for {@link IncrementalReparser}.
+ *
+ * <p>The stream reads its lexer's input through a char stream of its own, so
+ * that the tokens keep referring to the current text across edits, and it
+ * records how far the lexer looked ahead for each token. After an edit, the
+ * lexer restarts at the first token whose lookahead reached the edit, which
+ * may be several tokens before it, and runs until it produces a token that
+ * lines up with an old token after the edit.</p>
+ *
+ * <p>Only lexers with a single mode can be restarted between tokens, because
+ * the mode stack at a token boundary is not recorded. {@link #relex} returns
+ * {@code null} for other lexers; the input must then be lexed again from the
+ * start.</p>
+ *
+ * @since 4.7.2
+ */
+public class IncrementalTokenStream extends CommonTokenStream {
+	/**
+	 * The tokens that replace a range of the stream's tokens after an edit,
+	 * computed by {@link #relex} and applied by {@link #replace}.
+	 */
+	public static class Window {
+		/** The index of the first replaced token. */
+		public final int start;
+		/** The index after the last replaced token. */
+		public final int stop;
+		/** The new tokens. */
+		public final List<Token> tokens;
+
+		/** The first token that was lexed again, at or before {@link #start}. */
+		protected final int relexStart;
+		/** The lookahead ends of the tokens lexed again, from {@link #relexStart}
+		 *  through {@link #converged}.
+		 */
+		protected final IntegerList lookaheadEnds;
+		/** The number of characters the tokens after the window move by. */
+		protected final int delta;
+		/** The first token after the window in the new input, or {@code null}
+		 *  if the window reaches EOF.
+		 */
+		protected final Token converged;
+
+		protected Window(int start, int stop, List<Token> tokens,
+						 int relexStart, IntegerList lookaheadEnds, int delta, Token converged)
+		{
+			this.start = start;
+			this.stop = stop;
+			this.tokens = tokens;
+			this.relexStart = relexStart;
+			this.lookaheadEnds = lookaheadEnds;
+			this.delta = delta;
+			this.converged = converged;
+		}
+	}
+
+	/** The lexer's input, which follows the edits. */
+	protected final LookaheadCharStream input;
+
+	/**
+	 * For each token, the index of the last character the lexer looked at
+	 * while matching it and the skipped text before it.
+	 */
+	protected final IntegerList lookaheadEnds = new IntegerList();
+
+	/** The longest lookahead past the stop index of any token. */
+	protected int maxLookahead;
+
+	public IncrementalTokenStream(Lexer lexer) {
+		this(lexer, Token.DEFAULT_CHANNEL);
+	}
+
+	public IncrementalTokenStream(Lexer lexer, int channel) {
+		super(lexer, channel);
+		this.input = new LookaheadCharStream(lexer.getInputStream());
+		lexer.setInputStream(input);
+	}
+
+	public Lexer getLexer() {
+		return (Lexer)tokenSource;
+	}
+
+	/**
+	 * Lex {@code newInput} from the start, replacing all tokens.
+	 */
+	public void setInput(CharStream newInput) {
+		input.setDelegate(newInput);
+		Lexer lexer = getLexer();
+		lexer.setInputStream(input);
+		setTokenSource(lexer);
+	}
+
+	@Override
+	public void setTokenSource(TokenSource tokenSource) {
+		if ( !(tokenSource instanceof Lexer) || ((Lexer)tokenSource).getInputStream()!=input ) {
+			throw new IllegalArgumentException("the token source must be the lexer this stream was created with");
+		}
+		super.setTokenSource(tokenSource);
+		lookaheadEnds.clear();
+		maxLookahead = 0;
+	}
+
+	@Override
+	protected int fetch(int n) {
+		if (fetchedEOF) {
+			return 0;
+		}
+
+		for (int i = 0; i < n; i++) {
+			Token t = nextToken();
+			if ( t instanceof WritableToken ) {
+				((WritableToken)t).setTokenIndex(tokens.size());
+			}
+			tokens.add(t);
+			addLookaheadEnd(input.lookaheadEnd, t);
+			if ( t.getType()==Token.EOF ) {
+				fetchedEOF = true;
+				return i + 1;
+			}
+		}
+
+		return n;
+	}
+
+	/** Get the next token from the lexer, recording its lookahead. */
+	protected Token nextToken() {
+		input.lookaheadEnd = -1;
+		return tokenSource.nextToken();
+	}
+
+	private void addLookaheadEnd(int lookaheadEnd, Token t) {
+		lookaheadEnds.add(lookaheadEnd);
+		maxLookahead = Math.max(maxLookahead, lookaheadEnd - t.getStopIndex());
+	}
+
+	/**
+	 * Lex the tokens affected by replacing the {@code oldLength} code points
+	 * at {@code offset} with {@code newLength} new ones. The stream switches to
+	 * {@code newInput}, which must be the edited text, but its tokens don't
+	 * change until {@link #replace} is called with the result, which must
+	 * happen before the stream is used again.
+	 *
+	 * @return the new tokens, or {@code null} if the lexer can't be restarted
+	 * between tokens
+	 */
+	public Window relex(CharStream newInput, int offset, int oldLength, int newLength) {
+		fill();
+		Lexer lexer = getLexer();
+		if ( !canRelexIncrementally(lexer) ) {
+			return null;
+		}
+
+		int n = tokens.size();
+		int delta = newLength - oldLength;
+
+		// restart at the first token whose lookahead reached the edit; the
+		// lexer looked at most maxLookahead characters past a token's stop
+		int r = firstTokenEndingAtOrAfter(offset);
+		for (int i = r - 1; i >= 0 && tokens.get(i).getStopIndex() + maxLookahead >= offset; i--) {
+			if ( lookaheadEnds.get(i) >= offset ) {
+				r = i;
+			}
+		}
+
+		// the lexer matched token r starting right after the previous token
+		int restartIndex = 0;
+		int restartLine = 1;
+		int restartCharPosition = 0;
+		if ( r > 0 ) {
+			Token previous = tokens.get(r - 1);
+			restartIndex = previous.getStopIndex() + 1;
+			restartLine = previous.getLine();
+			restartCharPosition = previous.getCharPositionInLine();
+			String text = input.getText(Interval.of(previous.getStartIndex(), previous.getStopIndex()));
+			int lastNewline = text.lastIndexOf('\n');
+			for (int i = text.indexOf('\n'); i >= 0; i = text.indexOf('\n', i + 1)) {
+				restartLine++;
+			}
+			if ( lastNewline >= 0 ) {
+				restartCharPosition = text.codePointCount(lastNewline + 1, text.length());
+			}
+			else {
+				restartCharPosition += text.codePointCount(0, text.length());
+			}
+		}
+
+		input.setDelegate(newInput);
+		lexer.setInputStream(input);
+		input.seek(restartIndex);
+		lexer.setLine(restartLine);
+		lexer.setCharPositionInLine(restartCharPosition);
+
+		// lex until a new token after the edit matches an old token
+		List<Token> window = new ArrayList<Token>();
+		IntegerList windowLookaheadEnds = new IntegerList();
+		int j = n; // first old token that is kept after the window
+		Token converged = null;
+		int next = r;
+		while ( true ) {
+			Token t = nextToken();
+			if ( t.getStartIndex() >= offset + newLength ) {
+				int oldStart = t.getStartIndex() - delta;
+				while ( next < n && tokens.get(next).getStartIndex() < oldStart ) next++;
+				if ( next < n && sameToken(tokens.get(next), t, delta) ) {
+					j = next;
+					converged = t;
+					windowLookaheadEnds.add(input.lookaheadEnd);
+					break;
+				}
+			}
+
+			window.add(t);
+			windowLookaheadEnds.add(input.lookaheadEnd);
+			if ( t.getType()==Token.EOF ) {
+				break;
+			}
+		}
+
+		// keep the old objects for re-lexed tokens before the edit that did
+		// not change
+		int relexStart = r;
+		int first = 0;
+		while ( first < window.size() && r < j &&
+				window.get(first).getStopIndex() < offset &&
+				sameToken(tokens.get(r), window.get(first), 0) )
+		{
+			first++;
+			r++;
+		}
+
+		return new Window(r, j, window.subList(first, window.size()),
+						  relexStart, windowLookaheadEnds, delta, converged);
+	}
+
+	/**
+	 * Replace the tokens of {@code window} and move the tokens after it to
+	 * their positions in the new input.
+	 */
+	public void replace(Window window) {
+		int n = tokens.size();
+		if ( window.converged!=null ) {
+			Token old = tokens.get(window.stop);
+			shiftTokens(tokens.subList(window.stop, n), window.delta, old.getLine(),
+						window.converged.getLine() - old.getLine(),
+						window.converged.getCharPositionInLine() - old.getCharPositionInLine());
+			for (int i = window.stop; i < n; i++) {
+				lookaheadEnds.set(i, lookaheadEnds.get(i) + window.delta);
+			}
+			// the lexer may have started the first kept token earlier
+			int convergedEnd = window.lookaheadEnds.get(window.lookaheadEnds.size() - 1);
+			lookaheadEnds.set(window.stop, Math.max(lookaheadEnds.get(window.stop), convergedEnd));
+		}
+
+		// the unchanged tokens before the window were lexed again too
+		int kept = window.start - window.relexStart;
+		for (int i = 0; i < kept; i++) {
+			lookaheadEnds.set(window.relexStart + i, window.lookaheadEnds.get(i));
+		}
+
+		tokens.subList(window.start, window.stop).clear();
+		tokens.addAll(window.start, window.tokens);
+
+		IntegerList ends = new IntegerList(tokens.size());
+		for (int i = 0; i < window.start; i++) {
+			ends.add(lookaheadEnds.get(i));
+		}
+		for (int i = 0; i < window.tokens.size(); i++) {
+			ends.add(window.lookaheadEnds.get(kept + i));
+		}
+		for (int i = window.stop; i < n; i++) {
+			ends.add(lookaheadEnds.get(i));
+		}
+		lookaheadEnds.clear();
+		maxLookahead = 0;
+		for (int i = 0; i < tokens.size(); i++) {
+			Token t = tokens.get(i);
+			addLookaheadEnd(ends.get(i), t);
+			if ( i >= window.start ) {
+				((WritableToken)t).setTokenIndex(i);
+			}
+		}
+
+		seek(0);
+	}
+
+	/**
+	 * The lexer state at a token boundary is known only if the lexer has a
+	 * single mode and all tokens were lexed from this stream's input.
+	 */
+	protected boolean canRelexIncrementally(Lexer lexer) {
+		if ( lexer.getModeNames()!=null && lexer.getModeNames().length > 1 ) {
+			return false;
+		}
+
+		for (Token t : tokens) {
+			if ( !(t instanceof CommonToken) || t.getInputStream()!=input ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private int firstTokenEndingAtOrAfter(int index) {
+		int lo = 0;
+		int hi = tokens.size() - 1;
+		while ( lo < hi ) {
+			int mid = (lo + hi) >>> 1;
+			if ( tokens.get(mid).getStopIndex() < index ) {
+				lo = mid + 1;
+			}
+			else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	/** Does {@code t} match {@code old} moved by {@code delta} characters? */
+	protected static boolean sameToken(Token old, Token t, int delta) {
+		return old.getType()==t.getType() &&
+			   old.getChannel()==t.getChannel() &&
+			   old.getStartIndex()+delta==t.getStartIndex() &&
+			   old.getStopIndex()+delta==t.getStopIndex();
+	}
+
+	private static void shiftTokens(List<Token> tokens, int delta, int editLine, int lineDelta, int charPositionDelta) {
+		for (Token token : tokens) {
+			CommonToken t = (CommonToken)token;
+			t.setStartIndex(t.getStartIndex() + delta);
+			t.setStopIndex(t.getStopIndex() + delta);
+			if ( t.getLine()==editLine ) {
+				t.setCharPositionInLine(t.getCharPositionInLine() + charPositionDelta);
+			}
+			t.setLine(t.getLine() + lineDelta);
+		}
+	}
+
+	/**
+	 * Reads the current text and records the largest index the lexer looked
+	 * at since {@link #lookaheadEnd} was reset.
+	 */
+	protected static class LookaheadCharStream implements CharStream {
+		protected CharStream delegate;
+		protected int lookaheadEnd = -1;
+
+		public LookaheadCharStream(CharStream delegate) {
+			this.delegate = delegate;
+		}
+
+		public void setDelegate(CharStream delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public int LA(int i) {
+			if ( i > 0 ) {
+				lookaheadEnd = Math.max(lookaheadEnd, delegate.index() + i - 1);
+			}
+			return delegate.LA(i);
+		}
+
+		@Override
+		public void consume() {
+			delegate.consume();
+		}
+
+		@Override
+		public int mark() {
+			return delegate.mark();
+		}
+
+		@Override
+		public void release(int marker) {
+			delegate.release(marker);
+		}
+
+		@Override
+		public int index() {
+			return delegate.index();
+		}
+
+		@Override
+		public void seek(int index) {
+			delegate.seek(index);
+		}
+
+		@Override
+		public int size() {
+			return delegate.size();
+		}
+
+		@Override
+		public String getSourceName() {
+			return delegate.getSourceName();
+		}
+
+		@Override
+		public String getText(Interval interval) {
+			return delegate.getText(interval);
+		}
+	}
+}
@@ -10,6 +10,7 @@ import org.antlr.v4.runtime.atn.ATN;
 import org.antlr.v4.runtime.atn.ATNType;
 import org.antlr.v4.runtime.atn.LexerATNSimulator;
 import org.antlr.v4.runtime.atn.PredictionContextCache;
+import org.antlr.v4.runtime.atn.SharedATN;
 import org.antlr.v4.runtime.dfa.DFA;
 
 import java.util.ArrayList;
@@ -29,8 +30,7 @@ public class LexerInterpreter extends Lexer {
 	private final Vocabulary vocabulary;
 
 	protected final DFA[] _decisionToDFA;
-	protected final PredictionContextCache _sharedContextCache =
-		new PredictionContextCache();
+	protected final PredictionContextCache _sharedContextCache;
 
 	@Deprecated
 	public LexerInterpreter(String grammarFileName, Collection<String> tokenNames, Collection<String> ruleNames, Collection<String> modeNames, ATN atn, CharStream input) {
@@ -43,6 +43,20 @@ public class LexerInterpreter extends Lexer {
 	}
 
 	public LexerInterpreter(String grammarFileName, Vocabulary vocabulary, Collection<String> ruleNames, Collection<String> channelNames, Collection<String> modeNames, ATN atn, CharStream input) {
+		this(grammarFileName, vocabulary, ruleNames, channelNames, modeNames, atn, createDecisionToDFA(atn), new PredictionContextCache(), input);
+	}
+
+	/**
+	 * Create an interpreter that shares the DFA cache of {@code atn} with
+	 * the other recognizers using it.
+	 *
+	 * @since 4.7.2
+	 */
+	public LexerInterpreter(String grammarFileName, Vocabulary vocabulary, Collection<String> ruleNames, Collection<String> channelNames, Collection<String> modeNames, SharedATN atn, CharStream input) {
+		this(grammarFileName, vocabulary, ruleNames, channelNames, modeNames, atn.getATN(), atn.getDecisionToDFA(), atn.getSharedContextCache(), input);
+	}
+
+	private LexerInterpreter(String grammarFileName, Vocabulary vocabulary, Collection<String> ruleNames, Collection<String> channelNames, Collection<String> modeNames, ATN atn, DFA[] decisionToDFA, PredictionContextCache sharedContextCache, CharStream input) {
 		super(input);
 
 		if (atn.grammarType != ATNType.LEXER) {
@@ -61,13 +75,20 @@ public class LexerInterpreter extends Lexer {
 		this.modeNames = modeNames.toArray(new String[modeNames.size()]);
 		this.vocabulary = vocabulary;
 
-		this._decisionToDFA = new DFA[atn.getNumberOfDecisions()];
-		for (int i = 0; i < _decisionToDFA.length; i++) {
-			_decisionToDFA[i] = new DFA(atn.getDecisionState(i), i);
-		}
+		this._decisionToDFA = decisionToDFA;
+		this._sharedContextCache = sharedContextCache;
 		this._interp = new LexerATNSimulator(this,atn,_decisionToDFA,_sharedContextCache);
 	}
 
+	private static DFA[] createDecisionToDFA(ATN atn) {
+		DFA[] decisionToDFA = new DFA[atn.getNumberOfDecisions()];
+		for (int i = 0; i < decisionToDFA.length; i++) {
+			decisionToDFA[i] = new DFA(atn.getDecisionState(i), i);
+		}
+
+		return decisionToDFA;
+	}
+
 	@Override
 	public ATN getATN() {
 		return atn;
@@ -16,6 +16,7 @@ import org.antlr.v4.runtime.atn.PredictionMode;
 import org.antlr.v4.runtime.atn.ProfilingATNSimulator;
 import org.antlr.v4.runtime.atn.RuleTransition;
 import org.antlr.v4.runtime.dfa.DFA;
+import org.antlr.v4.runtime.misc.IntSet;
 import org.antlr.v4.runtime.misc.IntegerStack;
 import org.antlr.v4.runtime.misc.IntervalSet;
 import org.antlr.v4.runtime.tree.ErrorNode;
@@ -127,6 +128,16 @@ public abstract class Parser extends Recognizer<Token, ParserATNSimulator> {
 	 */
 	protected boolean _buildParseTrees = true;
 
+	/**
+	 * The token types for which {@link #consume} adds a {@link TerminalNode}
+	 * child to the current context while building parse trees. A value of
+	 * {@code null} (the default) retains every matched token; an empty set
+	 * builds rule nodes only.
+	 *
+	 * @see #setBuildTerminalNodes
+	 * @see #setRetainedTerminalTypes
+	 */
+	protected IntSet _retainedTerminalTypes;
 
 	/**
 	 * When {@link #setTrace}{@code (true)} is called, a reference to the
@@ -137,6 +148,14 @@ public abstract class Parser extends Recognizer<Token, ParserATNSimulator> {
 	 */
 	private TraceListener _tracer;
 
+	/**
+	 * The profiler notified of every rule entry and exit, or {@code null}.
+	 *
+	 * @see #setRuleProfiler
+	 * @since 4.7.2
+	 */
+	protected RuleProfiler _ruleProfiler;
+
 	/**
 	 * The list of {@link ParseTreeListener} listeners registered to receive
 	 * events during the parse.
@@ -279,6 +298,68 @@ public abstract class Parser extends Recognizer<Token, ParserATNSimulator> {
 		return _buildParseTrees;
 	}
 
+	/**
+	 * Specifies whether or not {@link #consume} adds a {@link TerminalNode}
+	 * child for every matched token while building a parse tree. The default
+	 * value is {@code true}.
+	 *
+	 * <p>Passing {@code false} builds rule nodes only, which roughly halves the
+	 * number of tree nodes allocated. The generated token accessors such as
+	 * {@code ctx.ID()} keep working because {@link ParserRuleContext#getToken}
+	 * and {@link ParserRuleContext#getTokens} then resolve the omitted tokens
+	 * lazily against the token stream, which must therefore be buffered (e.g.
+	 * a {@link CommonTokenStream}). Error nodes are always added. Labeled
+	 * tokens are unaffected since labels hold the {@link Token} itself.</p>
+	 *
+	 * <p>Anything that inspects {@link ParserRuleContext#children} directly,
+	 * such as {@link RuleContext#getText()}, tree walkers and XPath, only sees
+	 * the retained nodes. Use {@link TokenStream#getText(RuleContext)} to get
+	 * the full text of a context.</p>
+	 *
+	 * @see #setRetainedTerminalTypes
+	 * @since 4.7.2
+	 */
+	public void setBuildTerminalNodes(boolean buildTerminalNodes) {
+		this._retainedTerminalTypes = buildTerminalNodes ? null : new IntervalSet();
+	}
+
+	/**
+	 * Gets whether or not a {@link TerminalNode} is added to the parse tree for
+	 * every matched token.
+	 *
+	 * @return {@code true} if every matched token produces a terminal node,
+	 * otherwise {@code false}
+	 *
+	 * @since 4.7.2
+	 */
+	public boolean getBuildTerminalNodes() {
+		return _retainedTerminalTypes == null;
+	}
+
+	/**
+	 * Restricts the {@link TerminalNode} children added to the parse tree to
+	 * tokens of the given types; all other matched tokens are resolved lazily
+	 * as described in {@link #setBuildTerminalNodes}.
+	 *
+	 * @param types the token types to keep as terminal nodes, or {@code null}
+	 * to keep every matched token
+	 *
+	 * @since 4.7.2
+	 */
+	public void setRetainedTerminalTypes(IntSet types) {
+		this._retainedTerminalTypes = types;
+	}
+
+	/**
+	 * @return the token types kept as terminal nodes, or {@code null} if every
+	 * matched token produces a terminal node
+	 *
+	 * @since 4.7.2
+	 */
+	public IntSet getRetainedTerminalTypes() {
+		return _retainedTerminalTypes;
+	}
+
 	/**
 	 * Trim the internal lists of the parse tree during parsing to conserve memory.
 	 * This property is set to {@code false} by default for a newly constructed parser.
@@ -580,8 +661,14 @@ public abstract class Parser extends Recognizer<Token, ParserATNSimulator> {
 					}
 				}
 			}
-			else {
-				TerminalNode node = _ctx.addChild(createTerminalNode(_ctx,o));
+			else if ( hasListener || isRetainedTerminal(o) ) {
+				TerminalNode node = createTerminalNode(_ctx,o);
+				if ( isRetainedTerminal(o) ) {
+					_ctx.addChild(node);
+				}
+				else {
+					node.setParent(_ctx);
+				}
 				if (_parseListeners != null) {
 					for (ParseTreeListener listener : _parseListeners) {
 						listener.visitTerminal(node);
@@ -592,6 +679,29 @@ public abstract class Parser extends Recognizer<Token, ParserATNSimulator> {
 		return o;
 	}
 
+	/**
+	 * Determines whether {@link #consume} adds a {@link TerminalNode} for
+	 * {@code t} to the current context.
+	 *
+	 * @see #setRetainedTerminalTypes
+	 * @since 4.7.2
+	 */
+	protected boolean isRetainedTerminal(Token t) {
+		return _retainedTerminalTypes == null || _retainedTerminalTypes.contains(t.getType());
+	}
+
+	/**
+	 * Gives {@code ctx} access to the token stream when terminal nodes are
+	 * being omitted so that its token accessors can resolve them lazily,
+	 * creating the nodes with {@link #createTerminalNode}.
+	 */
+	protected void trackOmittedTerminals(ParserRuleContext ctx) {
+		if ( _buildParseTrees && _retainedTerminalTypes != null ) {
+			ctx.omittedTerminalSource = _input;
+			ctx.omittedTerminalFactory = this;
+		}
+	}
+
 	/** How to create a token leaf node associated with a parent.
 	 *  Typically, the terminal node to create is not a function of the parent.
 	 *
@@ -626,8 +736,10 @@ public abstract class Parser extends Recognizer<Token, ParserATNSimulator> {
 		setState(state);
 		_ctx = localctx;
 		_ctx.start = _input.LT(1);
+		trackOmittedTerminals(_ctx);
 		if (_buildParseTrees) addContextToParseTree();
         if ( _parseListeners != null) triggerEnterRuleEvent();
+		if ( _ruleProfiler != null ) _ruleProfiler.enterRule(ruleIndex, _input.index());
 	}
 
     public void exitRule() {
@@ -640,6 +752,7 @@ public abstract class Parser extends Recognizer<Token, ParserATNSimulator> {
 		}
         // trigger event on _ctx, before it reverts to parent
         if ( _parseListeners != null) triggerExitRuleEvent();
+		if ( _ruleProfiler != null ) _ruleProfiler.exitRule(_input.index());
 		setState(_ctx.invokingState);
 		_ctx = (ParserRuleContext)_ctx.parent;
     }
@@ -686,9 +799,11 @@ public abstract class Parser extends Recognizer<Token, ParserATNSimulator> {
 		_precedenceStack.push(precedence);
 		_ctx = localctx;
 		_ctx.start = _input.LT(1);
+		trackOmittedTerminals(_ctx);
 		if (_parseListeners != null) {
 			triggerEnterRuleEvent(); // simulates rule entry for left-recursive rules
 		}
+		if ( _ruleProfiler != null ) _ruleProfiler.enterRule(ruleIndex, _input.index());
 	}
 
 	/** Like {@link #enterRule} but for recursive rules.
@@ -702,6 +817,7 @@ public abstract class Parser extends Recognizer<Token, ParserATNSimulator> {
 
 		_ctx = localctx;
 		_ctx.start = previous.start;
+		trackOmittedTerminals(_ctx);
 		if (_buildParseTrees) {
 			_ctx.addChild(previous);
 		}
@@ -727,6 +843,8 @@ public abstract class Parser extends Recognizer<Token, ParserATNSimulator> {
 			_ctx = _parentctx;
 		}
 
+		if ( _ruleProfiler != null ) _ruleProfiler.exitRule(_input.index());
+
 		// hook into tree
 		retctx.parent = _parentctx;
 
@@ -937,6 +1055,21 @@ public abstract class Parser extends Recognizer<Token, ParserATNSimulator> {
 		}
 	}
 
+	/**
+	 * Report every rule invocation to {@code profiler}, or stop reporting
+	 * if it is {@code null}.
+	 *
+	 * @since 4.7.2
+	 */
+	public void setRuleProfiler(RuleProfiler profiler) {
+		_ruleProfiler = profiler;
+	}
+
+	/** @since 4.7.2 */
+	public RuleProfiler getRuleProfiler() {
+		return _ruleProfiler;
+	}
+
 	/**
 	 * Gets whether a {@link TraceListener} is registered as a parse listener
 	 * for the parser.
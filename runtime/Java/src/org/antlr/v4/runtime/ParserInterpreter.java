@@ -18,6 +18,7 @@ import org.antlr.v4.runtime.atn.PredicateTransition;
 import org.antlr.v4.runtime.atn.PredictionContextCache;
 import org.antlr.v4.runtime.atn.RuleStartState;
 import org.antlr.v4.runtime.atn.RuleTransition;
+import org.antlr.v4.runtime.atn.SharedATN;
 import org.antlr.v4.runtime.atn.StarLoopEntryState;
 import org.antlr.v4.runtime.atn.Transition;
 import org.antlr.v4.runtime.dfa.DFA;
@@ -44,8 +45,8 @@ public class ParserInterpreter extends Parser {
 	protected final String grammarFileName;
 	protected final ATN atn;
 
-	protected final DFA[] decisionToDFA; // not shared like it is for generated parsers
-	protected final PredictionContextCache sharedContextCache = new PredictionContextCache();
+	protected final DFA[] decisionToDFA; // not shared like it is for generated parsers, unless from a SharedATN
+	protected final PredictionContextCache sharedContextCache;
 
 	@Deprecated
 	protected final String[] tokenNames;
@@ -97,6 +98,26 @@ public class ParserInterpreter extends Parser {
 
 	public ParserInterpreter(String grammarFileName, Vocabulary vocabulary,
 							 Collection<String> ruleNames, ATN atn, TokenStream input)
+	{
+		this(grammarFileName, vocabulary, ruleNames, atn, createDecisionToDFA(atn), new PredictionContextCache(), input);
+	}
+
+	/**
+	 * Create an interpreter that shares the DFA cache of {@code atn} with
+	 * the other recognizers using it.
+	 *
+	 * @since 4.7.2
+	 */
+	public ParserInterpreter(String grammarFileName, Vocabulary vocabulary,
+							 Collection<String> ruleNames, SharedATN atn, TokenStream input)
+	{
+		this(grammarFileName, vocabulary, ruleNames, atn.getATN(), atn.getDecisionToDFA(), atn.getSharedContextCache(), input);
+	}
+
+	private ParserInterpreter(String grammarFileName, Vocabulary vocabulary,
+							  Collection<String> ruleNames, ATN atn,
+							  DFA[] decisionToDFA, PredictionContextCache sharedContextCache,
+							  TokenStream input)
 	{
 		super(input);
 		this.grammarFileName = grammarFileName;
@@ -108,19 +129,25 @@ public class ParserInterpreter extends Parser {
 
 		this.ruleNames = ruleNames.toArray(new String[ruleNames.size()]);
 		this.vocabulary = vocabulary;
+		this.decisionToDFA = decisionToDFA;
+		this.sharedContextCache = sharedContextCache;
 
+		// get atn simulator that knows how to do predictions
+		setInterpreter(new ParserATNSimulator(this, atn,
+											  decisionToDFA,
+											  sharedContextCache));
+	}
+
+	private static DFA[] createDecisionToDFA(ATN atn) {
 		// init decision DFA
 		int numberOfDecisions = atn.getNumberOfDecisions();
-		this.decisionToDFA = new DFA[numberOfDecisions];
+		DFA[] decisionToDFA = new DFA[numberOfDecisions];
 		for (int i = 0; i < numberOfDecisions; i++) {
 			DecisionState decisionState = atn.getDecisionState(i);
 			decisionToDFA[i] = new DFA(decisionState, i);
 		}
 
-		// get atn simulator that knows how to do predictions
-		setInterpreter(new ParserATNSimulator(this, atn,
-											  decisionToDFA,
-											  sharedContextCache));
+		return decisionToDFA;
 	}
 
 	@Override
@@ -76,6 +76,31 @@ public class ParserRuleContext extends RuleContext {
 	 */
 	public RecognitionException exception;
 
+	/**
+	 * The token stream this context was parsed from, set only when the parser
+	 * omitted some {@link TerminalNode} children (see
+	 * {@link Parser#setBuildTerminalNodes}). {@link #getToken} and
+	 * {@link #getTokens} use it to resolve omitted tokens lazily; otherwise
+	 * this is {@code null}. Only the parser sets it, see
+	 * {@link Parser#trackOmittedTerminals}.
+	 */
+	TokenStream omittedTerminalSource;
+	/**
+	 * The parser that set {@link #omittedTerminalSource}, whose
+	 * {@link Parser#createTerminalNode} creates the omitted terminal nodes.
+	 */
+	Parser omittedTerminalFactory;
+
+	/** The terminals matched directly by this rule, omitted or not, in input
+	 *  order, once {@link #stop} is known; see {@link #getTerminals}.
+	 */
+	private List<TerminalNode> terminals;
+	/** The {@link #stop} token and child count {@link #terminals} was
+	 *  collected for.
+	 */
+	private Token terminalsStop;
+	private int terminalsChildCount;
+
 	public ParserRuleContext() { }
 
 	/** COPY a ctx (I'm deliberately not using copy constructor) to avoid
@@ -96,6 +121,8 @@ public class ParserRuleContext extends RuleContext {
 
 		this.start = ctx.start;
 		this.stop = ctx.stop;
+		this.omittedTerminalSource = ctx.omittedTerminalSource;
+		this.omittedTerminalFactory = ctx.omittedTerminalFactory;
 
 		// copy any error nodes to alt label node
 		if ( ctx.children!=null ) {
@@ -224,6 +251,23 @@ public class ParserRuleContext extends RuleContext {
 	}
 
 	public TerminalNode getToken(int ttype, int i) {
+		if ( omittedTerminalSource!=null ) {
+			if ( i < 0 ) {
+				return null;
+			}
+
+			int j = -1; // what token with ttype have we found?
+			for (TerminalNode tnode : getTerminals()) {
+				if ( tnode.getSymbol().getType()==ttype ) {
+					j++;
+					if ( j == i ) {
+						return tnode;
+					}
+				}
+			}
+			return null;
+		}
+
 		if ( children==null || i < 0 || i >= children.size() ) {
 			return null;
 		}
@@ -246,12 +290,12 @@ public class ParserRuleContext extends RuleContext {
 	}
 
 	public List<TerminalNode> getTokens(int ttype) {
-		if ( children==null ) {
+		if ( children==null && omittedTerminalSource==null ) {
 			return Collections.emptyList();
 		}
 
 		List<TerminalNode> tokens = null;
-		for (ParseTree o : children) {
+		for (ParseTree o : omittedTerminalSource!=null ? getTerminals() : children) {
 			if ( o instanceof TerminalNode ) {
 				TerminalNode tnode = (TerminalNode)o;
 				Token symbol = tnode.getSymbol();
@@ -271,6 +315,93 @@ public class ParserRuleContext extends RuleContext {
 		return tokens;
 	}
 
+	/**
+	 * The token stream omitted terminal nodes of this context are resolved
+	 * in, or {@code null} if the parser built all of them.
+	 *
+	 * @see Parser#setBuildTerminalNodes
+	 * @since 4.7.2
+	 */
+	public TokenStream getOmittedTerminalSource() {
+		return omittedTerminalSource;
+	}
+
+	/** The terminals matched directly by this rule, in input order, when the
+	 *  parser omitted terminal nodes. Gaps between child nodes are scanned in
+	 *  {@link #omittedTerminalSource}; tokens found there get a node from
+	 *  {@link Parser#createTerminalNode} whose parent is this context but
+	 *  which is not added to {@link #children}.
+	 *
+	 *  While the rule is still running, {@link #stop} is null and the scan
+	 *  ends at the last token consumed, {@code LT(-1)}, or at the start of the
+	 *  child rule that is running; EOF, which the parser never consumes, is
+	 *  only found once the rule has stopped. Once {@link #stop} is set, the list is
+	 *  built once and kept so that the same nodes are returned every time.
+	 */
+	private List<TerminalNode> getTerminals() {
+		if ( stop!=null && terminals!=null &&
+			 terminalsStop==stop && terminalsChildCount==getChildCount() )
+		{
+			return terminals;
+		}
+
+		Token last = stop!=null ? stop : omittedTerminalSource.LT(-1);
+		if ( start==null || last==null ) {
+			return Collections.emptyList();
+		}
+
+		List<TerminalNode> result = new ArrayList<TerminalNode>();
+		int next = start.getTokenIndex();
+		int childCount = getChildCount();
+		for (int c = 0; c <= childCount; c++) {
+			ParseTree child = c < childCount ? children.get(c) : null;
+			int gapStop = last.getTokenIndex();
+			if ( child!=null ) {
+				Interval childInterval = child.getSourceInterval();
+				if ( childInterval.a < 0 ) {
+					// conjured error token or context without a start token
+					continue;
+				}
+				gapStop = childInterval.a - 1;
+			}
+
+			for (int t = next; t <= gapStop; t++) {
+				Token symbol = omittedTerminalSource.get(t);
+				if ( isOnParserChannel(symbol) ) {
+					TerminalNode tnode = omittedTerminalFactory.createTerminalNode(this, symbol);
+					tnode.setParent(this);
+					result.add(tnode);
+				}
+			}
+
+			if ( child==null ) {
+				break;
+			}
+			if ( child instanceof TerminalNode ) {
+				result.add((TerminalNode)child);
+			}
+			else if ( child instanceof ParserRuleContext && ((ParserRuleContext)child).stop==null ) {
+				// the rule invoked last is still running; what follows is its input
+				break;
+			}
+			next = Math.max(next, child.getSourceInterval().b + 1);
+		}
+
+		if ( stop!=null ) {
+			terminals = result;
+			terminalsStop = stop;
+			terminalsChildCount = childCount;
+		}
+		return result;
+	}
+
+	private boolean isOnParserChannel(Token symbol) {
+		if ( omittedTerminalSource instanceof CommonTokenStream ) {
+			return symbol.getChannel()==((CommonTokenStream)omittedTerminalSource).channel;
+		}
+		return true;
+	}
+
 	public <T extends ParserRuleContext> T getRuleContext(Class<? extends T> ctxType, int i) {
 		return getChild(ctxType, i);
 	}
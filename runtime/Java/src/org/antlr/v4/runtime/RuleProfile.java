@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.runtime;
+
+/**
+ * What a {@link RuleProfiler} measured for one rule. Inclusive values
+ * include the rules invoked from the rule; exclusive values do not.
+ *
+ * @since 4.7.2
+ */
+public class RuleProfile {
+	private final int ruleIndex;
+	private final String ruleName;
+	private final long invocations;
+	private final long inclusiveNanos;
+	private final long exclusiveNanos;
+	private final long inclusiveTokens;
+	private final long exclusiveTokens;
+	private final long inclusiveAllocatedBytes;
+	private final long exclusiveAllocatedBytes;
+
+	public RuleProfile(int ruleIndex, String ruleName,
+					   long invocations,
+					   long inclusiveNanos, long exclusiveNanos,
+					   long inclusiveTokens, long exclusiveTokens,
+					   long inclusiveAllocatedBytes, long exclusiveAllocatedBytes)
+	{
+		this.ruleIndex = ruleIndex;
+		this.ruleName = ruleName;
+		this.invocations = invocations;
+		this.inclusiveNanos = inclusiveNanos;
+		this.exclusiveNanos = exclusiveNanos;
+		this.inclusiveTokens = inclusiveTokens;
+		this.exclusiveTokens = exclusiveTokens;
+		this.inclusiveAllocatedBytes = inclusiveAllocatedBytes;
+		this.exclusiveAllocatedBytes = exclusiveAllocatedBytes;
+	}
+
+	/** Combine the profiles of the same rule measured by two profilers. */
+	public RuleProfile add(RuleProfile other) {
+		if ( other.ruleIndex!=ruleIndex ) {
+			throw new IllegalArgumentException("cannot add the profiles of different rules");
+		}
+
+		return new RuleProfile(ruleIndex, ruleName,
+							   invocations + other.invocations,
+							   inclusiveNanos + other.inclusiveNanos,
+							   exclusiveNanos + other.exclusiveNanos,
+							   inclusiveTokens + other.inclusiveTokens,
+							   exclusiveTokens + other.exclusiveTokens,
+							   inclusiveAllocatedBytes + other.inclusiveAllocatedBytes,
+							   exclusiveAllocatedBytes + other.exclusiveAllocatedBytes);
+	}
+
+	public int getRuleIndex() {
+		return ruleIndex;
+	}
+
+	public String getRuleName() {
+		return ruleName;
+	}
+
+	public long getInvocations() {
+		return invocations;
+	}
+
+	public long getInclusiveNanos() {
+		return inclusiveNanos;
+	}
+
+	public long getExclusiveNanos() {
+		return exclusiveNanos;
+	}
+
+	/** Get the number of tokens, including off-channel ones, consumed by the rule. */
+	public long getInclusiveTokens() {
+		return inclusiveTokens;
+	}
+
+	public long getExclusiveTokens() {
+		return exclusiveTokens;
+	}
+
+	/** Get the bytes allocated, or 0 if allocations were not tracked. */
+	public long getInclusiveAllocatedBytes() {
+		return inclusiveAllocatedBytes;
+	}
+
+	public long getExclusiveAllocatedBytes() {
+		return exclusiveAllocatedBytes;
+	}
+
+	@Override
+	public String toString() {
+		return ruleName+": invocations="+invocations+
+			", inclusiveNanos="+inclusiveNanos+
+			", exclusiveNanos="+exclusiveNanos+
+			", tokens="+inclusiveTokens+
+			", exclusiveAllocatedBytes="+exclusiveAllocatedBytes;
+	}
+}
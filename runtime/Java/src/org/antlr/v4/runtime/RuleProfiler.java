@@ -0,0 +1,325 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.runtime;
+
+import org.antlr.v4.runtime.misc.AllocationCounter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Measures where a parser spends its time, rule by rule. Attach it with
+ * {@link Parser#setRuleProfiler}; the parser then reports every rule
+ * invocation to it. A left-recursive rule invocation counts once, however
+ * many times the parser extends its context.
+ *
+ * <p>For each rule the profiler accumulates the number of invocations, the
+ * inclusive and exclusive time, the number of tokens consumed and,
+ * optionally, the bytes allocated by the parsing thread. Inclusive values
+ * are only counted for the outermost active invocation of a rule, so
+ * recursion does not count them twice. {@link #getProfiles} and
+ * {@link #toString(Comparator)} give a per-rule report;
+ * {@link #writeCollapsedStacks} writes the exclusive times per rule call
+ * path in the collapsed-stack format that flame graph tools read.</p>
+ *
+ * <p>A profiler is not thread-safe; use one per parser and combine the
+ * results with {@link RuleProfile#add} if needed.</p>
+ *
+ * @since 4.7.2
+ */
+public class RuleProfiler {
+	public static final Comparator<RuleProfile> BY_EXCLUSIVE_TIME = new Comparator<RuleProfile>() {
+		@Override
+		public int compare(RuleProfile a, RuleProfile b) {
+			return Long.compare(b.getExclusiveNanos(), a.getExclusiveNanos());
+		}
+	};
+
+	public static final Comparator<RuleProfile> BY_INCLUSIVE_TIME = new Comparator<RuleProfile>() {
+		@Override
+		public int compare(RuleProfile a, RuleProfile b) {
+			return Long.compare(b.getInclusiveNanos(), a.getInclusiveNanos());
+		}
+	};
+
+	public static final Comparator<RuleProfile> BY_INVOCATIONS = new Comparator<RuleProfile>() {
+		@Override
+		public int compare(RuleProfile a, RuleProfile b) {
+			return Long.compare(b.getInvocations(), a.getInvocations());
+		}
+	};
+
+	public static final Comparator<RuleProfile> BY_ALLOCATED_BYTES = new Comparator<RuleProfile>() {
+		@Override
+		public int compare(RuleProfile a, RuleProfile b) {
+			return Long.compare(b.getExclusiveAllocatedBytes(), a.getExclusiveAllocatedBytes());
+		}
+	};
+
+	private final String[] ruleNames;
+	private final boolean trackAllocations;
+
+	// totals per rule index
+	private final long[] invocations;
+	private final long[] inclusiveNanos;
+	private final long[] exclusiveNanos;
+	private final long[] inclusiveTokens;
+	private final long[] exclusiveTokens;
+	private final long[] inclusiveBytes;
+	private final long[] exclusiveBytes;
+	/** The number of active invocations of each rule. */
+	private final int[] active;
+
+	// the stack of active invocations
+	private int sp;
+	private int[] stackRules = new int[64];
+	private long[] stackStartNanos = new long[64];
+	private long[] stackChildNanos = new long[64];
+	private int[] stackStartTokens = new int[64];
+	private int[] stackChildTokens = new int[64];
+	private long[] stackStartBytes = new long[64];
+	private long[] stackChildBytes = new long[64];
+	private CallNode[] stackNodes = new CallNode[64];
+
+	private final CallNode root = new CallNode(-1);
+
+	public RuleProfiler(String[] ruleNames) {
+		this(ruleNames, false);
+	}
+
+	/**
+	 * @param trackAllocations whether to measure allocated bytes as well,
+	 * which needs a JVM that {@link AllocationCounter} supports
+	 * @throws UnsupportedOperationException if allocations cannot be measured
+	 * on this JVM
+	 */
+	public RuleProfiler(String[] ruleNames, boolean trackAllocations) {
+		this.ruleNames = ruleNames;
+		if ( trackAllocations && !AllocationCounter.isSupported() ) {
+			throw new UnsupportedOperationException("allocation tracking is not supported by this JVM");
+		}
+		this.trackAllocations = trackAllocations;
+		int n = ruleNames.length;
+		invocations = new long[n];
+		inclusiveNanos = new long[n];
+		exclusiveNanos = new long[n];
+		inclusiveTokens = new long[n];
+		exclusiveTokens = new long[n];
+		inclusiveBytes = new long[n];
+		exclusiveBytes = new long[n];
+		active = new int[n];
+	}
+
+	public boolean isTrackingAllocations() {
+		return trackAllocations;
+	}
+
+	/** Called by the parser when it enters rule {@code ruleIndex}. */
+	public void enterRule(int ruleIndex, int tokenIndex) {
+		if ( sp==stackRules.length ) {
+			grow();
+		}
+
+		CallNode parent = sp > 0 ? stackNodes[sp - 1] : root;
+		stackRules[sp] = ruleIndex;
+		stackNodes[sp] = parent.getChild(ruleIndex);
+		stackChildNanos[sp] = 0;
+		stackChildTokens[sp] = 0;
+		stackChildBytes[sp] = 0;
+		stackStartTokens[sp] = tokenIndex;
+		stackStartBytes[sp] = trackAllocations ? AllocationCounter.getAllocatedBytes() : 0;
+		active[ruleIndex]++;
+		invocations[ruleIndex]++;
+		// read the clock last so the profiler's own work is not charged
+		stackStartNanos[sp] = System.nanoTime();
+		sp++;
+	}
+
+	/** Called by the parser when it leaves the rule entered last. */
+	public void exitRule(int tokenIndex) {
+		long now = System.nanoTime();
+		if ( sp==0 ) {
+			// attached in the middle of a rule
+			return;
+		}
+
+		sp--;
+		int ruleIndex = stackRules[sp];
+		long nanos = now - stackStartNanos[sp];
+		int tokens = Math.max(0, tokenIndex - stackStartTokens[sp]);
+		long bytes = trackAllocations ? AllocationCounter.getAllocatedBytes() - stackStartBytes[sp] : 0;
+
+		long selfNanos = nanos - stackChildNanos[sp];
+		exclusiveNanos[ruleIndex] += selfNanos;
+		exclusiveTokens[ruleIndex] += tokens - stackChildTokens[sp];
+		exclusiveBytes[ruleIndex] += bytes - stackChildBytes[sp];
+		if ( --active[ruleIndex]==0 ) {
+			inclusiveNanos[ruleIndex] += nanos;
+			inclusiveTokens[ruleIndex] += tokens;
+			inclusiveBytes[ruleIndex] += bytes;
+		}
+
+		CallNode node = stackNodes[sp];
+		node.exclusiveNanos += selfNanos;
+		stackNodes[sp] = null;
+
+		if ( sp > 0 ) {
+			stackChildNanos[sp - 1] += nanos;
+			stackChildTokens[sp - 1] += tokens;
+			stackChildBytes[sp - 1] += bytes;
+		}
+	}
+
+	/** Forget everything measured so far. */
+	public void reset() {
+		Arrays.fill(invocations, 0);
+		Arrays.fill(inclusiveNanos, 0);
+		Arrays.fill(exclusiveNanos, 0);
+		Arrays.fill(inclusiveTokens, 0);
+		Arrays.fill(exclusiveTokens, 0);
+		Arrays.fill(inclusiveBytes, 0);
+		Arrays.fill(exclusiveBytes, 0);
+		Arrays.fill(active, 0);
+		Arrays.fill(stackNodes, null);
+		sp = 0;
+		root.children = null;
+		root.childCount = 0;
+	}
+
+	/** Get the profile of every rule that was invoked, by rule index. */
+	public List<RuleProfile> getProfiles() {
+		List<RuleProfile> profiles = new ArrayList<RuleProfile>();
+		for (int i = 0; i < ruleNames.length; i++) {
+			if ( invocations[i] > 0 ) {
+				profiles.add(getProfile(i));
+			}
+		}
+		return profiles;
+	}
+
+	public RuleProfile getProfile(int ruleIndex) {
+		return new RuleProfile(ruleIndex, ruleNames[ruleIndex],
+							   invocations[ruleIndex],
+							   inclusiveNanos[ruleIndex],
+							   exclusiveNanos[ruleIndex],
+							   inclusiveTokens[ruleIndex],
+							   exclusiveTokens[ruleIndex],
+							   inclusiveBytes[ruleIndex],
+							   exclusiveBytes[ruleIndex]);
+	}
+
+	/**
+	 * Write one line per rule call path, such as
+	 * {@code compilationUnit;classDeclaration;classBody 123456}, with the
+	 * exclusive time spent in the last rule of the path in nanoseconds.
+	 * This is the input format of {@code flamegraph.pl} and similar tools.
+	 */
+	public void writeCollapsedStacks(Appendable out) throws IOException {
+		StringBuilder path = new StringBuilder();
+		for (int i = 0; i < root.childCount; i++) {
+			writeCollapsedStacks(root.children[i], path, out);
+		}
+	}
+
+	private void writeCollapsedStacks(CallNode node, StringBuilder path, Appendable out) throws IOException {
+		int length = path.length();
+		if ( length > 0 ) {
+			path.append(';');
+		}
+		path.append(ruleNames[node.ruleIndex]);
+		out.append(path).append(' ').append(Long.toString(node.exclusiveNanos)).append('\n');
+
+		for (int i = 0; i < node.childCount; i++) {
+			writeCollapsedStacks(node.children[i], path, out);
+		}
+		path.setLength(length);
+	}
+
+	@Override
+	public String toString() {
+		return toString(BY_EXCLUSIVE_TIME);
+	}
+
+	/** Get a table of the rule profiles sorted by {@code order}. */
+	public String toString(Comparator<RuleProfile> order) {
+		List<RuleProfile> profiles = getProfiles();
+		Collections.sort(profiles, order);
+
+		int width = "rule".length();
+		for (RuleProfile p : profiles) {
+			width = Math.max(width, p.getRuleName().length());
+		}
+
+		StringBuilder buf = new StringBuilder();
+		String header = "%-"+width+"s %12s %14s %14s %12s";
+		String row = "%-"+width+"s %12d %14.3f %14.3f %12d";
+		if ( trackAllocations ) {
+			header += " %14s";
+			row += " %14d";
+		}
+		header += "\n";
+		row += "\n";
+		buf.append(String.format(header, "rule", "invocations", "incl ms", "excl ms", "tokens", "excl bytes"));
+		for (RuleProfile p : profiles) {
+			buf.append(String.format(row,
+									 p.getRuleName(),
+									 p.getInvocations(),
+									 p.getInclusiveNanos() / 1e6,
+									 p.getExclusiveNanos() / 1e6,
+									 p.getInclusiveTokens(),
+									 p.getExclusiveAllocatedBytes()));
+		}
+		return buf.toString();
+	}
+
+	private void grow() {
+		int n = stackRules.length * 2;
+		stackRules = Arrays.copyOf(stackRules, n);
+		stackStartNanos = Arrays.copyOf(stackStartNanos, n);
+		stackChildNanos = Arrays.copyOf(stackChildNanos, n);
+		stackStartTokens = Arrays.copyOf(stackStartTokens, n);
+		stackChildTokens = Arrays.copyOf(stackChildTokens, n);
+		stackStartBytes = Arrays.copyOf(stackStartBytes, n);
+		stackChildBytes = Arrays.copyOf(stackChildBytes, n);
+		stackNodes = Arrays.copyOf(stackNodes, n);
+	}
+
+	/** A rule call path; its children are the rules invoked from it. */
+	private static final class CallNode {
+		final int ruleIndex;
+		CallNode[] children;
+		int childCount;
+		long exclusiveNanos;
+
+		CallNode(int ruleIndex) {
+			this.ruleIndex = ruleIndex;
+		}
+
+		CallNode getChild(int ruleIndex) {
+			for (int i = 0; i < childCount; i++) {
+				if ( children[i].ruleIndex==ruleIndex ) {
+					return children[i];
+				}
+			}
+
+			if ( children==null ) {
+				children = new CallNode[4];
+			}
+			else if ( childCount==children.length ) {
+				children = Arrays.copyOf(children, childCount * 2);
+			}
+
+			CallNode child = new CallNode(ruleIndex);
+			children[childCount++] = child;
+			return child;
+		}
+	}
+}
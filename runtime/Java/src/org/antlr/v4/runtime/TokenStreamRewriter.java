@@ -7,10 +7,21 @@ package org.antlr.v4.runtime;
 
 import org.antlr.v4.runtime.misc.Interval;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 /**
  * Useful for rewriting out a buffered input token stream after doing some
@@ -179,6 +190,20 @@ public class TokenStreamRewriter {
 		}
 	}
 
+	private static final Comparator<RewriteOperation> BY_INDEX = new Comparator<RewriteOperation>() {
+		@Override
+		public int compare(RewriteOperation o1, RewriteOperation o2) {
+			return o1.index < o2.index ? -1 : (o1.index == o2.index ? 0 : 1);
+		}
+	};
+
+	private static final Comparator<RewriteOperation> BY_INSTRUCTION_INDEX = new Comparator<RewriteOperation>() {
+		@Override
+		public int compare(RewriteOperation o1, RewriteOperation o2) {
+			return o1.instructionIndex < o2.instructionIndex ? -1 : (o1.instructionIndex == o2.instructionIndex ? 0 : 1);
+		}
+	};
+
 	/** Our source stream */
 	protected final TokenStream tokens;
 
@@ -381,6 +406,47 @@ public class TokenStreamRewriter {
 	}
 
 	public String getText(String programName, Interval interval) {
+		List<RewriteOperation> rewrites = programs.get(programName);
+		if ( rewrites==null || rewrites.isEmpty() ) {
+			return tokens.getText(interval); // no instructions to execute
+		}
+
+		StringBuilder buf = new StringBuilder();
+		try {
+			write(programName, interval, buf);
+		}
+		catch (IOException e) {
+			// StringBuilder.append does not throw
+			throw new IllegalStateException(e);
+		}
+		return buf.toString();
+	}
+
+	/** Write the text of the whole token stream, altered per the
+	 *  instructions given to this rewriter, to {@code out}.
+	 *  Unlike {@link #getText()}, the result is never held in memory as a
+	 *  whole, so a {@link Writer} can stream very large rewrites.
+	 */
+	public void write(Appendable out) throws IOException {
+		write(DEFAULT_PROGRAM_NAME, Interval.of(0,tokens.size()-1), out);
+	}
+
+	/** Write the same text as {@link #getText(String, Interval)} to
+	 *  {@code channel}, encoded with {@code charset}. The channel is
+	 *  not closed.
+	 */
+	public void write(String programName, Interval interval, WritableByteChannel channel, Charset charset) throws IOException {
+		Writer out = Channels.newWriter(channel, charset.newEncoder(), -1);
+		write(programName, interval, out);
+		out.flush();
+	}
+
+	/** Write the same text as {@link #getText(String, Interval)} to
+	 *  {@code out}. The tokens and the text of the operations are appended
+	 *  one at a time, in time linear in the number of tokens in the interval
+	 *  plus the number of operations.
+	 */
+	public void write(String programName, Interval interval, Appendable out) throws IOException {
 		List<RewriteOperation> rewrites = programs.get(programName);
 		int start = interval.a;
 		int stop = interval.b;
@@ -389,27 +455,37 @@ public class TokenStreamRewriter {
 		if ( stop>tokens.size()-1 ) stop = tokens.size()-1;
 		if ( start<0 ) start = 0;
 
+		// First, optimize instruction stream, then order it by token index
+		RewriteOperation[] ops;
 		if ( rewrites==null || rewrites.isEmpty() ) {
-			return tokens.getText(interval); // no instructions to execute
+			ops = new RewriteOperation[0];
 		}
-		StringBuilder buf = new StringBuilder();
-
-		// First, optimize instruction stream
-		Map<Integer, RewriteOperation> indexToOp = reduceToSingleOperationPerIndex(rewrites);
+		else {
+			// reduce a copy: the reduction edits the ops, and rendering the
+			// same program again must give the same text
+			Collection<RewriteOperation> reduced = reduceToSingleOperationPerIndex(copyProgram(rewrites)).values();
+			ops = reduced.toArray(new RewriteOperation[reduced.size()]);
+			Arrays.sort(ops, BY_INDEX);
+		}
+		boolean[] executed = new boolean[ops.length];
 
 		// Walk buffer, executing instructions and emitting tokens
+		StringBuilder opText = new StringBuilder();
+		int next = 0; // first op whose index has not been passed yet
 		int i = start;
 		while ( i <= stop && i < tokens.size() ) {
-			RewriteOperation op = indexToOp.get(i);
-			indexToOp.remove(i); // remove so any left have index size-1
+			while ( next < ops.length && ops[next].index < i ) next++;
 			Token t = tokens.get(i);
-			if ( op==null ) {
+			if ( next==ops.length || ops[next].index!=i ) {
 				// no operation at that index, just dump token
-				if ( t.getType()!=Token.EOF ) buf.append(t.getText());
+				if ( t.getType()!=Token.EOF ) out.append(t.getText());
 				i++; // move to next token
 			}
 			else {
-				i = op.execute(buf); // execute operation and skip
+				executed[next] = true;
+				i = ops[next].execute(opText); // execute operation and skip
+				out.append(opText);
+				opText.setLength(0);
 			}
 		}
 
@@ -419,11 +495,11 @@ public class TokenStreamRewriter {
 		if ( stop==tokens.size()-1 ) {
 			// Scan any remaining operations after last token
 			// should be included (they will be inserts).
-			for (RewriteOperation op : indexToOp.values()) {
-				if ( op.index >= tokens.size()-1 ) buf.append(op.text);
+			for (int j = 0; j < ops.length; j++) {
+				RewriteOperation op = ops[j];
+				if ( !executed[j] && op.index >= tokens.size()-1 ) out.append(String.valueOf(op.text));
 			}
 		}
-		return buf.toString();
 	}
 
 	/** We need to combine operations and report invalid operations (like
@@ -478,32 +554,60 @@ public class TokenStreamRewriter {
 	protected Map<Integer, RewriteOperation> reduceToSingleOperationPerIndex(List<RewriteOperation> rewrites) {
 //		System.out.println("rewrites="+rewrites);
 
+		// Instead of scanning all prior ops for each op, keep the prior ops
+		// that are still alive in maps sorted by token index. Every op enters
+		// and leaves these maps at most once, so the reduction takes
+		// O(n log n) time for n ops. Surviving replaces never overlap, so
+		// they can be keyed by their first index.
+
 		// WALK REPLACES
+		TreeMap<Integer, List<InsertBeforeOp>> priorInserts = new TreeMap<Integer, List<InsertBeforeOp>>();
+		TreeMap<Integer, ReplaceOp> priorReplaces = new TreeMap<Integer, ReplaceOp>();
+		List<ReplaceOp> overlapping = new ArrayList<ReplaceOp>();
 		for (int i = 0; i < rewrites.size(); i++) {
 			RewriteOperation op = rewrites.get(i);
 			if ( op==null ) continue;
+			if ( op instanceof InsertBeforeOp ) {
+				List<InsertBeforeOp> inserts = priorInserts.get(op.index);
+				if ( inserts==null ) {
+					inserts = new ArrayList<InsertBeforeOp>(1);
+					priorInserts.put(op.index, inserts);
+				}
+				inserts.add((InsertBeforeOp)op);
+				continue;
+			}
 			if ( !(op instanceof ReplaceOp) ) continue;
-			ReplaceOp rop = (ReplaceOp)rewrites.get(i);
+			ReplaceOp rop = (ReplaceOp)op;
 			// Wipe prior inserts within range
-			List<? extends InsertBeforeOp> inserts = getKindOfOps(rewrites, InsertBeforeOp.class, i);
-			for (InsertBeforeOp iop : inserts) {
-				if ( iop.index == rop.index ) {
-					// E.g., insert before 2, delete 2..2; update replace
-					// text to include insert before, kill insert
-					rewrites.set(iop.instructionIndex, null);
-					rop.text = iop.text.toString() + (rop.text!=null?rop.text.toString():"");
-				}
-				else if ( iop.index > rop.index && iop.index <= rop.lastIndex ) {
-					// delete insert as it's a no-op.
+			SortedMap<Integer, List<InsertBeforeOp>> within = priorInserts.subMap(rop.index, rop.lastIndex+1);
+			for (List<InsertBeforeOp> inserts : within.values()) {
+				for (InsertBeforeOp iop : inserts) {
 					rewrites.set(iop.instructionIndex, null);
+					if ( iop.index == rop.index ) {
+						// E.g., insert before 2, delete 2..2; update replace
+						// text to include insert before, kill insert
+						rop.text = iop.text.toString() + (rop.text!=null?rop.text.toString():"");
+					}
+					// else delete insert as it's a no-op.
 				}
 			}
-			// Drop any prior replaces contained within
-			List<? extends ReplaceOp> prevReplaces = getKindOfOps(rewrites, ReplaceOp.class, i);
-			for (ReplaceOp prevRop : prevReplaces) {
+			within.clear();
+
+			// Drop any prior replaces contained within, in the order they
+			// were issued; merging deletes can grow rop but never makes it
+			// reach a prior replace that did not overlap it already.
+			overlapping.clear();
+			Map.Entry<Integer, ReplaceOp> before = priorReplaces.lowerEntry(rop.index);
+			if ( before!=null && before.getValue().lastIndex >= rop.index ) {
+				overlapping.add(before.getValue());
+			}
+			overlapping.addAll(priorReplaces.subMap(rop.index, rop.lastIndex+1).values());
+			Collections.sort(overlapping, BY_INSTRUCTION_INDEX);
+			for (ReplaceOp prevRop : overlapping) {
 				if ( prevRop.index>=rop.index && prevRop.lastIndex <= rop.lastIndex ) {
 					// delete replace as it's a no-op.
 					rewrites.set(prevRop.instructionIndex, null);
+					priorReplaces.remove(prevRop.index);
 					continue;
 				}
 				// throw exception unless disjoint or identical
@@ -514,49 +618,52 @@ public class TokenStreamRewriter {
 				if ( prevRop.text==null && rop.text==null && !disjoint ) {
 					//System.out.println("overlapping deletes: "+prevRop+", "+rop);
 					rewrites.set(prevRop.instructionIndex, null); // kill first delete
+					priorReplaces.remove(prevRop.index);
 					rop.index = Math.min(prevRop.index, rop.index);
 					rop.lastIndex = Math.max(prevRop.lastIndex, rop.lastIndex);
-					System.out.println("new rop "+rop);
 				}
 				else if ( !disjoint ) {
 					throw new IllegalArgumentException("replace op boundaries of "+rop+" overlap with previous "+prevRop);
 				}
 			}
+			priorReplaces.put(rop.index, rop);
 		}
 
 		// WALK INSERTS
+		Map<Integer, InsertBeforeOp> priorInsertAt = new HashMap<Integer, InsertBeforeOp>();
 		for (int i = 0; i < rewrites.size(); i++) {
 			RewriteOperation op = rewrites.get(i);
 			if ( op==null ) continue;
 			if ( !(op instanceof InsertBeforeOp) ) continue;
 			InsertBeforeOp iop = (InsertBeforeOp)rewrites.get(i);
 			// combine current insert with prior if any at same index
-			List<? extends InsertBeforeOp> prevInserts = getKindOfOps(rewrites, InsertBeforeOp.class, i);
-			for (InsertBeforeOp prevIop : prevInserts) {
-				if ( prevIop.index==iop.index ) {
-					if ( InsertAfterOp.class.isInstance(prevIop) ) {
-						iop.text = catOpText(prevIop.text, iop.text);
-						rewrites.set(prevIop.instructionIndex, null);
-					}
-					else if ( InsertBeforeOp.class.isInstance(prevIop) ) { // combine objects
-						// convert to strings...we're in process of toString'ing
-						// whole token buffer so no lazy eval issue with any templates
-						iop.text = catOpText(iop.text, prevIop.text);
-						// delete redundant prior insert
-						rewrites.set(prevIop.instructionIndex, null);
-					}
+			InsertBeforeOp prevIop = priorInsertAt.put(iop.index, iop);
+			if ( prevIop!=null ) {
+				if ( InsertAfterOp.class.isInstance(prevIop) ) {
+					iop.text = catOpText(prevIop.text, iop.text);
+					rewrites.set(prevIop.instructionIndex, null);
+				}
+				else if ( InsertBeforeOp.class.isInstance(prevIop) ) { // combine objects
+					// convert to strings...we're in process of toString'ing
+					// whole token buffer so no lazy eval issue with any templates
+					iop.text = catOpText(iop.text, prevIop.text);
+					// delete redundant prior insert
+					rewrites.set(prevIop.instructionIndex, null);
 				}
 			}
 			// look for replaces where iop.index is in range; error
-			List<? extends ReplaceOp> prevReplaces = getKindOfOps(rewrites, ReplaceOp.class, i);
-			for (ReplaceOp rop : prevReplaces) {
-				if ( iop.index == rop.index ) {
-					rop.text = catOpText(iop.text,rop.text);
-					rewrites.set(i, null);	// delete current insert
-					continue;
-				}
-				if ( iop.index >= rop.index && iop.index <= rop.lastIndex ) {
-					throw new IllegalArgumentException("insert op "+iop+" within boundaries of previous "+rop);
+			Map.Entry<Integer, ReplaceOp> enclosing = priorReplaces.floorEntry(iop.index);
+			if ( enclosing!=null ) {
+				ReplaceOp rop = enclosing.getValue();
+				if ( rop.instructionIndex < i && iop.index <= rop.lastIndex ) {
+					if ( iop.index == rop.index ) {
+						rop.text = catOpText(iop.text,rop.text);
+						rewrites.set(i, null);	// delete current insert
+						priorInsertAt.remove(iop.index);
+					}
+					else {
+						throw new IllegalArgumentException("insert op "+iop+" within boundaries of previous "+rop);
+					}
 				}
 			}
 		}
@@ -574,6 +681,28 @@ public class TokenStreamRewriter {
 		return m;
 	}
 
+	/** Copy {@code rewrites} and the built-in operations in it. */
+	private List<RewriteOperation> copyProgram(List<RewriteOperation> rewrites) {
+		List<RewriteOperation> copy = new ArrayList<RewriteOperation>(rewrites.size());
+		for (RewriteOperation op : rewrites) {
+			RewriteOperation opCopy = op;
+			if ( op!=null ) {
+				if ( op.getClass()==InsertBeforeOp.class ) {
+					opCopy = new InsertBeforeOp(op.index, op.text);
+				}
+				else if ( op.getClass()==InsertAfterOp.class ) {
+					opCopy = new InsertAfterOp(op.index-1, op.text);
+				}
+				else if ( op.getClass()==ReplaceOp.class ) {
+					opCopy = new ReplaceOp(op.index, ((ReplaceOp)op).lastIndex, op.text);
+				}
+				opCopy.instructionIndex = op.instructionIndex;
+			}
+			copy.add(opCopy);
+		}
+		return copy;
+	}
+
 	protected String catOpText(Object a, Object b) {
 		String x = "";
 		String y = "";
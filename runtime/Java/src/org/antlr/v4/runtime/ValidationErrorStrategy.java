@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.runtime;
+
+import org.antlr.v4.runtime.atn.ATNState;
+import org.antlr.v4.runtime.misc.IntervalSet;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+
+/**
+ * An error strategy for validation, where the only interest is whether the
+ * input is valid and where the first syntax error is.
+ *
+ * <p>Like {@link BailErrorStrategy} it stops the parse at the first error, but
+ * it is much cheaper on invalid input. The error is recorded in a
+ * preallocated {@link ValidationResult} and the parse is cancelled with a
+ * preallocated {@link ParseCancellationException} without a stack trace. No
+ * error message is built and no error listener is notified. Mismatched tokens
+ * and unexpected tokens at decisions are detected without creating a
+ * {@link RecognitionException}. The only exceptions still created are those
+ * that the generated code or the ATN simulator throw when deeper lookahead
+ * fails, and there is at most one of those per parse.</p>
+ *
+ * <p>{@link #validate} also turns off parse tree building for the run:</p>
+ *
+ * <pre>
+ * ValidationErrorStrategy validator = new ValidationErrorStrategy();
+ * ValidationResult result = validator.validate(parser, () -&gt; parser.compilationUnit());
+ * if ( !result.isValid() ) ... result.getLine() ...
+ * </pre>
+ *
+ * <p>Lexer errors are still reported to the lexer's error listeners. Unlike
+ * {@link BailErrorStrategy}, {@link ParserRuleContext#exception} is not set.
+ * A strategy keeps state for the parse in progress, so it must not be shared
+ * by parsers running at the same time.</p>
+ *
+ * @since 4.7.2
+ */
+public class ValidationErrorStrategy extends DefaultErrorStrategy {
+	protected final ValidationResult result = new ValidationResult();
+
+	/** Thrown to cancel the parse; reused, as it carries no state. */
+	protected final ParseCancellationException cancellation = new ValidationCancellation();
+
+	public ValidationResult getResult() {
+		return result;
+	}
+
+	/**
+	 * Run {@code startRule} on {@code parser} with this strategy and without
+	 * building a parse tree, then restore the parser's error handler and tree
+	 * building flag.
+	 *
+	 * @return {@link #getResult}, filled in for this run
+	 */
+	public ValidationResult validate(Parser parser, Runnable startRule) {
+		ANTLRErrorStrategy errorHandler = parser.getErrorHandler();
+		boolean buildParseTree = parser.getBuildParseTree();
+		parser.setErrorHandler(this);
+		parser.setBuildParseTree(false);
+		result.reset();
+		try {
+			startRule.run();
+		}
+		catch (ParseCancellationException e) {
+			if ( e!=cancellation ) {
+				throw e;
+			}
+		}
+		finally {
+			parser.setErrorHandler(errorHandler);
+			parser.setBuildParseTree(buildParseTree);
+		}
+
+		return result;
+	}
+
+	@Override
+	public void reset(Parser recognizer) {
+		super.reset(recognizer);
+		result.reset();
+	}
+
+	/** Errors are only recorded by {@link #recover}, which always follows. */
+	@Override
+	public void reportError(Parser recognizer, RecognitionException e) {
+	}
+
+	@Override
+	public void recover(Parser recognizer, RecognitionException e) {
+		Token offendingToken = e.getOffendingToken();
+		if ( offendingToken==null ) {
+			offendingToken = recognizer.getCurrentToken();
+		}
+
+		throw cancel(offendingToken, recognizer.getState());
+	}
+
+	@Override
+	public Token recoverInline(Parser recognizer) throws RecognitionException {
+		throw cancel(recognizer.getCurrentToken(), recognizer.getState());
+	}
+
+	/**
+	 * Check the lookahead symbol against the tokens the current state can
+	 * start with, as {@link DefaultErrorStrategy#sync} does, but cancel the
+	 * parse instead of recovering. When the rule may end at this state the
+	 * check is left to the caller's next match or decision.
+	 */
+	@Override
+	public void sync(Parser recognizer) {
+		ATNState s = recognizer.getInterpreter().atn.states.get(recognizer.getState());
+		IntervalSet nextTokens = recognizer.getATN().nextTokens(s);
+		int la = recognizer.getInputStream().LA(1);
+		if ( nextTokens.contains(la) || nextTokens.contains(Token.EPSILON) ) {
+			return;
+		}
+
+		switch (s.getStateType()) {
+		case ATNState.BLOCK_START:
+		case ATNState.STAR_BLOCK_START:
+		case ATNState.PLUS_BLOCK_START:
+		case ATNState.STAR_LOOP_ENTRY:
+		case ATNState.PLUS_LOOP_BACK:
+		case ATNState.STAR_LOOP_BACK:
+			throw cancel(recognizer.getCurrentToken(), s.stateNumber);
+
+		default:
+			break;
+		}
+	}
+
+	protected ParseCancellationException cancel(Token offendingToken, int offendingState) {
+		result.reportError(offendingToken, offendingState);
+		return cancellation;
+	}
+
+	private static final class ValidationCancellation extends ParseCancellationException {
+		ValidationCancellation() {
+			super("syntax error");
+		}
+
+		@Override
+		public synchronized Throwable fillInStackTrace() {
+			return this;
+		}
+	}
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.runtime;
+
+import org.antlr.v4.runtime.atn.ATNState;
+
+/**
+ * The outcome of a parse run with a {@link ValidationErrorStrategy}: whether
+ * the input is valid and, if not, where the first syntax error is.
+ *
+ * <p>A strategy owns a single result object and refills it for every parse,
+ * so a result must be read before the strategy is used again.</p>
+ *
+ * @since 4.7.2
+ */
+public class ValidationResult {
+	private Token offendingToken;
+	private int offendingState = ATNState.INVALID_STATE_NUMBER;
+	private boolean valid = true;
+
+	/** Forget the previous outcome so the result reads as valid. */
+	public void reset() {
+		valid = true;
+		offendingToken = null;
+		offendingState = ATNState.INVALID_STATE_NUMBER;
+	}
+
+	/** Record the first syntax error; later calls are ignored. */
+	public void reportError(Token offendingToken, int offendingState) {
+		if ( !valid ) {
+			return;
+		}
+
+		this.valid = false;
+		this.offendingToken = offendingToken;
+		this.offendingState = offendingState;
+	}
+
+	public boolean isValid() {
+		return valid;
+	}
+
+	/** Get the token at which the first error was detected, or {@code null}. */
+	public Token getOffendingToken() {
+		return offendingToken;
+	}
+
+	/** Get the ATN state the parser was in at the first error, or -1. */
+	public int getOffendingState() {
+		return offendingState;
+	}
+
+	/** Get the line of the first error, or -1 if the input is valid. */
+	public int getLine() {
+		return offendingToken != null ? offendingToken.getLine() : -1;
+	}
+
+	/** Get the position in the line of the first error, or -1 if the input is valid. */
+	public int getCharPositionInLine() {
+		return offendingToken != null ? offendingToken.getCharPositionInLine() : -1;
+	}
+
+	/** Get the char index of the first error, or -1 if the input is valid. */
+	public int getStartIndex() {
+		return offendingToken != null ? offendingToken.getStartIndex() : -1;
+	}
+
+	@Override
+	public String toString() {
+		if ( valid ) {
+			return "valid";
+		}
+
+		return "error at "+getLine()+":"+getCharPositionInLine()+" "+offendingToken;
+	}
+}
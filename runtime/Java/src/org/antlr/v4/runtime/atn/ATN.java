@@ -21,7 +21,7 @@ public class ATN {
 	public static final int INVALID_ALT_NUMBER = 0;
 
 
-	public final List<ATNState> states = new ArrayList<ATNState>();
+	public final List<ATNState> states;
 
 	/** Each subrule/rule is a decision point and we must track them so we
 	 *  can go back later and build DFA predictors for them.  This includes
@@ -70,10 +70,24 @@ public class ATN {
 
 	public final List<TokensStartState> modeToStartState = new ArrayList<TokensStartState>();
 
+	/**
+	 * The error recovery sets computed so far for this ATN, shared by all
+	 * parsers using it.
+	 */
+	private final RecoverySetCache recoverySets = new RecoverySetCache(this);
+
 	/** Used for runtime deserialization of ATNs from strings */
 	public ATN(ATNType grammarType, int maxTokenType) {
+		this(grammarType, maxTokenType, new ArrayList<ATNState>());
+	}
+
+	/** Used for lazy deserialization, where {@code states} loads the states
+	 *  of each rule when one of them is first requested.
+	 */
+	ATN(ATNType grammarType, int maxTokenType, List<ATNState> states) {
 		this.grammarType = grammarType;
 		this.maxTokenType = maxTokenType;
+		this.states = states;
 	}
 
 	/** Compute the set of valid tokens that can occur starting in state {@code s}.
@@ -99,6 +113,16 @@ public class ATN {
         return s.nextTokenWithinRule;
     }
 
+	/**
+	 * Get the cache of the token sets error recovery needs, shared by all
+	 * parsers using this ATN. The sets it returns are read-only.
+	 *
+	 * @since 4.7.2
+	 */
+	public RecoverySetCache getRecoverySets() {
+		return recoverySets;
+	}
+
 	public void addState(ATNState state) {
 		if (state != null) {
 			state.atn = this;
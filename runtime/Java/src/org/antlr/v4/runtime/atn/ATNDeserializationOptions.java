@@ -14,12 +14,14 @@ public class ATNDeserializationOptions {
 	private static final ATNDeserializationOptions defaultOptions;
 	static {
 		defaultOptions = new ATNDeserializationOptions();
+		defaultOptions.lazy = Boolean.parseBoolean(ParserATNSimulator.getSafeEnv("ANTLR_LAZY_ATN"));
 		defaultOptions.makeReadOnly();
 	}
 
 	private boolean readOnly;
 	private boolean verifyATN;
 	private boolean generateRuleBypassTransitions;
+	private boolean lazy;
 
 	public ATNDeserializationOptions() {
 		this.verifyATN = true;
@@ -29,6 +31,7 @@ public class ATNDeserializationOptions {
 	public ATNDeserializationOptions(ATNDeserializationOptions options) {
 		this.verifyATN = options.verifyATN;
 		this.generateRuleBypassTransitions = options.generateRuleBypassTransitions;
+		this.lazy = options.lazy;
 	}
 
 
@@ -62,6 +65,29 @@ public class ATNDeserializationOptions {
 		this.generateRuleBypassTransitions = generateRuleBypassTransitions;
 	}
 
+	/**
+	 * Gets whether parser ATNs are deserialized lazily. A lazy ATN creates
+	 * the start and stop state of each rule and its decision states up
+	 * front, but the other states and the transitions of a rule only when
+	 * the rule is first used, so the cost of loading a large grammar scales
+	 * with the rules actually used. Left-recursive rules are always loaded
+	 * eagerly. Lexer ATNs, and parser ATNs deserialized with
+	 * {@link #isGenerateRuleBypassTransitions}, are always loaded eagerly.
+	 *
+	 * <p>The default options enable lazy deserialization when the
+	 * {@code ANTLR_LAZY_ATN} environment variable is {@code true}.</p>
+	 *
+	 * @since 4.7.2
+	 */
+	public final boolean isLazy() {
+		return lazy;
+	}
+
+	public final void setLazy(boolean lazy) {
+		throwIfReadOnly();
+		this.lazy = lazy;
+	}
+
 	protected void throwIfReadOnly() {
 		if (isReadOnly()) {
 			throw new IllegalStateException("The object is read only.");
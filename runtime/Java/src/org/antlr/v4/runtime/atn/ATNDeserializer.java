@@ -10,7 +10,10 @@ import org.antlr.v4.runtime.Token;
 import org.antlr.v4.runtime.misc.IntervalSet;
 import org.antlr.v4.runtime.misc.Pair;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.InvalidClassException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
@@ -157,10 +160,79 @@ public class ATNDeserializer {
 		return SUPPORTED_UUIDS.indexOf(actualUuid) >= featureIndex;
 	}
 
-	@SuppressWarnings("deprecation")
 	public ATN deserialize(char[] data) {
-		data = data.clone();
+		return deserializeInPlace(data.clone());
+	}
 
+	/**
+	 * Deserialize an ATN written by {@link ATNSerializer#getSerializedAsBytes}.
+	 * Unlike the string form embedded in generated code, the binary form
+	 * needs no string constants and is read with a single bulk copy.
+	 *
+	 * @since 4.7.2
+	 */
+	public ATN deserialize(byte[] data) {
+		return deserializeInPlace(decode(data));
+	}
+
+	/**
+	 * Deserialize a binary ATN from the remaining bytes of {@code buffer},
+	 * which may be a memory-mapped file. The buffer's position is not
+	 * changed.
+	 *
+	 * @since 4.7.2
+	 */
+	public ATN deserialize(ByteBuffer buffer) {
+		byte[] data = new byte[buffer.remaining()];
+		buffer.duplicate().get(data);
+		return deserialize(data);
+	}
+
+	/**
+	 * Deserialize a binary ATN from {@code input}, which is read to the end
+	 * but not closed.
+	 *
+	 * @since 4.7.2
+	 */
+	public ATN deserialize(InputStream input) throws IOException {
+		return deserialize(BinaryFormat.readAll(input));
+	}
+
+	/**
+	 * Deserialize the binary ATN resource {@code name}, located relative to
+	 * {@code owner} as by {@link Class#getResourceAsStream}. This is how
+	 * recognizers generated with {@code -Xbinary-atn} load their ATN.
+	 *
+	 * @throws IllegalStateException if the resource is missing or cannot be
+	 * read
+	 * @since 4.7.2
+	 */
+	public ATN deserializeResource(Class<?> owner, String name) {
+		return deserialize(readResource(owner, name));
+	}
+
+	/** Convert a binary ATN to the string form of the serialized ATN. */
+	static char[] decode(byte[] data) {
+		BinaryFormat.Reader reader = new BinaryFormat.Reader(data, ATNSerializer.BINARY_MAGIC, ATN.class,
+															 "ATN", "binary serialized ATN");
+		char[] chars = new char[reader.readCount()];
+		for (int i = 0; i < chars.length; i++) {
+			chars[i] = (char)reader.readVarint();
+		}
+
+		return chars;
+	}
+
+	static byte[] readResource(Class<?> owner, String name) {
+		return BinaryFormat.readResource(owner, name, "ATN");
+	}
+
+	/**
+	 * Deserialize the string form of an ATN, using {@code data} as scratch
+	 * space.
+	 */
+	@SuppressWarnings("deprecation")
+	protected ATN deserializeInPlace(char[] data) {
 		// Each char value in data is shifted by +2 at the entry to this method.
 		// This is an encoding optimization targeting the serialized values 0
 		// and -1 (serialized to 0xFFFF), each of which are very common in the
@@ -199,6 +271,19 @@ public class ATNDeserializer {
 
 		ATNType grammarType = ATNType.values()[toInt(data[p++])];
 		int maxTokenType = toInt(data[p++]);
+		if (deserializationOptions.isLazy()
+			&& grammarType == ATNType.PARSER
+			&& !deserializationOptions.isGenerateRuleBypassTransitions())
+		{
+			ATN atn = LazyStateList.deserialize(this, deserializationOptions.isVerifyATN(),
+												data, p, grammarType, maxTokenType,
+												supportsPrecedencePredicates,
+												isFeatureSupported(ADDED_UNICODE_SMP, uuid));
+			if (atn != null) {
+				return atn;
+			}
+		}
+
 		ATN atn = new ATN(grammarType, maxTokenType);
 
 		//
@@ -207,6 +292,7 @@ public class ATNDeserializer {
 		List<Pair<LoopEndState, Integer>> loopBackStateNumbers = new ArrayList<Pair<LoopEndState, Integer>>();
 		List<Pair<BlockStartState, Integer>> endStateNumbers = new ArrayList<Pair<BlockStartState, Integer>>();
 		int nstates = toInt(data[p++]);
+		((ArrayList<ATNState>)atn.states).ensureCapacity(nstates);
 		for (int i=0; i<nstates; i++) {
 			int stype = toInt(data[p++]);
 			// ignore bad type of states
@@ -585,20 +671,30 @@ public class ATNDeserializer {
 	 */
 	protected void markPrecedenceDecisions(ATN atn) {
 		for (ATNState state : atn.states) {
-			if (!(state instanceof StarLoopEntryState)) {
-				continue;
-			}
+			markPrecedenceDecision(atn, state);
+		}
+	}
 
-			/* We analyze the ATN to determine if this ATN decision state is the
-			 * decision for the closure block that determines whether a
-			 * precedence rule should continue or complete.
-			 */
-			if (atn.ruleToStartState[state.ruleIndex].isLeftRecursiveRule) {
-				ATNState maybeLoopEndState = state.transition(state.getNumberOfTransitions() - 1).target;
-				if (maybeLoopEndState instanceof LoopEndState) {
-					if (maybeLoopEndState.epsilonOnlyTransitions && maybeLoopEndState.transition(0).target instanceof RuleStopState) {
-						((StarLoopEntryState)state).isPrecedenceDecision = true;
-					}
+	/**
+	 * Set the {@link StarLoopEntryState#isPrecedenceDecision} field of
+	 * {@code state} if it is a {@link StarLoopEntryState}.
+	 *
+	 * @since 4.7.2
+	 */
+	protected void markPrecedenceDecision(ATN atn, ATNState state) {
+		if (!(state instanceof StarLoopEntryState)) {
+			return;
+		}
+
+		/* We analyze the ATN to determine if this ATN decision state is the
+		 * decision for the closure block that determines whether a
+		 * precedence rule should continue or complete.
+		 */
+		if (atn.ruleToStartState[state.ruleIndex].isLeftRecursiveRule) {
+			ATNState maybeLoopEndState = state.transition(state.getNumberOfTransitions() - 1).target;
+			if (maybeLoopEndState instanceof LoopEndState) {
+				if (maybeLoopEndState.epsilonOnlyTransitions && maybeLoopEndState.transition(0).target instanceof RuleStopState) {
+					((StarLoopEntryState)state).isPrecedenceDecision = true;
 				}
 			}
 		}
@@ -607,62 +703,71 @@ public class ATNDeserializer {
 	protected void verifyATN(ATN atn) {
 		// verify assumptions
 		for (ATNState state : atn.states) {
-			if (state == null) {
-				continue;
-			}
+			verifyATNState(state);
+		}
+	}
 
-			checkCondition(state.onlyHasEpsilonTransitions() || state.getNumberOfTransitions() <= 1);
+	/**
+	 * Verify the assumptions {@link #verifyATN} makes about {@code state}.
+	 *
+	 * @since 4.7.2
+	 */
+	protected void verifyATNState(ATNState state) {
+		if (state == null) {
+			return;
+		}
 
-			if (state instanceof PlusBlockStartState) {
-				checkCondition(((PlusBlockStartState)state).loopBackState != null);
-			}
+		checkCondition(state.onlyHasEpsilonTransitions() || state.getNumberOfTransitions() <= 1);
 
-			if (state instanceof StarLoopEntryState) {
-				StarLoopEntryState starLoopEntryState = (StarLoopEntryState)state;
-				checkCondition(starLoopEntryState.loopBackState != null);
-				checkCondition(starLoopEntryState.getNumberOfTransitions() == 2);
+		if (state instanceof PlusBlockStartState) {
+			checkCondition(((PlusBlockStartState)state).loopBackState != null);
+		}
 
-				if (starLoopEntryState.transition(0).target instanceof StarBlockStartState) {
-					checkCondition(starLoopEntryState.transition(1).target instanceof LoopEndState);
-					checkCondition(!starLoopEntryState.nonGreedy);
-				}
-				else if (starLoopEntryState.transition(0).target instanceof LoopEndState) {
-					checkCondition(starLoopEntryState.transition(1).target instanceof StarBlockStartState);
-					checkCondition(starLoopEntryState.nonGreedy);
-				}
-				else {
-					throw new IllegalStateException();
-				}
-			}
+		if (state instanceof StarLoopEntryState) {
+			StarLoopEntryState starLoopEntryState = (StarLoopEntryState)state;
+			checkCondition(starLoopEntryState.loopBackState != null);
+			checkCondition(starLoopEntryState.getNumberOfTransitions() == 2);
 
-			if (state instanceof StarLoopbackState) {
-				checkCondition(state.getNumberOfTransitions() == 1);
-				checkCondition(state.transition(0).target instanceof StarLoopEntryState);
+			if (starLoopEntryState.transition(0).target instanceof StarBlockStartState) {
+				checkCondition(starLoopEntryState.transition(1).target instanceof LoopEndState);
+				checkCondition(!starLoopEntryState.nonGreedy);
 			}
-
-			if (state instanceof LoopEndState) {
-				checkCondition(((LoopEndState)state).loopBackState != null);
+			else if (starLoopEntryState.transition(0).target instanceof LoopEndState) {
+				checkCondition(starLoopEntryState.transition(1).target instanceof StarBlockStartState);
+				checkCondition(starLoopEntryState.nonGreedy);
 			}
-
-			if (state instanceof RuleStartState) {
-				checkCondition(((RuleStartState)state).stopState != null);
+			else {
+				throw new IllegalStateException();
 			}
+		}
 
-			if (state instanceof BlockStartState) {
-				checkCondition(((BlockStartState)state).endState != null);
-			}
+		if (state instanceof StarLoopbackState) {
+			checkCondition(state.getNumberOfTransitions() == 1);
+			checkCondition(state.transition(0).target instanceof StarLoopEntryState);
+		}
 
-			if (state instanceof BlockEndState) {
-				checkCondition(((BlockEndState)state).startState != null);
-			}
+		if (state instanceof LoopEndState) {
+			checkCondition(((LoopEndState)state).loopBackState != null);
+		}
 
-			if (state instanceof DecisionState) {
-				DecisionState decisionState = (DecisionState)state;
-				checkCondition(decisionState.getNumberOfTransitions() <= 1 || decisionState.decision >= 0);
-			}
-			else {
-				checkCondition(state.getNumberOfTransitions() <= 1 || state instanceof RuleStopState);
-			}
+		if (state instanceof RuleStartState) {
+			checkCondition(((RuleStartState)state).stopState != null);
+		}
+
+		if (state instanceof BlockStartState) {
+			checkCondition(((BlockStartState)state).endState != null);
+		}
+
+		if (state instanceof BlockEndState) {
+			checkCondition(((BlockEndState)state).startState != null);
+		}
+
+		if (state instanceof DecisionState) {
+			DecisionState decisionState = (DecisionState)state;
+			checkCondition(decisionState.getNumberOfTransitions() <= 1 || decisionState.decision >= 0);
+		}
+		else {
+			checkCondition(state.getNumberOfTransitions() <= 1 || state instanceof RuleStopState);
 		}
 	}
 
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.runtime.atn;
+
+import org.antlr.v4.runtime.dfa.DFA;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * Cheap counters for the predictions of a grammar, meant to stay enabled in
+ * production. Unlike {@link ProfilingATNSimulator}, which records every
+ * lookahead event and re-simulates ambiguities, this only bumps a few
+ * striped counters per prediction, and times just one prediction in
+ * {@link #getSampleInterval} per simulator.
+ *
+ * <p>One instance is usually shared by all parsers (or lexers) of a grammar
+ * and attached to each of their simulators with
+ * {@link ParserATNSimulator#setMetrics} or
+ * {@link LexerATNSimulator#setMetrics}. For a parser, the counters are kept
+ * per decision; for a lexer, per mode. Read them with {@link #getSnapshot},
+ * or publish them with an {@link ATNMetricsExporter}.</p>
+ *
+ * @since 4.7.2
+ */
+public class ATNMetrics {
+	public static final int DEFAULT_SAMPLE_INTERVAL = 1024;
+
+	private static final LongBinaryOperator MAX = new LongBinaryOperator() {
+		@Override
+		public long applyAsLong(long left, long right) {
+			return Math.max(left, right);
+		}
+	};
+
+	private final String name;
+	private final DFA[] decisionToDFA;
+	private final int sampleInterval;
+	private final Counters[] counters;
+
+	/**
+	 * @param name the name the metrics are exported under, such as the
+	 * grammar name
+	 * @param decisionToDFA the DFA cache of the simulators, which gives the
+	 * number of decisions and the DFA state counts
+	 */
+	public ATNMetrics(String name, DFA[] decisionToDFA) {
+		this(name, decisionToDFA, DEFAULT_SAMPLE_INTERVAL);
+	}
+
+	public ATNMetrics(String name, DFA[] decisionToDFA, int sampleInterval) {
+		if (sampleInterval < 1) {
+			throw new IllegalArgumentException("sampleInterval must be positive");
+		}
+
+		this.name = name;
+		this.decisionToDFA = decisionToDFA;
+		this.sampleInterval = sampleInterval;
+		this.counters = new Counters[decisionToDFA.length];
+		for (int i = 0; i < counters.length; i++) {
+			counters[i] = new Counters();
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/** Get how many predictions a simulator makes per timed prediction. */
+	public int getSampleInterval() {
+		return sampleInterval;
+	}
+
+	public int getNumberOfDecisions() {
+		return counters.length;
+	}
+
+	/**
+	 * Count a prediction (or a lexer token match) of {@code decision}.
+	 *
+	 * @param usedATN whether the DFA was missing a state and the ATN had to
+	 * be simulated
+	 * @param fullContext whether SLL prediction conflicted and full-context
+	 * prediction was needed
+	 * @param lookahead the number of symbols examined
+	 */
+	public void recordPrediction(int decision, boolean usedATN, boolean fullContext, int lookahead) {
+		Counters c = counters[decision];
+		if ( usedATN ) {
+			c.atnFallbacks.increment();
+		}
+		else {
+			c.dfaHits.increment();
+		}
+
+		if ( fullContext ) {
+			c.fullContext.increment();
+		}
+
+		if ( lookahead > c.maxLookahead.get() ) {
+			c.maxLookahead.accumulate(lookahead);
+		}
+	}
+
+	/** Record the time of a sampled prediction of {@code decision}. */
+	public void recordSample(int decision, long nanos) {
+		Counters c = counters[decision];
+		c.samples.increment();
+		c.sampledNanos.add(nanos);
+	}
+
+	/** Get the current counters of every decision, by decision number. */
+	public List<DecisionMetrics> getSnapshot() {
+		List<DecisionMetrics> snapshot = new ArrayList<DecisionMetrics>(counters.length);
+		for (int i = 0; i < counters.length; i++) {
+			snapshot.add(getSnapshot(i));
+		}
+		return Collections.unmodifiableList(snapshot);
+	}
+
+	public DecisionMetrics getSnapshot(int decision) {
+		Counters c = counters[decision];
+		return new DecisionMetrics(decision,
+								   c.dfaHits.sum(),
+								   c.atnFallbacks.sum(),
+								   c.fullContext.sum(),
+								   c.maxLookahead.get(),
+								   getDFAStates(decision),
+								   c.samples.sum(),
+								   c.sampledNanos.sum());
+	}
+
+	/**
+	 * Get the counters of all decisions added up, except the maximum
+	 * lookahead which is the maximum over all decisions. The decision number
+	 * of the result is -1.
+	 */
+	public DecisionMetrics getTotal() {
+		return DecisionMetrics.sum(getSnapshot());
+	}
+
+	/** Set all counters back to zero. Counts made meanwhile may be lost. */
+	public void reset() {
+		for (Counters c : counters) {
+			c.dfaHits.reset();
+			c.atnFallbacks.reset();
+			c.fullContext.reset();
+			c.maxLookahead.reset();
+			c.samples.reset();
+			c.sampledNanos.reset();
+		}
+	}
+
+	protected int getDFAStates(int decision) {
+		DFA dfa = decisionToDFA[decision];
+		return dfa != null ? dfa.states.size() : 0;
+	}
+
+	private static final class Counters {
+		final LongAdder dfaHits = new LongAdder();
+		final LongAdder atnFallbacks = new LongAdder();
+		final LongAdder fullContext = new LongAdder();
+		final LongAccumulator maxLookahead = new LongAccumulator(MAX, 0);
+		final LongAdder samples = new LongAdder();
+		final LongAdder sampledNanos = new LongAdder();
+	}
+}
@@ -0,0 +1,23 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.runtime.atn;
+
+/**
+ * Publishes {@link ATNMetrics} to a monitoring system. An exporter reads
+ * {@link ATNMetrics#getSnapshot} whenever the monitoring system asks for
+ * values, or on its own schedule.
+ *
+ * @see JMXMetricsExporter
+ * @since 4.7.2
+ */
+public interface ATNMetricsExporter {
+	/** Start publishing {@code metrics}. */
+	void register(ATNMetrics metrics);
+
+	/** Stop publishing {@code metrics}. */
+	void unregister(ATNMetrics metrics);
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.runtime.atn;
+
+import java.util.List;
+
+/**
+ * The management interface {@link JMXMetricsExporter} registers for an
+ * {@link ATNMetrics}. The totals are those of {@link ATNMetrics#getTotal}.
+ *
+ * @since 4.7.2
+ */
+public interface ATNMetricsMXBean {
+	String getName();
+
+	int getNumberOfDecisions();
+
+	long getPredictions();
+
+	long getDFAHits();
+
+	long getATNFallbacks();
+
+	long getFullContextPredictions();
+
+	long getMaxLookahead();
+
+	int getDFAStates();
+
+	double getAverageNanos();
+
+	List<DecisionMetrics> getDecisions();
+
+	void reset();
+}
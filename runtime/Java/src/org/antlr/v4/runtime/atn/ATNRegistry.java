@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.runtime.atn;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Shares deserialized ATNs, and their DFA caches, between recognizers with
+ * the same serialized ATN. Entries are found by the content of the
+ * serialized ATN, so copies of a generated recognizer loaded by different
+ * class loaders share one ATN and one set of DFAs, as long as the runtime
+ * itself is loaded by a common class loader.
+ *
+ * <p>Each {@link #acquire(String)} adds a reference to the entry, and
+ * {@link SharedATN#release} removes it. When an owner is given, its
+ * reference is removed once the owner has been garbage collected instead;
+ * recognizers generated with {@code -Xshared-atn} use their class as the
+ * owner. Entries without references are dropped.</p>
+ *
+ * @since 4.7.2
+ */
+public class ATNRegistry {
+	private static final ATNRegistry defaultRegistry = new ATNRegistry();
+
+	private final ATNDeserializationOptions deserializationOptions;
+
+	private final Map<Key, SharedATN> entries = new HashMap<Key, SharedATN>();
+
+	private final ReferenceQueue<Object> collectedOwners = new ReferenceQueue<Object>();
+
+	/** Keeps the owner references reachable until they are enqueued. */
+	private final Set<OwnerReference> owners = new HashSet<OwnerReference>();
+
+	public ATNRegistry() {
+		this(ATNDeserializationOptions.getDefaultOptions());
+	}
+
+	public ATNRegistry(ATNDeserializationOptions deserializationOptions) {
+		this.deserializationOptions = deserializationOptions;
+	}
+
+	/** Get the registry used by generated recognizers. */
+	public static ATNRegistry getDefault() {
+		return defaultRegistry;
+	}
+
+	/** Get the ATN for {@code serializedATN}, deserializing it if no
+	 *  recognizer holds it yet. Release it with {@link SharedATN#release}.
+	 */
+	public SharedATN acquire(String serializedATN) {
+		return acquire(serializedATN.toCharArray(), null);
+	}
+
+	/** Get the ATN for {@code serializedATN} on behalf of {@code owner}. The
+	 *  reference is released once {@code owner} is garbage collected.
+	 */
+	public SharedATN acquire(String serializedATN, Object owner) {
+		if (owner == null) {
+			throw new NullPointerException("owner");
+		}
+
+		return acquire(serializedATN.toCharArray(), owner);
+	}
+
+	/** Get the ATN in the binary resource {@code name} next to
+	 *  {@code owner}, on behalf of {@code owner}. Binary and string forms of
+	 *  the same ATN share an entry.
+	 *
+	 *  @see ATNDeserializer#deserializeResource
+	 */
+	public SharedATN acquireResource(Class<?> owner, String name) {
+		return acquire(ATNDeserializer.decode(ATNDeserializer.readResource(owner, name)), owner);
+	}
+
+	/** Get the number of ATNs in the registry. */
+	public synchronized int size() {
+		expungeCollectedOwners();
+		return entries.size();
+	}
+
+	private synchronized SharedATN acquire(char[] serializedATN, Object owner) {
+		expungeCollectedOwners();
+		Key key = new Key(serializedATN);
+		SharedATN atn = entries.get(key);
+		if (atn == null) {
+			ATN deserialized = new ATNDeserializer(deserializationOptions).deserialize(serializedATN);
+			atn = new SharedATN(this, key, deserialized);
+			entries.put(key, atn);
+		}
+
+		atn.references++;
+		if (owner != null) {
+			owners.add(new OwnerReference(owner, collectedOwners, atn));
+		}
+
+		return atn;
+	}
+
+	synchronized void release(SharedATN atn) {
+		if (atn.references == 0) {
+			throw new IllegalStateException("the ATN was already released");
+		}
+
+		atn.references--;
+		if (atn.references == 0) {
+			entries.remove(atn.key);
+		}
+	}
+
+	private void expungeCollectedOwners() {
+		OwnerReference reference;
+		while ((reference = (OwnerReference)collectedOwners.poll()) != null) {
+			owners.remove(reference);
+			release(reference.atn);
+		}
+	}
+
+	/** The content of a serialized ATN. */
+	static final class Key {
+		private final char[] serializedATN;
+		private final int hashCode;
+
+		Key(char[] serializedATN) {
+			this.serializedATN = serializedATN;
+			this.hashCode = Arrays.hashCode(serializedATN);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (o == this) {
+				return true;
+			}
+			else if (!(o instanceof Key)) {
+				return false;
+			}
+
+			Key other = (Key)o;
+			return hashCode == other.hashCode && Arrays.equals(serializedATN, other.serializedATN);
+		}
+	}
+
+	private static final class OwnerReference extends WeakReference<Object> {
+		final SharedATN atn;
+
+		OwnerReference(Object owner, ReferenceQueue<Object> queue, SharedATN atn) {
+			super(owner, queue);
+			this.atn = atn;
+		}
+	}
+}
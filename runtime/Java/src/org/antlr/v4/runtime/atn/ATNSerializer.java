@@ -12,6 +12,7 @@ import org.antlr.v4.runtime.misc.Interval;
 import org.antlr.v4.runtime.misc.IntervalSet;
 import org.antlr.v4.runtime.misc.Utils;
 
+import java.io.ByteArrayOutputStream;
 import java.io.InvalidClassException;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -592,6 +593,34 @@ public class ATNSerializer {
 		return String.valueOf(t);
 	}
 
+	/**
+	 * The first four bytes of the binary form of a serialized ATN, the
+	 * characters {@code ATNB}.
+	 *
+	 * @since 4.7.2
+	 */
+	public static final int BINARY_MAGIC = 0x41544E42;
+
+	/**
+	 * Get the binary form of the serialized ATN, which
+	 * {@link ATNDeserializer#deserialize(byte[])} reads back: {@link #BINARY_MAGIC}
+	 * as four big-endian bytes, the number of elements and then the elements of
+	 * {@link #getSerialized}, each as an unsigned LEB128 varint. As the elements
+	 * are already shifted to make the common values small, most take one byte.
+	 *
+	 * @since 4.7.2
+	 */
+	public static byte[] getSerializedAsBytes(ATN atn) {
+		IntegerList data = getSerialized(atn);
+		ByteArrayOutputStream out = new ByteArrayOutputStream(data.size() + 8);
+		BinaryFormat.writeMagic(out, BINARY_MAGIC);
+		BinaryFormat.writeVarint(out, data.size());
+		for (int i = 0; i < data.size(); i++) {
+			BinaryFormat.writeVarint(out, data.get(i));
+		}
+		return out.toByteArray();
+	}
+
 	/** Used by Java target to encode short/int array as chars in string. */
 	public static String getSerializedAsString(ATN atn) {
 		return new String(getSerializedAsChars(atn));
@@ -120,8 +120,11 @@ public abstract class ATNState {
 
 	public boolean epsilonOnlyTransitions = false;
 
-	/** Track the transitions emanating from this ATN state. */
-	protected final List<Transition> transitions =
+	/** Track the transitions emanating from this ATN state. In a lazily
+	 *  deserialized ATN, this is set before the ATN is published to a list
+	 *  that loads the transitions when first used.
+	 */
+	protected List<Transition> transitions =
 		new ArrayList<Transition>(INITIAL_NUM_TRANSITIONS);
 
 	/** Used to cache lookahead during parsing, not used during construction */
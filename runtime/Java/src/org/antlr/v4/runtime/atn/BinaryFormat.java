@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.runtime.atn;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.util.Arrays;
+
+/**
+ * Writes and reads the binary forms of {@link ATNSerializer#getSerializedAsBytes}
+ * and {@link CompiledLexerDFA#toBytes}: a magic number as four big-endian
+ * bytes followed by unsigned LEB128 varints.
+ *
+ * @since 4.7.2
+ */
+final class BinaryFormat {
+	static void writeMagic(ByteArrayOutputStream out, int magic) {
+		out.write(magic >>> 24);
+		out.write(magic >>> 16);
+		out.write(magic >>> 8);
+		out.write(magic);
+	}
+
+	static void writeVarint(ByteArrayOutputStream out, int value) {
+		while ((value & ~0x7F) != 0) {
+			out.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+
+	/** Read {@code input} to the end, without closing it. */
+	static byte[] readAll(InputStream input) throws IOException {
+		byte[] data = new byte[8192];
+		int n = 0;
+		int count;
+		while ((count = input.read(data, n, data.length - n)) != -1) {
+			n += count;
+			if (n == data.length) {
+				data = Arrays.copyOf(data, data.length * 2);
+			}
+		}
+
+		return n == data.length ? data : Arrays.copyOf(data, n);
+	}
+
+	/**
+	 * Read the resource {@code name}, located relative to {@code owner} as by
+	 * {@link Class#getResourceAsStream}.
+	 *
+	 * @param kind what the resource holds, for the messages
+	 * @throws IllegalStateException if the resource is missing or cannot be
+	 * read
+	 */
+	static byte[] readResource(Class<?> owner, String name, String kind) {
+		InputStream input = owner.getResourceAsStream(name);
+		if (input == null) {
+			throw new IllegalStateException(kind+" resource "+name+" not found for "+owner.getName());
+		}
+
+		try {
+			try {
+				return readAll(input);
+			}
+			finally {
+				input.close();
+			}
+		}
+		catch (IOException e) {
+			throw new IllegalStateException("cannot read "+kind+" resource "+name, e);
+		}
+	}
+
+	/**
+	 * Reads the varints of a binary form. Data that doesn't start with the
+	 * expected magic number, or ends in the middle of a value, is rejected
+	 * with the {@link UnsupportedOperationException} that the string form of
+	 * the ATN is rejected with.
+	 */
+	static final class Reader {
+		private final byte[] data;
+		private final Class<?> type;
+		private final String kind;
+		private final String description;
+		private int p = 4;
+
+		/**
+		 * @param type the class of what is read, for the exceptions
+		 * @param kind what is read, for the messages; e.g. {@code ATN}
+		 * @param description the binary form, for the messages
+		 */
+		Reader(byte[] data, int magic, Class<?> type, String kind, String description) {
+			this.data = data;
+			this.type = type;
+			this.kind = kind;
+			this.description = description;
+			if (data.length < 4 || getMagic() != magic) {
+				throw error("not a "+description);
+			}
+		}
+
+		private int getMagic() {
+			return (data[0] & 0xFF) << 24 | (data[1] & 0xFF) << 16 | (data[2] & 0xFF) << 8 | (data[3] & 0xFF);
+		}
+
+		/** Get the number of bytes not read yet. */
+		int remaining() {
+			return data.length - p;
+		}
+
+		/** Read a count of values that take at least one byte each. */
+		int readCount() {
+			int n = readVarint();
+			if (n < 0 || n > remaining()) {
+				throw truncated();
+			}
+
+			return n;
+		}
+
+		/** Read an unsigned LEB128 value. */
+		int readVarint() {
+			int value = 0;
+			int shift = 0;
+			while (true) {
+				if (p >= data.length || shift > 28) {
+					throw truncated();
+				}
+
+				byte b = data[p++];
+				value |= (b & 0x7F) << shift;
+				if (b >= 0) {
+					return value;
+				}
+				shift += 7;
+			}
+		}
+
+		UnsupportedOperationException truncated() {
+			return error("the "+description+" is truncated or corrupt");
+		}
+
+		private UnsupportedOperationException error(String reason) {
+			String message = "Could not deserialize "+kind+": "+reason+".";
+			return new UnsupportedOperationException(new InvalidClassException(type.getName(), message));
+		}
+	}
+
+	private BinaryFormat() {
+	}
+}
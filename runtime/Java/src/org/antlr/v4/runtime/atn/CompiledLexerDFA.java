@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.runtime.atn;
+
+import org.antlr.v4.runtime.IntStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * The complete DFA of a lexer, computed from the lexer ATN when the grammar
+ * is compiled, as {@link LexerDFASimulator} matches tokens with it.
+ *
+ * <p>The states of all modes are numbered together. The edges of a state are
+ * a sorted list of disjoint symbol ranges with their target state, where the
+ * range {@code -1..-1} is the edge on {@link IntStream#EOF}. For the first
+ * {@link #MAX_DENSE_STATES} states, which are those closest to the start
+ * states, the edges on characters below {@link #DENSE_EDGES} are also kept
+ * in a dense table. A symbol without an edge ends the token.</p>
+ *
+ * <p>The binary form written by {@link #toBytes} refers to lexer actions by
+ * their index in {@link ATN#lexerActions}, so it must be read with the ATN
+ * it was computed from.</p>
+ *
+ * @since 4.7.2
+ */
+public class CompiledLexerDFA {
+	/** The first four bytes of the binary form, the characters {@code LDFA}. */
+	public static final int BINARY_MAGIC = 0x4C444641;
+
+	/** Edges on characters below this value are looked up in a dense table. */
+	public static final int DENSE_EDGES = 128;
+
+	/** The number of states with a dense table, which takes
+	 *  {@code 4*DENSE_EDGES} bytes per state; the edges of the other states
+	 *  are only kept as ranges.
+	 */
+	public static final int MAX_DENSE_STATES = 2048;
+
+	protected final int[] modeStartStates;
+	protected final boolean[] acceptStates;
+	protected final int[] predictions;
+	protected final int[][] lexerActions;
+	protected final LexerActionExecutor[] lexerActionExecutors;
+	/** The {@code lo, hi, target} triples of each state, sorted by {@code lo}. */
+	protected final int[][] edges;
+	/** The number of states in {@link #denseEdges}. */
+	protected final int denseStates;
+	/** The target of state {@code s} on character {@code c} at {@code s*DENSE_EDGES+c}, or -1. */
+	protected final int[] denseEdges;
+
+	/**
+	 * @param atn the lexer ATN the DFA was computed from
+	 * @param modeStartStates the start state of each mode
+	 * @param acceptStates whether each state accepts a token
+	 * @param predictions the token type each accept state predicts
+	 * @param lexerActions the indexes in {@link ATN#lexerActions} of the
+	 * actions each accept state executes, or {@code null} for none
+	 * @param edges the {@code lo, hi, target} triples of each state, sorted
+	 * by {@code lo}
+	 */
+	public CompiledLexerDFA(ATN atn, int[] modeStartStates, boolean[] acceptStates,
+							int[] predictions, int[][] lexerActions, int[][] edges)
+	{
+		this.modeStartStates = modeStartStates;
+		this.acceptStates = acceptStates;
+		this.predictions = predictions;
+		this.lexerActions = lexerActions;
+		this.edges = edges;
+
+		int n = acceptStates.length;
+		lexerActionExecutors = new LexerActionExecutor[n];
+		for (int s = 0; s < n; s++) {
+			if (lexerActions[s] != null) {
+				LexerAction[] actions = new LexerAction[lexerActions[s].length];
+				for (int i = 0; i < actions.length; i++) {
+					actions[i] = atn.lexerActions[lexerActions[s][i]];
+				}
+				lexerActionExecutors[s] = new LexerActionExecutor(actions);
+			}
+		}
+
+		denseStates = Math.min(n, MAX_DENSE_STATES);
+		denseEdges = new int[denseStates * DENSE_EDGES];
+		Arrays.fill(denseEdges, -1);
+		for (int s = 0; s < denseStates; s++) {
+			int[] e = edges[s];
+			for (int i = 0; i < e.length && e[i] < DENSE_EDGES; i += 3) {
+				int hi = Math.min(e[i + 1], DENSE_EDGES - 1);
+				for (int c = Math.max(e[i], 0); c <= hi; c++) {
+					denseEdges[s * DENSE_EDGES + c] = e[i + 2];
+				}
+			}
+		}
+	}
+
+	public int getNumberOfStates() {
+		return acceptStates.length;
+	}
+
+	public int getModeStartState(int mode) {
+		return modeStartStates[mode];
+	}
+
+	public boolean isAcceptState(int s) {
+		return acceptStates[s];
+	}
+
+	/** Get the token type accept state {@code s} predicts. */
+	public int getPrediction(int s) {
+		return predictions[s];
+	}
+
+	/** Get the actions accept state {@code s} executes, or {@code null}. */
+	public LexerActionExecutor getLexerActionExecutor(int s) {
+		return lexerActionExecutors[s];
+	}
+
+	/**
+	 * Get the state reached from {@code s} on symbol {@code t}, or -1 if
+	 * there is no edge.
+	 */
+	public int getTarget(int s, int t) {
+		if (t >= 0 && t < DENSE_EDGES && s < denseStates) {
+			return denseEdges[s * DENSE_EDGES + t];
+		}
+
+		int[] e = edges[s];
+		int lo = 0;
+		int hi = e.length / 3 - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			if (t < e[mid * 3]) {
+				hi = mid - 1;
+			}
+			else if (t > e[mid * 3 + 1]) {
+				lo = mid + 1;
+			}
+			else {
+				return e[mid * 3 + 2];
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Get the binary form that {@link #deserialize(byte[], ATN)} reads back:
+	 * {@link #BINARY_MAGIC} as four big-endian bytes followed by unsigned
+	 * LEB128 varints. Each range is stored as its distance from the end of
+	 * the previous range, so that most values take one byte.
+	 */
+	public byte[] toBytes() {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		BinaryFormat.writeMagic(out, BINARY_MAGIC);
+		BinaryFormat.writeVarint(out, modeStartStates.length);
+		for (int s : modeStartStates) {
+			BinaryFormat.writeVarint(out, s);
+		}
+
+		BinaryFormat.writeVarint(out, acceptStates.length);
+		for (int s = 0; s < acceptStates.length; s++) {
+			BinaryFormat.writeVarint(out, acceptStates[s] ? 1 : 0);
+			if (acceptStates[s]) {
+				BinaryFormat.writeVarint(out, predictions[s]);
+				int[] actions = lexerActions[s] != null ? lexerActions[s] : new int[0];
+				BinaryFormat.writeVarint(out, actions.length);
+				for (int a : actions) {
+					BinaryFormat.writeVarint(out, a);
+				}
+			}
+
+			int[] e = edges[s];
+			BinaryFormat.writeVarint(out, e.length / 3);
+			int next = -1;
+			for (int i = 0; i < e.length; i += 3) {
+				BinaryFormat.writeVarint(out, e[i] - next);
+				BinaryFormat.writeVarint(out, e[i + 1] - e[i]);
+				BinaryFormat.writeVarint(out, e[i + 2]);
+				next = e[i + 1] + 1;
+			}
+		}
+
+		return out.toByteArray();
+	}
+
+	/**
+	 * Read the binary form written by {@link #toBytes}.
+	 *
+	 * @param atn the lexer ATN the DFA was computed from
+	 */
+	public static CompiledLexerDFA deserialize(byte[] data, ATN atn) {
+		BinaryFormat.Reader reader = new BinaryFormat.Reader(data, BINARY_MAGIC, CompiledLexerDFA.class,
+															 "lexer DFA", "compiled lexer DFA");
+		int[] modeStartStates = new int[reader.readCount()];
+		for (int i = 0; i < modeStartStates.length; i++) {
+			modeStartStates[i] = reader.readVarint();
+		}
+
+		int n = reader.readCount();
+		boolean[] acceptStates = new boolean[n];
+		int[] predictions = new int[n];
+		int[][] lexerActions = new int[n][];
+		int[][] edges = new int[n][];
+		for (int s = 0; s < n; s++) {
+			acceptStates[s] = reader.readVarint() != 0;
+			if (acceptStates[s]) {
+				predictions[s] = reader.readVarint();
+				int nactions = reader.readCount();
+				if (nactions > 0) {
+					lexerActions[s] = new int[nactions];
+					for (int i = 0; i < nactions; i++) {
+						lexerActions[s][i] = reader.readVarint();
+					}
+				}
+			}
+
+			int[] e = new int[reader.readCount() * 3];
+			int next = -1;
+			for (int i = 0; i < e.length; i += 3) {
+				e[i] = next + reader.readVarint();
+				e[i + 1] = e[i] + reader.readVarint();
+				e[i + 2] = reader.readVarint();
+				next = e[i + 1] + 1;
+			}
+			edges[s] = e;
+		}
+
+		return new CompiledLexerDFA(atn, modeStartStates, acceptStates, predictions, lexerActions, edges);
+	}
+
+	/**
+	 * Read the binary form from {@code input}, which is read to the end but
+	 * not closed.
+	 */
+	public static CompiledLexerDFA deserialize(InputStream input, ATN atn) throws IOException {
+		return deserialize(BinaryFormat.readAll(input), atn);
+	}
+
+	/**
+	 * Read the resource {@code name}, located relative to {@code owner} as by
+	 * {@link Class#getResourceAsStream}. This is how lexers generated with
+	 * {@code -Xlexer-dfa} load their DFA.
+	 *
+	 * @throws IllegalStateException if the resource is missing or cannot be
+	 * read
+	 */
+	public static CompiledLexerDFA deserializeResource(Class<?> owner, String name, ATN atn) {
+		return deserialize(BinaryFormat.readResource(owner, name, "lexer DFA"), atn);
+	}
+}
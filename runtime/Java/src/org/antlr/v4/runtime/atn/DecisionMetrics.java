@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.runtime.atn;
+
+import java.util.List;
+
+/**
+ * The counters of one decision of an {@link ATNMetrics} at one point in
+ * time. Instances are immutable.
+ *
+ * @since 4.7.2
+ */
+public class DecisionMetrics {
+	private final int decision;
+	private final long dfaHits;
+	private final long atnFallbacks;
+	private final long fullContextPredictions;
+	private final long maxLookahead;
+	private final int dfaStates;
+	private final long samples;
+	private final long sampledNanos;
+
+	public DecisionMetrics(int decision,
+						   long dfaHits,
+						   long atnFallbacks,
+						   long fullContextPredictions,
+						   long maxLookahead,
+						   int dfaStates,
+						   long samples,
+						   long sampledNanos)
+	{
+		this.decision = decision;
+		this.dfaHits = dfaHits;
+		this.atnFallbacks = atnFallbacks;
+		this.fullContextPredictions = fullContextPredictions;
+		this.maxLookahead = maxLookahead;
+		this.dfaStates = dfaStates;
+		this.samples = samples;
+		this.sampledNanos = sampledNanos;
+	}
+
+	/** Add up {@code decisions}; see {@link ATNMetrics#getTotal}. */
+	public static DecisionMetrics sum(List<DecisionMetrics> decisions) {
+		long dfaHits = 0;
+		long atnFallbacks = 0;
+		long fullContextPredictions = 0;
+		long maxLookahead = 0;
+		int dfaStates = 0;
+		long samples = 0;
+		long sampledNanos = 0;
+		for (DecisionMetrics d : decisions) {
+			dfaHits += d.dfaHits;
+			atnFallbacks += d.atnFallbacks;
+			fullContextPredictions += d.fullContextPredictions;
+			maxLookahead = Math.max(maxLookahead, d.maxLookahead);
+			dfaStates += d.dfaStates;
+			samples += d.samples;
+			sampledNanos += d.sampledNanos;
+		}
+
+		return new DecisionMetrics(-1, dfaHits, atnFallbacks, fullContextPredictions,
+								   maxLookahead, dfaStates, samples, sampledNanos);
+	}
+
+	/** Get the decision number, or the mode for a lexer. */
+	public int getDecision() {
+		return decision;
+	}
+
+	public long getPredictions() {
+		return dfaHits + atnFallbacks;
+	}
+
+	/** Get the number of predictions made with the DFA alone. */
+	public long getDFAHits() {
+		return dfaHits;
+	}
+
+	/** Get the number of predictions that had to simulate the ATN. */
+	public long getATNFallbacks() {
+		return atnFallbacks;
+	}
+
+	/** Get the number of predictions that needed full-context prediction. */
+	public long getFullContextPredictions() {
+		return fullContextPredictions;
+	}
+
+	/** Get the largest number of symbols any prediction examined. */
+	public long getMaxLookahead() {
+		return maxLookahead;
+	}
+
+	/** Get the number of states in the decision's DFA. */
+	public int getDFAStates() {
+		return dfaStates;
+	}
+
+	/** Get the number of predictions that were timed. */
+	public long getSamples() {
+		return samples;
+	}
+
+	/** Get the total time of the timed predictions, in nanoseconds. */
+	public long getSampledNanos() {
+		return sampledNanos;
+	}
+
+	/** Get the average time of a timed prediction, or 0 if none was timed. */
+	public double getAverageNanos() {
+		return samples > 0 ? (double)sampledNanos / samples : 0;
+	}
+
+	@Override
+	public String toString() {
+		return "decision "+decision+
+			": predictions="+getPredictions()+
+			", dfaHits="+dfaHits+
+			", atnFallbacks="+atnFallbacks+
+			", fullContext="+fullContextPredictions+
+			", maxLookahead="+maxLookahead+
+			", dfaStates="+dfaStates+
+			", avgNanos="+(long)getAverageNanos();
+	}
+}
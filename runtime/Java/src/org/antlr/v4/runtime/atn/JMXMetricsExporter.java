@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.runtime.atn;
+
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+/**
+ * Exports {@link ATNMetrics} as {@link ATNMetricsMXBean}s named
+ * {@code org.antlr.v4.runtime:type=ATNMetrics,name="<name>"}, where
+ * {@code <name>} is {@link ATNMetrics#getName}. The values are read from the
+ * metrics each time a JMX client asks for them.
+ *
+ * @since 4.7.2
+ */
+public class JMXMetricsExporter implements ATNMetricsExporter {
+	public static final String DOMAIN = "org.antlr.v4.runtime";
+
+	private final MBeanServer server;
+
+	/** Export to the platform MBean server. */
+	public JMXMetricsExporter() {
+		this(ManagementFactory.getPlatformMBeanServer());
+	}
+
+	public JMXMetricsExporter(MBeanServer server) {
+		this.server = server;
+	}
+
+	public static ObjectName getObjectName(ATNMetrics metrics) throws MalformedObjectNameException {
+		return new ObjectName(DOMAIN+":type=ATNMetrics,name="+ObjectName.quote(metrics.getName()));
+	}
+
+	@Override
+	public void register(ATNMetrics metrics) {
+		try {
+			server.registerMBean(new MetricsBean(metrics), getObjectName(metrics));
+		}
+		catch (JMException e) {
+			throw new IllegalStateException("cannot register metrics "+metrics.getName(), e);
+		}
+	}
+
+	@Override
+	public void unregister(ATNMetrics metrics) {
+		try {
+			server.unregisterMBean(getObjectName(metrics));
+		}
+		catch (InstanceNotFoundException e) {
+			// not registered
+		}
+		catch (JMException e) {
+			throw new IllegalStateException("cannot unregister metrics "+metrics.getName(), e);
+		}
+	}
+
+	private static final class MetricsBean implements ATNMetricsMXBean {
+		private final ATNMetrics metrics;
+
+		MetricsBean(ATNMetrics metrics) {
+			this.metrics = metrics;
+		}
+
+		@Override
+		public String getName() {
+			return metrics.getName();
+		}
+
+		@Override
+		public int getNumberOfDecisions() {
+			return metrics.getNumberOfDecisions();
+		}
+
+		@Override
+		public long getPredictions() {
+			return metrics.getTotal().getPredictions();
+		}
+
+		@Override
+		public long getDFAHits() {
+			return metrics.getTotal().getDFAHits();
+		}
+
+		@Override
+		public long getATNFallbacks() {
+			return metrics.getTotal().getATNFallbacks();
+		}
+
+		@Override
+		public long getFullContextPredictions() {
+			return metrics.getTotal().getFullContextPredictions();
+		}
+
+		@Override
+		public long getMaxLookahead() {
+			return metrics.getTotal().getMaxLookahead();
+		}
+
+		@Override
+		public int getDFAStates() {
+			return metrics.getTotal().getDFAStates();
+		}
+
+		@Override
+		public double getAverageNanos() {
+			return metrics.getTotal().getAverageNanos();
+		}
+
+		@Override
+		public List<DecisionMetrics> getDecisions() {
+			return metrics.getSnapshot();
+		}
+
+		@Override
+		public void reset() {
+			metrics.reset();
+		}
+	}
+}
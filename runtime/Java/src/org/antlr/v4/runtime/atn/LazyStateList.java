@@ -0,0 +1,662 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.runtime.atn;
+
+import org.antlr.v4.runtime.misc.IntervalSet;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The states of a parser ATN deserialized with
+ * {@link ATNDeserializationOptions#isLazy}.
+ *
+ * <p>Deserialization only indexes the serialized data and creates the start
+ * and stop state of each rule and the decision states. The other states of a
+ * rule, and the transitions of all its states, are created the first time
+ * any of them is requested, either from this list or through the
+ * transitions of one of the states created up front. The transitions of a
+ * rule stop state, which lead back into the rules invoking it, are created
+ * the first time they are requested, loading the invoking rules.</p>
+ *
+ * <p>Rules are loaded while holding the lock of this list. A loaded state is
+ * published through an {@link AtomicReferenceArray} once the states and
+ * transitions of its rule are complete, and the transitions of a state
+ * created up front through a volatile field of its transition list, so
+ * threads sharing the ATN read them without taking the lock.</p>
+ *
+ * @since 4.7.2
+ */
+final class LazyStateList extends AbstractList<ATNState> implements RandomAccess {
+	private static final byte UNLOADED = 0;
+	private static final byte LOADING = 1;
+	private static final byte LOADED = 2;
+
+	private final ATNDeserializer deserializer;
+	private final boolean verify;
+	private final char[] data;
+	private ATN atn;
+
+	private final int[] stateType;
+	private final int[] stateRule;
+	/** The loop back state of a {@link LoopEndState} or the end state of a
+	 *  {@link BlockStartState}; otherwise, -1.
+	 */
+	private final int[] stateLink;
+
+	/** The offset in {@link #data} of the first serialized edge. */
+	private final int edgesOffset;
+	/** The edges leaving state {@code s} are {@code stateEdges[edgeStart[s]]}
+	 *  up to {@code stateEdges[edgeStart[s+1]]}, in the serialized order.
+	 */
+	private final int[] edgeStart;
+	private final int[] stateEdges;
+
+	private final int[][] ruleStates;
+	/** The rule transition edges invoking each rule, ordered by source state. */
+	private final int[][] ruleCalls;
+	private final byte[] ruleStatus;
+
+	private final int[] setOffsets;
+	private final int bmpSets;
+	private final IntervalSet[] sets;
+	private final List<IntervalSet> setList = new AbstractList<IntervalSet>() {
+		@Override
+		public IntervalSet get(int index) {
+			return getSet(index);
+		}
+
+		@Override
+		public int size() {
+			return sets.length;
+		}
+	};
+
+	/** The states created so far, whether or not their rule is loaded. */
+	private final ATNState[] created;
+	/** The states returned by {@link #get}: those of loaded rules and the
+	 *  rule start and stop states.
+	 */
+	private volatile AtomicReferenceArray<ATNState> states;
+
+	private LazyStateList(ATNDeserializer deserializer, boolean verify, char[] data,
+						  int[] stateType, int[] stateRule, int[] stateLink,
+						  int nrules, int[] setOffsets, int bmpSets,
+						  int edgesOffset, int nedges)
+	{
+		this.deserializer = deserializer;
+		this.verify = verify;
+		this.data = data;
+		this.stateType = stateType;
+		this.stateRule = stateRule;
+		this.stateLink = stateLink;
+		this.setOffsets = setOffsets;
+		this.bmpSets = bmpSets;
+		this.sets = new IntervalSet[setOffsets.length];
+		this.edgesOffset = edgesOffset;
+
+		int nstates = stateType.length;
+		created = new ATNState[nstates];
+		states = new AtomicReferenceArray<ATNState>(nstates);
+
+		// group the edges by source state, keeping their order
+		edgeStart = new int[nstates + 1];
+		for (int i = 0; i < nedges; i++) {
+			edgeStart[edgeArg(i, 0) + 1]++;
+		}
+		for (int s = 0; s < nstates; s++) {
+			edgeStart[s + 1] += edgeStart[s];
+		}
+		stateEdges = new int[nedges];
+		int[] next = Arrays.copyOf(edgeStart, nstates);
+		for (int i = 0; i < nedges; i++) {
+			stateEdges[next[edgeArg(i, 0)]++] = i;
+		}
+
+		// group the states by rule
+		int[] ruleSize = new int[nrules];
+		for (int s = 0; s < nstates; s++) {
+			if (stateRule[s] >= 0) {
+				ruleSize[stateRule[s]]++;
+			}
+		}
+		ruleStates = new int[nrules][];
+		for (int r = 0; r < nrules; r++) {
+			ruleStates[r] = new int[ruleSize[r]];
+			ruleSize[r] = 0;
+		}
+		for (int s = 0; s < nstates; s++) {
+			int r = stateRule[s];
+			if (r >= 0) {
+				ruleStates[r][ruleSize[r]++] = s;
+			}
+		}
+
+		// group the rule transitions by invoked rule
+		int[] ncalls = new int[nrules];
+		for (int e : stateEdges) {
+			if (edgeArg(e, 2) == Transition.RULE) {
+				ncalls[stateRule[edgeArg(e, 3)]]++;
+			}
+		}
+		ruleCalls = new int[nrules][];
+		for (int r = 0; r < nrules; r++) {
+			ruleCalls[r] = new int[ncalls[r]];
+			ncalls[r] = 0;
+		}
+		for (int e : stateEdges) {
+			if (edgeArg(e, 2) == Transition.RULE) {
+				int r = stateRule[edgeArg(e, 3)];
+				ruleCalls[r][ncalls[r]++] = e;
+			}
+		}
+
+		ruleStatus = new byte[nrules];
+	}
+
+	/**
+	 * Deserialize the parser ATN in {@code data}, starting with the states
+	 * at {@code p}. Returns {@code null} if the ATN has states outside of
+	 * any rule, which this class does not handle.
+	 */
+	static ATN deserialize(ATNDeserializer deserializer, boolean verify, char[] data, int p,
+						   ATNType grammarType, int maxTokenType,
+						   boolean supportsPrecedencePredicates, boolean supportsUnicodeSMP)
+	{
+		//
+		// STATES
+		//
+		int nstates = ATNDeserializer.toInt(data[p++]);
+		int[] stateType = new int[nstates];
+		int[] stateRule = new int[nstates];
+		int[] stateLink = new int[nstates];
+		for (int i = 0; i < nstates; i++) {
+			int stype = ATNDeserializer.toInt(data[p++]);
+			stateType[i] = stype;
+			stateLink[i] = -1;
+			if (stype == ATNState.INVALID_TYPE) {
+				stateRule[i] = -1;
+				continue;
+			}
+
+			int ruleIndex = ATNDeserializer.toInt(data[p++]);
+			if (ruleIndex == Character.MAX_VALUE) {
+				return null;
+			}
+
+			stateRule[i] = ruleIndex;
+			switch (stype) {
+			case ATNState.LOOP_END:
+			case ATNState.BLOCK_START:
+			case ATNState.PLUS_BLOCK_START:
+			case ATNState.STAR_BLOCK_START:
+				stateLink[i] = ATNDeserializer.toInt(data[p++]);
+				break;
+			}
+		}
+
+		int[] nonGreedyStates = new int[ATNDeserializer.toInt(data[p++])];
+		for (int i = 0; i < nonGreedyStates.length; i++) {
+			nonGreedyStates[i] = ATNDeserializer.toInt(data[p++]);
+		}
+
+		int[] precedenceStates = new int[0];
+		if (supportsPrecedencePredicates) {
+			precedenceStates = new int[ATNDeserializer.toInt(data[p++])];
+			for (int i = 0; i < precedenceStates.length; i++) {
+				precedenceStates[i] = ATNDeserializer.toInt(data[p++]);
+			}
+		}
+
+		//
+		// RULES
+		//
+		int[] ruleStartStates = new int[ATNDeserializer.toInt(data[p++])];
+		for (int i = 0; i < ruleStartStates.length; i++) {
+			ruleStartStates[i] = ATNDeserializer.toInt(data[p++]);
+		}
+
+		//
+		// MODES
+		//
+		if (ATNDeserializer.toInt(data[p++]) != 0) {
+			return null;
+		}
+
+		//
+		// SETS
+		//
+		int bmpSets = ATNDeserializer.toInt(data[p]);
+		int[] setOffsets = new int[bmpSets];
+		p = indexSets(data, p, setOffsets, 0, 1);
+		if (supportsUnicodeSMP) {
+			int smpSets = ATNDeserializer.toInt(data[p]);
+			setOffsets = Arrays.copyOf(setOffsets, bmpSets + smpSets);
+			p = indexSets(data, p, setOffsets, bmpSets, 2);
+		}
+
+		//
+		// EDGES
+		//
+		int nedges = ATNDeserializer.toInt(data[p++]);
+		int edgesOffset = p;
+		p += nedges * 6;
+
+		LazyStateList list = new LazyStateList(deserializer, verify, data,
+											   stateType, stateRule, stateLink,
+											   ruleStartStates.length, setOffsets, bmpSets,
+											   edgesOffset, nedges);
+		ATN atn = new ATN(grammarType, maxTokenType, list);
+		list.atn = atn;
+
+		atn.ruleToStartState = new RuleStartState[ruleStartStates.length];
+		for (int i = 0; i < ruleStartStates.length; i++) {
+			RuleStartState startState = (RuleStartState)list.createShell(ruleStartStates[i]);
+			atn.ruleToStartState[i] = startState;
+			list.states.set(startState.stateNumber, startState);
+		}
+
+		for (int s : precedenceStates) {
+			((RuleStartState)list.created[s]).isLeftRecursiveRule = true;
+		}
+
+		atn.ruleToStopState = new RuleStopState[ruleStartStates.length];
+		for (int i = 0; i < nstates; i++) {
+			if (stateType[i] != ATNState.RULE_STOP) {
+				continue;
+			}
+
+			RuleStopState stopState = (RuleStopState)list.createShell(i);
+			atn.ruleToStopState[stopState.ruleIndex] = stopState;
+			atn.ruleToStartState[stopState.ruleIndex].stopState = stopState;
+			list.states.set(i, stopState);
+		}
+
+		//
+		// DECISIONS
+		//
+		int ndecisions = ATNDeserializer.toInt(data[p++]);
+		for (int i = 0; i < ndecisions; i++) {
+			int s = ATNDeserializer.toInt(data[p++]);
+			DecisionState decState = (DecisionState)list.createShell(s);
+			atn.decisionToState.add(decState);
+			decState.decision = i;
+		}
+
+		for (int s : nonGreedyStates) {
+			ATNState state = list.created[s] != null ? list.created[s] : list.createShell(s);
+			((DecisionState)state).nonGreedy = true;
+		}
+
+		// precedence decisions are identified when the DFAs are created, so
+		// left-recursive rules can't wait
+		synchronized (list) {
+			for (RuleStartState startState : atn.ruleToStartState) {
+				if (startState.isLeftRecursiveRule) {
+					list.loadRule(startState.ruleIndex);
+				}
+			}
+		}
+
+		return atn;
+	}
+
+	private static int indexSets(char[] data, int p, int[] setOffsets, int first, int unicodeSize) {
+		int nsets = ATNDeserializer.toInt(data[p++]);
+		for (int i = 0; i < nsets; i++) {
+			setOffsets[first + i] = p;
+			int nintervals = ATNDeserializer.toInt(data[p]);
+			p += 2 + nintervals * 2 * unicodeSize;
+		}
+		return p;
+	}
+
+	@Override
+	public ATNState get(int index) {
+		ATNState s = states.get(index);
+		if (s != null) {
+			return s;
+		}
+
+		return load(index);
+	}
+
+	@Override
+	public int size() {
+		return states.length();
+	}
+
+	@Override
+	public synchronized ATNState set(int index, ATNState element) {
+		ATNState previous = get(index);
+		states.set(index, element);
+		return previous;
+	}
+
+	@Override
+	public synchronized void add(int index, ATNState element) {
+		if (index != states.length()) {
+			throw new UnsupportedOperationException("states can only be added at the end");
+		}
+
+		for (int r = 0; r < ruleStatus.length; r++) {
+			if (ruleStatus[r] == UNLOADED) {
+				loadRule(r);
+			}
+		}
+
+		AtomicReferenceArray<ATNState> newStates = new AtomicReferenceArray<ATNState>(index + 1);
+		for (int i = 0; i < index; i++) {
+			newStates.set(i, states.get(i));
+		}
+
+		newStates.set(index, element);
+		states = newStates;
+	}
+
+	private synchronized ATNState load(int index) {
+		ATNState s = states.get(index);
+		if (s != null || index >= stateRule.length || stateRule[index] < 0) {
+			return s;
+		}
+
+		int rule = stateRule[index];
+		if (ruleStatus[rule] == LOADING) {
+			// a transition of the rule being loaded
+			return created[index];
+		}
+
+		if (ruleStatus[rule] == UNLOADED) {
+			loadRule(rule);
+		}
+
+		return states.get(index);
+	}
+
+	/** Get the transitions of a state created up front, loading them if
+	 *  necessary.
+	 */
+	synchronized List<Transition> getTransitions(ATNState state) {
+		LazyTransitions transitions = (LazyTransitions)state.transitions;
+		if (transitions.loaded == null) {
+			if (state instanceof RuleStopState) {
+				loadReturnTransitions((RuleStopState)state);
+			}
+			else if (ruleStatus[state.ruleIndex] == UNLOADED) {
+				loadRule(state.ruleIndex);
+			}
+			else {
+				throw new IllegalStateException("transitions of state "+state.stateNumber+" requested while loading its rule");
+			}
+		}
+
+		return transitions.loaded;
+	}
+
+	private void loadRule(int rule) {
+		ruleStatus[rule] = LOADING;
+		int[] members = ruleStates[rule];
+		for (int s : members) {
+			if (created[s] == null) {
+				createState(s);
+			}
+		}
+
+		for (int s : members) {
+			ATNState state = created[s];
+			if (state instanceof LoopEndState) {
+				((LoopEndState)state).loopBackState = get(stateLink[s]);
+			}
+			else if (state instanceof BlockStartState) {
+				((BlockStartState)state).endState = (BlockEndState)get(stateLink[s]);
+			}
+		}
+
+		// Threads may read the transitions of the states created up front
+		// without holding the lock, so collect them in a detached state and
+		// install them once the rule is complete. The stop state has no
+		// serialized edges; its transitions are loaded separately.
+		ATNState[] sources = new ATNState[members.length];
+		for (int i = 0; i < members.length; i++) {
+			ATNState state = created[members[i]];
+			boolean lazy = isShell(state) && !(state instanceof RuleStopState);
+			sources[i] = lazy ? detached(state) : state;
+		}
+
+		for (int i = 0; i < members.length; i++) {
+			int s = members[i];
+			for (int j = edgeStart[s]; j < edgeStart[s + 1]; j++) {
+				int e = stateEdges[j];
+				Transition trans = deserializer.edgeFactory(atn, edgeArg(e, 2), s, edgeArg(e, 1),
+															edgeArg(e, 3), edgeArg(e, 4), edgeArg(e, 5),
+															setList);
+				sources[i].addTransition(trans);
+			}
+		}
+
+		for (int i = 0; i < members.length; i++) {
+			ATNState state = created[members[i]];
+			if (state instanceof BlockStartState) {
+				// we need to know the end state to set its start state
+				if (((BlockStartState)state).endState == null) {
+					throw new IllegalStateException();
+				}
+
+				// block end states can only be associated to a single block start state
+				if (((BlockStartState)state).endState.startState != null) {
+					throw new IllegalStateException();
+				}
+
+				((BlockStartState)state).endState.startState = (BlockStartState)state;
+			}
+
+			if (state instanceof PlusLoopbackState) {
+				for (int j = 0; j < sources[i].getNumberOfTransitions(); j++) {
+					ATNState target = sources[i].transition(j).target;
+					if (target instanceof PlusBlockStartState) {
+						((PlusBlockStartState)target).loopBackState = (PlusLoopbackState)state;
+					}
+				}
+			}
+			else if (state instanceof StarLoopbackState) {
+				for (int j = 0; j < sources[i].getNumberOfTransitions(); j++) {
+					ATNState target = sources[i].transition(j).target;
+					if (target instanceof StarLoopEntryState) {
+						((StarLoopEntryState)target).loopBackState = (StarLoopbackState)state;
+					}
+				}
+			}
+		}
+
+		// after this, other threads can reach the states of the rule
+		for (int i = 0; i < members.length; i++) {
+			install(created[members[i]], sources[i]);
+		}
+
+		for (int s : members) {
+			// left-recursive rules are loaded before the ATN is published
+			if (atn.ruleToStartState[rule].isLeftRecursiveRule) {
+				deserializer.markPrecedenceDecision(atn, created[s]);
+			}
+
+			// verifying the stop state would load the invoking rules
+			if (verify && !(created[s] instanceof RuleStopState)) {
+				deserializer.verifyATNState(created[s]);
+			}
+		}
+
+		for (int s : members) {
+			states.set(s, created[s]);
+		}
+
+		ruleStatus[rule] = LOADED;
+	}
+
+	/** Create the transitions of {@code stopState} back to the follow states
+	 *  of the rule transitions invoking its rule.
+	 */
+	private void loadReturnTransitions(RuleStopState stopState) {
+		int rule = stopState.ruleIndex;
+		boolean leftRecursive = atn.ruleToStartState[rule].isLeftRecursiveRule;
+		ATNState source = detached(stopState);
+		for (int e : ruleCalls[rule]) {
+			ATNState followState = get(edgeArg(e, 1));
+			int precedence = edgeArg(e, 5);
+			int outermostPrecedenceReturn = leftRecursive && precedence == 0 ? rule : -1;
+			source.addTransition(new EpsilonTransition(followState, outermostPrecedenceReturn));
+		}
+
+		install(stopState, source);
+	}
+
+	private ATNState createState(int s) {
+		ATNState state = deserializer.stateFactory(stateType[s], stateRule[s]);
+		state.atn = atn;
+		state.stateNumber = s;
+		created[s] = state;
+		return state;
+	}
+
+	/** Create a state whose transitions are loaded when first requested. */
+	private ATNState createShell(int s) {
+		ATNState state = createState(s);
+		state.transitions = new LazyTransitions(this, state);
+		if (state instanceof RuleStopState) {
+			state.epsilonOnlyTransitions = ruleCalls[state.ruleIndex].length > 0;
+		}
+		else {
+			// the same value addTransition computes
+			boolean epsilonOnly = edgeStart[s] < edgeStart[s + 1];
+			for (int j = edgeStart[s]; j < edgeStart[s + 1]; j++) {
+				epsilonOnly &= isEpsilon(edgeArg(stateEdges[j], 2));
+			}
+
+			state.epsilonOnlyTransitions = epsilonOnly;
+		}
+
+		return state;
+	}
+
+	private static ATNState detached(ATNState state) {
+		ATNState detached = new BasicState();
+		detached.stateNumber = state.stateNumber;
+		return detached;
+	}
+
+	private static boolean isShell(ATNState state) {
+		return state.transitions instanceof LazyTransitions;
+	}
+
+	/** Publish the transitions collected in {@code source} as those of the
+	 *  state created up front. {@link #createShell} already computed
+	 *  {@link ATNState#epsilonOnlyTransitions}.
+	 */
+	private static void install(ATNState state, ATNState source) {
+		if (source != state) {
+			((LazyTransitions)state.transitions).loaded = source.transitions;
+		}
+	}
+
+	private static boolean isEpsilon(int transitionType) {
+		switch (transitionType) {
+		case Transition.EPSILON:
+		case Transition.RULE:
+		case Transition.PREDICATE:
+		case Transition.ACTION:
+		case Transition.PRECEDENCE:
+			return true;
+
+		default:
+			return false;
+		}
+	}
+
+	/** Get field {@code i} (src, trg, type, arg1, arg2, arg3) of edge {@code e}. */
+	private int edgeArg(int e, int i) {
+		return ATNDeserializer.toInt(data[edgesOffset + e * 6 + i]);
+	}
+
+	private IntervalSet getSet(int index) {
+		IntervalSet set = sets[index];
+		if (set != null) {
+			return set;
+		}
+
+		int p = setOffsets[index];
+		int nintervals = ATNDeserializer.toInt(data[p++]);
+		set = new IntervalSet();
+		if (ATNDeserializer.toInt(data[p++]) != 0) {
+			set.add(-1);
+		}
+
+		for (int j = 0; j < nintervals; j++) {
+			if (index < bmpSets) {
+				set.add(ATNDeserializer.toInt(data[p]), ATNDeserializer.toInt(data[p + 1]));
+				p += 2;
+			}
+			else {
+				set.add(ATNDeserializer.toInt32(data, p), ATNDeserializer.toInt32(data, p + 2));
+				p += 4;
+			}
+		}
+
+		sets[index] = set;
+		return set;
+	}
+
+	/** The transitions of a state created up front, which are loaded when
+	 *  first requested.
+	 */
+	private static final class LazyTransitions extends AbstractList<Transition> {
+		private final LazyStateList states;
+		private final ATNState state;
+		/** The loaded transitions, complete before they are set. */
+		volatile List<Transition> loaded;
+
+		LazyTransitions(LazyStateList states, ATNState state) {
+			this.states = states;
+			this.state = state;
+		}
+
+		private List<Transition> getLoaded() {
+			List<Transition> transitions = loaded;
+			if (transitions != null) {
+				return transitions;
+			}
+
+			return states.getTransitions(state);
+		}
+
+		@Override
+		public Transition get(int index) {
+			return getLoaded().get(index);
+		}
+
+		@Override
+		public int size() {
+			return getLoaded().size();
+		}
+
+		@Override
+		public Transition set(int index, Transition element) {
+			return getLoaded().set(index, element);
+		}
+
+		@Override
+		public void add(int index, Transition element) {
+			getLoaded().add(index, element);
+		}
+
+		@Override
+		public Transition remove(int index) {
+			return getLoaded().remove(index);
+		}
+	}
+}
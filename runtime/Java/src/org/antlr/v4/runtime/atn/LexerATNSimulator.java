@@ -16,6 +16,7 @@ import org.antlr.v4.runtime.dfa.DFAState;
 import org.antlr.v4.runtime.misc.Interval;
 
 import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
 
 /** "dup" of ParserInterpreter */
 public class LexerATNSimulator extends ATNSimulator {
@@ -80,6 +81,13 @@ public class LexerATNSimulator extends ATNSimulator {
 
 	public static int match_calls = 0;
 
+	/** Counters to bump for every token match, or {@code null}. */
+	protected ATNMetrics metrics;
+	/** Matches left until the next timed one. */
+	private int metricsSampleCountdown;
+	/** Whether the current match had to simulate the ATN. */
+	private boolean matchUsedATN;
+
 	public LexerATNSimulator(ATN atn, DFA[] decisionToDFA,
 							 PredictionContextCache sharedContextCache)
 	{
@@ -102,26 +110,72 @@ public class LexerATNSimulator extends ATNSimulator {
 		this.startIndex = simulator.startIndex;
 	}
 
+	/**
+	 * Count every token match in {@code metrics}, by mode, or stop counting
+	 * if {@code metrics} is {@code null}.
+	 *
+	 * @since 4.7.2
+	 */
+	public void setMetrics(ATNMetrics metrics) {
+		this.metrics = metrics;
+		// start at a random point of the interval so that short-lived
+		// recognizers do not all time their first, cold call
+		this.metricsSampleCountdown = metrics != null ? ThreadLocalRandom.current().nextInt(metrics.getSampleInterval()) + 1 : 0;
+	}
+
+	/** @since 4.7.2 */
+	public ATNMetrics getMetrics() {
+		return metrics;
+	}
+
 	public int match(CharStream input, int mode) {
 		match_calls++;
 		this.mode = mode;
+		ATNMetrics metrics = this.metrics;
+		boolean sampled = false;
+		long sampleStart = 0;
+		matchUsedATN = false;
+		if ( metrics!=null && --metricsSampleCountdown<=0 ) {
+			metricsSampleCountdown = metrics.getSampleInterval();
+			sampled = true;
+			sampleStart = System.nanoTime();
+		}
+
 		int mark = input.mark();
 		try {
 			this.startIndex = input.index();
 			this.prevAccept.reset();
-			DFA dfa = decisionToDFA[mode];
-			if ( dfa.s0==null ) {
-				return matchATN(input);
-			}
-			else {
-				return execATN(input, dfa.s0);
-			}
+			return matchToken(input);
 		}
 		finally {
+			if ( metrics!=null ) {
+				// for a lexer the lookahead recorded is the length of the token
+				metrics.recordPrediction(mode, matchUsedATN, false, input.index() - startIndex);
+				if ( sampled ) {
+					metrics.recordSample(mode, System.nanoTime() - sampleStart);
+				}
+			}
 			input.release(mark);
 		}
 	}
 
+	/**
+	 * Match the next token from {@code input} in the current mode, once
+	 * {@link #match} has set up the start of the token.
+	 *
+	 * @since 4.7.2
+	 */
+	protected int matchToken(CharStream input) {
+		DFA dfa = decisionToDFA[mode];
+		if ( dfa.s0==null ) {
+			matchUsedATN = true;
+			return matchATN(input);
+		}
+		else {
+			return execATN(input, dfa.s0);
+		}
+	}
+
 	@Override
 	public void reset() {
 		prevAccept.reset();
@@ -204,6 +258,7 @@ public class LexerATNSimulator extends ATNSimulator {
 			// that already has lots of edges out of it. e.g., .* in comments.
 			DFAState target = getExistingTargetState(s, t);
 			if (target == null) {
+				matchUsedATN = true;
 				target = computeTargetState(input, s, t);
 			}
 
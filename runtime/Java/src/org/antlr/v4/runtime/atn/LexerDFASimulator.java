@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.runtime.atn;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.Lexer;
+import org.antlr.v4.runtime.LexerNoViableAltException;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.dfa.DFA;
+
+/**
+ * Matches tokens with a {@link CompiledLexerDFA} instead of simulating the
+ * ATN, which is what lexers generated with {@code -Xlexer-dfa} do. Tokens,
+ * lexer actions, line and column tracking and errors are the same as with
+ * {@link LexerATNSimulator}, but no DFA is built while lexing and characters
+ * outside ASCII don't fall back to the ATN.
+ *
+ * @since 4.7.2
+ */
+public class LexerDFASimulator extends LexerATNSimulator {
+	protected final CompiledLexerDFA compiledDFA;
+
+	public LexerDFASimulator(Lexer recog, ATN atn,
+							 DFA[] decisionToDFA,
+							 PredictionContextCache sharedContextCache,
+							 CompiledLexerDFA compiledDFA)
+	{
+		super(recog, atn, decisionToDFA, sharedContextCache);
+		this.compiledDFA = compiledDFA;
+	}
+
+	public CompiledLexerDFA getCompiledDFA() {
+		return compiledDFA;
+	}
+
+	@Override
+	protected int matchToken(CharStream input) {
+		CompiledLexerDFA dfa = compiledDFA;
+		int s = dfa.getModeStartState(mode);
+		int acceptState = -1;
+		int acceptIndex = -1;
+		int acceptLine = 0;
+		int acceptCharPos = -1;
+		if (dfa.isAcceptState(s)) {
+			// allow zero-length tokens
+			acceptState = s;
+			acceptIndex = input.index();
+			acceptLine = line;
+			acceptCharPos = charPositionInLine;
+		}
+
+		int t = input.LA(1);
+		while (true) {
+			int target = dfa.getTarget(s, t);
+			if (target < 0) {
+				break;
+			}
+
+			if (t != IntStream.EOF) {
+				consume(input);
+			}
+
+			if (dfa.isAcceptState(target)) {
+				acceptState = target;
+				acceptIndex = input.index();
+				acceptLine = line;
+				acceptCharPos = charPositionInLine;
+				if (t == IntStream.EOF) {
+					break;
+				}
+			}
+
+			t = input.LA(1);
+			s = target;
+		}
+
+		if (acceptState >= 0) {
+			accept(input, dfa.getLexerActionExecutor(acceptState), startIndex,
+				   acceptIndex, acceptLine, acceptCharPos);
+			return dfa.getPrediction(acceptState);
+		}
+
+		// if no accept and EOF is first char, return EOF
+		if (t == IntStream.EOF && input.index() == startIndex) {
+			return Token.EOF;
+		}
+
+		throw new LexerNoViableAltException(recog, input, startIndex, null);
+	}
+}
@@ -33,6 +33,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
 
 import static org.antlr.v4.runtime.atn.ATNState.BLOCK_END;
 
@@ -296,6 +297,15 @@ public class ParserATNSimulator extends ATNSimulator {
 	protected ParserRuleContext _outerContext;
 	protected DFA _dfa;
 
+	/** Counters to bump for every prediction, or {@code null}. */
+	protected ATNMetrics metrics;
+	/** Predictions left until the next timed one. */
+	private int metricsSampleCountdown;
+	/** Whether the current prediction had to simulate the ATN. */
+	private boolean predictionUsedATN;
+	/** Whether the current prediction needed full context. */
+	private boolean predictionUsedFullContext;
+
 	/** Testing only! */
 	public ParserATNSimulator(ATN atn, DFA[] decisionToDFA,
 							  PredictionContextCache sharedContextCache)
@@ -341,6 +351,17 @@ public class ParserATNSimulator extends ATNSimulator {
 		DFA dfa = decisionToDFA[decision];
 		_dfa = dfa;
 
+		ATNMetrics metrics = this.metrics;
+		boolean sampled = false;
+		long sampleStart = 0;
+		predictionUsedATN = false;
+		predictionUsedFullContext = false;
+		if ( metrics!=null && --metricsSampleCountdown<=0 ) {
+			metricsSampleCountdown = metrics.getSampleInterval();
+			sampled = true;
+			sampleStart = System.nanoTime();
+		}
+
 		int m = input.mark();
 		int index = _startIndex;
 
@@ -359,6 +380,7 @@ public class ParserATNSimulator extends ATNSimulator {
 			}
 
 			if (s0 == null) {
+				predictionUsedATN = true;
 				if ( outerContext ==null ) outerContext = ParserRuleContext.EMPTY;
 				if ( debug || debug_list_atn_decisions )  {
 					System.out.println("predictATN decision "+ dfa.decision+
@@ -395,6 +417,13 @@ public class ParserATNSimulator extends ATNSimulator {
 			return alt;
 		}
 		finally {
+			if ( metrics!=null ) {
+				metrics.recordPrediction(decision, predictionUsedATN, predictionUsedFullContext,
+										 input.index() - index + 1);
+				if ( sampled ) {
+					metrics.recordSample(decision, System.nanoTime() - sampleStart);
+				}
+			}
 			mergeCache = null; // wack cache after each prediction
 			_dfa = null;
 			input.seek(index);
@@ -451,6 +480,7 @@ public class ParserATNSimulator extends ATNSimulator {
 		while (true) { // while more work
 			DFAState D = getExistingTargetState(previousD, t);
 			if (D == null) {
+				predictionUsedATN = true;
 				D = computeTargetState(dfa, previousD, t);
 			}
 
@@ -502,6 +532,7 @@ public class ParserATNSimulator extends ATNSimulator {
 					computeStartState(dfa.atnStartState, outerContext,
 									  fullCtx);
 				reportAttemptingFullContext(dfa, conflictingAlts, D.configs, startIndex, input.index());
+				predictionUsedFullContext = true;
 				int alt = execATNWithFullContext(dfa, D, s0_closure,
 												 input, startIndex,
 												 outerContext);
@@ -2175,6 +2206,24 @@ public class ParserATNSimulator extends ATNSimulator {
 		return mode;
 	}
 
+	/**
+	 * Count every prediction in {@code metrics}, or stop counting if
+	 * {@code metrics} is {@code null}.
+	 *
+	 * @since 4.7.2
+	 */
+	public void setMetrics(ATNMetrics metrics) {
+		this.metrics = metrics;
+		// start at a random point of the interval so that short-lived
+		// recognizers do not all time their first, cold call
+		this.metricsSampleCountdown = metrics != null ? ThreadLocalRandom.current().nextInt(metrics.getSampleInterval()) + 1 : 0;
+	}
+
+	/** @since 4.7.2 */
+	public ATNMetrics getMetrics() {
+		return metrics;
+	}
+
 	/**
 	 * @since 4.3
 	 */
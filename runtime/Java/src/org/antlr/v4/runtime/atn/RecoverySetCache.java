@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.runtime.atn;
+
+import org.antlr.v4.runtime.RuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.misc.IntervalSet;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Caches the token sets that error recovery needs for a parser context, so
+ * that recovering from an error does not walk and merge the follow sets of
+ * the whole invocation stack every time.
+ *
+ * <p>Both sets depend only on the ATN state and the chain of
+ * {@link RuleContext#invokingState}s of the context. The chains are kept in a
+ * trie, innermost invoking state first, and each node holds the read-only sets
+ * computed for its chain. Looking up a cached set walks the context once and
+ * allocates nothing.</p>
+ *
+ * <p>An instance belongs to one {@link ATN} (see {@link ATN#getRecoverySets})
+ * and is shared by all parsers that use it; it is thread-safe. To bound
+ * memory, no new chains are cached once {@link #MAX_CACHED_CONTEXTS} have
+ * been seen and no new sets once {@link #MAX_CACHED_SETS} are cached; the
+ * sets that aren't cached are computed on every request.</p>
+ *
+ * @since 4.7.2
+ */
+public class RecoverySetCache {
+	/** The maximum number of invocation chains to cache per ATN. */
+	public static final int MAX_CACHED_CONTEXTS = 1 << 16;
+
+	/** The maximum number of token sets to cache per ATN. */
+	public static final int MAX_CACHED_SETS = 1 << 16;
+
+	private final ATN atn;
+	private final Node root = new Node();
+	private final AtomicInteger nodeCount = new AtomicInteger();
+	private final AtomicInteger setCount = new AtomicInteger();
+
+	public RecoverySetCache(ATN atn) {
+		this.atn = atn;
+	}
+
+	/**
+	 * Get the set of tokens that can follow any rule invocation on the stack
+	 * of {@code ctx}, without {@link Token#EPSILON}. This is the set that
+	 * {@link org.antlr.v4.runtime.DefaultErrorStrategy} resynchronizes to.
+	 *
+	 * @return a read-only set
+	 */
+	public IntervalSet getErrorRecoverySet(RuleContext ctx) {
+		Node node = getNode(ctx);
+		if ( node==null ) {
+			return computeErrorRecoverySet(ctx);
+		}
+
+		IntervalSet set = node.recoverySet;
+		if ( set==null ) {
+			set = computeErrorRecoverySet(ctx);
+			set.setReadonly(true);
+			if ( reserveSet() ) {
+				synchronized (node) {
+					if ( node.recoverySet==null ) {
+						node.recoverySet = set;
+					}
+					else {
+						setCount.decrementAndGet();
+					}
+				}
+			}
+		}
+		return set;
+	}
+
+	/**
+	 * Get the same set as {@link ATN#getExpectedTokens}.
+	 *
+	 * @return a read-only set
+	 */
+	public IntervalSet getExpectedTokens(int stateNumber, RuleContext ctx) {
+		if (stateNumber < 0 || stateNumber >= atn.states.size()) {
+			throw new IllegalArgumentException("Invalid state number.");
+		}
+
+		IntervalSet following = atn.nextTokens(atn.states.get(stateNumber));
+		if ( !following.contains(Token.EPSILON) ) {
+			return following;
+		}
+
+		Node node = getNode(ctx);
+		if ( node==null ) {
+			return atn.getExpectedTokens(stateNumber, ctx);
+		}
+
+		IntervalSet set = node.expectedTokens.get(stateNumber);
+		if ( set==null ) {
+			set = atn.getExpectedTokens(stateNumber, ctx);
+			set.setReadonly(true);
+			if ( reserveSet() ) {
+				synchronized (node) {
+					if ( node.expectedTokens.get(stateNumber)==null ) {
+						node.expectedTokens = node.expectedTokens.with(stateNumber, set);
+					}
+					else {
+						setCount.decrementAndGet();
+					}
+				}
+			}
+		}
+		return set;
+	}
+
+	/**
+	 * Find the node for the invocation chain of {@code ctx}, adding it if
+	 * needed, or return {@code null} if the cache is full.
+	 */
+	private Node getNode(RuleContext ctx) {
+		Node node = root;
+		while ( ctx!=null && ctx.invokingState>=0 ) {
+			Node child = node.children.get(ctx.invokingState);
+			if ( child==null ) {
+				synchronized (node) {
+					child = node.children.get(ctx.invokingState);
+					if ( child==null ) {
+						if ( nodeCount.incrementAndGet() > MAX_CACHED_CONTEXTS ) {
+							nodeCount.decrementAndGet();
+							return null;
+						}
+						child = new Node();
+						node.children = node.children.with(ctx.invokingState, child);
+					}
+				}
+			}
+			node = child;
+			ctx = ctx.parent;
+		}
+		return node;
+	}
+
+	/** Count a set about to be cached, or return false if the cache is full. */
+	private boolean reserveSet() {
+		if ( setCount.incrementAndGet() > MAX_CACHED_SETS ) {
+			setCount.decrementAndGet();
+			return false;
+		}
+		return true;
+	}
+
+	protected IntervalSet computeErrorRecoverySet(RuleContext ctx) {
+		IntervalSet recoverSet = new IntervalSet();
+		while ( ctx!=null && ctx.invokingState>=0 ) {
+			// compute what follows who invoked us
+			ATNState invokingState = atn.states.get(ctx.invokingState);
+			RuleTransition rt = (RuleTransition)invokingState.transition(0);
+			IntervalSet follow = atn.nextTokens(rt.followState);
+			recoverSet.addAll(follow);
+			ctx = ctx.parent;
+		}
+		recoverSet.remove(Token.EPSILON);
+		return recoverSet;
+	}
+
+	private static final class Node {
+		volatile StateMap<Node> children = StateMap.empty();
+		volatile StateMap<IntervalSet> expectedTokens = StateMap.empty();
+		volatile IntervalSet recoverySet;
+	}
+
+	/** An immutable map from state number to value; updates copy it. */
+	private static final class StateMap<T> {
+		private static final StateMap<?> EMPTY = new StateMap<Object>(new int[0], new Object[0]);
+
+		private final int[] keys;
+		private final Object[] values;
+
+		private StateMap(int[] keys, Object[] values) {
+			this.keys = keys;
+			this.values = values;
+		}
+
+		@SuppressWarnings("unchecked")
+		static <T> StateMap<T> empty() {
+			return (StateMap<T>)EMPTY;
+		}
+
+		@SuppressWarnings("unchecked")
+		T get(int key) {
+			int i = Arrays.binarySearch(keys, key);
+			return i >= 0 ? (T)values[i] : null;
+		}
+
+		StateMap<T> with(int key, T value) {
+			int i = Arrays.binarySearch(keys, key);
+			if ( i >= 0 ) {
+				Object[] newValues = values.clone();
+				newValues[i] = value;
+				return new StateMap<T>(keys, newValues);
+			}
+
+			i = -i - 1;
+			int[] newKeys = new int[keys.length + 1];
+			Object[] newValues = new Object[values.length + 1];
+			System.arraycopy(keys, 0, newKeys, 0, i);
+			System.arraycopy(values, 0, newValues, 0, i);
+			newKeys[i] = key;
+			newValues[i] = value;
+			System.arraycopy(keys, i, newKeys, i + 1, keys.length - i);
+			System.arraycopy(values, i, newValues, i + 1, values.length - i);
+			return new StateMap<T>(newKeys, newValues);
+		}
+	}
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.runtime.atn;
+
+import org.antlr.v4.runtime.dfa.DFA;
+
+/**
+ * An {@link ATN} handed out by an {@link ATNRegistry}, together with the
+ * DFA cache and prediction context cache shared by every recognizer that
+ * uses it. The ATN must not be modified.
+ *
+ * @since 4.7.2
+ */
+public final class SharedATN {
+	private final ATNRegistry registry;
+	final ATNRegistry.Key key;
+	private final ATN atn;
+	private final DFA[] decisionToDFA;
+	private final PredictionContextCache sharedContextCache = new PredictionContextCache();
+
+	/** Guarded by {@link #registry}. */
+	int references;
+
+	SharedATN(ATNRegistry registry, ATNRegistry.Key key, ATN atn) {
+		this.registry = registry;
+		this.key = key;
+		this.atn = atn;
+		this.decisionToDFA = new DFA[atn.getNumberOfDecisions()];
+		for (int i = 0; i < decisionToDFA.length; i++) {
+			decisionToDFA[i] = new DFA(atn.getDecisionState(i), i);
+		}
+	}
+
+	public ATN getATN() {
+		return atn;
+	}
+
+	/** Get the DFA of each decision, to pass to the ATN simulator. */
+	public DFA[] getDecisionToDFA() {
+		return decisionToDFA;
+	}
+
+	public PredictionContextCache getSharedContextCache() {
+		return sharedContextCache;
+	}
+
+	/** Get the number of times this ATN was acquired and not yet released. */
+	public int getReferenceCount() {
+		synchronized (registry) {
+			return references;
+		}
+	}
+
+	/**
+	 * Release a reference obtained from {@link ATNRegistry#acquire(String)}.
+	 * Once every reference is released, the registry drops this ATN.
+	 */
+	public void release() {
+		registry.release(this);
+	}
+}
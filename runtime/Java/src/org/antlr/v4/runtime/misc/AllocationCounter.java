@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.runtime.misc;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Reads the number of bytes allocated by the current thread, for the rule
+ * and tool profilers.
+ *
+ * <p>The count comes from the {@code com.sun.management.ThreadMXBean} of
+ * HotSpot-based JVMs. That class is only loaded on first use, and the
+ * bundle imports its package optionally, so the runtime works without it;
+ * {@link #isSupported} is then {@code false}.</p>
+ *
+ * @since 4.7.2
+ */
+public final class AllocationCounter {
+	/** Holds the bean so that it is looked up on first use only. */
+	private static final class Holder {
+		static final com.sun.management.ThreadMXBean threads = getThreads();
+
+		private static com.sun.management.ThreadMXBean getThreads() {
+			try {
+				ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+				if ( bean instanceof com.sun.management.ThreadMXBean ) {
+					com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)bean;
+					if ( threads.isThreadAllocatedMemorySupported() ) {
+						threads.setThreadAllocatedMemoryEnabled(true);
+						return threads;
+					}
+				}
+			}
+			catch (LinkageError e) {
+				// not a HotSpot-based JVM, or the package isn't wired
+			}
+			catch (UnsupportedOperationException e) {
+				// allocation counting can't be enabled
+			}
+			return null;
+		}
+	}
+
+	private static final boolean supported = hasThreads();
+
+	private static boolean hasThreads() {
+		try {
+			return Holder.threads != null;
+		}
+		catch (LinkageError e) {
+			return false;
+		}
+	}
+
+	/** Can this JVM count the bytes allocated by a thread? */
+	public static boolean isSupported() {
+		return supported;
+	}
+
+	/**
+	 * Get the number of bytes allocated by the current thread so far, or -1
+	 * if {@link #isSupported} is {@code false}.
+	 */
+	public static long getAllocatedBytes() {
+		if ( !supported ) {
+			return -1;
+		}
+		return Holder.threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	private AllocationCounter() {
+	}
+}
@@ -6,6 +6,10 @@
 
 package org.antlr.v4.runtime.tree;
 
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
 public abstract class AbstractParseTreeVisitor<T> implements ParseTreeVisitor<T> {
 	/**
 	 * {@inheritDoc}
@@ -32,9 +36,17 @@ public abstract class AbstractParseTreeVisitor<T> implements ParseTreeVisitor<T>
 	 * <p>The default implementation is not safe for use in visitors that modify
 	 * the tree structure. Visitors that modify the tree should override this
 	 * method to behave properly in respect to the specific algorithm in use.</p>
+	 *
+	 * <p>If {@link #shouldVisitChildrenInParallel shouldVisitChildrenInParallel}
+	 * returns {@code true} for {@code node}, the children are visited
+	 * concurrently instead; see {@link #visitChildrenInParallel}.</p>
 	 */
 	@Override
 	public T visitChildren(RuleNode node) {
+		if (shouldVisitChildrenInParallel(node)) {
+			return visitChildrenInParallel(node);
+		}
+
 		T result = defaultResult();
 		int n = node.getChildCount();
 		for (int i=0; i<n; i++) {
@@ -138,4 +150,129 @@ public abstract class AbstractParseTreeVisitor<T> implements ParseTreeVisitor<T>
 		return true;
 	}
 
+	/**
+	 * Visits the children of {@code node} concurrently on
+	 * {@link #getForkJoinPool}. Each child whose token span is at least
+	 * {@link #getParallelGranularity} tokens is visited on its own fork-join
+	 * task; smaller children are visited on the current thread. Once all
+	 * children are visited, their results are combined with
+	 * {@link #aggregateResult aggregateResult} in child order starting from
+	 * {@link #defaultResult defaultResult()}, so the result is the same as
+	 * that of a sequential visit no matter how the tasks were scheduled.
+	 * {@link #shouldVisitNextChild shouldVisitNextChild} is consulted during
+	 * that combination step: it stops the aggregation, but children after the
+	 * stopping point may already have been visited.
+	 *
+	 * <p>Because visit methods may then run on several threads at once, the
+	 * visitor must not keep mutable state outside of its results.</p>
+	 *
+	 * @since 4.7.2
+	 */
+	protected T visitChildrenInParallel(final RuleNode node) {
+		if (!ForkJoinTask.inForkJoinPool()) {
+			return getForkJoinPool().invoke(new RecursiveTask<T>() {
+				@Override
+				protected T compute() {
+					return visitChildrenInParallel(node);
+				}
+			});
+		}
+
+		int n = node.getChildCount();
+		int granularity = getParallelGranularity();
+		@SuppressWarnings("unchecked")
+		VisitTask<T>[] tasks = (VisitTask<T>[])new VisitTask<?>[n];
+		for (int i = 0; i < n; i++) {
+			ParseTree c = node.getChild(i);
+			if (c.getSourceInterval().length() >= granularity) {
+				tasks[i] = new VisitTask<T>(this, c);
+				tasks[i].fork();
+			}
+		}
+
+		Object[] childResults = new Object[n];
+		for (int i = 0; i < n; i++) {
+			if (tasks[i] == null) {
+				childResults[i] = node.getChild(i).accept(this);
+			}
+		}
+
+		for (int i = n - 1; i >= 0; i--) {
+			if (tasks[i] != null) {
+				childResults[i] = tasks[i].join();
+			}
+		}
+
+		T result = defaultResult();
+		for (int i = 0; i < n; i++) {
+			if (!shouldVisitNextChild(node, result)) {
+				break;
+			}
+
+			@SuppressWarnings("unchecked")
+			T childResult = (T)childResults[i];
+			result = aggregateResult(result, childResult);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Determines whether {@link #visitChildren} visits the children of
+	 * {@code node} concurrently, using {@link #visitChildrenInParallel}. This
+	 * is typically {@code true} for rules whose children are large and
+	 * independent, such as the top-level declarations of a file or the
+	 * statements of a function body.
+	 *
+	 * <p>The default implementation returns {@code false}.</p>
+	 *
+	 * @param node The {@link RuleNode} whose children are about to be visited.
+	 *
+	 * @return {@code true} to visit the children of {@code node} in parallel,
+	 * otherwise {@code false}.
+	 *
+	 * @since 4.7.2
+	 */
+	protected boolean shouldVisitChildrenInParallel(RuleNode node) {
+		return false;
+	}
+
+	/**
+	 * Gets the minimum number of tokens a child must span to be visited on
+	 * its own task by {@link #visitChildrenInParallel}.
+	 *
+	 * <p>The base implementation returns 256.</p>
+	 *
+	 * @since 4.7.2
+	 */
+	protected int getParallelGranularity() {
+		return 256;
+	}
+
+	/**
+	 * Gets the pool that runs {@link #visitChildrenInParallel} when it is
+	 * called from outside of a fork-join pool.
+	 *
+	 * <p>The base implementation returns {@link ForkJoinPool#commonPool()}.</p>
+	 *
+	 * @since 4.7.2
+	 */
+	protected ForkJoinPool getForkJoinPool() {
+		return ForkJoinPool.commonPool();
+	}
+
+	private static final class VisitTask<T> extends RecursiveTask<T> {
+		private final ParseTreeVisitor<? extends T> visitor;
+		private final ParseTree tree;
+
+		VisitTask(ParseTreeVisitor<? extends T> visitor, ParseTree tree) {
+			this.visitor = visitor;
+			this.tree = tree;
+		}
+
+		@Override
+		protected T compute() {
+			return tree.accept(visitor);
+		}
+	}
 }
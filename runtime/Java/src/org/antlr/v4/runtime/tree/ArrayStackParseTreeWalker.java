@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.runtime.tree;
+
+import org.antlr.v4.runtime.ParserRuleContext;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A non-recursive tree walker like {@link IterativeParseTreeWalker} meant for
+ * high-throughput walks of many trees. The node and child index stacks are
+ * plain arrays kept by the walker; they grow to the deepest tree seen and are
+ * then reused, so a walk allocates nothing once the walker has warmed up.
+ *
+ * <p>The rule-specific {@link ParserRuleContext#enterRule} and
+ * {@link ParserRuleContext#exitRule} events are only dispatched to listeners
+ * that implement a grammar-specific listener interface (any sub-interface of
+ * {@link ParseTreeListener}). Listeners implementing just
+ * {@link ParseTreeListener} get the same events as from
+ * {@link ParseTreeWalker#DEFAULT} without paying for a virtual call on every
+ * context type in the tree.</p>
+ *
+ * <p>An instance can be shared by threads and can be used again from a
+ * listener during a walk: a walk borrows the kept stacks, and a walk that
+ * starts while they are borrowed allocates stacks of its own. Keep one walker
+ * per thread to avoid that allocation.</p>
+ *
+ * @since 4.7.2
+ */
+public class ArrayStackParseTreeWalker extends ParseTreeWalker {
+	/**
+	 * Caches, per listener class, whether the class implements a
+	 * grammar-specific listener interface.
+	 */
+	private static final ClassValue<Boolean> hasRuleSpecificEvents = new ClassValue<Boolean>() {
+		@Override
+		protected Boolean computeValue(Class<?> type) {
+			for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+				for (Class<?> i : c.getInterfaces()) {
+					if ( i != ParseTreeListener.class && ParseTreeListener.class.isAssignableFrom(i) ) {
+						return true;
+					}
+				}
+			}
+			return false;
+		}
+	};
+
+	/** The node and child index stacks of a walk. */
+	private static final class Stacks {
+		ParseTree[] nodes;
+		int[] indexes;
+
+		Stacks(int depth) {
+			nodes = new ParseTree[depth];
+			indexes = new int[depth];
+		}
+	}
+
+	private final int initialDepth;
+
+	/** The stacks kept for the next walk, or {@code null} while a walk has
+	 *  borrowed them.
+	 */
+	private final AtomicReference<Stacks> idleStacks;
+
+	public ArrayStackParseTreeWalker() {
+		this(64);
+	}
+
+	/**
+	 * @param initialDepth the tree depth the walker can handle before its
+	 * stacks need to grow
+	 */
+	public ArrayStackParseTreeWalker(int initialDepth) {
+		this.initialDepth = Math.max(initialDepth, 1);
+		this.idleStacks = new AtomicReference<Stacks>(new Stacks(this.initialDepth));
+	}
+
+	@Override
+	public void walk(ParseTreeListener listener, ParseTree t) {
+		final boolean dispatchRuleEvents = hasRuleSpecificEvents.get(listener.getClass());
+		Stacks stacks = idleStacks.getAndSet(null);
+		if ( stacks == null ) {
+			// another thread or an enclosing walk is using the kept stacks
+			stacks = new Stacks(initialDepth);
+		}
+		ParseTree[] nodes = stacks.nodes;
+		int[] indexes = stacks.indexes;
+		int sp = 0;
+		int maxSp = 0;
+
+		try {
+			ParseTree currentNode = t;
+			int currentIndex = 0;
+			while ( currentNode != null ) {
+				// pre-order visit
+				if ( currentNode instanceof ErrorNode ) {
+					listener.visitErrorNode((ErrorNode)currentNode);
+				}
+				else if ( currentNode instanceof TerminalNode ) {
+					listener.visitTerminal((TerminalNode)currentNode);
+				}
+				else {
+					ParserRuleContext ctx = (ParserRuleContext)((RuleNode)currentNode).getRuleContext();
+					listener.enterEveryRule(ctx);
+					if ( dispatchRuleEvents ) ctx.enterRule(listener);
+				}
+
+				// move down to first child, if one exists
+				if ( currentNode.getChildCount() > 0 ) {
+					if ( sp == nodes.length ) {
+						nodes = stacks.nodes = Arrays.copyOf(nodes, sp * 2);
+						indexes = stacks.indexes = Arrays.copyOf(indexes, sp * 2);
+					}
+					nodes[sp] = currentNode;
+					indexes[sp] = currentIndex;
+					sp++;
+					maxSp = Math.max(maxSp, sp);
+					currentIndex = 0;
+					currentNode = currentNode.getChild(0);
+					continue;
+				}
+
+				// no child nodes, so exit nodes until we find a next sibling
+				do {
+					// post-order visit
+					if ( currentNode instanceof RuleNode ) {
+						ParserRuleContext ctx = (ParserRuleContext)((RuleNode)currentNode).getRuleContext();
+						if ( dispatchRuleEvents ) ctx.exitRule(listener);
+						listener.exitEveryRule(ctx);
+					}
+
+					// no parent, so no siblings
+					if ( sp == 0 ) {
+						currentNode = null;
+						break;
+					}
+
+					ParseTree parent = nodes[sp - 1];
+					if ( ++currentIndex < parent.getChildCount() ) {
+						currentNode = parent.getChild(currentIndex);
+						break;
+					}
+
+					// no next sibling, so move up
+					sp--;
+					currentNode = parent;
+					currentIndex = indexes[sp];
+				} while ( true );
+			}
+		}
+		finally {
+			// don't keep the tree reachable from the walker
+			Arrays.fill(nodes, 0, maxSp, null);
+			idleStacks.set(stacks);
+		}
+	}
+}
@@ -0,0 +1,305 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.runtime.tree;
+
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Walks a parse tree once for a whole list of listeners, instead of once per
+ * listener as repeated calls to {@link ParseTreeWalker#walk} would.
+ *
+ * <p>{@link #walk(List, ParseTree)} dispatches every event to each listener
+ * in turn through a {@link ProxyParseTreeListener}, so the tree is traversed
+ * a single time with good cache locality.</p>
+ *
+ * <p>{@link #walk(List, ParseTree, ExecutorService)} runs each listener on
+ * its own task. The calling thread traverses the tree and publishes the
+ * events in fixed-size chunks that the listener tasks replay as soon as they
+ * are available, so the traversal and the listeners run as a pipeline. The
+ * listeners must be independent of each other: they see the events in the
+ * usual order but may run concurrently. To keep a group of listeners that
+ * share state on one thread, wrap them in a {@link ProxyParseTreeListener}.
+ * At most {@link #QUEUE_CAPACITY} chunks wait for each listener, so the
+ * traversal waits for a listener that falls behind. The executor must
+ * therefore run all listener tasks at once, on threads other than the
+ * calling thread: a direct executor, or a pool with fewer threads than
+ * listeners, would never take the chunks the traversal waits to publish.
+ * Tasks run on the calling thread are rejected with an
+ * {@link IllegalArgumentException}.</p>
+ *
+ * <p>The walker traverses the tree with an {@link ArrayStackParseTreeWalker},
+ * which can be shared, so an instance of this walker may be shared too.</p>
+ *
+ * @since 4.7.2
+ */
+public class MultiListenerParseTreeWalker {
+	public static final MultiListenerParseTreeWalker DEFAULT = new MultiListenerParseTreeWalker();
+
+	/** The number of events published to the listener tasks at a time. */
+	protected static final int CHUNK_SIZE = 1024;
+
+	/** The number of chunks that may wait for each listener task. */
+	protected static final int QUEUE_CAPACITY = 16;
+
+	private static final byte VISIT_TERMINAL = 0;
+	private static final byte VISIT_ERROR_NODE = 1;
+	private static final byte ENTER_RULE = 2;
+	private static final byte EXIT_RULE = 3;
+
+	/** A run of events; {@code nodes[i]} is the subject of event {@code kinds[i]}. */
+	private static final class EventChunk {
+		final ParseTree[] nodes = new ParseTree[CHUNK_SIZE];
+		final byte[] kinds = new byte[CHUNK_SIZE];
+		int size;
+	}
+
+	/** Marks the end of the event stream for the listener tasks. */
+	private static final EventChunk END = new EventChunk();
+
+	/** Traverses the trees; its stacks are reused from walk to walk. */
+	private final ArrayStackParseTreeWalker walker;
+
+	public MultiListenerParseTreeWalker() {
+		this(new ArrayStackParseTreeWalker());
+	}
+
+	/**
+	 * @param walker the walker that traverses the trees, e.g. one kept per
+	 * thread
+	 */
+	public MultiListenerParseTreeWalker(ArrayStackParseTreeWalker walker) {
+		this.walker = walker;
+	}
+
+	/**
+	 * Walk {@code t} once, dispatching every event to each listener in
+	 * {@code listeners} on the calling thread.
+	 */
+	public void walk(List<? extends ParseTreeListener> listeners, ParseTree t) {
+		walker.walk(new ProxyParseTreeListener(listeners), t);
+	}
+
+	/**
+	 * Walk {@code t} once, replaying the events for each listener in
+	 * {@code listeners} on a separate task submitted to {@code executor}.
+	 * This method returns when all listeners have seen every event.
+	 * {@code executor} must run all the tasks at once, on threads other than
+	 * the calling thread.
+	 *
+	 * @throws IllegalArgumentException if {@code executor} runs a task on the
+	 * calling thread
+	 * @throws ParseCancellationException if the calling thread is interrupted
+	 * while waiting for the listener tasks
+	 */
+	public void walk(List<? extends ParseTreeListener> listeners, ParseTree t, ExecutorService executor) {
+		Thread caller = Thread.currentThread();
+		List<BlockingQueue<EventChunk>> queues = new ArrayList<BlockingQueue<EventChunk>>(listeners.size());
+		List<Future<?>> results = new ArrayList<Future<?>>(listeners.size());
+		boolean completed = false;
+		try {
+			for (ParseTreeListener listener : listeners) {
+				BlockingQueue<EventChunk> queue = new ArrayBlockingQueue<EventChunk>(QUEUE_CAPACITY);
+				queues.add(queue);
+				Future<?> result = executor.submit(new Replay(listener, queue, caller));
+				results.add(result);
+				if ( result.isDone() ) {
+					// a replay only ends after END, so the task was rejected
+					getResult(result);
+				}
+			}
+
+			Publisher publisher = new Publisher(queues);
+			walker.walk(publisher, t);
+			publisher.flush();
+			publisher.publish(END);
+
+			for (Future<?> result : results) {
+				getResult(result);
+			}
+			completed = true;
+		}
+		finally {
+			if ( !completed ) {
+				// stop the tasks that are still waiting for chunks
+				for (Future<?> result : results) {
+					result.cancel(true);
+				}
+			}
+		}
+	}
+
+	private static void getResult(Future<?> result) {
+		try {
+			result.get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ParseCancellationException(e);
+		}
+		catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if ( cause instanceof RuntimeException ) {
+				throw (RuntimeException)cause;
+			}
+			if ( cause instanceof Error ) {
+				throw (Error)cause;
+			}
+			throw new IllegalStateException(cause);
+		}
+	}
+
+	/** Records the walk into chunks and hands full chunks to every queue. */
+	private static final class Publisher implements ParseTreeListener {
+		private final List<BlockingQueue<EventChunk>> queues;
+		private EventChunk current = new EventChunk();
+
+		Publisher(List<BlockingQueue<EventChunk>> queues) {
+			this.queues = queues;
+		}
+
+		@Override
+		public void visitTerminal(TerminalNode node) {
+			add(VISIT_TERMINAL, node);
+		}
+
+		@Override
+		public void visitErrorNode(ErrorNode node) {
+			add(VISIT_ERROR_NODE, node);
+		}
+
+		@Override
+		public void enterEveryRule(ParserRuleContext ctx) {
+			add(ENTER_RULE, ctx);
+		}
+
+		@Override
+		public void exitEveryRule(ParserRuleContext ctx) {
+			add(EXIT_RULE, ctx);
+		}
+
+		private void add(byte kind, ParseTree node) {
+			EventChunk chunk = current;
+			chunk.nodes[chunk.size] = node;
+			chunk.kinds[chunk.size] = kind;
+			if ( ++chunk.size==CHUNK_SIZE ) {
+				flush();
+			}
+		}
+
+		void flush() {
+			if ( current.size==0 ) {
+				return;
+			}
+
+			// chunks are never modified once published
+			publish(current);
+			current = new EventChunk();
+		}
+
+		/**
+		 * Hand {@code chunk} to every queue, waiting for room in the queues
+		 * of listeners that are behind.
+		 *
+		 * @throws ParseCancellationException if the calling thread is
+		 * interrupted while waiting
+		 */
+		void publish(EventChunk chunk) {
+			try {
+				for (BlockingQueue<EventChunk> queue : queues) {
+					queue.put(chunk);
+				}
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new ParseCancellationException(e);
+			}
+		}
+	}
+
+	/**
+	 * Replays published chunks for one listener. If the listener throws, the
+	 * rest of the chunks are taken and dropped so that the traversal isn't
+	 * left waiting for room in the queue.
+	 */
+	private static final class Replay implements Callable<Void> {
+		private final ParseTreeListener listener;
+		private final BlockingQueue<EventChunk> queue;
+		private final Thread caller;
+
+		Replay(ParseTreeListener listener, BlockingQueue<EventChunk> queue, Thread caller) {
+			this.listener = listener;
+			this.queue = queue;
+			this.caller = caller;
+		}
+
+		@Override
+		public Void call() throws InterruptedException {
+			if ( Thread.currentThread() == caller ) {
+				throw new IllegalArgumentException("the executor must not run listener tasks on the calling thread");
+			}
+
+			Throwable failure = null;
+			for (EventChunk chunk = queue.take(); chunk != END; chunk = queue.take()) {
+				if ( failure != null ) {
+					continue;
+				}
+
+				try {
+					replay(chunk);
+				}
+				catch (RuntimeException e) {
+					failure = e;
+				}
+				catch (Error e) {
+					failure = e;
+				}
+			}
+
+			if ( failure instanceof Error ) {
+				throw (Error)failure;
+			}
+			if ( failure != null ) {
+				throw (RuntimeException)failure;
+			}
+			return null;
+		}
+
+		private void replay(EventChunk chunk) {
+			for (int i = 0; i < chunk.size; i++) {
+				ParseTree node = chunk.nodes[i];
+				switch (chunk.kinds[i]) {
+				case VISIT_TERMINAL:
+					listener.visitTerminal((TerminalNode)node);
+					break;
+				case VISIT_ERROR_NODE:
+					listener.visitErrorNode((ErrorNode)node);
+					break;
+				case ENTER_RULE:
+					ParserRuleContext enter = (ParserRuleContext)node;
+					listener.enterEveryRule(enter);
+					enter.enterRule(listener);
+					break;
+				case EXIT_RULE:
+					ParserRuleContext exit = (ParserRuleContext)node;
+					exit.exitRule(listener);
+					listener.exitEveryRule(exit);
+					break;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.runtime.tree;
+
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.ProxyErrorListener;
+
+import java.util.Collection;
+
+/**
+ * This implementation of {@link ParseTreeListener} dispatches all events to a
+ * collection of delegate listeners so that a single walk of a parse tree
+ * serves all of them, the same way {@link ProxyErrorListener} does for error
+ * listeners.
+ *
+ * <p>Each delegate receives exactly the events it would receive from its own
+ * walk with {@link ParseTreeWalker#DEFAULT}, including the rule-specific
+ * {@link ParserRuleContext#enterRule} and {@link ParserRuleContext#exitRule}
+ * events. Entry events are dispatched in delegate order, exit events in
+ * reverse delegate order, matching {@link org.antlr.v4.runtime.Parser}'s
+ * parse listener dispatch.</p>
+ *
+ * @since 4.7.2
+ */
+public class ProxyParseTreeListener implements ParseTreeListener {
+	private final ParseTreeListener[] delegates;
+
+	public ProxyParseTreeListener(Collection<? extends ParseTreeListener> delegates) {
+		if (delegates == null) {
+			throw new NullPointerException("delegates");
+		}
+
+		this.delegates = delegates.toArray(new ParseTreeListener[0]);
+	}
+
+	@Override
+	public void visitTerminal(TerminalNode node) {
+		for (ParseTreeListener listener : delegates) {
+			listener.visitTerminal(node);
+		}
+	}
+
+	@Override
+	public void visitErrorNode(ErrorNode node) {
+		for (ParseTreeListener listener : delegates) {
+			listener.visitErrorNode(node);
+		}
+	}
+
+	@Override
+	public void enterEveryRule(ParserRuleContext ctx) {
+		for (ParseTreeListener listener : delegates) {
+			listener.enterEveryRule(ctx);
+			ctx.enterRule(listener);
+		}
+	}
+
+	@Override
+	public void exitEveryRule(ParserRuleContext ctx) {
+		for (int i = delegates.length - 1; i >= 0; i--) {
+			ParseTreeListener listener = delegates[i];
+			ctx.exitRule(listener);
+			listener.exitEveryRule(ctx);
+		}
+	}
+}
@@ -26,6 +26,8 @@ import org.antlr.v4.runtime.tree.TerminalNode;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * A tree pattern matching mechanism for ANTLR {@link ParseTree}s.
@@ -83,6 +85,11 @@ import java.util.List;
  * by default, but you can set them to whatever you want using
  * {@link #setDelimiters}. You must escape both start and stop strings
  * {@code \<} and {@code \>}.</p>
+ *
+ * <p>Compiled patterns are cached by this object, so compiling the same
+ * pattern string for the same rule again is cheap. Compilation and matching
+ * may be performed from several threads at once. To apply many patterns to a
+ * tree, collect them in a {@link ParseTreePatternSet}.</p>
  */
 public class ParseTreePatternMatcher {
 	public static class CannotInvokeStartRule extends RuntimeException {
@@ -110,6 +117,13 @@ public class ParseTreePatternMatcher {
 	protected String stop = ">";
 	protected String escape = "\\"; // e.g., \< and \> must escape BOTH!
 
+	/**
+	 * Compiled patterns keyed by {@code patternRuleIndex:pattern}; cleared when
+	 * the delimiters change.
+	 */
+	private final ConcurrentMap<String, ParseTreePattern> compiledPatterns =
+		new ConcurrentHashMap<String, ParseTreePattern>();
+
 	/**
 	 * Constructs a {@link ParseTreePatternMatcher} or from a {@link Lexer} and
 	 * {@link Parser} object. The lexer input stream is altered for tokenizing
@@ -141,9 +155,12 @@ public class ParseTreePatternMatcher {
 			throw new IllegalArgumentException("stop cannot be null or empty");
 		}
 
-		this.start = start;
-		this.stop = stop;
-		this.escape = escapeLeft;
+		synchronized (this) {
+			this.start = start;
+			this.stop = stop;
+			this.escape = escapeLeft;
+			compiledPatterns.clear();
+		}
 	}
 
 	/** Does {@code pattern} matched as rule {@code patternRuleIndex} match {@code tree}? */
@@ -186,9 +203,33 @@ public class ParseTreePatternMatcher {
 
 	/**
 	 * For repeated use of a tree pattern, compile it to a
-	 * {@link ParseTreePattern} using this method.
+	 * {@link ParseTreePattern} using this method. The result is cached, so
+	 * compiling the same pattern for the same rule again returns the same
+	 * object without tokenizing or parsing the pattern.
 	 */
 	public ParseTreePattern compile(String pattern, int patternRuleIndex) {
+		String key = patternRuleIndex + ":" + pattern;
+		ParseTreePattern p = compiledPatterns.get(key);
+		if ( p!=null ) {
+			return p;
+		}
+
+		// the lexer is shared, so patterns are compiled one at a time
+		synchronized (this) {
+			p = compiledPatterns.get(key);
+			if ( p==null ) {
+				p = compileUncached(pattern, patternRuleIndex);
+				compiledPatterns.put(key, p);
+			}
+			return p;
+		}
+	}
+
+	/**
+	 * Tokenize and parse {@code pattern} as rule {@code patternRuleIndex},
+	 * bypassing the cache used by {@link #compile}.
+	 */
+	protected ParseTreePattern compileUncached(String pattern, int patternRuleIndex) {
 		List<? extends Token> tokenList = tokenize(pattern);
 		ListTokenSource tokenSrc = new ListTokenSource(tokenList);
 		CommonTokenStream tokens = new CommonTokenStream(tokenSrc);
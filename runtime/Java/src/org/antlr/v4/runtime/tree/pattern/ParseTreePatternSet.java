@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.runtime.tree.pattern;
+
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.misc.MultiMap;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.TerminalNode;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A collection of compiled tree patterns that are matched against a parse
+ * tree together.
+ *
+ * <p>A pattern compiled for rule {@code r} is only tried against nodes of rule
+ * {@code r}, the same nodes {@code ParseTreePattern.findAll(tree, "//r")}
+ * would try. The patterns are bucketed by rule index and by the type of the
+ * first token of the pattern, so for each node only the patterns that can
+ * possibly match it are tried. A pattern whose first element is a rule tag
+ * such as {@code <expr>} has no first token and is tried against every node of
+ * its rule.</p>
+ *
+ * <p>{@link #findAll} walks the tree once and reports every match of every
+ * pattern, with its labels, in tree order. A set is immutable once built and
+ * may be shared between threads.</p>
+ *
+ * @since 4.7.2
+ */
+public class ParseTreePatternSet {
+	/** The bucket key for patterns that do not start with a token. */
+	private static final int ANY_TOKEN = Integer.MIN_VALUE;
+
+	private final List<ParseTreePattern> patterns;
+
+	/** rule index -&gt; first token type (or {@link #ANY_TOKEN}) -&gt; patterns */
+	private final Map<Integer, Map<Integer, ParseTreePattern[]>> buckets =
+		new HashMap<Integer, Map<Integer, ParseTreePattern[]>>();
+
+	public ParseTreePatternSet(Collection<? extends ParseTreePattern> patterns) {
+		if (patterns == null) {
+			throw new NullPointerException("patterns");
+		}
+
+		this.patterns = Collections.unmodifiableList(new ArrayList<ParseTreePattern>(patterns));
+
+		Map<Integer, Map<Integer, List<ParseTreePattern>>> lists =
+			new HashMap<Integer, Map<Integer, List<ParseTreePattern>>>();
+		for (ParseTreePattern pattern : this.patterns) {
+			Map<Integer, List<ParseTreePattern>> byToken = lists.get(pattern.getPatternRuleIndex());
+			if ( byToken==null ) {
+				byToken = new HashMap<Integer, List<ParseTreePattern>>();
+				lists.put(pattern.getPatternRuleIndex(), byToken);
+			}
+
+			int ttype = getFirstTokenType(pattern);
+			List<ParseTreePattern> bucket = byToken.get(ttype);
+			if ( bucket==null ) {
+				bucket = new ArrayList<ParseTreePattern>();
+				byToken.put(ttype, bucket);
+			}
+			bucket.add(pattern);
+		}
+
+		for (Map.Entry<Integer, Map<Integer, List<ParseTreePattern>>> rule : lists.entrySet()) {
+			Map<Integer, ParseTreePattern[]> byToken = new HashMap<Integer, ParseTreePattern[]>();
+			for (Map.Entry<Integer, List<ParseTreePattern>> bucket : rule.getValue().entrySet()) {
+				byToken.put(bucket.getKey(), bucket.getValue().toArray(new ParseTreePattern[0]));
+			}
+			buckets.put(rule.getKey(), byToken);
+		}
+	}
+
+	public List<ParseTreePattern> getPatterns() {
+		return patterns;
+	}
+
+	/**
+	 * Match every pattern that may apply to {@code tree} against its root
+	 * only.
+	 *
+	 * @return The successful matches, in the order the patterns were given
+	 * within each bucket.
+	 */
+	public List<ParseTreeMatch> match(ParseTree tree) {
+		List<ParseTreeMatch> matches = new ArrayList<ParseTreeMatch>();
+		if ( tree instanceof ParserRuleContext ) {
+			matchNode((ParserRuleContext)tree, getFirstLeafType(tree), matches);
+		}
+		return matches;
+	}
+
+	/**
+	 * Match the patterns against every node of {@code tree}.
+	 *
+	 * @return The successful matches, ordered by node in tree order.
+	 */
+	public List<ParseTreeMatch> findAll(ParseTree tree) {
+		List<ParseTreeMatch> matches = new ArrayList<ParseTreeMatch>();
+		if ( buckets.isEmpty() ) {
+			return matches;
+		}
+
+		// All nodes on a chain of first children share their first leaf, so
+		// the type is computed once per chain and handed down with the node.
+		ParseTree[] nodes = new ParseTree[64];
+		int[] firstLeafTypes = new int[64];
+		int sp = 0;
+		nodes[sp] = tree;
+		firstLeafTypes[sp] = getFirstLeafType(tree);
+		sp++;
+		while ( sp>0 ) {
+			sp--;
+			ParseTree t = nodes[sp];
+			int firstLeafType = firstLeafTypes[sp];
+			nodes[sp] = null;
+			if ( !(t instanceof ParserRuleContext) ) {
+				continue;
+			}
+
+			ParserRuleContext ctx = (ParserRuleContext)t;
+			matchNode(ctx, firstLeafType, matches);
+
+			int n = ctx.getChildCount();
+			if ( sp+n>nodes.length ) {
+				int capacity = Math.max(nodes.length*2, sp+n);
+				ParseTree[] newNodes = new ParseTree[capacity];
+				System.arraycopy(nodes, 0, newNodes, 0, sp);
+				nodes = newNodes;
+				int[] newTypes = new int[capacity];
+				System.arraycopy(firstLeafTypes, 0, newTypes, 0, sp);
+				firstLeafTypes = newTypes;
+			}
+
+			for (int i = n-1; i>=0; i--) {
+				ParseTree child = ctx.getChild(i);
+				nodes[sp] = child;
+				firstLeafTypes[sp] = i==0 ? firstLeafType : getFirstLeafType(child);
+				sp++;
+			}
+		}
+
+		return matches;
+	}
+
+	private void matchNode(ParserRuleContext ctx, int firstLeafType, List<ParseTreeMatch> matches) {
+		Map<Integer, ParseTreePattern[]> byToken = buckets.get(ctx.getRuleIndex());
+		if ( byToken==null ) {
+			return;
+		}
+
+		if ( firstLeafType!=ANY_TOKEN ) {
+			matchAll(ctx, byToken.get(firstLeafType), matches);
+		}
+		matchAll(ctx, byToken.get(ANY_TOKEN), matches);
+	}
+
+	private static void matchAll(ParseTree tree, ParseTreePattern[] candidates, List<ParseTreeMatch> matches) {
+		if ( candidates==null ) {
+			return;
+		}
+
+		MultiMap<String, ParseTree> labels = null;
+		for (ParseTreePattern pattern : candidates) {
+			if ( labels==null ) {
+				labels = new MultiMap<String, ParseTree>();
+			}
+
+			ParseTree mismatchedNode = pattern.getMatcher().matchImpl(tree, pattern.getPatternTree(), labels);
+			if ( mismatchedNode==null ) {
+				matches.add(new ParseTreeMatch(tree, pattern, labels, null));
+				labels = null;
+			}
+			else {
+				// reuse the map for the next candidate
+				labels.clear();
+			}
+		}
+	}
+
+	/**
+	 * Get the type of the token reached by following first children from
+	 * {@code t}, or {@link #ANY_TOKEN} if that chain ends in a rule node.
+	 */
+	private static int getFirstLeafType(ParseTree t) {
+		while ( t.getChildCount()>0 && !(t instanceof TerminalNode) ) {
+			t = t.getChild(0);
+		}
+
+		if ( t instanceof TerminalNode ) {
+			return ((TerminalNode)t).getSymbol().getType();
+		}
+
+		return ANY_TOKEN;
+	}
+
+	/**
+	 * Get the type of the first token a tree must start with to match
+	 * {@code pattern}, or {@link #ANY_TOKEN} if the pattern starts with a rule
+	 * tag. A token tag such as {@code <ID>} has the type of its token.
+	 */
+	private static int getFirstTokenType(ParseTreePattern pattern) {
+		ParseTreePatternMatcher matcher = pattern.getMatcher();
+		ParseTree t = pattern.getPatternTree();
+		while ( !(t instanceof TerminalNode) ) {
+			if ( t.getChildCount()==0 || matcher.getRuleTagToken(t)!=null ) {
+				return ANY_TOKEN;
+			}
+			t = t.getChild(0);
+		}
+
+		Token symbol = ((TerminalNode)t).getSymbol();
+		if ( symbol instanceof RuleTagToken ) {
+			return ANY_TOKEN;
+		}
+
+		return symbol.getType();
+	}
+}
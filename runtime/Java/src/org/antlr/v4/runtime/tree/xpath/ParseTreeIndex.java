@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.runtime.tree.xpath;
+
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.TerminalNode;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The nodes of a parse tree grouped by rule index and token type, built with
+ * a single walk of the tree. {@link XPath#evaluate(ParseTreeIndex)} uses it to
+ * answer paths such as {@code //expr} without walking the whole tree again,
+ * which pays off when many paths are evaluated against the same tree.
+ *
+ * <p>The index is a snapshot: it must be rebuilt if the tree changes.</p>
+ *
+ * @since 4.7.2
+ */
+public class ParseTreeIndex {
+	protected final ParseTree root;
+	protected final Map<Integer, List<ParseTree>> ruleNodes = new HashMap<Integer, List<ParseTree>>();
+	protected final Map<Integer, List<ParseTree>> tokenNodes = new HashMap<Integer, List<ParseTree>>();
+
+	public ParseTreeIndex(ParseTree root) {
+		this.root = root;
+		Deque<ParseTree> work = new ArrayDeque<ParseTree>();
+		work.push(root);
+		while ( !work.isEmpty() ) {
+			ParseTree t = work.pop();
+			for (int i = t.getChildCount() - 1; i >= 0; i--) {
+				work.push(t.getChild(i));
+			}
+
+			if ( t instanceof ParserRuleContext ) {
+				add(ruleNodes, ((ParserRuleContext)t).getRuleIndex(), t);
+			}
+			else if ( t instanceof TerminalNode ) {
+				add(tokenNodes, ((TerminalNode)t).getSymbol().getType(), t);
+			}
+		}
+	}
+
+	private static void add(Map<Integer, List<ParseTree>> index, int key, ParseTree t) {
+		List<ParseTree> nodes = index.get(key);
+		if ( nodes==null ) {
+			nodes = new ArrayList<ParseTree>();
+			index.put(key, nodes);
+		}
+		nodes.add(t);
+	}
+
+	public ParseTree getRoot() {
+		return root;
+	}
+
+	/** Get all rule nodes with rule index {@code ruleIndex}, in tree order. */
+	public List<ParseTree> getRuleNodes(int ruleIndex) {
+		List<ParseTree> nodes = ruleNodes.get(ruleIndex);
+		return nodes!=null ? Collections.unmodifiableList(nodes) : Collections.<ParseTree>emptyList();
+	}
+
+	/**
+	 * Get all terminal and error nodes whose token type is {@code ttype}, in
+	 * tree order.
+	 */
+	public List<ParseTree> getTokenNodes(int ttype) {
+		List<ParseTree> nodes = tokenNodes.get(ttype);
+		return nodes!=null ? Collections.unmodifiableList(nodes) : Collections.<ParseTree>emptyList();
+	}
+}
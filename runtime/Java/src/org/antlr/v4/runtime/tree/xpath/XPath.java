@@ -12,15 +12,21 @@ import org.antlr.v4.runtime.LexerNoViableAltException;
 import org.antlr.v4.runtime.Parser;
 import org.antlr.v4.runtime.ParserRuleContext;
 import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.Vocabulary;
 import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.TerminalNode;
 
 import java.io.IOException;
 import java.io.StringReader;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 /**
  * Represent a subset of XPath XML path syntax for use in identifying nodes in
@@ -64,20 +70,103 @@ import java.util.List;
  *
  * <p>
  * Whitespace is not allowed.</p>
+ *
+ * <p>
+ * An {@link XPath} holds no state once constructed, so a single instance may
+ * be evaluated against any number of trees, from any number of threads.
+ * {@link #compile} returns such an instance from a cache keyed by the path
+ * string. The built-in path elements are evaluated together in a single
+ * pre-order pass over the tree, which skips subtrees that can no longer
+ * contain a match, and return nodes in tree order. With a
+ * {@link ParseTreeIndex} a path starting with {@code //ruleName} or
+ * {@code //TOKEN} only visits the subtrees of the indexed nodes.</p>
  */
 public class XPath {
 	public static final String WILDCARD = "*"; // word not operator/separator
 	public static final String NOT = "!"; 	   // word for invert operator
 
+	/**
+	 * Maps a vocabulary to the paths compiled against it. The rule names of
+	 * each {@link XPath} are checked on a cache hit since two parsers can share
+	 * a vocabulary.
+	 */
+	private static final Map<Vocabulary, Map<String, XPath>> compiledPathCache =
+		new WeakHashMap<Vocabulary, Map<String, XPath>>();
+
+	// node tests of the built-in path elements, see compileElements
+	private static final byte RULE = 0;
+	private static final byte TOKEN = 1;
+	private static final byte WILDCARD_NODE = 2;
+	private static final byte NONE = 3;
+
 	protected String path;
 	protected XPathElement[] elements;
 	protected Parser parser;
 
+	/** The rule names the path was resolved against. */
+	private final String[] ruleNames;
+
+	/**
+	 * The node test of each element (one of {@link #RULE}, {@link #TOKEN},
+	 * {@link #WILDCARD_NODE} or {@link #NONE}), or {@code null} if the path
+	 * contains elements that can only be evaluated by
+	 * {@link XPathElement#evaluate}.
+	 */
+	private final byte[] nodeTests;
+	/** The rule index or token type tested by each element. */
+	private final int[] nodeTypes;
+	/** Whether each element applies to all descendants ({@code //}). */
+	private final boolean[] anywhere;
+	/** Whether an element's node test is inverted ({@code !}). */
+	private final boolean[] inverted;
+
 	public XPath(Parser parser, String path) {
 		this.parser = parser;
 		this.path = path;
+		this.ruleNames = parser.getRuleNames();
 		elements = split(path);
 //		System.out.println(Arrays.toString(elements));
+
+		int n = elements.length;
+		byte[] tests = new byte[n];
+		nodeTypes = new int[n];
+		anywhere = new boolean[n];
+		inverted = new boolean[n];
+		for (int i = 0; i < n && tests != null; i++) {
+			tests = compileElement(i, tests);
+		}
+		// one bit per element plus the start state must fit in a long
+		nodeTests = n > 0 && n < Long.SIZE - 1 ? tests : null;
+	}
+
+	/**
+	 * Get a compiled {@link XPath} for {@code path} from a cache shared by all
+	 * parsers with the same vocabulary and rule names, compiling it on first
+	 * use. The returned instance does not retain {@code parser}.
+	 *
+	 * @throws IllegalArgumentException if {@code path} is not a valid path
+	 * for {@code parser}
+	 *
+	 * @since 4.7.2
+	 */
+	public static XPath compile(Parser parser, String path) {
+		Vocabulary vocabulary = parser.getVocabulary();
+		synchronized (compiledPathCache) {
+			Map<String, XPath> paths = compiledPathCache.get(vocabulary);
+			if ( paths==null ) {
+				paths = new HashMap<String, XPath>();
+				compiledPathCache.put(vocabulary, paths);
+			}
+
+			XPath result = paths.get(path);
+			if ( result==null || !Arrays.equals(result.ruleNames, parser.getRuleNames()) ) {
+				result = new XPath(parser, path);
+				result.parser = null; // don't keep the parser and its input alive from the cache
+				paths.put(path, result);
+			}
+
+			return result;
+		}
 	}
 
 	// TODO: check for invalid token/rule names, bad syntax
@@ -191,8 +280,41 @@ loop:
 	}
 
 
+	private byte[] compileElement(int i, byte[] tests) {
+		XPathElement element = elements[i];
+		Class<?> c = element.getClass();
+		inverted[i] = element.invert;
+		if ( c==XPathRuleElement.class || c==XPathRuleAnywhereElement.class ) {
+			tests[i] = RULE;
+			nodeTypes[i] = c==XPathRuleElement.class ?
+				((XPathRuleElement)element).ruleIndex :
+				((XPathRuleAnywhereElement)element).ruleIndex;
+			anywhere[i] = c==XPathRuleAnywhereElement.class;
+		}
+		else if ( c==XPathTokenElement.class || c==XPathTokenAnywhereElement.class ) {
+			tests[i] = TOKEN;
+			nodeTypes[i] = c==XPathTokenElement.class ?
+				((XPathTokenElement)element).tokenType :
+				((XPathTokenAnywhereElement)element).tokenType;
+			anywhere[i] = c==XPathTokenAnywhereElement.class;
+		}
+		else if ( c==XPathWildcardElement.class || c==XPathWildcardAnywhereElement.class ) {
+			tests[i] = element.invert ? NONE : WILDCARD_NODE; // !* is weird but valid (empty)
+			anywhere[i] = c==XPathWildcardAnywhereElement.class;
+		}
+		else {
+			return null;
+		}
+
+		if ( anywhere[i] ) {
+			// the //rule and //TOKEN elements have never supported inversion
+			inverted[i] = false;
+		}
+		return tests;
+	}
+
 	public static Collection<ParseTree> findAll(ParseTree tree, String xpath, Parser parser) {
-		XPath p = new XPath(parser, xpath);
+		XPath p = compile(parser, xpath);
 		return p.evaluate(tree);
 	}
 
@@ -202,6 +324,155 @@ loop:
 	 * {@link #evaluate}.
 	 */
 	public Collection<ParseTree> evaluate(final ParseTree t) {
+		if ( nodeTests==null ) {
+			return evaluateStepwise(t);
+		}
+
+		// t is the only child of an imaginary root in the start state. Only
+		// a //* element can select that root, which is never returned itself
+		long rootState = 1L;
+		for (int i = 0; i < elements.length; i++) {
+			if ( anywhere[i] && nodeTests[i]==WILDCARD_NODE && (rootState & (1L << i))!=0 ) {
+				rootState |= 1L << (i + 1);
+			}
+		}
+
+		List<ParseTree> result = new ArrayList<ParseTree>();
+		match(t, rootState, 0L, result);
+		return result;
+	}
+
+	/**
+	 * Like {@link #evaluate(ParseTree)} on {@link ParseTreeIndex#getRoot}, but
+	 * a path starting with {@code //ruleName} or {@code //TOKEN} is only
+	 * evaluated over the subtrees of the nodes {@code index} has for that
+	 * rule or token type, instead of over the whole tree.
+	 *
+	 * @since 4.7.2
+	 */
+	public Collection<ParseTree> evaluate(ParseTreeIndex index) {
+		if ( nodeTests==null || !anywhere[0] || nodeTests[0]==WILDCARD_NODE || nodeTests[0]==NONE ) {
+			return evaluate(index.getRoot());
+		}
+
+		List<ParseTree> seeds = nodeTests[0]==RULE ?
+			index.getRuleNodes(nodeTypes[0]) :
+			index.getTokenNodes(nodeTypes[0]);
+		if ( elements.length==1 ) {
+			return new ArrayList<ParseTree>(seeds);
+		}
+
+		List<ParseTree> result = new ArrayList<ParseTree>();
+		ParseTree lastSeed = null;
+		for (ParseTree seed : seeds) {
+			if ( lastSeed!=null && isAncestorOrSelf(lastSeed, seed) ) {
+				continue; // already evaluated as part of lastSeed's subtree
+			}
+			lastSeed = seed;
+			// the imaginary root of the tree is an ancestor in the start state
+			match(seed, 0L, 1L, result);
+		}
+		return result;
+	}
+
+	private static boolean isAncestorOrSelf(ParseTree ancestor, ParseTree t) {
+		for (ParseTree p = t; p != null; p = p.getParent()) {
+			if ( p==ancestor ) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Evaluate all path elements in a single pre-order walk of {@code t},
+	 * adding matched nodes to {@code result} in tree order. Bit {@code i} of a
+	 * node's state is set if the node is selected by the first {@code i}
+	 * elements (bit 0 being the imaginary root); bit {@code i} of its ancestor
+	 * state is set if a proper ancestor has that state bit set.
+	 *
+	 * @param parentState the state of {@code t}'s parent
+	 * @param parentAncestors the ancestor state of {@code t}'s parent
+	 */
+	private void match(ParseTree t, long parentState, long parentAncestors, List<ParseTree> result) {
+		int n = elements.length;
+		long finalState = 1L << n;
+		long liveStates = finalState - 1;
+
+		ParseTree[] nodes = new ParseTree[16];
+		int[] indexes = new int[16];
+		long[] states = new long[16];
+		long[] ancestors = new long[16];
+		int sp = 0;
+
+		ParseTree node = t;
+		while ( node!=null ) {
+			long ancestorState = parentAncestors | parentState;
+			long state = 0;
+			for (int i = 0; i < n; i++) {
+				if ( !test(i, node) ) continue;
+				boolean selected = anywhere[i] ?
+					(ancestorState & (1L << i))!=0 || ((state & (1L << i))!=0 && node.getChildCount()>0) :
+					(parentState & (1L << i))!=0;
+				if ( selected ) state |= 1L << (i + 1);
+			}
+
+			if ( (state & finalState)!=0 ) {
+				result.add(node);
+			}
+
+			if ( node.getChildCount()>0 && ((state | ancestorState) & liveStates)!=0 ) {
+				if ( sp==nodes.length ) {
+					nodes = Arrays.copyOf(nodes, sp * 2);
+					indexes = Arrays.copyOf(indexes, sp * 2);
+					states = Arrays.copyOf(states, sp * 2);
+					ancestors = Arrays.copyOf(ancestors, sp * 2);
+				}
+				nodes[sp] = node;
+				indexes[sp] = 0;
+				states[sp] = state;
+				ancestors[sp] = ancestorState;
+				sp++;
+				parentState = state;
+				parentAncestors = ancestorState;
+				node = node.getChild(0);
+				continue;
+			}
+
+			// move to the next sibling, popping finished parents
+			node = null;
+			while ( sp>0 ) {
+				ParseTree parent = nodes[sp - 1];
+				if ( ++indexes[sp - 1] < parent.getChildCount() ) {
+					node = parent.getChild(indexes[sp - 1]);
+					parentState = states[sp - 1];
+					parentAncestors = ancestors[sp - 1];
+					break;
+				}
+				sp--;
+			}
+		}
+	}
+
+	private boolean test(int i, ParseTree node) {
+		switch ( nodeTests[i] ) {
+			case RULE :
+				return node instanceof ParserRuleContext &&
+					   (((ParserRuleContext)node).getRuleIndex()==nodeTypes[i]) != inverted[i];
+			case TOKEN :
+				return node instanceof TerminalNode &&
+					   (((TerminalNode)node).getSymbol().getType()==nodeTypes[i]) != inverted[i];
+			case WILDCARD_NODE :
+				return true;
+			default :
+				return false;
+		}
+	}
+
+	/**
+	 * Evaluate the path one element at a time using
+	 * {@link XPathElement#evaluate}, for paths with elements other than the
+	 * built-in ones.
+	 */
+	protected Collection<ParseTree> evaluateStepwise(final ParseTree t) {
 		ParserRuleContext dummyRoot = new ParserRuleContext();
 		dummyRoot.children = Collections.singletonList(t); // don't set t's parent.
 
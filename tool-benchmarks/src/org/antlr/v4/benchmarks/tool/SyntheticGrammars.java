@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.benchmarks.tool;
+
+/** Generates large grammars that stress one part of the tool each. They are
+ *  the same for a given size, so runs can be compared.
+ */
+public class SyntheticGrammars {
+	/** A combined grammar with one left-recursive expression rule of
+	 *  {@code levels} precedence levels, each with binary, prefix and suffix
+	 *  operators, for {@code LeftRecursiveRuleTransformer} and the large
+	 *  decisions it creates.
+	 */
+	public static String expressions(int levels) {
+		StringBuilder buf = new StringBuilder();
+		buf.append("grammar Expressions;\n\n");
+		buf.append("file : (expr ';')* EOF ;\n\n");
+		buf.append("expr\n");
+		buf.append("\t: '(' expr ')'\n");
+		buf.append("\t| expr '(' (expr (',' expr)*)? ')'\n");
+		buf.append("\t| expr '[' expr ']'\n");
+		for (int i = 0; i < levels; i++) {
+			switch (i % 4) {
+				case 0:
+					buf.append("\t| expr ('b").append(i).append("' | 'c").append(i).append("') expr\n");
+					break;
+				case 1:
+					buf.append("\t| <assoc=right> expr 'b").append(i).append("' expr\n");
+					break;
+				case 2:
+					buf.append("\t| 'p").append(i).append("' expr\n");
+					break;
+				default:
+					buf.append("\t| expr 's").append(i).append("'\n");
+					buf.append("\t| expr '?").append(i).append("' expr ':' expr\n");
+					break;
+			}
+		}
+		buf.append("\t| ID\n");
+		buf.append("\t| INT\n");
+		buf.append("\t;\n\n");
+		appendCommonTokens(buf);
+		return buf.toString();
+	}
+
+	/** A combined grammar of {@code rules} parser rules with optional,
+	 *  repeated and nested blocks, labels and rule references that
+	 *  make the ATN and the analysis large, for the semantic checks, ATN
+	 *  construction, analysis and code generation.
+	 */
+	public static String rules(int rules) {
+		StringBuilder buf = new StringBuilder();
+		buf.append("grammar Rules;\n\n");
+		buf.append("file : (");
+		for (int i = 0; i < rules; i += 10) {
+			if (i > 0) buf.append(" | ");
+			buf.append("r").append(i);
+		}
+		buf.append(")* EOF ;\n\n");
+		for (int i = 0; i < rules; i++) {
+			// rules only reference rules after them, so there is no recursion
+			String next = i + 1 < rules ? "r" + (i + 1) : "ID";
+			String later = i + 2 < rules ? "r" + (i + 2) : "INT";
+			buf.append("r").append(i).append("\n");
+			buf.append("\t: 'k").append(i).append("' x=").append(next).append(" (',' y+=").append(next).append(")* ';' # Alt").append(i).append("List\n");
+			buf.append("\t| ID ('.' ID)* ('=' ").append(later).append(")? # Alt").append(i).append("Assign\n");
+			buf.append("\t| '{' (").append(next).append(" | ").append(later).append(" ';')* '}' # Alt").append(i).append("Block\n");
+			buf.append("\t| ID '(' (").append(later).append(" (',' ").append(later).append(")*)? ')' ('k").append(i).append("' ID)? # Alt").append(i).append("Call\n");
+			buf.append("\t;\n\n");
+		}
+		appendCommonTokens(buf);
+		return buf.toString();
+	}
+
+	/** A lexer grammar of {@code keywords} keywords, operators and the
+	 *  usual identifiers, numbers, strings and comments, for the lexer ATN
+	 *  and its serialization.
+	 */
+	public static String keywords(int keywords) {
+		StringBuilder buf = new StringBuilder();
+		buf.append("lexer grammar Keywords;\n\n");
+		for (int i = 0; i < keywords; i++) {
+			buf.append("KW").append(i).append(" : '").append(keyword(i)).append("' ;\n");
+		}
+		buf.append('\n');
+		String[] operators = {"+", "-", "*", "/", "%", "=", "==", "!=", "<", "<=", ">", ">=",
+							  "&&", "||", "!", "&", "|", "^", "<<", ">>", ">>>", "+=", "-=",
+							  "(", ")", "[", "]", "{", "}", ";", ",", ".", "::", "->"};
+		for (int i = 0; i < operators.length; i++) {
+			buf.append("OP").append(i).append(" : '").append(operators[i]).append("' ;\n");
+		}
+		buf.append('\n');
+		buf.append("ID : [\\p{L}_] [\\p{L}\\p{Nd}_]* ;\n");
+		buf.append("INT : [0-9]+ ('_' [0-9]+)* [lL]? | '0' [xX] [0-9a-fA-F]+ ;\n");
+		buf.append("FLOAT : [0-9]+ '.' [0-9]* EXP? [fFdD]? | '.' [0-9]+ EXP? [fFdD]? ;\n");
+		buf.append("fragment EXP : [eE] [+-]? [0-9]+ ;\n");
+		buf.append("STRING : '\"' (~[\"\\\\\\r\\n] | '\\\\' .)* '\"' ;\n");
+		buf.append("CHAR : '\\'' (~['\\\\\\r\\n] | '\\\\' .) '\\'' ;\n");
+		buf.append("COMMENT : '/*' .*? '*/' -> channel(HIDDEN) ;\n");
+		buf.append("LINE_COMMENT : '//' ~[\\r\\n]* -> channel(HIDDEN) ;\n");
+		buf.append("WS : [ \\t\\r\\n]+ -> skip ;\n");
+		return buf.toString();
+	}
+
+	/** Keywords that share prefixes, as those of real languages do. */
+	private static String keyword(int i) {
+		String[] stems = {"select", "insert", "update", "delete", "create", "alter", "drop", "grant",
+						  "begin", "commit", "declare", "return", "while", "case", "when", "trigger"};
+		String stem = stems[i % stems.length];
+		int n = i / stems.length;
+		return n == 0 ? stem : stem + "_" + Integer.toString(n, 26).replace('0', 'z');
+	}
+
+	private static void appendCommonTokens(StringBuilder buf) {
+		buf.append("ID : [a-zA-Z_] [a-zA-Z_0-9]* ;\n");
+		buf.append("INT : [0-9]+ ;\n");
+		buf.append("WS : [ \\t\\r\\n]+ -> skip ;\n");
+	}
+}
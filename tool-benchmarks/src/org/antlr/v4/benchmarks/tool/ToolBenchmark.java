@@ -0,0 +1,325 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.benchmarks.tool;
+
+import org.antlr.v4.Tool;
+import org.antlr.v4.tool.ANTLRMessage;
+import org.antlr.v4.tool.ANTLRToolListener;
+import org.antlr.v4.tool.PhaseProfiler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/** The main class of {@code tool-benchmarks.jar}. It runs the tool on large
+ *  grammars as the command line does, generating code into a temporary
+ *  directory, and reports the average time and allocation of each phase
+ *  measured by a {@link PhaseProfiler}: parsing, the grammar transforms,
+ *  semantic checks and left-recursion elimination, ATN construction and
+ *  optimization, analysis, and code generation with the templates, their
+ *  rendering and the ATN serialization.
+ *
+ *  <p>The built-in grammars are the synthetic ones of {@link
+ *  SyntheticGrammars} and real grammars of the tool and runtime tests;
+ *  grammar files can be given too. The tables are printed and the results
+ *  written as JSON to {@value #DEFAULT_RESULT_FILE} unless {@code -json}
+ *  says otherwise.</p>
+ *
+ *  $ java -jar tool-benchmarks/target/tool-benchmarks.jar [-warmup n] [-iterations n] [-json file] [grammar-name|file.g4 ...]
+ */
+public class ToolBenchmark {
+	public static final String DEFAULT_RESULT_FILE = "tool-benchmark-result.json";
+
+	/** The built-in grammars, run if none are given. */
+	public static final List<String> GRAMMARS = Arrays.asList(
+		"Expressions", "Rules", "Keywords", "Java", "JavaLR", "Psl", "LargeLexer");
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private static final Pattern GRAMMAR_NAME = Pattern.compile("(?:lexer\\s+|parser\\s+)?grammar\\s+(\\w+)\\s*;");
+
+	public int warmupIterations = 3;
+	public int iterations = 5;
+	public String resultFile = DEFAULT_RESULT_FILE;
+	public final List<String> grammars = new ArrayList<String>();
+
+	/** The averages of the measured runs of one grammar. */
+	public static class Result {
+		public final String grammar;
+		public final int iterations;
+		public long nanos;
+		public long allocatedBytes;
+		public final List<PhaseProfiler.Phase> phases;
+
+		public Result(String grammar, int iterations, List<PhaseProfiler.Phase> phases) {
+			this.grammar = grammar;
+			this.iterations = iterations;
+			this.phases = phases;
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		ToolBenchmark benchmark = new ToolBenchmark();
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			if (arg.equals("-warmup") && i + 1 < args.length) {
+				benchmark.warmupIterations = Integer.parseInt(args[++i]);
+			}
+			else if (arg.equals("-iterations") && i + 1 < args.length) {
+				benchmark.iterations = Math.max(1, Integer.parseInt(args[++i]));
+			}
+			else if (arg.equals("-json") && i + 1 < args.length) {
+				benchmark.resultFile = args[++i];
+			}
+			else if (arg.startsWith("-")) {
+				System.err.println("usage: java -jar tool-benchmarks.jar [-warmup n] [-iterations n] [-json file] [grammar-name|file.g4 ...]");
+				System.err.println("built-in grammars: " + GRAMMARS);
+				System.exit(1);
+			}
+			else {
+				benchmark.grammars.add(arg);
+			}
+		}
+		if (benchmark.grammars.isEmpty()) {
+			benchmark.grammars.addAll(GRAMMARS);
+		}
+
+		if (!PhaseProfiler.isAllocationSupported()) {
+			System.err.println("this JVM doesn't count allocated bytes per thread; allocation is not reported");
+		}
+		List<Result> results = benchmark.run();
+		writeFile(new File(benchmark.resultFile), toJSON(results));
+		System.out.println("wrote " + benchmark.resultFile);
+	}
+
+	public List<Result> run() throws IOException {
+		List<Result> results = new ArrayList<Result>();
+		File workDir = Files.createTempDirectory("antlr-tool-benchmark").toFile();
+		try {
+			for (String grammar : grammars) {
+				File grammarFile = prepareGrammar(grammar, new File(workDir, "grammars"));
+				Result result = run(grammar, grammarFile, new File(workDir, "output"));
+				System.out.println(format(result));
+				results.add(result);
+			}
+		}
+		finally {
+			delete(workDir);
+		}
+		return results;
+	}
+
+	public Result run(String grammar, File grammarFile, File outputDir) {
+		for (int i = 0; i < warmupIterations; i++) {
+			process(grammarFile, outputDir, new PhaseProfiler());
+		}
+
+		PhaseProfiler profiler = new PhaseProfiler();
+		long nanos = 0;
+		long allocatedBytes = 0;
+		for (int i = 0; i < iterations; i++) {
+			// don't let the garbage of the last run be collected in this one
+			System.gc();
+			long startBytes = PhaseProfiler.getAllocatedBytes();
+			long start = System.nanoTime();
+			process(grammarFile, outputDir, profiler);
+			nanos += System.nanoTime() - start;
+			allocatedBytes += PhaseProfiler.getAllocatedBytes() - startBytes;
+		}
+
+		List<PhaseProfiler.Phase> phases = profiler.getPhases();
+		for (PhaseProfiler.Phase phase : phases) {
+			phase.count /= iterations;
+			phase.nanos /= iterations;
+			phase.selfNanos /= iterations;
+			phase.allocatedBytes = average(phase.allocatedBytes, iterations);
+			phase.selfAllocatedBytes = average(phase.selfAllocatedBytes, iterations);
+		}
+		Result result = new Result(grammar, iterations, phases);
+		result.nanos = nanos / iterations;
+		result.allocatedBytes = average(allocatedBytes, iterations);
+		return result;
+	}
+
+	/** Run the tool on {@code grammarFile} as the command line does. */
+	protected void process(File grammarFile, File outputDir, PhaseProfiler profiler) {
+		Tool tool = new Tool(new String[] {
+			"-o", outputDir.getPath(),
+			"-lib", grammarFile.getParent(),
+			"-visitor",
+			grammarFile.getPath()
+		});
+		tool.phaseProfiler = profiler;
+		final List<String> errors = new ArrayList<String>();
+		tool.addListener(new ANTLRToolListener() {
+			@Override
+			public void info(String msg) { }
+			@Override
+			public void error(ANTLRMessage msg) {
+				errors.add(msg.toString());
+			}
+			@Override
+			public void warning(ANTLRMessage msg) { }
+		});
+		tool.processGrammarsOnCommandLine();
+		if (!errors.isEmpty()) {
+			throw new IllegalStateException("errors processing " + grammarFile + ": " + errors);
+		}
+	}
+
+	/** Return the file of a built-in grammar, generated or copied into
+	 *  {@code dir} under the name it declares, or the file {@code grammar}.
+	 */
+	protected File prepareGrammar(String grammar, File dir) throws IOException {
+		String text;
+		if (grammar.equals("Expressions")) {
+			text = SyntheticGrammars.expressions(120);
+		}
+		else if (grammar.equals("Rules")) {
+			text = SyntheticGrammars.rules(600);
+		}
+		else if (grammar.equals("Keywords")) {
+			text = SyntheticGrammars.keywords(1500);
+		}
+		else if (GRAMMARS.contains(grammar)) {
+			InputStream in = ToolBenchmark.class.getResourceAsStream("grammars/" + grammar + ".g4");
+			if (in == null) {
+				throw new IOException("missing resource for grammar " + grammar);
+			}
+			try {
+				text = new String(readFully(in), UTF8);
+			}
+			finally {
+				in.close();
+			}
+		}
+		else {
+			File file = new File(grammar).getAbsoluteFile();
+			if (!file.isFile()) {
+				throw new IOException("no grammar " + grammar + "; built-in grammars are " + GRAMMARS);
+			}
+			return file;
+		}
+
+		Matcher m = GRAMMAR_NAME.matcher(text);
+		if (!m.find()) {
+			throw new IOException("no grammar declaration in " + grammar);
+		}
+		dir.mkdirs();
+		File file = new File(dir, m.group(1) + ".g4");
+		writeFile(file, text);
+		return file;
+	}
+
+	private static long average(long bytes, int iterations) {
+		return bytes < 0 ? -1 : bytes / iterations;
+	}
+
+	/** The time and allocation of a run of {@code result}'s grammar and the
+	 *  table of its phases.
+	 */
+	public static String format(Result result) {
+		StringBuilder buf = new StringBuilder();
+		buf.append(String.format(Locale.ROOT, "%s: %.1f ms, %s MB per run (%d runs)%n",
+								 result.grammar, result.nanos / 1e6,
+								 PhaseProfiler.formatMegabytes(result.allocatedBytes), result.iterations));
+		buf.append(PhaseProfiler.format(result.phases));
+		return buf.toString();
+	}
+
+	/** The results with times in nanoseconds and allocation in bytes, -1
+	 *  if it isn't measured.
+	 */
+	public static String toJSON(List<Result> results) {
+		StringWriter sw = new StringWriter();
+		PrintWriter out = new PrintWriter(sw);
+		out.println("[");
+		for (int r = 0; r < results.size(); r++) {
+			Result result = results.get(r);
+			out.println("  {");
+			out.println("    \"grammar\": " + jsonString(result.grammar) + ",");
+			out.println("    \"iterations\": " + result.iterations + ",");
+			out.println("    \"time\": " + result.nanos + ",");
+			out.println("    \"allocated\": " + result.allocatedBytes + ",");
+			out.println("    \"phases\": [");
+			for (int i = 0; i < result.phases.size(); i++) {
+				PhaseProfiler.Phase phase = result.phases.get(i);
+				out.print("      {\"phase\": " + jsonString(phase.name) +
+						  ", \"calls\": " + phase.count +
+						  ", \"time\": " + phase.nanos +
+						  ", \"selfTime\": " + phase.selfNanos +
+						  ", \"allocated\": " + phase.allocatedBytes +
+						  ", \"selfAllocated\": " + phase.selfAllocatedBytes + "}");
+				out.println(i < result.phases.size() - 1 ? "," : "");
+			}
+			out.println("    ]");
+			out.println(r < results.size() - 1 ? "  }," : "  }");
+		}
+		out.println("]");
+		out.flush();
+		return sw.toString();
+	}
+
+	private static String jsonString(String s) {
+		StringBuilder buf = new StringBuilder("\"");
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c == '"' || c == '\\') {
+				buf.append('\\').append(c);
+			}
+			else if (c < ' ') {
+				buf.append(String.format("\\u%04x", (int)c));
+			}
+			else {
+				buf.append(c);
+			}
+		}
+		return buf.append('"').toString();
+	}
+
+	private static byte[] readFully(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buf = new byte[8192];
+		int n;
+		while ((n = in.read(buf)) > 0) {
+			out.write(buf, 0, n);
+		}
+		return out.toByteArray();
+	}
+
+	private static void writeFile(File file, String text) throws IOException {
+		Writer w = Files.newBufferedWriter(file.toPath(), UTF8);
+		try {
+			w.write(text);
+		}
+		finally {
+			w.close();
+		}
+	}
+
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+}
@@ -6,18 +6,38 @@
 
 package org.antlr.v4.test.tool;
 
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.LexerInterpreter;
+import org.antlr.v4.runtime.ParserInterpreter;
 import org.antlr.v4.runtime.atn.ATN;
+import org.antlr.v4.runtime.atn.ATNDeserializationOptions;
 import org.antlr.v4.runtime.atn.ATNDeserializer;
 import org.antlr.v4.runtime.atn.ATNSerializer;
+import org.antlr.v4.runtime.atn.ATNType;
+import org.antlr.v4.runtime.atn.DecisionState;
+import org.antlr.v4.runtime.atn.EpsilonTransition;
+import org.antlr.v4.runtime.atn.RuleStopState;
+import org.antlr.v4.runtime.atn.StarLoopEntryState;
+import org.antlr.v4.runtime.atn.Transition;
 import org.antlr.v4.runtime.misc.Utils;
+import org.antlr.v4.runtime.tree.ParseTree;
 import org.antlr.v4.tool.Grammar;
 import org.antlr.v4.tool.LexerGrammar;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.InvalidClassException;
 import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class TestATNDeserialization extends BaseJavaToolTest {
 	@Before
@@ -92,6 +112,121 @@ public class TestATNDeserialization extends BaseJavaToolTest {
 		checkDeserializationIsStable(g);
 	}
 
+	@Test public void testLeftRecursiveRuleLazy() throws Exception {
+		Grammar g = new Grammar(
+			"grammar T;\n"+
+			"s : e EOF ;\n" +
+			"e : e '*' e | e '+' e | INT ;\n" +
+			"t : INT*? '*' ;\n" +
+			"INT : [0-9]+ ;\n");
+		checkDeserializationIsStable(g);
+
+		ATN atn = createATN(g, false);
+		ATNDeserializationOptions options = new ATNDeserializationOptions();
+		options.setLazy(true);
+		char[] data = Utils.toCharArray(ATNSerializer.getSerialized(atn));
+		ATN eager = new ATNDeserializer().deserialize(data);
+		ATN lazy = new ATNDeserializer(options).deserialize(data);
+		for (int i = 0; i < eager.getNumberOfDecisions(); i++) {
+			assertEquals(isPrecedenceDecision(eager.getDecisionState(i)),
+						 isPrecedenceDecision(lazy.getDecisionState(i)));
+		}
+
+		// rule stop states aren't serialized, so compare their return transitions
+		for (int r = 0; r < eager.ruleToStopState.length; r++) {
+			assertEquals(getReturnTransitions(eager.ruleToStopState[r]),
+						 getReturnTransitions(lazy.ruleToStopState[r]));
+		}
+	}
+
+	@Test public void testLazyATNSharedBetweenThreads() throws Exception {
+		final LexerGrammar lg = new LexerGrammar(
+			"lexer grammar L;\n" +
+			"IF : 'if' ;\n" +
+			"WHILE : 'while' ;\n" +
+			"RETURN : 'return' ;\n" +
+			"ID : [a-z]+ ;\n" +
+			"INT : [0-9]+ ;\n" +
+			"LPAREN : '(' ;\n" +
+			"RPAREN : ')' ;\n" +
+			"LBRACE : '{' ;\n" +
+			"RBRACE : '}' ;\n" +
+			"SEMI : ';' ;\n" +
+			"COMMA : ',' ;\n" +
+			"ASSIGN : '=' ;\n" +
+			"ADD : '+' ;\n" +
+			"MUL : '*' ;\n" +
+			"WS : [ \\t\\n]+ -> skip ;\n");
+		final Grammar g = new Grammar(
+			"parser grammar T;\n" +
+			"prog : stat+ EOF ;\n" +
+			"stat : block | ifStat | whileStat | returnStat | assign | call ';' ;\n" +
+			"block : '{' stat* '}' ;\n" +
+			"ifStat : IF '(' expr ')' stat ;\n" +
+			"whileStat : WHILE '(' expr ')' stat ;\n" +
+			"returnStat : RETURN expr? ';' ;\n" +
+			"assign : ID '=' expr ';' ;\n" +
+			"call : ID '(' args? ')' ;\n" +
+			"args : expr (',' expr)* ;\n" +
+			"expr : expr '*' expr | expr '+' expr | call | atom ;\n" +
+			"atom : ID | INT | '(' expr ')' ;\n",
+			lg);
+		final String input =
+			"x = 1; while (x) { if (f(x, 2)) return x * 3; y = g() + (x); }\n" +
+			"{ { return; } } h(1, 2 + 3 * z);";
+
+		char[] data = Utils.toCharArray(ATNSerializer.getSerialized(createATN(g, false)));
+		final ATNDeserializationOptions options = new ATNDeserializationOptions();
+		options.setLazy(true);
+		final String expecting = parse(g, lg, new ATNDeserializer().deserialize(data), input);
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			for (int i = 0; i < 50; i++) {
+				// a new lazy ATN each time, whose rules the parsers load concurrently
+				final ATN atn = new ATNDeserializer(options).deserialize(data);
+				final CyclicBarrier start = new CyclicBarrier(2);
+				Callable<String> task = new Callable<String>() {
+					@Override
+					public String call() throws Exception {
+						start.await();
+						return parse(g, lg, atn, input);
+					}
+				};
+				Future<String> first = executor.submit(task);
+				Future<String> second = executor.submit(task);
+				assertEquals(expecting, first.get());
+				assertEquals(expecting, second.get());
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	private static String parse(Grammar g, LexerGrammar lg, ATN atn, String input) {
+		LexerInterpreter lexer = lg.createLexerInterpreter(CharStreams.fromString(input));
+		ParserInterpreter parser = new ParserInterpreter(g.fileName, g.getVocabulary(),
+														 Arrays.asList(g.getRuleNames()), atn,
+														 new CommonTokenStream(lexer));
+		ParseTree tree = parser.parse(g.rules.get("prog").index);
+		assertEquals(0, parser.getNumberOfSyntaxErrors());
+		return tree.toStringTree(parser);
+	}
+
+	private static boolean isPrecedenceDecision(DecisionState state) {
+		return state instanceof StarLoopEntryState && ((StarLoopEntryState)state).isPrecedenceDecision;
+	}
+
+	private static String getReturnTransitions(RuleStopState stopState) {
+		StringBuilder buf = new StringBuilder();
+		for (Transition t : stopState.getTransitions()) {
+			buf.append(t.target.stateNumber).append(':')
+				.append(((EpsilonTransition)t).outermostPrecedenceReturn()).append(' ');
+		}
+		return buf.toString();
+	}
+
 	@Test public void testLexerTwoRules() throws Exception {
 		LexerGrammar lg = new LexerGrammar(
 			"lexer grammar L;\n"+
@@ -160,6 +295,23 @@ public class TestATNDeserialization extends BaseJavaToolTest {
 		checkDeserializationIsStable(lg);
 	}
 
+	@Test public void testTruncatedBinaryATN() throws Exception {
+		Grammar g = new Grammar(
+			"parser grammar T;\n"+
+			"a : A | b ;\n" +
+			"b : B ;\n");
+		byte[] data = ATNSerializer.getSerializedAsBytes(createATN(g, false));
+		for (int length = 0; length < data.length; length++) {
+			try {
+				new ATNDeserializer().deserialize(Arrays.copyOf(data, length));
+				fail("deserialized "+length+" of "+data.length+" bytes");
+			}
+			catch (UnsupportedOperationException e) {
+				assertTrue(e.getCause() instanceof InvalidClassException);
+			}
+		}
+	}
+
 	protected void checkDeserializationIsStable(Grammar g) {
 		ATN atn = createATN(g, false);
 		char[] data = Utils.toCharArray(ATNSerializer.getSerialized(atn));
@@ -168,5 +320,20 @@ public class TestATNDeserialization extends BaseJavaToolTest {
 		String atn2Data = ATNSerializer.getDecoded(atn2, Arrays.asList(g.getTokenNames()));
 
 		assertEquals(atnData, atn2Data);
+
+		// the binary form must load the same ATN
+		ATN atn3 = new ATNDeserializer().deserialize(ATNSerializer.getSerializedAsBytes(atn));
+		String atn3Data = ATNSerializer.getDecoded(atn3, Arrays.asList(g.getTokenNames()));
+
+		assertEquals(atnData, atn3Data);
+
+		if ( atn.grammarType==ATNType.PARSER ) {
+			ATNDeserializationOptions options = new ATNDeserializationOptions();
+			options.setLazy(true);
+			ATN atn4 = new ATNDeserializer(options).deserialize(data);
+			String atn4Data = ATNSerializer.getDecoded(atn4, Arrays.asList(g.getTokenNames()));
+
+			assertEquals(atnData, atn4Data);
+		}
 	}
 }
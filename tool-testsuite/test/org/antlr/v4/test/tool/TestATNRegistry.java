@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.test.tool;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.LexerInterpreter;
+import org.antlr.v4.runtime.ParserInterpreter;
+import org.antlr.v4.runtime.atn.ATNRegistry;
+import org.antlr.v4.runtime.atn.ATNSerializer;
+import org.antlr.v4.runtime.atn.SharedATN;
+import org.antlr.v4.runtime.dfa.DFA;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.tool.Grammar;
+import org.antlr.v4.tool.LexerGrammar;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TestATNRegistry extends BaseJavaToolTest {
+	@Before
+	@Override
+	public void testSetUp() throws Exception {
+		super.testSetUp();
+	}
+
+	@Test public void testIdenticalGrammarsShareATN() throws Exception {
+		Grammar g1 = new Grammar(
+			"parser grammar T;\n" +
+			"s : A B | A C ;");
+		Grammar g2 = new Grammar(
+			"parser grammar U;\n" +
+			"s : A B | A C ;");
+		Grammar g3 = new Grammar(
+			"parser grammar V;\n" +
+			"s : A B ;");
+
+		ATNRegistry registry = new ATNRegistry();
+		SharedATN atn1 = registry.acquire(ATNSerializer.getSerializedAsString(g1.atn));
+		SharedATN atn2 = registry.acquire(ATNSerializer.getSerializedAsString(g2.atn));
+		SharedATN atn3 = registry.acquire(ATNSerializer.getSerializedAsString(g3.atn));
+		assertSame(atn1, atn2);
+		assertNotSame(atn1, atn3);
+		assertEquals(2, atn1.getReferenceCount());
+		assertEquals(2, registry.size());
+
+		atn1.release();
+		atn2.release();
+		assertEquals(0, atn1.getReferenceCount());
+		assertEquals(1, registry.size());
+
+		// a released ATN is deserialized again
+		SharedATN atn4 = registry.acquire(ATNSerializer.getSerializedAsString(g1.atn));
+		assertNotSame(atn1, atn4);
+	}
+
+	@Test public void testReleasedWhenOwnerCollected() throws Exception {
+		Grammar g = new Grammar(
+			"parser grammar T;\n" +
+			"s : A B | A C ;");
+
+		ATNRegistry registry = new ATNRegistry();
+		Object owner = new Object();
+		registry.acquire(ATNSerializer.getSerializedAsString(g.atn), owner);
+		assertEquals(1, registry.size());
+
+		owner = null;
+		for (int i = 0; i < 50 && registry.size() > 0; i++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+
+		assertEquals(0, registry.size());
+	}
+
+	@Test public void testInterpretersShareDFA() throws Exception {
+		LexerGrammar lg = new LexerGrammar(
+			"lexer grammar L;\n" +
+			"A : 'a' ;\n" +
+			"B : 'b' ;\n" +
+			"C : 'c' ;\n");
+		Grammar g = new Grammar(
+			"parser grammar T;\n" +
+			"s : A+ B | A+ C ;",
+			lg);
+
+		ATNRegistry registry = new ATNRegistry();
+		SharedATN lexerATN = registry.acquire(ATNSerializer.getSerializedAsString(lg.atn));
+		SharedATN parserATN = registry.acquire(ATNSerializer.getSerializedAsString(g.atn));
+		assertEquals("(s a a b)", parse(lg, lexerATN, g, parserATN, "aab"));
+		int dfaStates = getDFAStates(parserATN);
+		assertTrue(dfaStates > 0);
+
+		// the second interpreter adds to the DFA states created by the first
+		assertEquals("(s a a c)", parse(lg, lexerATN, g, parserATN, "aac"));
+		assertTrue(getDFAStates(parserATN) > dfaStates);
+		assertEquals("(s a a b)", parse(lg, lexerATN, g, parserATN, "aab"));
+	}
+
+	private static int getDFAStates(SharedATN atn) {
+		int n = 0;
+		for (DFA dfa : atn.getDecisionToDFA()) {
+			n += dfa.states.size();
+		}
+		return n;
+	}
+
+	private static String parse(LexerGrammar lg, SharedATN lexerATN,
+								Grammar g, SharedATN parserATN,
+								String input)
+	{
+		LexerInterpreter lexEngine = new LexerInterpreter(lg.fileName, lg.getVocabulary(),
+														  Arrays.asList(lg.getRuleNames()),
+														  lg.channelValueToNameList,
+														  lg.modes.keySet(), lexerATN,
+														  new ANTLRInputStream(input));
+		CommonTokenStream tokens = new CommonTokenStream(lexEngine);
+		ParserInterpreter parser = new ParserInterpreter(g.fileName, g.getVocabulary(),
+														 Arrays.asList(g.getRuleNames()),
+														 parserATN, tokens);
+		ParseTree t = parser.parse(g.rules.get("s").index);
+		return t.toStringTree(parser);
+	}
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.test.tool;
+
+import org.antlr.v4.Tool;
+import org.antlr.v4.test.runtime.BaseRuntimeTest;
+import org.antlr.v4.test.runtime.ErrorQueue;
+import org.antlr.v4.tool.ErrorType;
+import org.antlr.v4.tool.Grammar;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.antlr.v4.test.runtime.BaseRuntimeTest.writeFile;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestBuildCache extends BaseJavaToolTest {
+	@Before
+	@Override
+	public void testSetUp() throws Exception {
+		super.testSetUp();
+	}
+
+	@Test public void testUnchangedGrammarIsNotProcessed() throws Exception {
+		BaseRuntimeTest.mkdir(tmpdir);
+		writeFile(tmpdir, "T.g4",
+			"grammar T;\n" +
+			"s : A ;\n" +
+			"A : 'a' ;\n");
+
+		assertEquals(1, antlr("T.g4"));
+		String parser = readFile(tmpdir, "TParser.java");
+		assertTrue(new File(tmpdir, "TParser.java").delete());
+
+		assertEquals(0, antlr("T.g4"));
+		assertEquals(parser, readFile(tmpdir, "TParser.java"));
+		assertTrue(new File(tmpdir, "TLexer.java").exists());
+		assertTrue(new File(tmpdir, "T.tokens").exists());
+	}
+
+	@Test public void testChangedImportIsProcessed() throws Exception {
+		BaseRuntimeTest.mkdir(tmpdir);
+		writeFile(tmpdir, "S.g4",
+			"parser grammar S;\n" +
+			"a : A ;\n");
+		writeFile(tmpdir, "T.g4",
+			"grammar T;\n" +
+			"import S;\n" +
+			"s : a ;\n" +
+			"A : 'a' ;\n" +
+			"B : 'b' ;\n");
+
+		assertEquals(1, antlr("T.g4"));
+		assertEquals(0, antlr("T.g4"));
+
+		writeFile(tmpdir, "S.g4",
+			"parser grammar S;\n" +
+			"a : B ;\n");
+		assertEquals(1, antlr("T.g4"));
+		assertTrue(readFile(tmpdir, "TParser.java").contains("match(B)"));
+	}
+
+	@Test public void testChangedActionReusesAnalysis() throws Exception {
+		BaseRuntimeTest.mkdir(tmpdir);
+		writeFile(tmpdir, "T.g4",
+			"grammar T;\n" +
+			"s : A {int first;} | B ;\n" +
+			"A : 'a' ;\n" +
+			"B : 'b' ;\n");
+
+		assertEquals(1, antlr("T.g4"));
+		File analysis = new File(tmpdir, "cache/analysis");
+		int entries = analysis.list().length;
+		assertTrue(entries > 0);
+
+		writeFile(tmpdir, "T.g4",
+			"grammar T;\n" +
+			"s : A {int second;} | B ;\n" +
+			"A : 'a' ;\n" +
+			"B : 'b' ;\n");
+		assertEquals(1, antlr("T.g4"));
+		assertEquals(entries, analysis.list().length);
+		assertTrue(readFile(tmpdir, "TParser.java").contains("int second;"));
+	}
+
+	@Test public void testAnalysisWithWarningsIsNotReused() throws Exception {
+		BaseRuntimeTest.mkdir(tmpdir);
+		writeFile(tmpdir, "T.g4",
+			"grammar T;\n" +
+			"s : A {int first;} | B ;\n" +
+			"A : 'a' ;\n" +
+			"B : 'b' ;\n" +
+			"WS : ' '* -> skip ;\n");
+
+		ErrorQueue equeue = antlrWithMessages("T.g4");
+		assertEquals(1, equeue.warnings.size());
+		assertEquals(ErrorType.EPSILON_TOKEN, equeue.warnings.get(0).getErrorType());
+
+		writeFile(tmpdir, "T.g4",
+			"grammar T;\n" +
+			"s : A {int second;} | B ;\n" +
+			"A : 'a' ;\n" +
+			"B : 'b' ;\n" +
+			"WS : ' '* -> skip ;\n");
+		equeue = antlrWithMessages("T.g4");
+		assertEquals(1, equeue.warnings.size());
+		assertEquals(ErrorType.EPSILON_TOKEN, equeue.warnings.get(0).getErrorType());
+	}
+
+	/** Run the tool with a build cache; return the number of grammars it
+	 *  processed.
+	 */
+	private int antlr(String grammarFileName) {
+		CountingTool antlr = newTool(grammarFileName);
+		ErrorQueue equeue = new ErrorQueue(antlr);
+		antlr.addListener(equeue);
+		antlr.processGrammarsOnCommandLine();
+		assertEquals(0, equeue.size());
+		return antlr.processed;
+	}
+
+	/** Run the tool with a build cache; return the messages it reported. */
+	private ErrorQueue antlrWithMessages(String grammarFileName) {
+		CountingTool antlr = newTool(grammarFileName);
+		ErrorQueue equeue = new ErrorQueue(antlr);
+		antlr.addListener(equeue);
+		antlr.processGrammarsOnCommandLine();
+		assertEquals(0, equeue.errors.size());
+		return equeue;
+	}
+
+	private CountingTool newTool(String grammarFileName) {
+		return new CountingTool(new String[] {
+			"-Xcache", new File(tmpdir, "cache").toString(),
+			"-o", tmpdir,
+			"-lib", tmpdir,
+			new File(tmpdir, grammarFileName).toString()
+		});
+	}
+
+	private static String readFile(String dir, String fileName) throws IOException {
+		return new String(Files.readAllBytes(new File(dir, fileName).toPath()), "UTF-8");
+	}
+
+	private static class CountingTool extends Tool {
+		int processed;
+
+		CountingTool(String[] args) {
+			super(args);
+		}
+
+		@Override
+		public void process(Grammar g, boolean gencode) {
+			processed++;
+			super.process(g, gencode);
+		}
+	}
+}
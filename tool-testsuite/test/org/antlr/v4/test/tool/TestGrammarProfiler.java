@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.test.tool;
+
+import org.antlr.v4.gui.GrammarProfiler;
+import org.antlr.v4.gui.GrammarProfiler.DecisionProfile;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.antlr.v4.test.runtime.BaseRuntimeTest.writeFile;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestGrammarProfiler extends BaseJavaToolTest {
+	@Before
+	@Override
+	public void testSetUp() throws Exception {
+		super.testSetUp();
+		String corpus = tmpdir + File.separator + "corpus";
+		assertTrue(new File(corpus, "sub").mkdirs());
+		writeFile(corpus, "a.txt", "@ x y # x y");
+		writeFile(corpus, "b.txt", "# x @ x y z");
+		writeFile(corpus + File.separator + "sub", "c.txt", "@ a b # c # d e");
+		writeFile(corpus, "d.txt", "@ x");
+		writeFile(corpus, "ignored.bak", ")))");
+	}
+
+	@Test public void testCombinedGrammar() throws Exception {
+		writeFile(tmpdir, "T.g4",
+			"grammar T;\n" +
+			"s : ('@' a ID | '#' a)* EOF ;\n" +
+			"a : ID | ID ID ;\n" +
+			"ID : [a-z]+ ;\n" +
+			"WS : [ \\r\\n]+ -> skip ;\n");
+		GrammarProfiler profiler = profile(file("T.g4"), "s", file("corpus"), "-ext", ".txt", "-threads", "2",
+										   "-json", file("profile.json"), "-html", file("profile.html"));
+
+		checkProfile(profiler, 3);
+
+		String json = readFile(tmpdir, "profile.json");
+		assertTrue(json, json.contains("\"files\": 4,"));
+		assertTrue(json, json.contains("\"rule\": \"a\", \"line\": 3,"));
+		assertTrue(json, json.contains("\"ll1\": false, \"llk\": 0,"));
+		assertTrue(json, json.contains("d.txt\"]"));
+		String html = readFile(tmpdir, "profile.html");
+		assertTrue(html, html.contains("<td>a</td>"));
+	}
+
+	@Test public void testSeparateLexerGrammar() throws Exception {
+		writeFile(tmpdir, "L.g4",
+			"lexer grammar L;\n" +
+			"AT : '@' ;\n" +
+			"HASH : '#' ;\n" +
+			"ID : [a-z]+ ;\n" +
+			"WS : [ \\r\\n]+ -> skip ;\n");
+		writeFile(tmpdir, "P.g4",
+			"parser grammar P;\n" +
+			"options { tokenVocab=L; }\n" +
+			"s : (AT a ID | HASH a)* EOF ;\n" +
+			"a : ID | ID ID ;\n");
+		GrammarProfiler profiler = profile(file("P.g4"), "s", file("corpus"), "-lexer", file("L.g4"), "-ext", ".txt");
+
+		checkProfile(profiler, 4);
+		assertFalse(new File(tmpdir, "L.tokens").exists());
+	}
+
+	@Test public void testUnreadableFile() throws Exception {
+		writeFile(tmpdir, "T.g4",
+			"grammar T;\n" +
+			"s : ('@' a ID | '#' a)* EOF ;\n" +
+			"a : ID | ID ID ;\n" +
+			"ID : [a-z]+ ;\n" +
+			"WS : [ \\r\\n]+ -> skip ;\n");
+		Files.createSymbolicLink(new File(file("corpus"), "e.txt").toPath(), new File(file("missing.txt")).toPath());
+		GrammarProfiler profiler = profile(file("T.g4"), "s", file("corpus"), "-ext", ".txt", "-json", file("profile.json"));
+
+		checkProfile(profiler, 3);
+		String json = readFile(tmpdir, "profile.json");
+		assertTrue(json, json.contains("\"files\": 4,"));
+		assertTrue(json, json.contains("d.txt\", "));
+		assertTrue(json, json.contains("e.txt\"]"));
+	}
+
+	@Test public void testLLkDecision() throws Exception {
+		writeFile(tmpdir, "T.g4",
+			"grammar T;\n" +
+			"s : (a ';')* EOF ;\n" +
+			"a : ID | ID '(' ')' ;\n" +
+			"ID : [a-z]+ ;\n" +
+			"WS : [ \\r\\n]+ -> skip ;\n");
+		writeFile(file("corpus"), "a.txt", "x; y(); z;");
+		GrammarProfiler profiler = profile(file("T.g4"), "s", file("corpus"), "-ext", ".txt", "-html", file("profile.html"));
+
+		DecisionProfile a = null;
+		for (DecisionProfile p : profiler.getDecisionProfiles()) {
+			if ( p.ruleName.equals("a") ) a = p;
+		}
+		assertTrue(a!=null);
+		assertFalse(a.ll1);
+		assertEquals(2, a.llk);
+		String html = readFile(tmpdir, "profile.html");
+		assertTrue(html, html.contains("<td>k=2</td>"));
+	}
+
+	@Test public void testUnknownStartRule() throws Exception {
+		writeFile(tmpdir, "T.g4",
+			"grammar T;\n" +
+			"s : ID* EOF ;\n" +
+			"ID : [a-z]+ ;\n");
+		GrammarProfiler profiler = new GrammarProfiler(new String[] {file("T.g4"), "t", file("corpus")});
+		assertFalse(profiler.process());
+	}
+
+	/** Rule {@code a} can only be predicted by looking past its end, and
+	 *  the token after it depends on where it's called from, which takes
+	 *  full LL prediction.
+	 */
+	private static void checkProfile(GrammarProfiler profiler, int lineOfA) {
+		List<DecisionProfile> decisions = profiler.getDecisionProfiles();
+		DecisionProfile a = null;
+		for (DecisionProfile p : decisions) {
+			assertTrue(p.invocations>0);
+			if ( p.ruleName.equals("a") ) a = p;
+		}
+		assertTrue(decisions.toString(), a!=null);
+		assertEquals(lineOfA, a.line);
+		assertFalse(a.ll1);
+		assertTrue(a.LL_Fallback>0);
+		assertTrue(a.ambiguities + a.contextSensitivities>0);
+		for (int i = 1; i < decisions.size(); i++) {
+			assertTrue(decisions.get(i - 1).timeInPrediction>=decisions.get(i).timeInPrediction);
+		}
+	}
+
+	private GrammarProfiler profile(String... args) throws Exception {
+		GrammarProfiler profiler = new GrammarProfiler(args);
+		assertTrue(profiler.process());
+		profiler.writeReports();
+		return profiler;
+	}
+
+	private String file(String name) {
+		return tmpdir + File.separator + name;
+	}
+
+	private static String readFile(String dir, String fileName) throws IOException {
+		return new String(Files.readAllBytes(new File(dir, fileName).toPath()), "UTF-8");
+	}
+}
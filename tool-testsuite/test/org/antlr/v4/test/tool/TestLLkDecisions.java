@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.test.tool;
+
+import org.antlr.v4.Tool;
+import org.antlr.v4.analysis.LookaheadTree;
+import org.antlr.v4.test.runtime.ErrorQueue;
+import org.antlr.v4.tool.Grammar;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.antlr.v4.test.runtime.BaseRuntimeTest.writeFile;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestLLkDecisions extends BaseJavaToolTest {
+	private static final String STAT_GRAMMAR =
+		"grammar T;\n" +
+		"s : stat+ EOF ;\n" +
+		"stat : ID '=' INT ';' {System.out.println(\"assign\");}\n" +
+		"     | ID '(' ')' ';' {System.out.println(\"call\");}\n" +
+		"     | ID ';' {System.out.println(\"expr\");}\n" +
+		"     ;\n" +
+		"ID : [a-z]+ ;\n" +
+		"INT : [0-9]+ ;\n" +
+		"WS : [ \\t\\r\\n]+ -> skip ;\n";
+
+	@Before
+	@Override
+	public void testSetUp() throws Exception {
+		super.testSetUp();
+	}
+
+	@Test public void testLL2() throws Exception {
+		LookaheadTree tree = getLookahead(
+			"parser grammar T;\n" +
+			"tokens { A, B, C }\n" +
+			"s : A B | A C | B ;\n");
+		assertEquals("{1:{2:1,3:2},2:3}", tree.toString());
+		assertEquals(2, tree.getMaxDepth());
+	}
+
+	@Test public void testFollowDecidesAlt() throws Exception {
+		LookaheadTree tree = getLookahead(
+			"parser grammar T;\n" +
+			"tokens { A, B, C }\n" +
+			"s : A | A B ;\n" +
+			"t : s C ;\n");
+		assertEquals("{1:{2:2,3:1}}", tree.toString());
+	}
+
+	@Test public void testBeyondMaxDepth() throws Exception {
+		assertNull(getLookahead(
+			"parser grammar T;\n" +
+			"tokens { A, B, C }\n" +
+			"s : A A A B | A A A C ;\n"));
+	}
+
+	@Test public void testAmbiguous() throws Exception {
+		assertNull(getLookahead(
+			"parser grammar T;\n" +
+			"tokens { A, B }\n" +
+			"s : A B | A B ;\n"));
+	}
+
+	@Test public void testPredicateAtLeftEdge() throws Exception {
+		assertNull(getLookahead(
+			"parser grammar T;\n" +
+			"tokens { A, B, C }\n" +
+			"s : {true}? A B | A C ;\n"));
+	}
+
+	@Test public void testGeneratedSwitch() throws Exception {
+		assertTrue(rawGenerateAndBuildRecognizer("T.g4", STAT_GRAMMAR, "TParser", "TLexer", "-Xllk"));
+		assertTrue(readFile(tmpdir, "TParser.java").contains("switch (_input.LA(2))"));
+		writeFile(tmpdir, "input", "x = 1; f(); y;");
+		String found = rawExecRecognizer("TParser", "TLexer", "s", false, false);
+		assertEquals("assign\ncall\nexpr\n", found);
+		assertNull(stderrDuringParse);
+	}
+
+	@Test public void testNoSwitchByDefault() throws Exception {
+		String found = execParser("T.g4", STAT_GRAMMAR, "TParser", "TLexer", null, null, "s",
+								  "x = 1; f(); y;", false);
+		assertEquals("assign\ncall\nexpr\n", found);
+		assertNull(stderrDuringParse);
+		assertFalse(readFile(tmpdir, "TParser.java").contains("switch (_input.LA(2))"));
+
+		assertTrue(rawGenerateAndBuildRecognizer("T.g4", STAT_GRAMMAR, "TParser", "TLexer", "-Xllk", "-Xforce-atn"));
+		assertFalse(readFile(tmpdir, "TParser.java").contains("switch (_input.LA(2))"));
+	}
+
+	@Test public void testSyntaxErrorLikeATNSimulator() throws Exception {
+		assertTrue(rawGenerateAndBuildRecognizer("T.g4", STAT_GRAMMAR, "TParser", "TLexer"));
+		assertFalse(readFile(tmpdir, "TParser.java").contains("switch (_input.LA(2))"));
+		writeFile(tmpdir, "input", "x = 1; y 2;");
+		rawExecRecognizer("TParser", "TLexer", "s", false, false);
+		String expecting = stderrDuringParse;
+		assertTrue(expecting, expecting.contains("no viable alternative"));
+
+		assertTrue(rawGenerateAndBuildRecognizer("T.g4", STAT_GRAMMAR, "TParser", "TLexer", "-Xllk"));
+		assertTrue(readFile(tmpdir, "TParser.java").contains("switch (_input.LA(2))"));
+		rawExecRecognizer("TParser", "TLexer", "s", false, false);
+		assertEquals(expecting, stderrDuringParse);
+	}
+
+	@Test public void testLookaheadNotComputedByDefault() throws Exception {
+		Grammar g = process(STAT_GRAMMAR, new Tool());
+		assertNull(g.decisionLLk);
+
+		Tool tool = new Tool();
+		tool.perf_lint = true;
+		g = process(STAT_GRAMMAR, tool);
+		assertEquals(2, g.decisionLLk.get(1).getMaxDepth());
+	}
+
+	/** Get the fixed lookahead of the first decision in the grammar. */
+	private static LookaheadTree getLookahead(String grammar) throws Exception {
+		Tool tool = new Tool();
+		tool.llk = true;
+		return process(grammar, tool).decisionLLk.get(0);
+	}
+
+	private static Grammar process(String grammar, Tool tool) throws Exception {
+		ErrorQueue equeue = new ErrorQueue(tool);
+		tool.addListener(equeue);
+		Grammar g = tool.createGrammar(tool.parseGrammarFromString(grammar));
+		g.fileName = "<string>";
+		tool.process(g, false);
+		assertEquals(equeue.toString(true), 0, equeue.errors.size());
+		return g;
+	}
+
+	private static String readFile(String dir, String fileName) throws IOException {
+		return new String(Files.readAllBytes(new File(dir, fileName).toPath()), "UTF-8");
+	}
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.test.tool;
+
+import org.antlr.v4.automata.LexerDFACompiler;
+import org.antlr.v4.runtime.atn.CompiledLexerDFA;
+import org.antlr.v4.test.runtime.ErrorQueue;
+import org.antlr.v4.tool.ErrorType;
+import org.antlr.v4.tool.LexerGrammar;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.antlr.v4.test.runtime.BaseRuntimeTest.antlrOnString;
+import static org.antlr.v4.test.runtime.BaseRuntimeTest.writeFile;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestLexerDFA extends BaseJavaToolTest {
+	private static final String GRAMMAR =
+		"lexer grammar L;\n" +
+		"IF : 'if' ;\n" +
+		"ID : [\\p{Letter}_] [\\p{Letter}_0-9]* ;\n" +
+		"INT : [0-9]+ ('.' [0-9]+)? ;\n" +
+		"STRING : '\"' (~[\"\\\\] | '\\\\' .)* '\"' {System.out.println(\"string \"+getText());} ;\n" +
+		"COMMENT : '/*' .*? '*/' -> channel(HIDDEN) ;\n" +
+		"LT : '<' -> pushMode(TAG) ;\n" +
+		"WS : [ \\t\\r\\n]+ -> skip ;\n" +
+		"mode TAG;\n" +
+		"NAME : [a-z]+ ;\n" +
+		"GT : '>' -> popMode ;\n" +
+		"TAG_WS : ' ' -> more ;\n";
+
+	private static final String INPUT =
+		"if iff x1 \u00fcn\u00efcode 3.14 42 \"a \\\"b\\\"\" /* c * d */\n" +
+		"<tag  name> if";
+
+	@Before
+	@Override
+	public void testSetUp() throws Exception {
+		super.testSetUp();
+	}
+
+	@Test public void testSameTokensAsATN() throws Exception {
+		String expecting = execLexer(GRAMMAR, INPUT);
+		assertFalse(readFile(tmpdir, "L.java").contains("LexerDFASimulator"));
+
+		String found = execLexer(GRAMMAR, INPUT, "-Xlexer-dfa");
+		assertTrue(readFile(tmpdir, "L.java").contains("LexerDFASimulator"));
+		assertTrue(new File(tmpdir, "L.dfa").exists());
+		assertEquals(expecting, found);
+		assertTrue(found, found.contains("string \"a \\\"b\\\"\""));
+	}
+
+	@Test public void testSameErrorsAsATN() throws Exception {
+		String input = "x # \"abc";
+		execLexer(GRAMMAR, input);
+		String expecting = stderrDuringParse;
+		assertNotNull(expecting);
+
+		execLexer(GRAMMAR, input, "-Xlexer-dfa");
+		assertEquals(expecting, stderrDuringParse);
+	}
+
+	@Test public void testPredicateIsNotCompiled() throws Exception {
+		String grammar =
+			"lexer grammar L;\n" +
+			"ID : [a-z]+ {getText().length() < 8}? ;\n" +
+			"WS : ' ' -> skip ;\n";
+		ErrorQueue equeue = antlrOnString(tmpdir, "Java", "L.g4", grammar, false, "-Xlexer-dfa");
+		assertEquals(0, equeue.errors.size());
+		assertEquals(1, equeue.warnings.size());
+		assertEquals(ErrorType.LEXER_DFA_NOT_COMPILED, equeue.warnings.get(0).getErrorType());
+		assertEquals("L.g4", new File(equeue.warnings.get(0).fileName).getName());
+		assertEquals(1, equeue.warnings.get(0).line);
+		assertFalse(new File(tmpdir, "L.dfa").exists());
+		assertFalse(readFile(tmpdir, "L.java").contains("LexerDFASimulator"));
+	}
+
+	@Test public void testStatesWithoutDenseEdges() throws Exception {
+		StringBuilder grammar = new StringBuilder("lexer grammar L;\n");
+		for (int i = 0; i < 2500; i++) {
+			grammar.append("K").append(i).append(" : 'k").append(i).append("' ;\n");
+		}
+		grammar.append("ID : [a-z0-9]+ ;\n");
+		grammar.append("WS : ' ' -> skip ;\n");
+
+		CompiledLexerDFA dfa = new LexerDFACompiler(new LexerGrammar(grammar.toString()).atn).compile();
+		assertTrue(dfa.getNumberOfStates() > CompiledLexerDFA.MAX_DENSE_STATES);
+
+		String input = "k1 k2499 k2500 k123x k77 x k9 k99 k999 k1000";
+		String expecting = execLexer(grammar.toString(), input);
+		assertEquals(expecting, execLexer(grammar.toString(), input, "-Xlexer-dfa"));
+		assertTrue(readFile(tmpdir, "L.java").contains("LexerDFASimulator"));
+	}
+
+	@Test public void testTruncatedDFA() throws Exception {
+		LexerGrammar lg = new LexerGrammar(GRAMMAR);
+		CompiledLexerDFA dfa = new LexerDFACompiler(lg.atn).compile();
+		byte[] data = dfa.toBytes();
+		for (int n = 0; n < data.length; n++) {
+			try {
+				CompiledLexerDFA.deserialize(Arrays.copyOf(data, n), lg.atn);
+				fail("deserialized "+n+" of "+data.length+" bytes");
+			}
+			catch (UnsupportedOperationException e) {
+				assertTrue(e.getCause() instanceof InvalidClassException);
+			}
+		}
+
+		assertEquals(dfa.getNumberOfStates(), CompiledLexerDFA.deserialize(data, lg.atn).getNumberOfStates());
+	}
+
+	private String execLexer(String grammar, String input, String... extraOptions) {
+		assertTrue(rawGenerateAndBuildRecognizer("L.g4", grammar, null, "L", extraOptions));
+		writeFile(tmpdir, "input", input);
+		writeLexerTestFile("L", false);
+		compile("Test.java");
+		return execClass("Test");
+	}
+
+	private static String readFile(String dir, String fileName) throws IOException {
+		return new String(Files.readAllBytes(new File(dir, fileName).toPath()), "UTF-8");
+	}
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.test.tool;
+
+import org.antlr.v4.Tool;
+import org.antlr.v4.test.runtime.BaseRuntimeTest;
+import org.antlr.v4.test.runtime.ErrorQueue;
+import org.antlr.v4.tool.ErrorType;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.antlr.v4.test.runtime.BaseRuntimeTest.writeFile;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestParallelProcessing extends BaseJavaToolTest {
+	@Before
+	@Override
+	public void testSetUp() throws Exception {
+		super.testSetUp();
+	}
+
+	@Test public void testSameMessagesAsSequential() throws Exception {
+		BaseRuntimeTest.mkdir(tmpdir);
+		writeFile(tmpdir, "S.g4",
+			"parser grammar S;\n" +
+			"a : 'a' UNDEF_S ;\n");
+		writeFile(tmpdir, "X.g4",
+			"grammar X;\n" +
+			"import S;\n" +
+			"x : a 'x' UNDEF_X ;\n");
+		writeFile(tmpdir, "Y.g4",
+			"grammar Y;\n" +
+			"import S;\n" +
+			"y : a 'y' UNDEF_Y ;\n");
+		writeFile(tmpdir, "MLexer.g4",
+			"lexer grammar MLexer;\n" +
+			"A : 'a' ;\n" +
+			"B : 'b' ;\n");
+		writeFile(tmpdir, "MParser.g4",
+			"parser grammar MParser;\n" +
+			"options {tokenVocab=MLexer;}\n" +
+			"s : A B UNDEF_M ;\n");
+		String[] grammars = {"X.g4", "MParser.g4", "Y.g4", "MLexer.g4"};
+
+		String expected = antlr(grammars);
+		assertTrue(expected.contains("UNDEF_X"));
+		assertTrue(expected.contains("UNDEF_M"));
+		for (int i = 0; i < 5; i++) {
+			assertEquals(expected, antlr(grammars, "-Xparallel"));
+		}
+
+		assertTrue(new File(tmpdir, "XParser.java").exists());
+		assertTrue(new File(tmpdir, "YParser.java").exists());
+		assertTrue(new File(tmpdir, "MLexer.java").exists());
+		assertTrue(new File(tmpdir, "MParser.java").exists());
+	}
+
+	@Test public void testErrorOnlyStopsDependentGrammars() throws Exception {
+		BaseRuntimeTest.mkdir(tmpdir);
+		writeFile(tmpdir, "X.g4",
+			"grammar X;\n" +
+			"x : 'x' ;\n");
+		writeFile(tmpdir, "MLexer.g4",
+			"lexer grammar MLexer;\n" +
+			"A : 'a' UNDEF ;\n");
+		writeFile(tmpdir, "MParser.g4",
+			"parser grammar MParser;\n" +
+			"options {tokenVocab=MLexer;}\n" +
+			"s : A ;\n");
+
+		String messages = antlr(new String[] {"MParser.g4", "X.g4", "MLexer.g4"}, "-Xparallel");
+		assertEquals("error(" + ErrorType.UNDEFINED_RULE_REF.code + "): MLexer.g4:2:8: reference to undefined rule: UNDEF\n", messages);
+		assertTrue(new File(tmpdir, "XParser.java").exists());
+		assertFalse(new File(tmpdir, "MParser.java").exists());
+	}
+
+	private String antlr(String[] grammars, String... extraOptions) {
+		List<String> options = new ArrayList<String>(Arrays.asList(extraOptions));
+		options.addAll(Arrays.asList("-o", tmpdir, "-lib", tmpdir));
+		for (String grammar : grammars) {
+			options.add(new File(tmpdir, grammar).toString());
+		}
+
+		Tool antlr = new Tool(options.toArray(new String[0]));
+		ErrorQueue equeue = new ErrorQueue(antlr);
+		antlr.addListener(equeue);
+		antlr.processGrammarsOnCommandLine();
+		return equeue.toString(true).replace(tmpdir + File.separator, "");
+	}
+}
@@ -18,16 +18,19 @@ import org.antlr.v4.runtime.tree.ParseTree;
 import org.antlr.v4.runtime.tree.pattern.ParseTreeMatch;
 import org.antlr.v4.runtime.tree.pattern.ParseTreePattern;
 import org.antlr.v4.runtime.tree.pattern.ParseTreePatternMatcher;
+import org.antlr.v4.runtime.tree.pattern.ParseTreePatternSet;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.lang.reflect.Constructor;
+import java.util.Arrays;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 public class TestParseTreeMatcher extends BaseJavaToolTest {
@@ -417,6 +420,45 @@ public class TestParseTreeMatcher extends BaseJavaToolTest {
 		checkPatternMatch(grammar, "expr", input, pattern, "X6");
 	}
 
+	@Test public void testPatternSet() throws Exception {
+		String grammar =
+			"grammar X10;\n" +
+			"s   : (expr ';')*\n" +
+			"    ;\n" +
+			"expr: expr '.' ID\n" +
+			"    | expr '*' expr\n" +
+			"    | expr '=' expr\n" +
+			"    | ID\n" +
+			"    | INT\n" +
+			"    ;\n" +
+			"ID : [a-z]+ ;\n" +
+			"INT : [0-9]+ ;\n" +
+			"WS : [ \\r\\n\\t]+ -> skip ;\n";
+		boolean ok =
+			rawGenerateAndBuildRecognizer("X10.g4", grammar, "X10Parser", "X10Lexer", false);
+		assertTrue(ok);
+
+		ParseTree tree = execParser("s", "x = 3*4; y.z = 5;", "X10Parser", "X10Lexer");
+		ParseTreePatternMatcher m = getPatternMatcher("X10");
+		int expr = m.getParser().getRuleIndex("expr");
+		ParseTreePattern assign = m.compile("<ID> = <expr>", expr);
+		ParseTreePattern mult = m.compile("<expr> * <expr>", expr);
+		ParseTreePattern member = m.compile("<expr> . <ID>", expr);
+		assertSame(assign, m.compile("<ID> = <expr>", expr));
+
+		ParseTreePatternSet patterns = new ParseTreePatternSet(Arrays.asList(assign, mult, member));
+		List<ParseTreeMatch> matches = patterns.findAll(tree);
+		assertEquals(3, matches.size());
+		assertSame(assign, matches.get(0).getPattern());
+		assertEquals("x=3*4", matches.get(0).getTree().getText());
+		assertEquals("x", matches.get(0).get("ID").getText());
+		assertEquals("3*4", matches.get(0).get("expr").getText());
+		assertSame(mult, matches.get(1).getPattern());
+		assertEquals("3*4", matches.get(1).getTree().getText());
+		assertSame(member, matches.get(2).getPattern());
+		assertEquals("y.z", matches.get(2).getTree().getText());
+	}
+
 	public ParseTreeMatch checkPatternMatch(String grammar, String startRule,
 											String input, String pattern,
 											String grammarName)
@@ -11,10 +11,16 @@ import org.antlr.v4.runtime.CommonTokenStream;
 import org.antlr.v4.runtime.LexerInterpreter;
 import org.antlr.v4.runtime.ParserInterpreter;
 import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.RuleProfile;
+import org.antlr.v4.runtime.RuleProfiler;
+import org.antlr.v4.runtime.atn.ATNMetrics;
 import org.antlr.v4.runtime.atn.DecisionInfo;
+import org.antlr.v4.runtime.atn.DecisionMetrics;
+import org.antlr.v4.runtime.misc.AllocationCounter;
 import org.antlr.v4.tool.Grammar;
 import org.antlr.v4.tool.LexerGrammar;
 import org.antlr.v4.tool.Rule;
+import org.junit.Assume;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
@@ -22,6 +28,7 @@ import org.junit.Test;
 import java.util.Arrays;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 @SuppressWarnings("unused")
 public class TestParserProfiler extends BaseJavaToolTest {
@@ -226,6 +233,85 @@ public class TestParserProfiler extends BaseJavaToolTest {
 		assertEquals(null, stderrDuringParse);
 	}
 
+	@Test public void testMetrics() throws Exception {
+		Grammar g = new Grammar(
+				"parser grammar T;\n" +
+				"s : ID ';'{}\n" +
+				"  | ID '.'\n" +
+				"  ;\n",
+				lg);
+
+		LexerInterpreter lexEngine = lg.createLexerInterpreter(null);
+		ParserInterpreter parser = g.createParserInterpreter(null);
+		ATNMetrics metrics = new ATNMetrics("T", parser.getInterpreter().decisionToDFA);
+		parser.getInterpreter().setMetrics(metrics);
+		for (String s : new String[] {"xyz;", "abc;", "abc."}) {
+			lexEngine.setInputStream(new ANTLRInputStream(s));
+			parser.setInputStream(new CommonTokenStream(lexEngine));
+			parser.parse(g.rules.get("s").index);
+		}
+
+		DecisionMetrics d = metrics.getSnapshot(0);
+		assertEquals(3, d.getPredictions());
+		assertEquals(1, d.getDFAHits());
+		assertEquals(2, d.getATNFallbacks());
+		assertEquals(0, d.getFullContextPredictions());
+		assertEquals(2, d.getMaxLookahead());
+		assertEquals(d.getPredictions(), metrics.getTotal().getPredictions());
+	}
+
+	@Test public void testRuleProfiler() throws Exception {
+		Grammar g = new Grammar(
+				"parser grammar T;\n" +
+				"s : e ';' ;\n" +
+				"e : e '*' e\n" +
+				"  | e '+' e\n" +
+				"  | INT\n" +
+				"  ;\n",
+				lg);
+
+		LexerInterpreter lexEngine = lg.createLexerInterpreter(new ANTLRInputStream("1+2*3;"));
+		ParserInterpreter parser = g.createParserInterpreter(new CommonTokenStream(lexEngine));
+		RuleProfiler profiler = new RuleProfiler(parser.getRuleNames());
+		parser.setRuleProfiler(profiler);
+		parser.parse(g.rules.get("s").index);
+
+		RuleProfile s = profiler.getProfile(g.rules.get("s").index);
+		RuleProfile e = profiler.getProfile(g.rules.get("e").index);
+		assertEquals(1, s.getInvocations());
+		assertEquals(6, s.getInclusiveTokens());
+		assertEquals(1, s.getExclusiveTokens());
+		// a left-recursive invocation counts once
+		assertEquals(3, e.getInvocations());
+		assertEquals(5, e.getInclusiveTokens());
+		assertEquals(s.getInclusiveNanos(), s.getExclusiveNanos() + e.getInclusiveNanos());
+
+		StringBuilder stacks = new StringBuilder();
+		profiler.writeCollapsedStacks(stacks);
+		assertTrue(stacks.toString().contains("s;e;e;e "));
+	}
+
+	@Test public void testRuleProfilerAllocations() throws Exception {
+		Assume.assumeTrue(AllocationCounter.isSupported());
+		Grammar g = new Grammar(
+				"parser grammar T;\n" +
+				"s : e ';' ;\n" +
+				"e : e '+' e | INT ;\n",
+				lg);
+
+		LexerInterpreter lexEngine = lg.createLexerInterpreter(new ANTLRInputStream("1+2+3;"));
+		ParserInterpreter parser = g.createParserInterpreter(new CommonTokenStream(lexEngine));
+		RuleProfiler profiler = new RuleProfiler(parser.getRuleNames(), true);
+		assertTrue(profiler.isTrackingAllocations());
+		parser.setRuleProfiler(profiler);
+		parser.parse(g.rules.get("s").index);
+
+		RuleProfile s = profiler.getProfile(g.rules.get("s").index);
+		RuleProfile e = profiler.getProfile(g.rules.get("e").index);
+		assertTrue(e.getInclusiveAllocatedBytes() > 0);
+		assertTrue(s.getInclusiveAllocatedBytes() >= e.getInclusiveAllocatedBytes());
+	}
+
 	public DecisionInfo[] interpAndGetDecisionInfo(
 			LexerGrammar lg, Grammar g,
 			String startRule, String... input)
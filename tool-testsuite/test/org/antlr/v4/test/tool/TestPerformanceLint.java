@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.test.tool;
+
+import org.antlr.v4.test.runtime.ErrorQueue;
+import org.antlr.v4.tool.ANTLRMessage;
+import org.antlr.v4.tool.ErrorType;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.antlr.v4.test.runtime.BaseRuntimeTest.antlrOnString;
+import static org.junit.Assert.assertEquals;
+
+public class TestPerformanceLint extends BaseJavaToolTest {
+	@Before
+	@Override
+	public void testSetUp() throws Exception {
+		super.testSetUp();
+	}
+
+	@Test public void testDeepLookahead() throws Exception {
+		ANTLRMessage msg = lintOne("T.g4",
+			"parser grammar T;\n" +
+			"tokens { A, B, C }\n" +
+			"s : A A A A B\n" +
+			"  | A A A A C\n" +
+			"  ;\n");
+		assertEquals(ErrorType.DEEP_LOOKAHEAD_DECISION, msg.getErrorType());
+		assertEquals("[s, 0, 5, 1,2]", Arrays.toString(msg.getArgs()));
+	}
+
+	@Test public void testFullContext() throws Exception {
+		ANTLRMessage msg = lintOne("T.g4",
+			"parser grammar T;\n" +
+			"tokens { ID, X, Y }\n" +
+			"s : X a ID | Y a ;\n" +
+			"a : ID | ID ID ;\n");
+		assertEquals(ErrorType.FULL_CONTEXT_DECISION, msg.getErrorType());
+		assertEquals("[a, 1, 1,2]", Arrays.toString(msg.getArgs()));
+	}
+
+	@Test public void testManyOperatorAlts() throws Exception {
+		StringBuilder grammar = new StringBuilder("grammar T;\ne : ");
+		for (char op : "+-*/%&|^<>=".toCharArray()) {
+			grammar.append("e '").append(op).append("' e\n  | ");
+		}
+		grammar.append("INT\n  ;\nINT : [0-9]+ ;\n");
+		ANTLRMessage msg = lintOne("T.g4", grammar.toString());
+		assertEquals(ErrorType.MANY_OPERATOR_ALTS, msg.getErrorType());
+		assertEquals("[e, 11]", Arrays.toString(msg.getArgs()));
+	}
+
+	@Test public void testPredicatedDecision() throws Exception {
+		ANTLRMessage msg = lintOne("T.g4",
+			"parser grammar T;\n" +
+			"tokens { A }\n" +
+			"s : {true}? A | A ;\n");
+		assertEquals(ErrorType.PREDICATED_DECISION, msg.getErrorType());
+		assertEquals("[s, 0, 1]", Arrays.toString(msg.getArgs()));
+	}
+
+	@Test public void testLexerPredicate() throws Exception {
+		ANTLRMessage msg = lintOne("L.g4",
+			"lexer grammar L;\n" +
+			"ID : [a-z]+ {true}? ;\n" +
+			"WS : ' ' -> skip ;\n");
+		assertEquals(ErrorType.LEXER_PREDICATE, msg.getErrorType());
+		assertEquals("[ID]", Arrays.toString(msg.getArgs()));
+	}
+
+	@Test public void testOperatorAltsAreNotPredicatedDecisions() throws Exception {
+		String grammar =
+			"grammar T;\n" +
+			"s : e EOF ;\n" +
+			"e : e '*' e\n" +
+			"  | e '+' e\n" +
+			"  | e '?' e ':' e\n" +
+			"  | e {System.out.println();} '!'\n" +
+			"  | '-' e\n" +
+			"  | '(' e (',' e)* ')'\n" +
+			"  | INT\n" +
+			"  ;\n" +
+			"INT : [0-9]+ ;\n";
+		ErrorQueue equeue = antlrOnString(tmpdir, "Java", "T.g4", grammar, false, "-Xperf-lint");
+		assertEquals(equeue.toString(true), 0, equeue.size());
+	}
+
+	@Test public void testFastDecisionsAreNotReported() throws Exception {
+		String grammar =
+			"parser grammar T;\n" +
+			"tokens { A, B, C }\n" +
+			"s : A B | A C | B ;\n" +
+			"t : (A | B)* C ;\n";
+		ErrorQueue equeue = antlrOnString(tmpdir, "Java", "T.g4", grammar, false, "-Xperf-lint");
+		assertEquals(equeue.toString(true), 0, equeue.size());
+	}
+
+	@Test public void testOnlyWithOption() throws Exception {
+		String grammar =
+			"parser grammar T;\n" +
+			"tokens { A }\n" +
+			"s : {true}? A | A ;\n";
+		ErrorQueue equeue = antlrOnString(tmpdir, "Java", "T.g4", grammar, false);
+		assertEquals(equeue.toString(true), 0, equeue.size());
+	}
+
+	private ANTLRMessage lintOne(String fileName, String grammar) {
+		ErrorQueue equeue = antlrOnString(tmpdir, "Java", fileName, grammar, false, "-Xperf-lint");
+		assertEquals(equeue.toString(true), 0, equeue.errors.size());
+		assertEquals(equeue.toString(true), 1, equeue.warnings.size());
+		return equeue.warnings.get(0);
+	}
+}
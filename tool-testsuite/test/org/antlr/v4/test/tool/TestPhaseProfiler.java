@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.test.tool;
+
+import org.antlr.v4.Tool;
+import org.antlr.v4.tool.PhaseProfiler;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.antlr.v4.test.runtime.BaseRuntimeTest.writeFile;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestPhaseProfiler extends BaseJavaToolTest {
+	@Before
+	@Override
+	public void testSetUp() throws Exception {
+		super.testSetUp();
+	}
+
+	@Test public void testPhasesOfCombinedGrammar() throws Exception {
+		new File(tmpdir).mkdirs();
+		writeFile(tmpdir, "T.g4",
+			"grammar T;\n" +
+			"s : e EOF ;\n" +
+			"e : e '*' e | e '+' e | INT ;\n" +
+			"INT : [0-9]+ ;\n" +
+			"WS : [ \\r\\n]+ -> skip ;\n");
+		Tool tool = new Tool(new String[] {"-o", tmpdir, "-Xphase-times", tmpdir+"/T.g4"});
+		assertNotNull(tool.phaseProfiler);
+		tool.processGrammarsOnCommandLine();
+		assertEquals(0, tool.getNumErrors());
+
+		List<String> names = new ArrayList<String>();
+		for (PhaseProfiler.Phase phase : tool.phaseProfiler.getPhases()) {
+			names.add(phase.name);
+			assertTrue(phase.name, phase.count>0);
+			assertTrue(phase.name, phase.nanos>=phase.selfNanos);
+		}
+		String[] expected = {
+			"parse", "imports", "transform", "extract-lexer",
+			"semantics", "semantics/left-recursion",
+			"atn", "atn/optimize",
+			"interpreter-data", "interpreter-data/serialize-atn",
+			"analysis",
+			"codegen", "codegen/serialize-atn", "codegen/templates", "codegen/render"
+		};
+		for (String name : expected) {
+			assertTrue(names.toString(), names.contains(name));
+		}
+		// nested phases follow the phase they are nested in
+		assertEquals(names.indexOf("semantics")+1, names.indexOf("semantics/left-recursion"));
+
+		// once for the lexer and once for the parser
+		assertEquals(2, getPhase(tool.phaseProfiler, "semantics").count);
+
+		String table = tool.phaseProfiler.toString();
+		assertTrue(table, table.contains("  left-recursion"));
+	}
+
+	@Test public void testNestedTimes() throws Exception {
+		PhaseProfiler profiler = new PhaseProfiler();
+		profiler.start("a");
+		profiler.start("b");
+		Thread.sleep(5);
+		profiler.stop();
+		profiler.start("b");
+		profiler.stop();
+		profiler.stop();
+		profiler.stop(); // ignored
+
+		PhaseProfiler.Phase a = getPhase(profiler, "a");
+		PhaseProfiler.Phase b = getPhase(profiler, "a/b");
+		assertEquals(1, a.count);
+		assertEquals(2, b.count);
+		assertEquals(b.nanos, b.selfNanos);
+		assertEquals(a.nanos - b.nanos, a.selfNanos);
+		assertTrue(b.nanos>=5000000);
+
+		profiler.reset();
+		assertTrue(profiler.getPhases().isEmpty());
+	}
+
+	@Test public void testNoProfilerByDefault() throws Exception {
+		assertNull(new Tool().phaseProfiler);
+	}
+
+	private static PhaseProfiler.Phase getPhase(PhaseProfiler profiler, String name) {
+		for (PhaseProfiler.Phase phase : profiler.getPhases()) {
+			if ( phase.name.equals(name) ) return phase;
+		}
+		throw new AssertionError("no phase "+name);
+	}
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.test.tool;
+
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ListTokenSource;
+import org.antlr.v4.runtime.Parser;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenStream;
+import org.antlr.v4.test.runtime.ErrorQueue;
+import org.antlr.v4.tool.ANTLRMessage;
+import org.antlr.v4.tool.ErrorType;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.antlr.v4.test.runtime.BaseRuntimeTest.antlrOnString;
+import static org.antlr.v4.test.runtime.BaseRuntimeTest.writeFile;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/** Tests the options that change how generated recognizers load their ATN. */
+public class TestSerializedATNOptions extends BaseJavaToolTest {
+	private static final String GRAMMAR =
+		"grammar T;\n" +
+		"s : e (';' e)* EOF {System.out.println($ctx.toStringTree(this));} ;\n" +
+		"e : e '*' e\n" +
+		"  | e '+' e\n" +
+		"  | '(' e ')'\n" +
+		"  | ID\n" +
+		"  | INT\n" +
+		"  ;\n" +
+		"ID : [a-z]+ ;\n" +
+		"INT : [0-9]+ ;\n" +
+		"WS : [ \\t\\r\\n]+ -> skip ;\n";
+
+	private static final String INPUT = "a + 2 * (b + 3); x * y + z";
+
+	@Before
+	@Override
+	public void testSetUp() throws Exception {
+		super.testSetUp();
+	}
+
+	@Test public void testBinaryATN() throws Exception {
+		assertTrue(rawGenerateAndBuildRecognizer("T.g4", GRAMMAR, "TParser", "TLexer"));
+		writeFile(tmpdir, "input", INPUT);
+		String expecting = rawExecRecognizer("TParser", "TLexer", "s", false, false);
+		assertEquals("(s (e (e a) + (e (e 2) * (e ( (e (e b) + (e 3)) )))) ; (e (e (e x) * (e y)) + (e z)) <EOF>)\n", expecting);
+		assertNull(stderrDuringParse);
+
+		assertTrue(rawGenerateAndBuildRecognizer("T.g4", GRAMMAR, "TParser", "TLexer", "-Xbinary-atn"));
+		assertTrue(new File(tmpdir, "TParser.atn").isFile());
+		assertTrue(new File(tmpdir, "TLexer.atn").isFile());
+		assertFalse(readFile(tmpdir, "TParser.java").contains("_serializedATN ="));
+		assertFalse(readFile(tmpdir, "TLexer.java").contains("_serializedATN ="));
+		assertEquals(expecting, rawExecRecognizer("TParser", "TLexer", "s", false, false));
+		assertNull(stderrDuringParse);
+	}
+
+	@Test public void testSharedATN() throws Exception {
+		assertTrue(rawGenerateAndBuildRecognizer("T.g4", GRAMMAR, "TParser", "TLexer"));
+		Parser[] parsers = newParsersInSeparateClassLoaders();
+		assertNotSame(parsers[0].getATN(), parsers[1].getATN());
+
+		assertTrue(rawGenerateAndBuildRecognizer("T.g4", GRAMMAR, "TParser", "TLexer", "-Xshared-atn"));
+		assertSharedATN(newParsersInSeparateClassLoaders());
+
+		assertTrue(rawGenerateAndBuildRecognizer("T.g4", GRAMMAR, "TParser", "TLexer", "-Xshared-atn", "-Xbinary-atn"));
+		assertSharedATN(newParsersInSeparateClassLoaders());
+		writeFile(tmpdir, "input", INPUT);
+		rawExecRecognizer("TParser", "TLexer", "s", false, false);
+		assertNull(stderrDuringParse);
+	}
+
+	@Test public void testOptionsUnsupportedByTarget() throws Exception {
+		String[] options = {"-Xbinary-atn", "-Xshared-atn", "-Xllk", "-Xlexer-dfa"};
+		ErrorQueue equeue = antlrOnString(tmpdir, "Java", "T.g4", GRAMMAR, false, options);
+		assertEquals(0, equeue.size());
+
+		equeue = antlrOnString(tmpdir, "Python3", "T.g4", GRAMMAR, false, options);
+		assertEquals(0, equeue.errors.size());
+		List<String> warnings = new ArrayList<String>();
+		for (ANTLRMessage warning : equeue.warnings) {
+			assertEquals(ErrorType.OPTION_NOT_SUPPORTED_BY_TARGET, warning.getErrorType());
+			assertEquals("Python3", warning.getArgs()[1]);
+			warnings.add(warning.getArgs()[2]+" "+warning.getArgs()[0]);
+		}
+		assertEquals("[TLexer -Xbinary-atn, TLexer -Xshared-atn, TLexer -Xlexer-dfa, T -Xbinary-atn, T -Xshared-atn, T -Xllk]",
+					 warnings.toString());
+	}
+
+	/** Create a parser from each of two loads of the generated class. */
+	private Parser[] newParsersInSeparateClassLoaders() throws Exception {
+		Parser[] parsers = new Parser[2];
+		for (int i = 0; i < parsers.length; i++) {
+			Class<? extends Parser> parserClass = loadParserClassFromTempDir("TParser");
+			CommonTokenStream tokens = new CommonTokenStream(new ListTokenSource(new ArrayList<Token>()));
+			parsers[i] = parserClass.getConstructor(TokenStream.class).newInstance(tokens);
+		}
+
+		assertNotSame(parsers[0].getClass(), parsers[1].getClass());
+		return parsers;
+	}
+
+	private static void assertSharedATN(Parser[] parsers) {
+		assertSame(parsers[0].getATN(), parsers[1].getATN());
+		assertSame(parsers[0].getInterpreter().decisionToDFA, parsers[1].getInterpreter().decisionToDFA);
+	}
+
+	private static String readFile(String dir, String fileName) throws IOException {
+		return new String(Files.readAllBytes(new File(dir, fileName).toPath()), "UTF-8");
+	}
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.test.tool;
+
+import org.antlr.v4.daemon.ToolDaemon;
+import org.antlr.v4.daemon.ToolDaemonClient;
+import org.antlr.v4.test.runtime.BaseRuntimeTest;
+import org.antlr.v4.tool.ErrorManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+
+import static org.antlr.v4.test.runtime.BaseRuntimeTest.writeFile;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestToolDaemon extends BaseJavaToolTest {
+	private ToolDaemon daemon;
+	private Thread daemonThread;
+
+	@Before
+	@Override
+	public void testSetUp() throws Exception {
+		super.testSetUp();
+		BaseRuntimeTest.mkdir(tmpdir);
+		daemon = new ToolDaemon(new File(tmpdir, "daemon"), null) {
+			@Override
+			protected int run(String[] args) {
+				if ( args.length==1 && args[0].equals("-panic") ) {
+					ErrorManager.panic();
+				}
+				return super.run(args);
+			}
+		};
+		daemon.start();
+		daemonThread = new Thread() {
+			@Override
+			public void run() {
+				daemon.serve();
+			}
+		};
+		daemonThread.start();
+	}
+
+	@After
+	public void stopDaemon() throws Exception {
+		daemon.stop();
+		daemonThread.join();
+	}
+
+	@Test public void testGenerate() throws Exception {
+		writeFile(tmpdir, "T.g4",
+			"grammar T;\n" +
+			"s : A ;\n" +
+			"A : 'a' ;\n");
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ByteArrayOutputStream err = new ByteArrayOutputStream();
+		int status = new ToolDaemonClient(new File(tmpdir, "daemon")).run(
+			new String[] {"-o", tmpdir, new File(tmpdir, "T.g4").toString()}, out, err);
+		assertEquals(0, status);
+		assertEquals("", err.toString());
+		assertTrue(new File(tmpdir, "TParser.java").exists());
+	}
+
+	@Test public void testErrorsAreSentToClient() throws Exception {
+		writeFile(tmpdir, "T.g4",
+			"grammar T;\n" +
+			"s : a ;\n");
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ByteArrayOutputStream err = new ByteArrayOutputStream();
+		int status = new ToolDaemonClient(new File(tmpdir, "daemon")).run(
+			new String[] {"-o", tmpdir, new File(tmpdir, "T.g4").toString()}, out, err);
+		assertEquals(1, status);
+		assertTrue(err.toString(), err.toString().contains("reference to undefined rule: a"));
+		assertFalse(new File(tmpdir, "TParser.java").exists());
+	}
+
+	@Test public void testPanicDoesNotStopDaemon() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ByteArrayOutputStream err = new ByteArrayOutputStream();
+		int status = new ToolDaemonClient(new File(tmpdir, "daemon")).run(new String[] {"-panic"}, out, err);
+		assertEquals(1, status);
+		assertTrue(err.toString(), err.toString().contains("ANTLR ErrorManager panic"));
+
+		testGenerate();
+	}
+
+	@Test public void testNoDaemon() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ByteArrayOutputStream err = new ByteArrayOutputStream();
+		int status = new ToolDaemonClient(new File(tmpdir, "none")).run(new String[0], out, err);
+		assertEquals(ToolDaemon.REFUSED, status);
+		assertEquals(0, out.size() + err.size());
+	}
+}
@@ -12,15 +12,18 @@ import org.antlr.v4.runtime.RuleContext;
 import org.antlr.v4.runtime.misc.Pair;
 import org.antlr.v4.runtime.tree.ParseTree;
 import org.antlr.v4.runtime.tree.TerminalNode;
+import org.antlr.v4.runtime.tree.xpath.ParseTreeIndex;
 import org.antlr.v4.runtime.tree.xpath.XPath;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 public class TestXPath extends BaseJavaToolTest {
@@ -124,6 +127,38 @@ public class TestXPath extends BaseJavaToolTest {
 		}
 	}
 
+	@Test public void testCompiledPathsWithIndex() throws Exception {
+		boolean ok =
+			rawGenerateAndBuildRecognizer("Expr.g4", grammar, "ExprParser",
+										  "ExprLexer", false);
+		assertTrue(ok);
+
+		String xpath[] = {
+			"//ID",				// any ID in tree
+			"//expr//ID",		// any ID under any expression
+			"//primary/*",		// all kids of any primary
+			"//stat/';'",		// all ';' under any stat node
+			"/prog/func",		// not indexed: starts at the root
+		};
+		String expected[] = {
+			"[f, x, y, x, y, g, x, x]",
+			"[y, x]",
+			"[3, 4, y, 1, 2, x]",
+			"[;, ;, ;, ;]",
+			"[func, func]",
+		};
+
+		Pair<Parser, Lexer> pl = getParserAndLexer(SAMPLE_PROGRAM, "ExprParser", "ExprLexer");
+		Parser parser = pl.a;
+		ParseTree tree = execStartRule("prog", parser);
+		ParseTreeIndex index = new ParseTreeIndex(tree);
+		for (int i=0; i<xpath.length; i++) {
+			XPath compiled = XPath.compile(parser, xpath[i]);
+			assertSame(compiled, XPath.compile(parser, xpath[i]));
+			assertEquals("path "+xpath[i]+" failed", expected[i], getNodeStrings(compiled.evaluate(index), parser).toString());
+		}
+	}
+
 	@Test public void testWeirdChar() throws Exception {
 		boolean ok =
 			rawGenerateAndBuildRecognizer("Expr.g4", grammar, "ExprParser",
@@ -225,8 +260,12 @@ public class TestXPath extends BaseJavaToolTest {
 		Parser parser = pl.a;
 		ParseTree tree = execStartRule(startRuleName, parser);
 
+		return getNodeStrings(XPath.findAll(tree, xpath, parser), parser);
+	}
+
+	public List<String> getNodeStrings(Collection<ParseTree> found, Parser parser) {
 		List<String> nodes = new ArrayList<String>();
-		for (ParseTree t : XPath.findAll(tree, xpath, parser) ) {
+		for (ParseTree t : found) {
 			if ( t instanceof RuleContext) {
 				RuleContext r = (RuleContext)t;
 				nodes.add(parser.getRuleNames()[r.getRuleIndex()]);
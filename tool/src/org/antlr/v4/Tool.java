@@ -13,6 +13,7 @@ import org.antlr.runtime.CommonTokenStream;
 import org.antlr.runtime.ParserRuleReturnScope;
 import org.antlr.runtime.RecognitionException;
 import org.antlr.v4.analysis.AnalysisPipeline;
+import org.antlr.v4.analysis.PerformanceLint;
 import org.antlr.v4.automata.ATNFactory;
 import org.antlr.v4.automata.LexerATNFactory;
 import org.antlr.v4.automata.ParserATNFactory;
@@ -32,6 +33,7 @@ import org.antlr.v4.runtime.atn.ATNSerializer;
 import org.antlr.v4.semantics.SemanticPipeline;
 import org.antlr.v4.tool.ANTLRMessage;
 import org.antlr.v4.tool.ANTLRToolListener;
+import org.antlr.v4.tool.BuildCache;
 import org.antlr.v4.tool.BuildDependencyGenerator;
 import org.antlr.v4.tool.DOTGenerator;
 import org.antlr.v4.tool.DefaultToolListener;
@@ -40,6 +42,7 @@ import org.antlr.v4.tool.ErrorType;
 import org.antlr.v4.tool.Grammar;
 import org.antlr.v4.tool.GrammarTransformPipeline;
 import org.antlr.v4.tool.LexerGrammar;
+import org.antlr.v4.tool.PhaseProfiler;
 import org.antlr.v4.tool.Rule;
 import org.antlr.v4.tool.ast.ActionAST;
 import org.antlr.v4.tool.ast.GrammarAST;
@@ -49,10 +52,13 @@ import org.antlr.v4.tool.ast.RuleAST;
 import org.antlr.v4.tool.ast.TerminalAST;
 import org.stringtemplate.v4.STGroup;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.StringWriter;
 import java.io.Writer;
@@ -63,7 +69,12 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class Tool {
 	public static final String VERSION;
@@ -109,6 +120,7 @@ public class Tool {
 	public boolean launch_ST_inspector = false;
 	public boolean ST_inspector_wait_for_close = false;
     public boolean force_atn = false;
+	public boolean llk = false;
     public boolean log = false;
 	public boolean gen_listener = true;
 	public boolean gen_visitor = false;
@@ -118,6 +130,13 @@ public class Tool {
 	public boolean warnings_are_errors = false;
 	public boolean longMessages = false;
 	public boolean exact_output_dir = false;
+	public boolean binary_atn = false;
+	public boolean shared_atn = false;
+	public boolean lexer_dfa = false;
+	public boolean perf_lint = false;
+	public boolean parallel = false;
+	public String cacheDirectory = null;
+	public boolean phase_times = false;
 
     public static Option[] optionDefs = {
 		new Option("outputDirectory",             "-o", OptionArgType.STRING, "specify output directory where all output is generated"),
@@ -137,8 +156,16 @@ public class Tool {
 		new Option("launch_ST_inspector",         "-XdbgST", "launch StringTemplate visualizer on generated code"),
 		new Option("ST_inspector_wait_for_close", "-XdbgSTWait", "wait for STViz to close before continuing"),
 		new Option("force_atn",                   "-Xforce-atn", "use the ATN simulator for all predictions"),
+		new Option("llk",                         "-Xllk", "predict LL(k) decisions with generated lookahead switches (Java target)"),
 		new Option("log",                         "-Xlog", "dump lots of logging info to antlr-timestamp.log"),
 	    new Option("exact_output_dir",            "-Xexact-output-dir", "all output goes into -o dir regardless of paths/package"),
+		new Option("binary_atn",                  "-Xbinary-atn", "load the ATN from a generated binary .atn resource (Java target)"),
+		new Option("shared_atn",                  "-Xshared-atn", "share the ATN and DFA between identical recognizers in other class loaders (Java target)"),
+		new Option("lexer_dfa",                   "-Xlexer-dfa", "compute the complete lexer DFA into a generated .dfa resource (Java target)"),
+		new Option("perf_lint",                   "-Xperf-lint", "warn about decisions that are likely to be slow to predict"),
+		new Option("parallel",                    "-Xparallel", "process grammars that don't depend on each other's tokenVocab concurrently"),
+		new Option("cacheDirectory",              "-Xcache", OptionArgType.STRING, "reuse the outputs and analysis of unchanged grammars from a build cache directory"),
+		new Option("phase_times",                 "-Xphase-times", "print the time and memory spent in each processing phase"),
 	};
 
 	// helper vars for option management
@@ -155,6 +182,12 @@ public class Tool {
 	protected List<String> grammarFiles = new ArrayList<String>();
 
 	public ErrorManager errMgr;
+
+	/** The {@code -Xcache} build cache, if any. */
+	public BuildCache buildCache;
+
+	/** Measures the processing phases if set, as for {@code -Xphase-times}. */
+	public PhaseProfiler phaseProfiler;
     public LogManager logMgr = new LogManager();
 
 	List<ANTLRToolListener> listeners = new CopyOnWriteArrayList<ANTLRToolListener>();
@@ -181,6 +214,9 @@ public class Tool {
                     antlr.errMgr.toolError(ErrorType.INTERNAL_ERROR, ioe);
                 }
             }
+            if ( antlr.phaseProfiler!=null ) {
+                System.out.print(antlr.phaseProfiler);
+            }
         }
 		if ( antlr.return_dont_exit ) return;
 
@@ -200,6 +236,7 @@ public class Tool {
 		errMgr.setFormat("antlr");
 		handleArgs();
 		errMgr.setFormat(msgFormat);
+		if ( phase_times ) phaseProfiler = new PhaseProfiler();
 	}
 
 	protected void handleArgs() {
@@ -277,6 +314,9 @@ public class Tool {
 			STGroup.trackCreationEvents = true;
 			return_dont_exit = true;
 		}
+		if ( cacheDirectory!=null ) {
+			buildCache = new BuildCache(this, new File(cacheDirectory));
+		}
 	}
 
 	protected void handleOptionSetArg(String arg) {
@@ -308,6 +348,10 @@ public class Tool {
 
 	public void processGrammarsOnCommandLine() {
 		List<GrammarRootAST> sortedGrammars = sortGrammarByTokenVocab(grammarFiles);
+		if ( parallel && !gen_dependencies && sortedGrammars.size()>1 ) {
+			processGrammarsInParallel(sortedGrammars);
+			return;
+		}
 
 		for (GrammarRootAST t : sortedGrammars) {
 			final Grammar g = createGrammar(t);
@@ -325,11 +369,117 @@ public class Tool {
 
 			}
 			else if (errMgr.getNumErrors() == 0) {
-				process(g, true);
+				processWithCache(g);
 			}
 		}
 	}
 
+	/** Process grammars on a thread pool for {@code -Xparallel}. A grammar
+	 *  waits for the grammar named by its {@code tokenVocab} option, if that
+	 *  is one of {@code sortedGrammars}, since it reads the .tokens file that
+	 *  grammar generates; other grammars are processed concurrently.
+	 *
+	 *  <p>The messages of each grammar are buffered by the {@link ErrorManager}
+	 *  and passed on to the listeners in the order of {@code sortedGrammars},
+	 *  so the output is the same from run to run. Unlike sequential
+	 *  processing, an error in one grammar only stops the grammars that
+	 *  depend on its tokens, directly or through other grammars.</p>
+	 */
+	protected void processGrammarsInParallel(List<GrammarRootAST> sortedGrammars) {
+		if ( errMgr.getNumErrors()>0 ) return;
+
+		int nThreads = Math.min(sortedGrammars.size(), Runtime.getRuntime().availableProcessors());
+		ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+		try {
+			// sortedGrammars lists a grammar after its tokenVocab grammar, so
+			// the task of that grammar has always been submitted already
+			Map<String, Future<ErrorManager.MessageBuffer>> tasks = new HashMap<String, Future<ErrorManager.MessageBuffer>>();
+			List<Future<ErrorManager.MessageBuffer>> results = new ArrayList<Future<ErrorManager.MessageBuffer>>();
+			for (final GrammarRootAST t : sortedGrammars) {
+				final Future<ErrorManager.MessageBuffer> vocabTask = tasks.get(getTokenVocabName(t));
+				Future<ErrorManager.MessageBuffer> task = executor.submit(new Callable<ErrorManager.MessageBuffer>() {
+					@Override
+					public ErrorManager.MessageBuffer call() throws Exception {
+						if ( vocabTask!=null ) {
+							// null if the vocab grammar was skipped itself
+							ErrorManager.MessageBuffer vocabMessages = vocabTask.get();
+							if ( vocabMessages==null || vocabMessages.getNumErrors()>0 ) return null;
+						}
+
+						ErrorManager.MessageBuffer messages = errMgr.startBuffering();
+						workerImportedGrammars.set(new HashMap<String, Grammar>());
+						try {
+							Grammar g = createGrammar(t);
+							g.fileName = t.fileName;
+							processWithCache(g);
+						}
+						finally {
+							workerImportedGrammars.remove();
+							errMgr.stopBuffering();
+						}
+
+						return messages;
+					}
+				});
+				tasks.put(t.getGrammarName(), task);
+				results.add(task);
+			}
+
+			for (Future<ErrorManager.MessageBuffer> result : results) {
+				ErrorManager.MessageBuffer messages = result.get();
+				if ( messages!=null ) errMgr.replay(messages);
+			}
+		}
+		catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			errMgr.toolError(ErrorType.INTERNAL_ERROR, ie);
+		}
+		catch (ExecutionException ee) {
+			Throwable cause = ee.getCause();
+			if ( cause instanceof RuntimeException ) throw (RuntimeException)cause;
+			if ( cause instanceof Error ) throw (Error)cause;
+			errMgr.toolError(ErrorType.INTERNAL_ERROR, cause);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/** Process grammar {@code g} from the command line, unless the
+	 *  {@link #buildCache} holds its outputs. Without errors or warnings, the
+	 *  outputs are then stored in the cache.
+	 */
+	protected void processWithCache(Grammar g) {
+		if ( buildCache==null ) {
+			process(g, true);
+			return;
+		}
+
+		List<String> options = new ArrayList<String>();
+		if ( args!=null ) options.addAll(Arrays.asList(args));
+		options.removeAll(grammarFiles);
+		String key = buildCache.getOutputsKey(g.fileName, options);
+		if ( key!=null && buildCache.restoreOutputs(key) ) {
+			log("cache", "restored outputs of "+g.fileName);
+			return;
+		}
+
+		int prevErrors = errMgr.getNumErrors();
+		int prevWarnings = errMgr.getNumWarnings();
+		List<File> outputs = new ArrayList<File>();
+		outputFiles.set(outputs);
+		try {
+			process(g, true);
+		}
+		finally {
+			outputFiles.remove();
+		}
+
+		if ( key!=null && errMgr.getNumErrors()==prevErrors && errMgr.getNumWarnings()==prevWarnings ) {
+			buildCache.saveOutputs(key, g, outputs);
+		}
+	}
+
 	/** To process a grammar, we load all of its imported grammars into
 		subordinate grammar objects. Then we merge the imported rules
 		into the root grammar. If a root grammar is a combined grammar,
@@ -337,17 +487,35 @@ public class Tool {
 		process the lexer first, if present, and then the parser grammar
 	 */
 	public void process(Grammar g, boolean gencode) {
-		g.loadImportedGrammars();
+		startPhase("imports");
+		try {
+			g.loadImportedGrammars();
+		}
+		finally {
+			stopPhase();
+		}
 
 		GrammarTransformPipeline transform = new GrammarTransformPipeline(g, this);
-		transform.process();
+		startPhase("transform");
+		try {
+			transform.process();
+		}
+		finally {
+			stopPhase();
+		}
 
 		LexerGrammar lexerg;
 		GrammarRootAST lexerAST;
 		if ( g.ast!=null && g.ast.grammarType== ANTLRParser.COMBINED &&
 			 !g.ast.hasErrors )
 		{
-			lexerAST = transform.extractImplicitLexer(g); // alters g.ast
+			startPhase("extract-lexer");
+			try {
+				lexerAST = transform.extractImplicitLexer(g); // alters g.ast
+			}
+			finally {
+				stopPhase();
+			}
 			if ( lexerAST!=null ) {
 				if (grammarOptions != null) {
 					lexerAST.cmdLineOptions = grammarOptions;
@@ -378,8 +546,14 @@ public class Tool {
 
 		int prevErrors = errMgr.getNumErrors();
 		// MAKE SURE GRAMMAR IS SEMANTICALLY CORRECT (FILL IN GRAMMAR OBJECT)
-		SemanticPipeline sem = new SemanticPipeline(g);
-		sem.process();
+		startPhase("semantics");
+		try {
+			SemanticPipeline sem = new SemanticPipeline(g);
+			sem.process();
+		}
+		finally {
+			stopPhase();
+		}
 
 		String language = g.getOptionString("language");
 		if ( !CodeGenerator.targetExists(language) ) {
@@ -393,15 +567,52 @@ public class Tool {
 		ATNFactory factory;
 		if ( g.isLexer() ) factory = new LexerATNFactory((LexerGrammar)g);
 		else factory = new ParserATNFactory(g);
-		g.atn = factory.createATN();
+		startPhase("atn");
+		try {
+			g.atn = factory.createATN();
+		}
+		finally {
+			stopPhase();
+		}
 
 		if ( generate_ATN_dot ) generateATNs(g);
 
-		if (gencode && g.tool.getNumErrors()==0 ) generateInterpreterData(g);
+		if (gencode && g.tool.getNumErrors()==0 ) {
+			startPhase("interpreter-data");
+			try {
+				generateInterpreterData(g);
+			}
+			finally {
+				stopPhase();
+			}
+		}
 
 		// PERFORM GRAMMAR ANALYSIS ON ATN: BUILD DECISION DFAs
-		AnalysisPipeline anal = new AnalysisPipeline(g);
-		anal.process();
+		// (the cache only holds analyses that found no errors or warnings)
+		if ( buildCache==null || !buildCache.restoreAnalysis(g) ) {
+			int prevWarnings = errMgr.getNumWarnings();
+			startPhase("analysis");
+			try {
+				AnalysisPipeline anal = new AnalysisPipeline(g);
+				anal.process();
+			}
+			finally {
+				stopPhase();
+			}
+			if ( buildCache!=null && g.tool.getNumErrors()==prevErrors && errMgr.getNumWarnings()==prevWarnings ) {
+				buildCache.saveAnalysis(g);
+			}
+		}
+
+		if ( perf_lint && g.tool.getNumErrors()==prevErrors ) {
+			startPhase("perf-lint");
+			try {
+				new PerformanceLint(g).process();
+			}
+			finally {
+				stopPhase();
+			}
+		}
 
 		//if ( generate_DFA_dot ) generateDFAs(g);
 
@@ -409,8 +620,14 @@ public class Tool {
 
 		// GENERATE CODE
 		if ( gencode ) {
-			CodeGenPipeline gen = new CodeGenPipeline(g);
-			gen.process();
+			startPhase("codegen");
+			try {
+				CodeGenPipeline gen = new CodeGenPipeline(g);
+				gen.process();
+			}
+			finally {
+				stopPhase();
+			}
 		}
 	}
 
@@ -502,23 +719,9 @@ public class Tool {
 			root.fileName = fileName;
 			String grammarName = root.getChild(0).getText();
 
-			GrammarAST tokenVocabNode = findOptionValueAST(root, "tokenVocab");
+			String vocabName = getTokenVocabName(root);
 			// Make grammars depend on any tokenVocab options
-			if ( tokenVocabNode!=null ) {
-				String vocabName = tokenVocabNode.getText();
-				// Strip quote characters if any
-				int len = vocabName.length();
-				int firstChar = vocabName.charAt(0);
-				int lastChar = vocabName.charAt(len - 1);
-				if (len >= 2 && firstChar == '\'' && lastChar == '\'') {
-					vocabName = vocabName.substring(1, len-1);
-				}
-				// If the name contains a path delimited by forward slashes,
-				// use only the part after the last slash as the name
-				int lastSlash = vocabName.lastIndexOf('/');
-				if (lastSlash >= 0) {
-					vocabName = vocabName.substring(lastSlash + 1);
-				}
+			if ( vocabName!=null ) {
 				g.addEdge(grammarName, vocabName);
 			}
 			// add cycle to graph so we always process a grammar if no error
@@ -542,6 +745,30 @@ public class Tool {
 		return sortedRoots;
 	}
 
+	/** Get the name of the grammar in the tokenVocab option of {@code root};
+	 *  return null if not defined.
+	 */
+	public static String getTokenVocabName(GrammarRootAST root) {
+		GrammarAST tokenVocabNode = findOptionValueAST(root, "tokenVocab");
+		if ( tokenVocabNode==null ) return null;
+
+		String vocabName = tokenVocabNode.getText();
+		// Strip quote characters if any
+		int len = vocabName.length();
+		int firstChar = vocabName.charAt(0);
+		int lastChar = vocabName.charAt(len - 1);
+		if (len >= 2 && firstChar == '\'' && lastChar == '\'') {
+			vocabName = vocabName.substring(1, len-1);
+		}
+		// If the name contains a path delimited by forward slashes,
+		// use only the part after the last slash as the name
+		int lastSlash = vocabName.lastIndexOf('/');
+		if (lastSlash >= 0) {
+			vocabName = vocabName.substring(lastSlash + 1);
+		}
+		return vocabName;
+	}
+
 	/** Manually get option node from tree; return null if no defined. */
 	public static GrammarAST findOptionValueAST(GrammarRootAST root, String option) {
 		GrammarAST options = (GrammarAST)root.getFirstChildWithType(ANTLRParser.OPTIONS);
@@ -607,6 +834,17 @@ public class Tool {
 
 	private final Map<String, Grammar> importedGrammars = new HashMap<String, Grammar>();
 
+	/** The imported grammars of the grammar a {@code -Xparallel} worker
+	 *  processes. Imported grammars are merged into the grammars that import
+	 *  them, so they can't be shared between threads.
+	 */
+	private final ThreadLocal<Map<String, Grammar>> workerImportedGrammars = new ThreadLocal<Map<String, Grammar>>();
+
+	/** The files written for the grammar {@link #processWithCache} is
+	 *  processing on this thread.
+	 */
+	private final ThreadLocal<List<File>> outputFiles = new ThreadLocal<List<File>>();
+
 	/**
 	 * Try current dir then dir of g then lib dir
 	 * @param g
@@ -614,6 +852,8 @@ public class Tool {
 	 */
 	public Grammar loadImportedGrammar(Grammar g, GrammarAST nameNode) throws IOException {
 		String name = nameNode.getText();
+		Map<String, Grammar> importedGrammars = workerImportedGrammars.get();
+		if ( importedGrammars==null ) importedGrammars = this.importedGrammars;
 		Grammar imported = importedGrammars.get(name);
 		if (imported == null) {
 			g.tool.log("grammar", "load " + name + " from " + g.fileName);
@@ -650,6 +890,16 @@ public class Tool {
 	}
 
 	public GrammarRootAST parse(String fileName, CharStream in) {
+		startPhase("parse");
+		try {
+			return parseGrammarSpec(fileName, in);
+		}
+		finally {
+			stopPhase();
+		}
+	}
+
+	protected GrammarRootAST parseGrammarSpec(String fileName, CharStream in) {
 		try {
 			GrammarASTAdaptor adaptor = new GrammarASTAdaptor(in);
 			ToolANTLRLexer lexer = new ToolANTLRLexer(in, this);
@@ -690,7 +940,10 @@ public class Tool {
 		for (Grammar ig : grammars) {
 			for (Rule r : ig.rules.values()) {
 				try {
-					String dot = dotGenerator.getDOT(g.atn.ruleToStartState[r.index], g.isLexer());
+					String dot;
+					synchronized (DOTGenerator.stlib) { // shared by -Xparallel workers
+						dot = dotGenerator.getDOT(g.atn.ruleToStartState[r.index], g.isLexer());
+					}
 					if (dot != null) {
 						writeDOTFile(g, r, dot);
 					}
@@ -742,7 +995,14 @@ public class Tool {
 		}
 		content.append("\n");
 
-		IntegerList serializedATN = ATNSerializer.getSerialized(g.atn);
+		IntegerList serializedATN;
+		startPhase("serialize-atn");
+		try {
+			serializedATN = ATNSerializer.getSerialized(g.atn);
+		}
+		finally {
+			stopPhase();
+		}
 		content.append("atn:\n");
 		content.append(serializedATN.toString());
 
@@ -789,6 +1049,7 @@ public class Tool {
 		if (!outputDir.exists()) {
 			outputDir.mkdirs();
 		}
+		recordOutputFile(outputFile);
 		FileOutputStream fos = new FileOutputStream(outputFile);
 		OutputStreamWriter osw;
 		if ( grammarEncoding!=null ) {
@@ -800,6 +1061,26 @@ public class Tool {
 		return new BufferedWriter(osw);
 	}
 
+	/** Like {@link #getOutputFileWriter} but for binary output files. */
+	public OutputStream getOutputFileStream(Grammar g, String fileName) throws IOException {
+		if (outputDirectory == null) {
+			return new ByteArrayOutputStream();
+		}
+		File outputDir = getOutputDirectory(g.fileName);
+		File outputFile = new File(outputDir, fileName);
+
+		if (!outputDir.exists()) {
+			outputDir.mkdirs();
+		}
+		recordOutputFile(outputFile);
+		return new BufferedOutputStream(new FileOutputStream(outputFile));
+	}
+
+	protected void recordOutputFile(File outputFile) {
+		List<File> outputs = outputFiles.get();
+		if ( outputs!=null && !outputs.contains(outputFile) ) outputs.add(outputFile);
+	}
+
 	public File getImportedGrammarFile(Grammar g, String fileName) {
 		File importedFile = new File(inputDirectory, fileName);
 		if ( !importedFile.exists() ) {
@@ -932,9 +1213,26 @@ public class Tool {
 		}
 	}
 
-    public void log(String component, String msg) { logMgr.log(component, msg); }
+    public void log(String component, String msg) {
+		synchronized (logMgr) {
+			logMgr.log(component, msg);
+		}
+	}
     public void log(String msg) { log(null, msg); }
 
+	/** Start timing processing phase {@code name} if {@link #phaseProfiler}
+	 *  is set. Every call must be followed by {@link #stopPhase}, in a
+	 *  {@code finally} block so that an exception doesn't leave the phase
+	 *  open.
+	 */
+	public void startPhase(String name) {
+		if ( phaseProfiler!=null ) phaseProfiler.start(name);
+	}
+
+	public void stopPhase() {
+		if ( phaseProfiler!=null ) phaseProfiler.stop();
+	}
+
 	public int getNumErrors() { return errMgr.getNumErrors(); }
 
 	public void addListener(ANTLRToolListener tl) {
@@ -6,13 +6,16 @@
 
 package org.antlr.v4.analysis;
 
+import org.antlr.v4.Tool;
 import org.antlr.v4.misc.Utils;
 import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.atn.BasicBlockStartState;
 import org.antlr.v4.runtime.atn.DecisionState;
 import org.antlr.v4.runtime.atn.LL1Analyzer;
 import org.antlr.v4.runtime.misc.IntervalSet;
 import org.antlr.v4.tool.ErrorType;
 import org.antlr.v4.tool.Grammar;
+import org.antlr.v4.tool.LeftRecursiveRule;
 import org.antlr.v4.tool.Rule;
 import org.antlr.v4.tool.ast.GrammarAST;
 
@@ -56,8 +59,18 @@ public class AnalysisPipeline {
 		}
 	}
 
+	/** Is the fixed-k lookahead of decisions used, by {@code -Xllk} or
+	 *  {@code -Xperf-lint}? It is only computed then; on large grammars it
+	 *  takes a good part of the analysis time.
+	 */
+	public static boolean computesLLk(Tool tool) {
+		return (tool.llk && !tool.force_atn) || tool.perf_lint;
+	}
+
 	protected void processParser() {
+		boolean llk = computesLLk(g.tool);
 		g.decisionLOOK = new ArrayList<IntervalSet[]>(g.atn.getNumberOfDecisions()+1);
+		g.decisionLLk = llk ? new ArrayList<LookaheadTree>(g.atn.getNumberOfDecisions()+1) : null;
 		for (DecisionState s : g.atn.decisionToState) {
             g.tool.log("LL1", "\nDECISION "+s.decision+" in rule "+g.getRule(s.ruleIndex).name);
 			IntervalSet[] look;
@@ -74,7 +87,36 @@ public class AnalysisPipeline {
 			Utils.setSize(g.decisionLOOK, s.decision+1);
 			g.decisionLOOK.set(s.decision, look);
 			g.tool.log("LL1", "LL(1)? " + disjoint(look));
+
+			if ( llk ) {
+				Utils.setSize(g.decisionLLk, s.decision+1);
+				LookaheadTree tree = getDecisionLLk(s, look);
+				g.decisionLLk.set(s.decision, tree);
+				if ( tree!=null ) g.tool.log("LL1", "LL(k)? k="+tree.getMaxDepth()+" "+tree);
+			}
+		}
+	}
+
+	/** Get the fixed-k lookahead of decision {@code s} with LL(1) lookahead
+	 *  {@code look}, or null if it is LL(1) or not LL(k) for a small k.
+	 */
+	public LookaheadTree getDecisionLLk(DecisionState s, IntervalSet[] look) {
+		if ( disjoint(look) || !isLLkCandidate(s, look) ) return null;
+		return new LLkAnalyzer(g.atn).getDecisionLookahead(s);
+	}
+
+	/** Can decision {@code s} with LL(1) lookahead {@code look} be predicted
+	 *  with fixed lookahead? Only plain blocks outside left-recursive rules
+	 *  are candidates, and no alternative may start with a predicate.
+	 */
+	protected boolean isLLkCandidate(DecisionState s, IntervalSet[] look) {
+		if ( s.nonGreedy || !(s instanceof BasicBlockStartState) ) return false;
+		if ( g.getRule(s.ruleIndex) instanceof LeftRecursiveRule ) return false;
+		if ( look==null ) return false;
+		for (IntervalSet altLook : look) {
+			if ( altLook==null ) return false;
 		}
+		return true;
 	}
 
 	/** Return whether lookahead sets are disjoint; no lookahead ⇒ not disjoint */
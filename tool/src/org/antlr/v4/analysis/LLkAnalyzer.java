@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.analysis;
+
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.atn.ATN;
+import org.antlr.v4.runtime.atn.ATNConfig;
+import org.antlr.v4.runtime.atn.ATNState;
+import org.antlr.v4.runtime.atn.AbstractPredicateTransition;
+import org.antlr.v4.runtime.atn.DecisionState;
+import org.antlr.v4.runtime.atn.NotSetTransition;
+import org.antlr.v4.runtime.atn.PredictionContext;
+import org.antlr.v4.runtime.atn.RuleStopState;
+import org.antlr.v4.runtime.atn.RuleTransition;
+import org.antlr.v4.runtime.atn.SingletonPredictionContext;
+import org.antlr.v4.runtime.atn.Transition;
+import org.antlr.v4.runtime.atn.WildcardTransition;
+import org.antlr.v4.runtime.misc.IntervalSet;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/** Computes fixed-k lookahead for decisions that aren't LL(1). The
+ *  alternatives are followed through the ATN one token at a time, like
+ *  SLL prediction does: rule ends with an unknown invoker follow the
+ *  global FOLLOW links, and predicates after the first token are ignored.
+ *  Where the alternatives viable for the tokens seen so far differ in the
+ *  next token, the decision can be made with a switch on that token.
+ *
+ *  <p>The analysis gives up if the alternatives aren't separated within
+ *  {@code maxDepth} tokens, if a predicate is visible before the first
+ *  token, or if the lookahead tree grows beyond {@link #MAX_EDGES}.</p>
+ *
+ *  @since 4.7.2
+ */
+public class LLkAnalyzer {
+	/** The largest k tried by default. */
+	public static final int DEFAULT_MAX_DEPTH = 3;
+
+	/** The largest number of token types in a lookahead tree. */
+	public static final int MAX_EDGES = 256;
+
+	/** The deepest rule invocation stack followed without matching a token. */
+	public static final int MAX_CALL_DEPTH = 32;
+
+	public final ATN atn;
+	protected final int maxDepth;
+	protected int edges;
+
+	/** Did the last analysis look past the end of the decision's rule into
+	 *  the global FOLLOW?
+	 */
+	public boolean usedFollow;
+
+	public LLkAnalyzer(ATN atn) {
+		this(atn, DEFAULT_MAX_DEPTH);
+	}
+
+	public LLkAnalyzer(ATN atn, int maxDepth) {
+		this.atn = atn;
+		this.maxDepth = maxDepth;
+	}
+
+	/** Get the tree predicting the alternatives of {@code s} from at most
+	 *  {@code maxDepth} tokens, or null if there is none.
+	 */
+	public LookaheadTree getDecisionLookahead(DecisionState s) {
+		edges = 0;
+		usedFollow = false;
+		Map<Integer, Set<ATNConfig>> configs = new TreeMap<Integer, Set<ATNConfig>>();
+		for (int i = 0; i < s.getNumberOfTransitions(); i++) {
+			Set<ATNConfig> altConfigs = new LinkedHashSet<ATNConfig>();
+			altConfigs.add(new ATNConfig(s.transition(i).target, i+1, PredictionContext.EMPTY));
+			configs.put(i+1, altConfigs);
+		}
+		return build(configs, 1);
+	}
+
+	/** Build the subtree separating the alternatives in {@code configs},
+	 *  whose configurations are positioned before token LA({@code depth}).
+	 */
+	protected LookaheadTree build(Map<Integer, Set<ATNConfig>> configs, int depth) {
+		// token type -> alt -> configurations after matching it
+		Map<Integer, Map<Integer, Set<ATNConfig>>> reach = new TreeMap<Integer, Map<Integer, Set<ATNConfig>>>();
+		for (Map.Entry<Integer, Set<ATNConfig>> e : configs.entrySet()) {
+			Map<Integer, Set<ATNConfig>> next = new HashMap<Integer, Set<ATNConfig>>();
+			Set<ATNConfig> busy = new HashSet<ATNConfig>();
+			for (ATNConfig c : e.getValue()) {
+				if ( !closure(c, depth, busy, next) ) return null;
+			}
+
+			for (Map.Entry<Integer, Set<ATNConfig>> t : next.entrySet()) {
+				Map<Integer, Set<ATNConfig>> alts = reach.get(t.getKey());
+				if ( alts==null ) {
+					alts = new TreeMap<Integer, Set<ATNConfig>>();
+					reach.put(t.getKey(), alts);
+				}
+				alts.put(e.getKey(), t.getValue());
+			}
+		}
+
+		LookaheadTree tree = LookaheadTree.node(depth);
+		for (Map.Entry<Integer, Map<Integer, Set<ATNConfig>>> e : reach.entrySet()) {
+			if ( ++edges>MAX_EDGES ) return null;
+			Map<Integer, Set<ATNConfig>> alts = e.getValue();
+			if ( alts.size()==1 ) {
+				tree.edges.put(e.getKey(), LookaheadTree.leaf(alts.keySet().iterator().next()));
+				continue;
+			}
+
+			if ( depth==maxDepth ) return null;
+			LookaheadTree subtree = build(alts, depth+1);
+			if ( subtree==null ) return null;
+			tree.edges.put(e.getKey(), subtree);
+		}
+		return tree;
+	}
+
+	/** Add the configurations reachable from {@code c} after matching one
+	 *  token to {@code next}, by token type. Return false if the lookahead
+	 *  can't be computed: {@code c} reaches the end of the input, where any
+	 *  token may follow, or a predicate before the first token.
+	 */
+	protected boolean closure(ATNConfig c, int depth, Set<ATNConfig> busy, Map<Integer, Set<ATNConfig>> next) {
+		if ( !busy.add(c) ) return true;
+
+		ATNState s = c.state;
+		if ( s instanceof RuleStopState && !c.context.isEmpty() ) {
+			ATNState returnState = atn.states.get(c.context.getReturnState(0));
+			return closure(new ATNConfig(c, returnState, c.context.getParent(0)), depth, busy, next);
+		}
+
+		if ( s instanceof RuleStopState ) usedFollow = true;
+
+		int n = s.getNumberOfTransitions();
+		if ( n==0 ) return false; // past the EOF of a start rule
+
+		for (int i = 0; i < n; i++) {
+			Transition t = s.transition(i);
+			if ( t instanceof RuleTransition ) {
+				if ( getCallDepth(c.context)>=MAX_CALL_DEPTH ) return false;
+				PredictionContext newContext =
+					SingletonPredictionContext.create(c.context, ((RuleTransition)t).followState.stateNumber);
+				if ( !closure(new ATNConfig(c, t.target, newContext), depth, busy, next) ) return false;
+			}
+			else if ( t instanceof AbstractPredicateTransition ) {
+				// prediction only evaluates predicates before the first token
+				if ( depth==1 ) return false;
+				if ( !closure(new ATNConfig(c, t.target), depth, busy, next) ) return false;
+			}
+			else if ( t.isEpsilon() ) {
+				if ( !closure(new ATNConfig(c, t.target), depth, busy, next) ) return false;
+			}
+			else {
+				IntervalSet set;
+				if ( t instanceof WildcardTransition ) {
+					set = IntervalSet.of(Token.MIN_USER_TOKEN_TYPE, atn.maxTokenType);
+				}
+				else {
+					set = t.label();
+					if ( set==null ) continue;
+					if ( t instanceof NotSetTransition ) {
+						set = set.complement(IntervalSet.of(Token.MIN_USER_TOKEN_TYPE, atn.maxTokenType));
+					}
+				}
+
+				if ( set.size()>MAX_EDGES ) return false;
+				for (int ttype : set.toList()) {
+					Set<ATNConfig> configs = next.get(ttype);
+					if ( configs==null ) {
+						configs = new LinkedHashSet<ATNConfig>();
+						next.put(ttype, configs);
+					}
+					configs.add(new ATNConfig(c, t.target));
+				}
+			}
+		}
+		return true;
+	}
+
+	protected static int getCallDepth(PredictionContext context) {
+		int n = 0;
+		while ( !context.isEmpty() ) {
+			context = context.getParent(0);
+			n++;
+		}
+		return n;
+	}
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.analysis;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/** The prediction of a decision from a fixed number of lookahead tokens, as
+ *  computed by {@link LLkAnalyzer}. An inner node maps the type of token
+ *  LA({@link #depth}) to the subtree for the tokens after it; a leaf
+ *  predicts {@link #alt}. No alternative is viable for token types missing
+ *  from {@link #edges}.
+ *
+ *  @since 4.7.2
+ */
+public class LookaheadTree {
+	/** The lookahead depth an inner node switches on, starting at 1; 0 for
+	 *  a leaf.
+	 */
+	public final int depth;
+
+	/** The alternative a leaf predicts, starting at 1; 0 for an inner node. */
+	public final int alt;
+
+	/** The subtrees of an inner node by token type, in token type order. */
+	public final Map<Integer, LookaheadTree> edges = new TreeMap<Integer, LookaheadTree>();
+
+	protected LookaheadTree(int depth, int alt) {
+		this.depth = depth;
+		this.alt = alt;
+	}
+
+	public static LookaheadTree node(int depth) {
+		return new LookaheadTree(depth, 0);
+	}
+
+	public static LookaheadTree leaf(int alt) {
+		return new LookaheadTree(0, alt);
+	}
+
+	public boolean isLeaf() {
+		return alt!=0;
+	}
+
+	/** Get the number of tokens needed to predict any alternative. */
+	public int getMaxDepth() {
+		int max = depth;
+		for (LookaheadTree t : edges.values()) {
+			max = Math.max(max, t.getMaxDepth());
+		}
+		return max;
+	}
+
+	/** Render as {@code {ttype:subtree,...}} with leaves as their
+	 *  alternative; {@link org.antlr.v4.tool.BuildCache} stores trees in
+	 *  this form.
+	 */
+	@Override
+	public String toString() {
+		if ( isLeaf() ) return String.valueOf(alt);
+		StringBuilder buf = new StringBuilder();
+		buf.append('{');
+		for (Map.Entry<Integer, LookaheadTree> e : edges.entrySet()) {
+			if ( buf.length()>1 ) buf.append(',');
+			buf.append(e.getKey()).append(':').append(e.getValue());
+		}
+		buf.append('}');
+		return buf.toString();
+	}
+
+	/** Parse the form written by {@link #toString}. */
+	public static LookaheadTree parse(String s) {
+		int[] p = {0};
+		LookaheadTree t = parse(s, p, 1);
+		if ( p[0]!=s.length() ) throw new IllegalArgumentException("unexpected input at "+p[0]+": "+s);
+		return t;
+	}
+
+	private static LookaheadTree parse(String s, int[] p, int depth) {
+		if ( s.charAt(p[0])!='{' ) {
+			return leaf(parseInt(s, p));
+		}
+
+		LookaheadTree t = node(depth);
+		p[0]++;
+		while ( s.charAt(p[0])!='}' ) {
+			if ( !t.edges.isEmpty() ) expect(s, p, ',');
+			int ttype = parseInt(s, p);
+			expect(s, p, ':');
+			t.edges.put(ttype, parse(s, p, depth+1));
+		}
+		p[0]++;
+		return t;
+	}
+
+	private static int parseInt(String s, int[] p) {
+		int start = p[0];
+		if ( s.charAt(p[0])=='-' ) p[0]++;
+		while ( p[0]<s.length() && Character.isDigit(s.charAt(p[0])) ) p[0]++;
+		return Integer.parseInt(s.substring(start, p[0]));
+	}
+
+	private static void expect(String s, int[] p, char c) {
+		if ( s.charAt(p[0])!=c ) throw new IllegalArgumentException("expected '"+c+"' at "+p[0]+": "+s);
+		p[0]++;
+	}
+}
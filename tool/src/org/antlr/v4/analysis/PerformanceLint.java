@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.analysis;
+
+import org.antlr.runtime.Token;
+import org.antlr.v4.misc.Utils;
+import org.antlr.v4.runtime.atn.ATNState;
+import org.antlr.v4.runtime.atn.ActionTransition;
+import org.antlr.v4.runtime.atn.DecisionState;
+import org.antlr.v4.runtime.atn.EpsilonTransition;
+import org.antlr.v4.runtime.atn.LoopEndState;
+import org.antlr.v4.runtime.atn.PrecedencePredicateTransition;
+import org.antlr.v4.runtime.atn.PredicateTransition;
+import org.antlr.v4.runtime.atn.RuleStopState;
+import org.antlr.v4.runtime.atn.StarLoopEntryState;
+import org.antlr.v4.runtime.atn.Transition;
+import org.antlr.v4.runtime.misc.IntervalSet;
+import org.antlr.v4.tool.ErrorType;
+import org.antlr.v4.tool.Grammar;
+import org.antlr.v4.tool.LeftRecursiveRule;
+import org.antlr.v4.tool.Rule;
+import org.antlr.v4.tool.ast.GrammarAST;
+
+import java.util.BitSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+/** Warns about decisions that are likely to be slow to predict at runtime,
+ *  for {@code -Xperf-lint}. This is a static estimate from the ATN, run
+ *  after {@link AnalysisPipeline}; profiling real input with
+ *  {@code ProfilingATNSimulator} remains the way to measure. Reported are:
+ *
+ *  <ul>
+ *  <li>decisions that need more than {@link LLkAnalyzer#DEFAULT_MAX_DEPTH}
+ *  tokens of lookahead, with the depth found up to {@link #MAX_DEPTH};</li>
+ *  <li>decisions whose alternatives only differ in what follows the rule,
+ *  which SLL prediction can't resolve so it falls back to full LL;</li>
+ *  <li>left-recursive rules with more than {@link #MAX_OPERATOR_ALTS}
+ *  operator alternatives, which the precedence decision tries at every
+ *  operator;</li>
+ *  <li>parser decisions with predicates, which are evaluated on every
+ *  prediction, and lexer predicates, which keep the DFA from caching the
+ *  edges leading to them.</li>
+ *  </ul>
+ *
+ *  @since 4.7.2
+ */
+public class PerformanceLint {
+	/** The deepest lookahead estimated. */
+	public static final int MAX_DEPTH = 6;
+
+	/** Left-recursive rules with more operator alternatives are reported. */
+	public static final int MAX_OPERATOR_ALTS = 10;
+
+	public final Grammar g;
+
+	public PerformanceLint(Grammar g) {
+		this.g = g;
+	}
+
+	public void process() {
+		if ( g.isLexer() ) {
+			checkLexerPredicates();
+			return;
+		}
+
+		for (DecisionState s : g.atn.decisionToState) {
+			checkDecision(s);
+		}
+		for (Rule r : g.rules.values()) {
+			if ( r instanceof LeftRecursiveRule ) {
+				checkOperatorAlts((LeftRecursiveRule)r);
+			}
+		}
+	}
+
+	protected void checkDecision(DecisionState s) {
+		// the operator alternatives are checked as a whole
+		if ( isPrecedenceDecision(s) ) return;
+
+		IntervalSet[] look = g.decisionLOOK.get(s.decision);
+		if ( AnalysisPipeline.disjoint(look) ) return;
+		if ( g.decisionLLk!=null && g.decisionLLk.get(s.decision)!=null ) return;
+
+		Rule r = g.getRule(s.ruleIndex);
+		Set<Integer> predicated = new TreeSet<Integer>();
+		for (int alt = 1; alt <= look.length; alt++) {
+			if ( look[alt - 1]==null ) {
+				// operator alternatives of a left-recursive rule
+				if ( startsWithPrecedencePredicate(s.transition(alt - 1).target) ) return;
+				predicated.add(alt);
+			}
+		}
+		if ( !predicated.isEmpty() ) {
+			warn(ErrorType.PREDICATED_DECISION, getToken(r, s), r.name, s.decision, Utils.join(predicated.toArray(), ","));
+			return;
+		}
+
+		Set<Integer> overlapping = getOverlappingAlts(look);
+		String alts = Utils.join(overlapping.toArray(), ",");
+		LLkAnalyzer analyzer = new LLkAnalyzer(g.atn, MAX_DEPTH);
+		LookaheadTree tree = analyzer.getDecisionLookahead(s);
+		if ( tree!=null ) {
+			int k = tree.getMaxDepth();
+			if ( k>LLkAnalyzer.DEFAULT_MAX_DEPTH ) {
+				warn(ErrorType.DEEP_LOOKAHEAD_DECISION, getToken(r, s), r.name, s.decision, String.valueOf(k), alts);
+			}
+		}
+		else if ( analyzer.usedFollow ) {
+			warn(ErrorType.FULL_CONTEXT_DECISION, getToken(r, s), r.name, s.decision, alts);
+		}
+		else {
+			warn(ErrorType.DEEP_LOOKAHEAD_DECISION, getToken(r, s), r.name, s.decision, "more than "+MAX_DEPTH, alts);
+		}
+	}
+
+	protected void checkOperatorAlts(LeftRecursiveRule r) {
+		int n = r.recOpAlts!=null ? r.recOpAlts.size() : 0;
+		if ( n>MAX_OPERATOR_ALTS ) {
+			warn(ErrorType.MANY_OPERATOR_ALTS, ((GrammarAST)r.ast.getChild(0)).getToken(), r.name, n);
+		}
+	}
+
+	protected void checkLexerPredicates() {
+		BitSet reported = new BitSet();
+		for (ATNState s : g.atn.states) {
+			if ( s==null ) continue;
+			for (int i = 0; i < s.getNumberOfTransitions(); i++) {
+				if ( !(s.transition(i) instanceof PredicateTransition) ) continue;
+				Rule r = g.getRule(s.ruleIndex);
+				if ( reported.get(r.index) ) continue;
+				reported.set(r.index);
+				warn(ErrorType.LEXER_PREDICATE, getToken(r, s), r.name);
+			}
+		}
+	}
+
+	/** Get the alternatives whose LL(1) lookahead overlaps another's. */
+	protected static Set<Integer> getOverlappingAlts(IntervalSet[] look) {
+		Set<Integer> alts = new TreeSet<Integer>();
+		for (int i = 0; i < look.length; i++) {
+			for (int j = i + 1; j < look.length; j++) {
+				if ( !look[i].and(look[j]).isNil() ) {
+					alts.add(i + 1);
+					alts.add(j + 1);
+				}
+			}
+		}
+		return alts;
+	}
+
+	/** Is {@code s} the loop entry of the operator alternatives of a
+	 *  left-recursive rule? The ATN the tool builds doesn't mark these
+	 *  decisions, so this checks for the shape the deserializer marks.
+	 */
+	protected boolean isPrecedenceDecision(DecisionState s) {
+		if ( !(s instanceof StarLoopEntryState) ) return false;
+		if ( ((StarLoopEntryState)s).isPrecedenceDecision ) return true;
+		if ( !(g.getRule(s.ruleIndex) instanceof LeftRecursiveRule) ) return false;
+
+		ATNState loopEnd = s.transition(s.getNumberOfTransitions() - 1).target;
+		return loopEnd instanceof LoopEndState &&
+			   loopEnd.epsilonOnlyTransitions &&
+			   loopEnd.transition(0).target instanceof RuleStopState;
+	}
+
+	/** Does a precedence predicate follow {@code s} before anything else
+	 *  but epsilon and action transitions?
+	 */
+	protected static boolean startsWithPrecedencePredicate(ATNState s) {
+		while ( s.getNumberOfTransitions()==1 ) {
+			Transition t = s.transition(0);
+			if ( t instanceof PrecedencePredicateTransition ) return true;
+			if ( !(t instanceof EpsilonTransition) && !(t instanceof ActionTransition) ) return false;
+			s = t.target;
+		}
+		return false;
+	}
+
+	/** Get the grammar element of ATN state {@code s}, or the name of rule
+	 *  {@code r} if no element of {@code r} starts at {@code s}.
+	 */
+	public static Token getToken(Rule r, ATNState s) {
+		GrammarAST node = find(r.ast, s);
+		if ( node==null || node.getToken().getLine()<=0 ) {
+			node = (GrammarAST)r.ast.getChild(0);
+		}
+		return node.getToken();
+	}
+
+	private static GrammarAST find(GrammarAST t, ATNState s) {
+		if ( t.atnState==s ) return t;
+		for (int i = 0; i < t.getChildCount(); i++) {
+			GrammarAST node = find((GrammarAST)t.getChild(i), s);
+			if ( node!=null ) return node;
+		}
+		return null;
+	}
+
+	protected void warn(ErrorType etype, Token token, Object... args) {
+		g.tool.errMgr.grammarError(etype, g.fileName, token, args);
+	}
+}
@@ -136,7 +136,13 @@ public class LexerATNFactory extends ParserATNFactory {
 			}
 		}
 
-		ATNOptimizer.optimize(g, atn);
+		g.tool.startPhase("optimize");
+		try {
+			ATNOptimizer.optimize(g, atn);
+		}
+		finally {
+			g.tool.stopPhase();
+		}
 		return atn;
 	}
 
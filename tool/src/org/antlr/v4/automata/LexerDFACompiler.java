@@ -0,0 +1,238 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.automata;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.Lexer;
+import org.antlr.v4.runtime.atn.ATN;
+import org.antlr.v4.runtime.atn.ATNConfig;
+import org.antlr.v4.runtime.atn.ATNConfigSet;
+import org.antlr.v4.runtime.atn.ATNState;
+import org.antlr.v4.runtime.atn.AbstractPredicateTransition;
+import org.antlr.v4.runtime.atn.CompiledLexerDFA;
+import org.antlr.v4.runtime.atn.LexerATNConfig;
+import org.antlr.v4.runtime.atn.LexerATNSimulator;
+import org.antlr.v4.runtime.atn.LexerAction;
+import org.antlr.v4.runtime.atn.LexerActionExecutor;
+import org.antlr.v4.runtime.atn.NotSetTransition;
+import org.antlr.v4.runtime.atn.PredictionContextCache;
+import org.antlr.v4.runtime.atn.RuleStopState;
+import org.antlr.v4.runtime.atn.Transition;
+import org.antlr.v4.runtime.atn.WildcardTransition;
+import org.antlr.v4.runtime.dfa.DFA;
+import org.antlr.v4.runtime.dfa.DFAState;
+import org.antlr.v4.runtime.misc.Interval;
+import org.antlr.v4.runtime.misc.IntervalSet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/** Computes the complete DFA of a lexer ahead of time, for lexers generated
+ *  with {@code -Xlexer-dfa}. The DFA states are built by the same code
+ *  {@link LexerATNSimulator} builds them with while lexing, so the
+ *  {@link CompiledLexerDFA} matches exactly the tokens the ATN does; this
+ *  class just visits every edge instead of those the input takes. For each
+ *  state, the characters are split into ranges that every transition out of
+ *  its configurations either matches completely or not at all, and the
+ *  target is computed for one character of each range.
+ *
+ *  <p>Lexers with semantic predicates can't be compiled, since their DFA
+ *  depends on the input, nor can lexers with actions that see the input
+ *  position in the middle of a token. The lexer is also left to the ATN
+ *  simulator if the DFA grows beyond {@link #MAX_STATES} states.</p>
+ *
+ *  @since 4.7.2
+ */
+public class LexerDFACompiler extends LexerATNSimulator {
+	/** The largest DFA compiled. At runtime, only the first
+	 *  {@link CompiledLexerDFA#MAX_DENSE_STATES} states also get a dense
+	 *  table of edges.
+	 */
+	public static final int MAX_STATES = 16384;
+
+	/** The predicates and actions only ever see this empty input. */
+	protected final CharStream input = CharStreams.fromString("");
+
+	protected final Map<DFAState, Integer> stateNumbers = new IdentityHashMap<DFAState, Integer>();
+	protected final List<DFAState> states = new ArrayList<DFAState>();
+
+	/** Why the last {@link #compile} returned null. */
+	protected String failure;
+
+	public LexerDFACompiler(ATN atn) {
+		super(null, atn, createDFA(atn), new PredictionContextCache());
+	}
+
+	private static DFA[] createDFA(ATN atn) {
+		DFA[] dfa = new DFA[atn.getNumberOfDecisions()];
+		for (int i = 0; i < dfa.length; i++) {
+			dfa[i] = new DFA(atn.getDecisionState(i), i);
+		}
+		return dfa;
+	}
+
+	/** Get the reason the last call to {@link #compile} failed. */
+	public String getFailure() {
+		return failure;
+	}
+
+	/** Compute the DFA of all modes, or return null if the lexer can't be
+	 *  compiled; {@link #getFailure} says why.
+	 */
+	public CompiledLexerDFA compile() {
+		failure = null;
+		stateNumbers.clear();
+		states.clear();
+		for (ATNState s : atn.states) {
+			if ( s==null ) continue;
+			for (int i = 0; i < s.getNumberOfTransitions(); i++) {
+				if ( s.transition(i) instanceof AbstractPredicateTransition ) {
+					failure = "semantic predicates are evaluated while lexing";
+					return null;
+				}
+			}
+		}
+
+		// states are numbered in the order they are found, so this visits
+		// each state of each mode once, breadth first
+		int[] modeStartStates = new int[atn.modeToStartState.size()];
+		List<int[]> edges = new ArrayList<int[]>();
+		for (int m = 0; m < modeStartStates.length; m++) {
+			mode = m;
+			ATNConfigSet s0_closure = computeStartState(input, atn.modeToStartState.get(m));
+			modeStartStates[m] = getStateNumber(addDFAState(s0_closure));
+			while ( edges.size()<states.size() ) {
+				int[] e = getEdges(states.get(edges.size()));
+				if ( e==null ) return null;
+				edges.add(e);
+			}
+		}
+
+		int n = states.size();
+		boolean[] acceptStates = new boolean[n];
+		int[] predictions = new int[n];
+		int[][] lexerActions = new int[n][];
+		for (int i = 0; i < n; i++) {
+			DFAState s = states.get(i);
+			if ( !s.isAcceptState ) continue;
+			acceptStates[i] = true;
+			predictions[i] = s.prediction;
+			if ( s.lexerActionExecutor!=null ) {
+				LexerAction[] actions = s.lexerActionExecutor.getLexerActions();
+				lexerActions[i] = new int[actions.length];
+				for (int a = 0; a < actions.length; a++) {
+					lexerActions[i][a] = Arrays.asList(atn.lexerActions).indexOf(actions[a]);
+				}
+			}
+		}
+
+		return new CompiledLexerDFA(atn, modeStartStates, acceptStates, predictions,
+									lexerActions, edges.toArray(new int[n][]));
+	}
+
+	/** Get the {@code lo, hi, target} triples of DFA state {@code s}, or null
+	 *  if the lexer can't be compiled.
+	 */
+	protected int[] getEdges(DFAState s) {
+		for (ATNConfig c : s.configs) {
+			LexerActionExecutor executor = ((LexerATNConfig)c).getLexerActionExecutor();
+			if ( executor!=null && !(c.state instanceof RuleStopState) ) {
+				for (LexerAction action : executor.getLexerActions()) {
+					if ( action.isPositionDependent() ) {
+						failure = "an action is executed in the middle of a token";
+						return null;
+					}
+				}
+			}
+		}
+
+		// the chars where the set of matching transitions can change
+		TreeSet<Integer> bounds = new TreeSet<Integer>();
+		bounds.add(Lexer.MIN_CHAR_VALUE);
+		bounds.add(Lexer.MAX_CHAR_VALUE + 1);
+		for (ATNConfig c : s.configs) {
+			for (int i = 0; i < c.state.getNumberOfTransitions(); i++) {
+				IntervalSet set = getLabel(c.state.transition(i));
+				if ( set==null ) continue;
+				for (Interval interval : set.getIntervals()) {
+					if ( interval.a>=Lexer.MIN_CHAR_VALUE ) bounds.add(interval.a);
+					if ( interval.b>=Lexer.MIN_CHAR_VALUE ) bounds.add(interval.b + 1);
+				}
+			}
+		}
+
+		List<Integer> edges = new ArrayList<Integer>();
+		addEdge(edges, IntStream.EOF, IntStream.EOF, computeTarget(s, IntStream.EOF));
+		Integer lo = bounds.first();
+		for (Integer next : bounds.tailSet(lo, false)) {
+			addEdge(edges, lo, next - 1, computeTarget(s, lo));
+			lo = next;
+		}
+
+		if ( states.size()>MAX_STATES ) {
+			failure = "the DFA has more than "+MAX_STATES+" states";
+			return null;
+		}
+
+		int[] e = new int[edges.size()];
+		for (int i = 0; i < e.length; i++) {
+			e[i] = edges.get(i);
+		}
+		return e;
+	}
+
+	/** Get the symbols {@code t} matches, or null for an epsilon transition. */
+	protected static IntervalSet getLabel(Transition t) {
+		if ( t.isEpsilon() ) return null;
+		if ( t instanceof WildcardTransition ) {
+			return IntervalSet.of(Lexer.MIN_CHAR_VALUE, Lexer.MAX_CHAR_VALUE);
+		}
+		IntervalSet set = t.label();
+		if ( set!=null && t instanceof NotSetTransition ) {
+			set = set.complement(IntervalSet.of(Lexer.MIN_CHAR_VALUE, Lexer.MAX_CHAR_VALUE));
+		}
+		return set;
+	}
+
+	/** Get the number of the state {@code s} reaches on {@code t}, or -1. */
+	protected int computeTarget(DFAState s, int t) {
+		DFAState target = computeTargetState(input, s, t);
+		if ( target==ERROR ) return -1;
+		return getStateNumber(target);
+	}
+
+	protected int getStateNumber(DFAState s) {
+		Integer n = stateNumbers.get(s);
+		if ( n==null ) {
+			n = states.size();
+			stateNumbers.put(s, n);
+			states.add(s);
+		}
+		return n;
+	}
+
+	/** Add edge {@code lo..hi -> target}, merged with the previous edge if
+	 *  they are adjacent and go to the same state.
+	 */
+	protected static void addEdge(List<Integer> edges, int lo, int hi, int target) {
+		if ( target<0 ) return;
+		int n = edges.size();
+		if ( n>0 && edges.get(n - 1)==target && edges.get(n - 2)==lo - 1 ) {
+			edges.set(n - 2, hi);
+			return;
+		}
+		edges.add(lo);
+		edges.add(hi);
+		edges.add(target);
+	}
+}
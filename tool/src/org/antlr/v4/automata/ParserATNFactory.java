@@ -109,7 +109,13 @@ public class ParserATNFactory implements ATNFactory {
 		assert atn.maxTokenType == g.getMaxTokenType();
         addRuleFollowLinks();
 		addEOFTransitionToStartRules();
-		ATNOptimizer.optimize(g, atn);
+		g.tool.startPhase("optimize");
+		try {
+			ATNOptimizer.optimize(g, atn);
+		}
+		finally {
+			g.tool.stopPhase();
+		}
 
 		for (Triple<Rule, ATNState, ATNState> pair : preventEpsilonClosureBlocks) {
 			LL1Analyzer analyzer = new LL1Analyzer(atn);
@@ -88,6 +88,9 @@ public abstract class BlankOutputModelFactory implements OutputModelFactory {
 	@Override
 	public Choice getLL1ChoiceBlock(BlockAST blkAST, List<CodeBlockForAlt> alts) { return null; }
 
+	@Override
+	public Choice getLLkChoiceBlock(BlockAST blkAST, List<CodeBlockForAlt> alts) { return null; }
+
 	@Override
 	public Choice getComplexChoiceBlock(BlockAST blkAST, List<CodeBlockForAlt> alts) { return null; }
 
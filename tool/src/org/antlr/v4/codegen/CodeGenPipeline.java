@@ -26,6 +26,7 @@ public class CodeGenPipeline {
 		if ( !CodeGenerator.targetExists(g.getOptionString("language")) ) return;
 
 		CodeGenerator gen = new CodeGenerator(g);
+		gen.checkTargetOptions();
 		IntervalSet idTypes = new IntervalSet();
 		idTypes.add(ANTLRParser.ID);
 		idTypes.add(ANTLRParser.RULE_REF);
@@ -54,6 +55,12 @@ public class CodeGenPipeline {
 			ST lexer = gen.generateLexer(false);
 			if (g.tool.errMgr.getNumErrors() == errorCount) {
 				writeRecognizer(lexer, gen, false);
+				if ( gen.isBinaryATN() ) {
+					gen.writeBinaryATN();
+				}
+				if ( gen.getLexerDFA()!=null ) {
+					gen.writeLexerDFA();
+				}
 			}
 		}
 		else {
@@ -66,6 +73,9 @@ public class CodeGenPipeline {
 			ST parser = gen.generateParser(false);
 			if (g.tool.errMgr.getNumErrors() == errorCount) {
 				writeRecognizer(parser, gen, false);
+				if ( gen.isBinaryATN() ) {
+					gen.writeBinaryATN();
+				}
 			}
 
 			if ( g.tool.gen_listener ) {
@@ -7,16 +7,21 @@
 package org.antlr.v4.codegen;
 
 import org.antlr.v4.Tool;
+import org.antlr.v4.automata.LexerDFACompiler;
 import org.antlr.v4.codegen.model.OutputModelObject;
 import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.atn.ATNSerializer;
+import org.antlr.v4.runtime.atn.CompiledLexerDFA;
 import org.antlr.v4.tool.ErrorType;
 import org.antlr.v4.tool.Grammar;
+import org.antlr.v4.tool.ast.GrammarAST;
 import org.stringtemplate.v4.AutoIndentWriter;
 import org.stringtemplate.v4.ST;
 import org.stringtemplate.v4.STGroup;
 import org.stringtemplate.v4.STWriter;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Writer;
 import java.lang.reflect.Constructor;
 import java.util.LinkedHashMap;
@@ -43,6 +48,9 @@ public class CodeGenerator {
 
 	public int lineWidth = 72;
 
+	private CompiledLexerDFA lexerDFA;
+	private boolean lexerDFAComputed;
+
 	private CodeGenerator(String language) {
 		this.g = null;
 		this.tool = null;
@@ -111,8 +119,14 @@ public class CodeGenerator {
 	}
 
 	private ST walk(OutputModelObject outputModel, boolean header) {
-		OutputModelWalker walker = new OutputModelWalker(tool, getTemplates());
-		return walker.walk(outputModel, header);
+		tool.startPhase("templates");
+		try {
+			OutputModelWalker walker = new OutputModelWalker(tool, getTemplates());
+			return walker.walk(outputModel, header);
+		}
+		finally {
+			tool.stopPhase();
+		}
 	}
 
 	public ST generateLexer() { return generateLexer(false); }
@@ -195,7 +209,107 @@ public class CodeGenerator {
 		}
 	}
 
+	/** Warn about each code generation option that was given but that the
+	 *  target doesn't support, so that it is not silently ignored.
+	 */
+	public void checkTargetOptions() {
+		Target target = getTarget();
+		if ( tool.binary_atn && !target.supportsBinaryATN() ) {
+			unsupportedOption("-Xbinary-atn");
+		}
+		if ( tool.shared_atn && !target.supportsSharedATN() ) {
+			unsupportedOption("-Xshared-atn");
+		}
+		if ( tool.llk && !tool.force_atn && !g.isLexer() && !target.supportsLLkDecisions() ) {
+			unsupportedOption("-Xllk");
+		}
+		if ( tool.lexer_dfa && g.isLexer() && !target.supportsLexerDFA() ) {
+			unsupportedOption("-Xlexer-dfa");
+		}
+	}
+
+	private void unsupportedOption(String option) {
+		tool.errMgr.grammarError(ErrorType.OPTION_NOT_SUPPORTED_BY_TARGET, g.fileName,
+								 ((GrammarAST)g.ast.getChild(0)).getToken(),
+								 option, language, g.name);
+	}
+
+	/** Should the recognizer load its ATN from {@link #getBinaryATNFileName}? */
+	public boolean isBinaryATN() {
+		return tool.binary_atn && getTarget().supportsBinaryATN();
+	}
+
+	/** Write the ATN resource that recognizers generated with
+	 *  {@code -Xbinary-atn} load at class initialization.
+	 */
+	public void writeBinaryATN() {
+		String fileName = getBinaryATNFileName();
+		try {
+			OutputStream out = tool.getOutputFileStream(g, fileName);
+			try {
+				out.write(ATNSerializer.getSerializedAsBytes(g.atn));
+			}
+			finally {
+				out.close();
+			}
+		}
+		catch (IOException ioe) {
+			tool.errMgr.toolError(ErrorType.CANNOT_WRITE_FILE,
+								  ioe,
+								  fileName);
+		}
+	}
+
+	public String getBinaryATNFileName() {
+		return g.getRecognizerName()+".atn";
+	}
+
+	/** Get the DFA the lexer generated with {@code -Xlexer-dfa} matches
+	 *  tokens with, or null if the lexer simulates its ATN. The DFA is
+	 *  computed on the first call.
+	 */
+	public CompiledLexerDFA getLexerDFA() {
+		if ( !tool.lexer_dfa || !g.isLexer() || !getTarget().supportsLexerDFA() ) return null;
+		if ( !lexerDFAComputed ) {
+			lexerDFAComputed = true;
+			LexerDFACompiler compiler = new LexerDFACompiler(g.atn);
+			lexerDFA = compiler.compile();
+			if ( lexerDFA==null ) {
+				tool.errMgr.grammarError(ErrorType.LEXER_DFA_NOT_COMPILED, g.fileName,
+										 ((GrammarAST)g.ast.getChild(0)).getToken(),
+										 g.name, compiler.getFailure());
+			}
+		}
+		return lexerDFA;
+	}
+
+	/** Write the DFA resource that lexers generated with {@code -Xlexer-dfa}
+	 *  load at class initialization.
+	 */
+	public void writeLexerDFA() {
+		String fileName = getLexerDFAFileName();
+		try {
+			OutputStream out = tool.getOutputFileStream(g, fileName);
+			try {
+				out.write(getLexerDFA().toBytes());
+			}
+			finally {
+				out.close();
+			}
+		}
+		catch (IOException ioe) {
+			tool.errMgr.toolError(ErrorType.CANNOT_WRITE_FILE,
+								  ioe,
+								  fileName);
+		}
+	}
+
+	public String getLexerDFAFileName() {
+		return g.getRecognizerName()+".dfa";
+	}
+
 	public void write(ST code, String fileName) {
+		tool.startPhase("render");
 		try {
 //			long start = System.currentTimeMillis();
 			Writer w = tool.getOutputFileWriter(g, fileName);
@@ -210,6 +324,9 @@ public class CodeGenerator {
 								  ioe,
 								  fileName);
 		}
+		finally {
+			tool.stopPhase();
+		}
 	}
 
 	public String getRecognizerFileName() { return getRecognizerFileName(false); }
@@ -77,6 +77,9 @@ public interface OutputModelFactory {
 
 	Choice getLL1ChoiceBlock(BlockAST blkAST, List<CodeBlockForAlt> alts);
 
+	/** @since 4.7.2 */
+	Choice getLLkChoiceBlock(BlockAST blkAST, List<CodeBlockForAlt> alts);
+
 	Choice getComplexChoiceBlock(BlockAST blkAST, List<CodeBlockForAlt> alts);
 
 	Choice getLL1EBNFBlock(GrammarAST ebnfRoot, List<CodeBlockForAlt> alts);
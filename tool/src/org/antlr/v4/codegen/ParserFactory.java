@@ -19,6 +19,7 @@ import org.antlr.v4.codegen.model.LL1OptionalBlock;
 import org.antlr.v4.codegen.model.LL1OptionalBlockSingleAlt;
 import org.antlr.v4.codegen.model.LL1PlusBlockSingleAlt;
 import org.antlr.v4.codegen.model.LL1StarBlockSingleAlt;
+import org.antlr.v4.codegen.model.LLkAltBlock;
 import org.antlr.v4.codegen.model.LabeledOp;
 import org.antlr.v4.codegen.model.LeftRecursiveRuleFunction;
 import org.antlr.v4.codegen.model.MatchNotSet;
@@ -199,6 +200,11 @@ public class ParserFactory extends DefaultOutputModelFactory {
 		if ( !g.tool.force_atn && AnalysisPipeline.disjoint(g.decisionLOOK.get(decision)) ) {
 			c = getLL1ChoiceBlock(blkAST, alts);
 		}
+		else if ( g.tool.llk && !g.tool.force_atn && g.decisionLLk!=null && g.decisionLLk.get(decision)!=null &&
+				  gen.getTarget().supportsLLkDecisions() )
+		{
+			c = getLLkChoiceBlock(blkAST, alts);
+		}
 		else {
 			c = getComplexChoiceBlock(blkAST, alts);
 		}
@@ -245,6 +251,11 @@ public class ParserFactory extends DefaultOutputModelFactory {
 		return new LL1AltBlock(this, blkAST, alts);
 	}
 
+	@Override
+	public Choice getLLkChoiceBlock(BlockAST blkAST, List<CodeBlockForAlt> alts) {
+		return new LLkAltBlock(this, blkAST, alts);
+	}
+
 	@Override
 	public Choice getComplexChoiceBlock(BlockAST blkAST, List<CodeBlockForAlt> alts) {
 		return new AltBlock(this, blkAST, alts);
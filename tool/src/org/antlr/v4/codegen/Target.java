@@ -583,4 +583,37 @@ public abstract class Target {
 
 	/** @since 4.6 */
 	public boolean needsHeader() { return false; }; // Override in targets that need header files.
+
+	/**
+	 * Can the generated recognizers load their ATN from the binary resource
+	 * written with {@code -Xbinary-atn}?
+	 *
+	 * @since 4.7.2
+	 */
+	public boolean supportsBinaryATN() { return false; }
+
+	/**
+	 * Can the generated recognizers share their ATN and DFA through the
+	 * runtime's registry, as requested with {@code -Xshared-atn}?
+	 *
+	 * @since 4.7.2
+	 */
+	public boolean supportsSharedATN() { return false; }
+
+	/**
+	 * Does the target have templates for {@link
+	 * org.antlr.v4.codegen.model.LLkChoice} blocks, which predict decisions
+	 * that are LL(k) but not LL(1) without the ATN simulator?
+	 *
+	 * @since 4.7.2
+	 */
+	public boolean supportsLLkDecisions() { return false; }
+
+	/**
+	 * Can the generated lexers match tokens with the DFA resource written
+	 * with {@code -Xlexer-dfa}?
+	 *
+	 * @since 4.7.2
+	 */
+	public boolean supportsLexerDFA() { return false; }
 }
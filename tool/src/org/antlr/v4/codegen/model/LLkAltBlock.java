@@ -0,0 +1,25 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.codegen.model;
+
+import org.antlr.v4.codegen.OutputModelFactory;
+import org.antlr.v4.runtime.atn.DecisionState;
+import org.antlr.v4.tool.ast.GrammarAST;
+
+import java.util.List;
+
+/** (A B | A C | D), predicted from LL(k) lookahead
+ *
+ *  @since 4.7.2
+ */
+public class LLkAltBlock extends LLkChoice {
+	public LLkAltBlock(OutputModelFactory factory, GrammarAST blkAST, List<CodeBlockForAlt> alts) {
+		super(factory, blkAST, alts);
+		this.decision = ((DecisionState)blkAST.atnState).decision;
+		this.lookahead = getLookaheadSwitch(factory.getGrammar().decisionLLk.get(decision));
+	}
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.codegen.model;
+
+import org.antlr.v4.analysis.LookaheadTree;
+import org.antlr.v4.codegen.OutputModelFactory;
+import org.antlr.v4.tool.ast.GrammarAST;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/** A decision predicted by nested switches on a fixed number of lookahead
+ *  tokens. Inputs the switches don't predict fall back on adaptivePredict,
+ *  which reports the syntax error.
+ *
+ *  @since 4.7.2
+ */
+public abstract class LLkChoice extends Choice {
+	/** The switch on LA(1) */
+	public LookaheadSwitch lookahead;
+
+	public LLkChoice(OutputModelFactory factory, GrammarAST blkAST,
+					 List<CodeBlockForAlt> alts)
+	{
+		super(factory, blkAST, alts);
+	}
+
+	public LookaheadSwitch getLookaheadSwitch(LookaheadTree tree) {
+		LookaheadSwitch s = new LookaheadSwitch(tree.depth);
+		// one case per predicted alt, then one per token that needs more lookahead
+		Map<Integer, List<Integer>> altTokens = new TreeMap<Integer, List<Integer>>();
+		for (Map.Entry<Integer, LookaheadTree> e : tree.edges.entrySet()) {
+			if ( !e.getValue().isLeaf() ) continue;
+			List<Integer> ttypes = altTokens.get(e.getValue().alt);
+			if ( ttypes==null ) {
+				ttypes = new ArrayList<Integer>();
+				altTokens.put(e.getValue().alt, ttypes);
+			}
+			ttypes.add(e.getKey());
+		}
+		for (Map.Entry<Integer, List<Integer>> e : altTokens.entrySet()) {
+			s.cases.add(new LookaheadCase(getTokenLabels(e.getValue()), e.getKey(), null));
+		}
+		for (Map.Entry<Integer, LookaheadTree> e : tree.edges.entrySet()) {
+			if ( e.getValue().isLeaf() ) continue;
+			List<Integer> ttypes = new ArrayList<Integer>();
+			ttypes.add(e.getKey());
+			s.cases.add(new LookaheadCase(getTokenLabels(ttypes), 0, getLookaheadSwitch(e.getValue())));
+		}
+		return s;
+	}
+
+	protected String[] getTokenLabels(List<Integer> ttypes) {
+		int[] types = new int[ttypes.size()];
+		for (int i = 0; i < types.length; i++) {
+			types[i] = ttypes.get(i);
+		}
+		return factory.getGenerator().getTarget().getTokenTypesAsTargetLabels(factory.getGrammar(), types);
+	}
+
+	/** switch (LA(depth)) */
+	public static class LookaheadSwitch {
+		public final int depth;
+		public final List<LookaheadCase> cases = new ArrayList<LookaheadCase>();
+
+		public LookaheadSwitch(int depth) {
+			this.depth = depth;
+		}
+	}
+
+	/** The tokens of a case and either the alt they predict or the switch on
+	 *  the next token.
+	 */
+	public static class LookaheadCase {
+		public final String[] ttypes;
+		public final int alt;
+		public final LookaheadSwitch next;
+
+		public LookaheadCase(String[] ttypes, int alt, LookaheadSwitch next) {
+			this.ttypes = ttypes;
+			this.alt = alt;
+			this.next = next;
+		}
+	}
+}
@@ -19,6 +19,10 @@ public class Lexer extends Recognizer {
 	public Map<String,Integer> channels;
 	public LexerFile file;
 	public Collection<String> modes;
+	/** The DFA resource the lexer matches tokens with, or null to simulate
+	 *  the ATN; see {@code -Xlexer-dfa}.
+	 */
+	public String lexerDFAFileName;
 
 	@ModelElement public LinkedHashMap<Rule, RuleActionFunction> actionFuncs =
 		new LinkedHashMap<Rule, RuleActionFunction>();
@@ -30,5 +34,8 @@ public class Lexer extends Recognizer {
 		Grammar g = factory.getGrammar();
 		channels = new LinkedHashMap<String, Integer>(g.channelNameToValueMap);
 		modes = ((LexerGrammar)g).modes.keySet();
+		if ( factory.getGenerator().getLexerDFA()!=null ) {
+			lexerDFAFileName = factory.getGenerator().getLexerDFAFileName();
+		}
 	}
 }
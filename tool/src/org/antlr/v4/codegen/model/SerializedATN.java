@@ -6,6 +6,8 @@
 
 package org.antlr.v4.codegen.model;
 
+import org.antlr.v4.Tool;
+import org.antlr.v4.codegen.CodeGenerator;
 import org.antlr.v4.codegen.OutputModelFactory;
 import org.antlr.v4.runtime.atn.ATN;
 import org.antlr.v4.runtime.atn.ATNSerializer;
@@ -17,9 +19,34 @@ import java.util.List;
 public class SerializedATN extends OutputModelObject {
 	// TODO: make this into a kind of decl or multiple?
 	public List<String> serialized;
+	/** Load the ATN from the resource {@link #binaryFileName} instead? */
+	public boolean binary;
+	public String binaryFileName;
+	public String recognizerName;
+	/** Get the ATN from the {@link org.antlr.v4.runtime.atn.ATNRegistry}? */
+	public boolean shared;
+
 	public SerializedATN(OutputModelFactory factory, ATN atn) {
 		super(factory);
-		IntegerList data = ATNSerializer.getSerialized(atn);
+		CodeGenerator gen = factory.getGenerator();
+		recognizerName = factory.getGrammar().getRecognizerName();
+		binary = gen.isBinaryATN();
+		shared = factory.getGrammar().tool.shared_atn && gen.getTarget().supportsSharedATN();
+		if ( binary ) {
+			binaryFileName = gen.getBinaryATNFileName();
+			serialized = new ArrayList<String>();
+			return;
+		}
+
+		Tool tool = factory.getGrammar().tool;
+		IntegerList data;
+		tool.startPhase("serialize-atn");
+		try {
+			data = ATNSerializer.getSerialized(atn);
+		}
+		finally {
+			tool.stopPhase();
+		}
 		serialized = new ArrayList<String>(data.size());
 		for (int c : data.toArray()) {
 			String encoded = factory.getGenerator().getTarget().encodeIntAsCharEscape(c == -1 ? Character.MAX_VALUE : c);
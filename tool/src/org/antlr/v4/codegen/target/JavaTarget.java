@@ -70,6 +70,26 @@ public class JavaTarget extends Target {
 		return 65535 / 3;
 	}
 
+	@Override
+	public boolean supportsBinaryATN() {
+		return true;
+	}
+
+	@Override
+	public boolean supportsSharedATN() {
+		return true;
+	}
+
+	@Override
+	public boolean supportsLLkDecisions() {
+		return true;
+	}
+
+	@Override
+	public boolean supportsLexerDFA() {
+		return true;
+	}
+
 	@Override
 	protected boolean visibleGrammarSymbolCausesIssueInGeneratedCode(GrammarAST idNode) {
 		return getBadWords().contains(idNode.getText());
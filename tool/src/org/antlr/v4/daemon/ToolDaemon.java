@@ -0,0 +1,344 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.daemon;
+
+import org.antlr.v4.Tool;
+import org.antlr.v4.tool.BuildCache;
+import org.antlr.v4.tool.ErrorType;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.Charset;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Properties;
+
+/** A resident tool process for edit-compile loops. It runs the tool for
+ *  {@link ToolDaemonClient}, which takes the same arguments as
+ *  {@link Tool}, so each run skips JVM startup and class loading and finds
+ *  the code generation templates already loaded.
+ *
+ *  $ java org.antlr.v4.daemon.ToolDaemon [-cache dir] [-idle minutes]
+ *
+ *  <p>The daemon serves the directory it was started in: clients started in
+ *  other directories, where relative paths mean something else, run the
+ *  tool themselves. It listens on a loopback port, which it writes to a file
+ *  in {@code ~/.antlr4/daemon} along with a secret that clients must send.
+ *  Requests are processed one at a time, and the daemon exits after
+ *  {@code -idle} minutes (default 180) without requests.</p>
+ *
+ *  <p>With {@code -cache}, runs without their own {@code -Xcache} option use
+ *  that directory as the {@link BuildCache}.</p>
+ *
+ *  <p>Protocol: the client sends the secret, its working directory, and
+ *  the argument count and arguments, as {@link DataOutputStream#writeUTF}
+ *  strings. The daemon answers with frames of a kind byte followed by an
+ *  int; output frames carry that many bytes of standard output or error,
+ *  and the last frame carries the exit status or, for a refused request,
+ *  -1.</p>
+ *
+ *  @since 4.7.2
+ */
+public class ToolDaemon {
+	public static final byte FRAME_OUT = 1;
+	public static final byte FRAME_ERR = 2;
+	public static final byte FRAME_EXIT = 3;
+
+	/** The exit status of a request the daemon won't serve. */
+	public static final int REFUSED = -1;
+
+	static final Charset UTF8 = Charset.forName("UTF-8");
+
+	protected final File infoDirectory;
+	protected final File cacheDirectory;
+	protected final String workingDirectory = new File("").getAbsolutePath();
+	protected int idleTimeout = 180*60*1000;
+
+	protected ServerSocket serverSocket;
+	protected String secret;
+
+	public ToolDaemon(File infoDirectory, File cacheDirectory) {
+		this.infoDirectory = infoDirectory;
+		this.cacheDirectory = cacheDirectory;
+	}
+
+	public static void main(String[] args) throws IOException {
+		File cacheDirectory = null;
+		int idleMinutes = 180;
+		for (int i = 0; i < args.length; i++) {
+			if ( args[i].equals("-cache") && i+1 < args.length ) {
+				cacheDirectory = new File(args[++i]);
+			}
+			else if ( args[i].equals("-idle") && i+1 < args.length ) {
+				idleMinutes = Integer.parseInt(args[++i]);
+			}
+			else {
+				System.err.println("java org.antlr.v4.daemon.ToolDaemon [-cache dir] [-idle minutes]");
+				System.exit(1);
+			}
+		}
+
+		final ToolDaemon daemon = new ToolDaemon(getDefaultInfoDirectory(), cacheDirectory);
+		daemon.idleTimeout = idleMinutes*60*1000;
+		daemon.start();
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			@Override
+			public void run() {
+				daemon.stop();
+			}
+		});
+		System.out.println("ANTLR tool daemon serving "+daemon.workingDirectory+" on port "+daemon.getPort());
+		daemon.serve();
+	}
+
+	/** The directory where daemons write the port and secret of the
+	 *  directory they serve.
+	 */
+	public static File getDefaultInfoDirectory() {
+		return new File(new File(System.getProperty("user.home"), ".antlr4"), "daemon");
+	}
+
+	/** Get the file describing the daemon that serves {@code workingDirectory}. */
+	public static File getInfoFile(File infoDirectory, String workingDirectory) {
+		return new File(infoDirectory, Integer.toHexString(workingDirectory.hashCode())+".properties");
+	}
+
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	/** Listen on a loopback port and publish it for clients. */
+	public void start() throws IOException {
+		serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+		serverSocket.setSoTimeout(idleTimeout);
+
+		byte[] bytes = new byte[16];
+		new SecureRandom().nextBytes(bytes);
+		StringBuilder buf = new StringBuilder();
+		for (byte b : bytes) {
+			buf.append(String.format("%02x", b & 0xFF));
+		}
+		secret = buf.toString();
+
+		Properties info = new Properties();
+		info.setProperty("port", String.valueOf(getPort()));
+		info.setProperty("secret", secret);
+		info.setProperty("directory", workingDirectory);
+		writeInfoFile(info);
+	}
+
+	/** Serve requests until {@link #stop} is called or no request arrives
+	 *  for the idle timeout.
+	 */
+	public void serve() {
+		try {
+			while ( !serverSocket.isClosed() ) {
+				Socket socket = serverSocket.accept();
+				try {
+					handle(socket);
+				}
+				catch (IOException ioe) {
+					// the client went away; nothing to report it to
+				}
+				finally {
+					socket.close();
+				}
+			}
+		}
+		catch (SocketTimeoutException ste) {
+			// idle
+		}
+		catch (IOException ioe) {
+			// closed by stop()
+		}
+		finally {
+			stop();
+		}
+	}
+
+	public synchronized void stop() {
+		File infoFile = getInfoFile(infoDirectory, workingDirectory);
+		if ( secret!=null && secret.equals(readInfoFile(infoFile).getProperty("secret")) ) {
+			// don't remove the file of a daemon started after this one
+			infoFile.delete();
+		}
+		try {
+			serverSocket.close();
+		}
+		catch (IOException ioe) {
+			// already closed
+		}
+	}
+
+	protected void handle(Socket socket) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+		String clientSecret = in.readUTF();
+		String clientDirectory = in.readUTF();
+		String[] args = new String[in.readInt()];
+		for (int i = 0; i < args.length; i++) {
+			args[i] = in.readUTF();
+		}
+
+		int status;
+		if ( !MessageDigest.isEqual(secret.getBytes(UTF8), clientSecret.getBytes(UTF8)) ||
+			 !workingDirectory.equals(clientDirectory) )
+		{
+			status = REFUSED;
+		}
+		else {
+			PrintStream stdout = System.out;
+			PrintStream stderr = System.err;
+			PrintStream frameOut = new PrintStream(new FrameOutputStream(out, FRAME_OUT), true);
+			PrintStream frameErr = new PrintStream(new FrameOutputStream(out, FRAME_ERR), true);
+			System.setOut(frameOut);
+			System.setErr(frameErr);
+			try {
+				status = run(args);
+			}
+			catch (RuntimeException e) {
+				e.printStackTrace(frameErr);
+				status = 1;
+			}
+			catch (VirtualMachineError e) {
+				throw e;
+			}
+			catch (Error e) {
+				// e.g. ErrorManager.panic(); fatal for this run, not the daemon
+				e.printStackTrace(frameErr);
+				status = 1;
+			}
+			finally {
+				frameOut.flush();
+				frameErr.flush();
+				System.setOut(stdout);
+				System.setErr(stderr);
+			}
+		}
+
+		out.writeByte(FRAME_EXIT);
+		out.writeInt(status);
+		out.flush();
+	}
+
+	/** Run the tool like {@link Tool#main} does; return the exit status. */
+	protected int run(String[] args) {
+		Tool antlr = new Tool(args);
+		if ( args.length==0 ) {
+			antlr.help();
+			return 0;
+		}
+		if ( antlr.buildCache==null && cacheDirectory!=null ) {
+			antlr.buildCache = new BuildCache(antlr, cacheDirectory);
+		}
+
+		try {
+			antlr.processGrammarsOnCommandLine();
+		}
+		finally {
+			if ( antlr.log ) {
+				try {
+					String logname = antlr.logMgr.save();
+					System.out.println("wrote "+logname);
+				}
+				catch (IOException ioe) {
+					antlr.errMgr.toolError(ErrorType.INTERNAL_ERROR, ioe);
+				}
+			}
+		}
+
+		return antlr.errMgr.getNumErrors() > 0 ? 1 : 0;
+	}
+
+	/** Write the info file readable by the current user only, where the
+	 *  file system supports it.
+	 */
+	protected void writeInfoFile(Properties info) throws IOException {
+		infoDirectory.mkdirs();
+		File tmp = File.createTempFile("daemon", ".tmp", infoDirectory);
+		if ( FileSystems.getDefault().supportedFileAttributeViews().contains("posix") ) {
+			Files.setPosixFilePermissions(tmp.toPath(), PosixFilePermissions.fromString("rw-------"));
+		}
+		OutputStream out = Files.newOutputStream(tmp.toPath());
+		try {
+			info.store(out, "ANTLR tool daemon");
+		}
+		finally {
+			out.close();
+		}
+		Files.move(tmp.toPath(), getInfoFile(infoDirectory, workingDirectory).toPath(),
+				   StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/** Read a daemon info file; return empty properties if there is none. */
+	static Properties readInfoFile(File infoFile) {
+		Properties info = new Properties();
+		try {
+			InputStream in = new FileInputStream(infoFile);
+			try {
+				info.load(in);
+			}
+			finally {
+				in.close();
+			}
+		}
+		catch (IOException ioe) {
+			// no daemon
+		}
+		return info;
+	}
+
+	/** Sends everything written to it as frames of one kind. */
+	protected static class FrameOutputStream extends OutputStream {
+		private final DataOutputStream out;
+		private final byte kind;
+
+		public FrameOutputStream(DataOutputStream out, byte kind) {
+			this.out = out;
+			this.kind = kind;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] {(byte)b}, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			if ( len==0 ) return;
+			synchronized (out) {
+				out.writeByte(kind);
+				out.writeInt(len);
+				out.write(b, off, len);
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			synchronized (out) {
+				out.flush();
+			}
+		}
+	}
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.daemon;
+
+import org.antlr.v4.Tool;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.Properties;
+
+/** A drop-in replacement for {@link Tool#main} that hands the arguments to
+ *  the {@link ToolDaemon} serving the current directory, and runs the tool
+ *  in this process if there is none.
+ *
+ *  $ java org.antlr.v4.daemon.ToolDaemonClient [tool options] grammar-files
+ *
+ *  @since 4.7.2
+ */
+public class ToolDaemonClient {
+	protected final File infoDirectory;
+	protected final String workingDirectory = new File("").getAbsolutePath();
+
+	public ToolDaemonClient(File infoDirectory) {
+		this.infoDirectory = infoDirectory;
+	}
+
+	public static void main(String[] args) {
+		ToolDaemonClient client = new ToolDaemonClient(ToolDaemon.getDefaultInfoDirectory());
+		int status = client.run(args, System.out, System.err);
+		if ( status==ToolDaemon.REFUSED ) {
+			Tool.main(args);
+			return;
+		}
+		System.exit(status);
+	}
+
+	/** Run the tool in the daemon, copying its output to {@code out} and
+	 *  {@code err}. Return the exit status, or {@link ToolDaemon#REFUSED} if
+	 *  no daemon accepted the request; nothing is written then, so the
+	 *  caller can run the tool itself.
+	 */
+	public int run(String[] args, OutputStream out, OutputStream err) {
+		Properties info = ToolDaemon.readInfoFile(ToolDaemon.getInfoFile(infoDirectory, workingDirectory));
+		String port = info.getProperty("port");
+		String secret = info.getProperty("secret");
+		if ( port==null || secret==null || !workingDirectory.equals(info.getProperty("directory")) ) {
+			return ToolDaemon.REFUSED;
+		}
+
+		boolean accepted = false;
+		try {
+			Socket socket = new Socket(InetAddress.getLoopbackAddress(), Integer.parseInt(port));
+			try {
+				DataOutputStream request = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+				request.writeUTF(secret);
+				request.writeUTF(workingDirectory);
+				request.writeInt(args.length);
+				for (String arg : args) {
+					request.writeUTF(arg);
+				}
+				request.flush();
+
+				DataInputStream response = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+				while ( true ) {
+					byte kind = response.readByte();
+					int n = response.readInt();
+					accepted = true;
+					if ( kind==ToolDaemon.FRAME_EXIT ) {
+						out.flush();
+						err.flush();
+						return n;
+					}
+
+					byte[] bytes = new byte[n];
+					response.readFully(bytes);
+					(kind==ToolDaemon.FRAME_ERR ? err : out).write(bytes);
+				}
+			}
+			finally {
+				socket.close();
+			}
+		}
+		catch (IOException ioe) {
+			if ( accepted ) {
+				try {
+					err.write(("lost connection to the ANTLR tool daemon: "+ioe+"\n").getBytes(ToolDaemon.UTF8));
+				}
+				catch (IOException ignored) {
+				}
+				return 1;
+			}
+			// the daemon is gone; a stale info file is left behind when it is killed
+			return ToolDaemon.REFUSED;
+		}
+		catch (NumberFormatException nfe) {
+			return ToolDaemon.REFUSED;
+		}
+	}
+}
@@ -0,0 +1,614 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.gui;
+
+import org.antlr.runtime.Token;
+import org.antlr.v4.Tool;
+import org.antlr.v4.analysis.AnalysisPipeline;
+import org.antlr.v4.analysis.LookaheadTree;
+import org.antlr.v4.analysis.PerformanceLint;
+import org.antlr.v4.codegen.CodeGenerator;
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.LexerInterpreter;
+import org.antlr.v4.runtime.ParserInterpreter;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.atn.DecisionInfo;
+import org.antlr.v4.runtime.atn.DecisionState;
+import org.antlr.v4.runtime.misc.Interval;
+import org.antlr.v4.tool.ANTLRMessage;
+import org.antlr.v4.tool.ANTLRToolListener;
+import org.antlr.v4.tool.Grammar;
+import org.antlr.v4.tool.LexerGrammar;
+import org.antlr.v4.tool.Rule;
+import org.antlr.v4.tool.ast.GrammarRootAST;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/** Profile the decisions of a grammar over a corpus of input files. The
+ *  files are parsed in parallel by interpreters with
+ *  {@link org.antlr.v4.runtime.Parser#setProfile profiling} on, and the
+ *  {@link DecisionInfo} of each decision is summed over all files. The
+ *  report ranks the decisions by time spent predicting, with the rule and
+ *  line of each decision in the grammar. Files that can't be read are
+ *  reported with those that have syntax errors.
+ *
+ *  $ java org.antlr.v4.gui.GrammarProfiler [-lexer L.g4] T.g4 startRuleName
+ *        input-dir
+ *        [-ext .suffix] [-encoding encodingname] [-threads n]
+ *        [-json file.json] [-html file.html]
+ *
+ *  The JSON report is written to stdout if no report file is given.
+ *
+ *  @since 4.7.2
+ */
+public class GrammarProfiler {
+	protected String lexerFileName;
+	protected String grammarFileName;
+	protected String startRuleName;
+	protected String inputDirName;
+	protected String extension = null;
+	protected String encoding = null;
+	protected String jsonFile = null;
+	protected String htmlFile = null;
+	protected int threads = Runtime.getRuntime().availableProcessors();
+
+	protected LexerGrammar lexerGrammar;
+	protected Grammar grammar;
+
+	/** The profile of each decision, indexed by decision number. */
+	protected DecisionProfile[] decisions;
+	protected int numFiles;
+	protected long numTokens;
+	protected int numSyntaxErrors;
+	/** The files with syntax errors or that couldn't be read. */
+	protected final List<String> filesWithErrors = new ArrayList<String>();
+	/** Wall-clock time of the whole corpus, in nanoseconds. */
+	protected long parseTime;
+
+	/** The figures of one decision, summed over all files. */
+	public static class DecisionProfile {
+		public final int decision;
+		public final String ruleName;
+		public final int line;
+		public final int charPositionInLine;
+		/** The grammar text the decision was built from. */
+		public final String text;
+		/** Whether the alternatives have disjoint LL(1) lookahead sets. */
+		public final boolean ll1;
+		/** The tokens of fixed lookahead that tell the alternatives apart if
+		 *  the decision isn't LL(1) but is LL(k) for a small k; otherwise, 0.
+		 *  Parsers generated with {@code -Xllk} predict these decisions with
+		 *  a switch instead of the simulator profiled here.
+		 */
+		public final int llk;
+
+		public long invocations;
+		public long timeInPrediction;
+		public long SLL_TotalLook;
+		public long SLL_MaxLook;
+		public long LL_Fallback;
+		public long LL_TotalLook;
+		public long LL_MaxLook;
+		public long ambiguities;
+		public long contextSensitivities;
+		public long errors;
+		public long predicateEvals;
+
+		public DecisionProfile(int decision, String ruleName, int line, int charPositionInLine,
+							   String text, boolean ll1, int llk)
+		{
+			this.decision = decision;
+			this.ruleName = ruleName;
+			this.line = line;
+			this.charPositionInLine = charPositionInLine;
+			this.text = text;
+			this.ll1 = ll1;
+			this.llk = llk;
+		}
+
+		public void add(DecisionInfo info) {
+			invocations += info.invocations;
+			timeInPrediction += info.timeInPrediction;
+			SLL_TotalLook += info.SLL_TotalLook;
+			SLL_MaxLook = Math.max(SLL_MaxLook, info.SLL_MaxLook);
+			LL_Fallback += info.LL_Fallback;
+			LL_TotalLook += info.LL_TotalLook;
+			LL_MaxLook = Math.max(LL_MaxLook, info.LL_MaxLook);
+			ambiguities += info.ambiguities.size();
+			contextSensitivities += info.contextSensitivities.size();
+			errors += info.errors.size();
+			predicateEvals += info.predicateEvals.size();
+		}
+	}
+
+	public GrammarProfiler(String[] args) {
+		if ( args.length < 3 ) {
+			System.err.println("java org.antlr.v4.gui.GrammarProfiler [-lexer L.g4] T.g4 startRuleName input-dir\n" +
+							   "  [-ext .suffix] [-encoding encodingname] [-threads n]\n" +
+							   "  [-json file.json] [-html file.html]");
+			System.err.println("All files under input-dir are parsed unless -ext is given.");
+			return;
+		}
+		List<String> positional = new ArrayList<String>();
+		int i=0;
+		while ( i<args.length ) {
+			String arg = args[i];
+			i++;
+			if ( arg.charAt(0)!='-' ) {
+				positional.add(arg);
+				continue;
+			}
+			if ( i>=args.length ) {
+				System.err.println("missing value on "+arg);
+				return;
+			}
+			if ( arg.equals("-lexer") ) {
+				lexerFileName = args[i];
+			}
+			else if ( arg.equals("-ext") ) {
+				extension = args[i];
+			}
+			else if ( arg.equals("-encoding") ) {
+				encoding = args[i];
+			}
+			else if ( arg.equals("-threads") ) {
+				threads = Math.max(1, Integer.parseInt(args[i]));
+			}
+			else if ( arg.equals("-json") ) {
+				jsonFile = args[i];
+			}
+			else if ( arg.equals("-html") ) {
+				htmlFile = args[i];
+			}
+			else {
+				System.err.println("unknown option "+arg);
+				return;
+			}
+			i++;
+		}
+		if ( positional.size()!=3 ) {
+			System.err.println("expecting grammar, start rule and input directory");
+			return;
+		}
+		grammarFileName = positional.get(0);
+		startRuleName = positional.get(1);
+		inputDirName = positional.get(2);
+	}
+
+	public static void main(String[] args) throws Exception {
+		GrammarProfiler profiler = new GrammarProfiler(args);
+		if ( profiler.inputDirName!=null && profiler.process() ) {
+			profiler.writeReports();
+		}
+	}
+
+	/** Load the grammar and profile all input files. Return false if the
+	 *  grammar has errors or can't parse from the start rule.
+	 */
+	public boolean process() throws IOException, InterruptedException {
+		if ( !loadGrammars() ) return false;
+		final Rule startRule = grammar.getRule(startRuleName);
+		if ( startRule==null ) {
+			System.err.println("No rule "+startRuleName+" in "+grammarFileName);
+			return false;
+		}
+
+		decisions = new DecisionProfile[grammar.atn.getNumberOfDecisions()];
+		for (int d = 0; d < decisions.length; d++) {
+			decisions[d] = createDecisionProfile(grammar.atn.getDecisionState(d));
+		}
+
+		final Charset charset = encoding==null ? Charset.defaultCharset() : Charset.forName(encoding);
+		final Queue<Path> inputFiles = new ConcurrentLinkedQueue<Path>(getInputFiles());
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		long start = System.nanoTime();
+		try {
+			List<Future<Void>> workers = new ArrayList<Future<Void>>();
+			for (int i = 0; i < threads; i++) {
+				workers.add(executor.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws Exception {
+						parseFiles(inputFiles, startRule.index, charset);
+						return null;
+					}
+				}));
+			}
+			for (Future<Void> worker : workers) {
+				worker.get();
+			}
+		}
+		catch (ExecutionException ee) {
+			Throwable cause = ee.getCause();
+			if ( cause instanceof RuntimeException ) throw (RuntimeException)cause;
+			if ( cause instanceof Error ) throw (Error)cause;
+			throw new RuntimeException(cause);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		parseTime = System.nanoTime() - start;
+		Collections.sort(filesWithErrors);
+		return true;
+	}
+
+	/** Parse files from {@code inputFiles} until there are none left. Each
+	 *  worker reuses one parser, so its DFA warms up as in an application.
+	 */
+	protected void parseFiles(Queue<Path> inputFiles, int startRuleIndex, Charset charset) {
+		LexerInterpreter lexer = lexerGrammar.createLexerInterpreter(CharStreams.fromString(""));
+		ParserInterpreter parser = grammar.createParserInterpreter(new CommonTokenStream(lexer));
+		parser.setProfile(true);
+		final int[] syntaxErrors = new int[1];
+		BaseErrorListener errorCounter = new BaseErrorListener() {
+			@Override
+			public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol,
+									int line, int charPositionInLine,
+									String msg, RecognitionException e)
+			{
+				syntaxErrors[0]++;
+			}
+		};
+		lexer.removeErrorListeners();
+		lexer.addErrorListener(errorCounter);
+		parser.removeErrorListeners();
+		parser.addErrorListener(errorCounter);
+
+		int files = 0;
+		long tokens = 0;
+		int errors = 0;
+		List<String> failedFiles = new ArrayList<String>();
+		Path inputFile;
+		while ( (inputFile = inputFiles.poll())!=null ) {
+			CharStream input;
+			try {
+				input = CharStreams.fromPath(inputFile, charset);
+			}
+			catch (IOException ioe) {
+				System.err.println("can't read "+inputFile+": "+ioe);
+				failedFiles.add(inputFile.toString());
+				continue;
+			}
+			lexer.setInputStream(input);
+			CommonTokenStream tokenStream = new CommonTokenStream(lexer);
+			tokenStream.fill();
+			parser.setTokenStream(tokenStream);
+			syntaxErrors[0] = 0;
+			parser.parse(startRuleIndex);
+			files++;
+			tokens += tokenStream.size();
+			if ( syntaxErrors[0]>0 ) {
+				errors += syntaxErrors[0];
+				failedFiles.add(inputFile.toString());
+			}
+		}
+
+		DecisionInfo[] infos = parser.getParseInfo().getDecisionInfo();
+		synchronized (this) {
+			for (DecisionInfo info : infos) {
+				decisions[info.decision].add(info);
+			}
+			numFiles += files;
+			numTokens += tokens;
+			numSyntaxErrors += errors;
+			filesWithErrors.addAll(failedFiles);
+		}
+	}
+
+	/** Load the grammar, and the lexer grammar if it's a separate file. The
+	 *  vocabulary of the lexer is written to a temporary directory for the
+	 *  {@code tokenVocab} option of the parser grammar.
+	 */
+	protected boolean loadGrammars() throws IOException {
+		Tool tool = new Tool();
+		final int[] errors = new int[1];
+		tool.addListener(new ANTLRToolListener() {
+			@Override
+			public void info(String msg) { }
+			@Override
+			public void error(ANTLRMessage msg) {
+				errors[0]++;
+				System.err.println(msg.toString());
+			}
+			@Override
+			public void warning(ANTLRMessage msg) { }
+		});
+
+		if ( lexerFileName==null ) {
+			grammar = tool.loadGrammar(grammarFileName);
+			if ( errors[0]>0 ) return false;
+			if ( !grammar.isCombined() ) {
+				System.err.println(grammarFileName+" is not a combined grammar; use -lexer for the lexer grammar");
+				return false;
+			}
+			lexerGrammar = grammar.getImplicitLexer();
+			if ( lexerGrammar==null ) {
+				System.err.println(grammarFileName+" has no lexer rules; use -lexer for the lexer grammar");
+				return false;
+			}
+			return true;
+		}
+
+		Grammar g = tool.loadGrammar(lexerFileName);
+		if ( errors[0]>0 ) return false;
+		if ( !(g instanceof LexerGrammar) ) {
+			System.err.println(lexerFileName+" is not a lexer grammar");
+			return false;
+		}
+		lexerGrammar = (LexerGrammar)g;
+
+		GrammarRootAST ast = tool.parseGrammar(grammarFileName);
+		if ( ast==null ) return false;
+		String vocabName = Tool.getTokenVocabName(ast);
+		File vocabDir = Files.createTempDirectory("antlr-profile").toFile();
+		File vocabFile = new File(vocabDir, (vocabName!=null ? vocabName : lexerGrammar.name)+CodeGenerator.VOCAB_FILE_EXTENSION);
+		try {
+			writeVocabFile(vocabFile);
+			tool.libDirectory = vocabDir.getPath();
+			grammar = tool.createGrammar(ast);
+			grammar.fileName = grammarFileName;
+			grammar.importVocab(lexerGrammar);
+			tool.process(grammar, false);
+		}
+		finally {
+			vocabFile.delete();
+			vocabDir.delete();
+		}
+		return errors[0]==0;
+	}
+
+	/** Write the token types of {@link #lexerGrammar} in the format of the
+	 *  {@code .tokens} file the tool generates.
+	 */
+	protected void writeVocabFile(File vocabFile) throws IOException {
+		StringBuilder buf = new StringBuilder();
+		for (Map.Entry<String, Integer> t : lexerGrammar.tokenNameToTypeMap.entrySet()) {
+			if ( t.getValue()>=org.antlr.v4.runtime.Token.MIN_USER_TOKEN_TYPE ) buf.append(t.getKey()).append('=').append(t.getValue()).append('\n');
+		}
+		for (Map.Entry<String, Integer> t : lexerGrammar.stringLiteralToTypeMap.entrySet()) {
+			if ( t.getValue()>=org.antlr.v4.runtime.Token.MIN_USER_TOKEN_TYPE ) buf.append(t.getKey()).append('=').append(t.getValue()).append('\n');
+		}
+		writeReport(vocabFile.getPath(), buf.toString());
+	}
+
+	protected List<Path> getInputFiles() {
+		List<Path> files = new ArrayList<Path>();
+		addInputFiles(new File(inputDirName), files);
+		Collections.sort(files);
+		return files;
+	}
+
+	private void addInputFiles(File dir, List<Path> files) {
+		File[] children = dir.listFiles();
+		if ( children==null ) return;
+		for (File f : children) {
+			if ( f.isDirectory() ) {
+				addInputFiles(f, files);
+			}
+			else if ( extension==null || f.getName().endsWith(extension) ) {
+				files.add(f.toPath());
+			}
+		}
+	}
+
+	/** Locate decision state {@code s} in the grammar. */
+	protected DecisionProfile createDecisionProfile(DecisionState s) {
+		Rule r = grammar.getRule(s.ruleIndex);
+		Token token = PerformanceLint.getToken(r, s);
+		String text = "";
+		Interval region = grammar.getStateToGrammarRegion(s.stateNumber);
+		if ( region!=null && region.a>=0 && region.b>=region.a ) {
+			text = grammar.originalTokenStream.toString(region.a, region.b).replaceAll("\\s+", " ").trim();
+			if ( text.length()>60 ) text = text.substring(0, 57)+"...";
+		}
+		boolean ll1 = AnalysisPipeline.disjoint(grammar.decisionLOOK.get(s.decision));
+		LookaheadTree lookahead = grammar.decisionLLk!=null ? grammar.decisionLLk.get(s.decision)
+			: new AnalysisPipeline(grammar).getDecisionLLk(s, grammar.decisionLOOK.get(s.decision));
+		int llk = lookahead!=null ? lookahead.getMaxDepth() : 0;
+		return new DecisionProfile(s.decision, r.name, token.getLine(), token.getCharPositionInLine(), text, ll1, llk);
+	}
+
+	/** Get the decisions that were predicted at least once, slowest first. */
+	public List<DecisionProfile> getDecisionProfiles() {
+		List<DecisionProfile> profiles = new ArrayList<DecisionProfile>();
+		for (DecisionProfile p : decisions) {
+			if ( p.invocations>0 ) profiles.add(p);
+		}
+		Collections.sort(profiles, new Comparator<DecisionProfile>() {
+			@Override
+			public int compare(DecisionProfile a, DecisionProfile b) {
+				if ( a.timeInPrediction!=b.timeInPrediction ) {
+					return a.timeInPrediction > b.timeInPrediction ? -1 : 1;
+				}
+				return a.decision - b.decision;
+			}
+		});
+		return profiles;
+	}
+
+	public long getTimeInPrediction() {
+		long t = 0;
+		for (DecisionProfile p : decisions) {
+			t += p.timeInPrediction;
+		}
+		return t;
+	}
+
+	/** Write the reports requested on the command line. */
+	public void writeReports() throws IOException {
+		if ( jsonFile!=null ) writeReport(jsonFile, toJSON());
+		if ( htmlFile!=null ) writeReport(htmlFile, toHTML());
+		if ( jsonFile==null && htmlFile==null ) System.out.print(toJSON());
+	}
+
+	protected void writeReport(String fileName, String report) throws IOException {
+		Writer w = Files.newBufferedWriter(Paths.get(fileName), Charset.forName("UTF-8"));
+		try {
+			w.write(report);
+		}
+		finally {
+			w.close();
+		}
+	}
+
+	public String toJSON() {
+		StringWriter sw = new StringWriter();
+		PrintWriter out = new PrintWriter(sw);
+		out.println("{");
+		out.println("  \"grammar\": "+jsonString(grammarFileName)+",");
+		out.println("  \"startRule\": "+jsonString(startRuleName)+",");
+		out.println("  \"files\": "+numFiles+",");
+		out.println("  \"tokens\": "+numTokens+",");
+		out.println("  \"syntaxErrors\": "+numSyntaxErrors+",");
+		out.println("  \"parseTime\": "+parseTime+",");
+		out.println("  \"timeInPrediction\": "+getTimeInPrediction()+",");
+		List<String> files = new ArrayList<String>();
+		for (String f : filesWithErrors) {
+			files.add(jsonString(f));
+		}
+		out.println("  \"filesWithErrors\": ["+join(files, ", ")+"],");
+		out.println("  \"decisions\": [");
+		List<DecisionProfile> profiles = getDecisionProfiles();
+		for (int i = 0; i < profiles.size(); i++) {
+			DecisionProfile p = profiles.get(i);
+			out.print("    {\"decision\": "+p.decision+
+					  ", \"rule\": "+jsonString(p.ruleName)+
+					  ", \"line\": "+p.line+
+					  ", \"column\": "+p.charPositionInLine+
+					  ", \"text\": "+jsonString(p.text)+
+					  ", \"ll1\": "+p.ll1+
+					  ", \"llk\": "+p.llk+
+					  ", \"invocations\": "+p.invocations+
+					  ", \"timeInPrediction\": "+p.timeInPrediction+
+					  ", \"sllLookahead\": "+p.SLL_TotalLook+
+					  ", \"sllMaxLookahead\": "+p.SLL_MaxLook+
+					  ", \"llFallback\": "+p.LL_Fallback+
+					  ", \"llLookahead\": "+p.LL_TotalLook+
+					  ", \"llMaxLookahead\": "+p.LL_MaxLook+
+					  ", \"ambiguities\": "+p.ambiguities+
+					  ", \"contextSensitivities\": "+p.contextSensitivities+
+					  ", \"errors\": "+p.errors+
+					  ", \"predicateEvals\": "+p.predicateEvals+"}");
+			out.println(i < profiles.size() - 1 ? "," : "");
+		}
+		out.println("  ]");
+		out.println("}");
+		out.flush();
+		return sw.toString();
+	}
+
+	public String toHTML() {
+		StringWriter sw = new StringWriter();
+		PrintWriter out = new PrintWriter(sw);
+		String title = "Profile of "+new File(grammarFileName).getName()+" from rule "+startRuleName;
+		out.println("<!DOCTYPE html>");
+		out.println("<html><head><meta charset=\"UTF-8\"><title>"+htmlString(title)+"</title>");
+		out.println("<style>table { border-collapse: collapse; } th, td { padding: 2px 8px; border: 1px solid #ccc; } " +
+					"td.n { text-align: right; } tr.ll td { background: #fff3e0; }</style>");
+		out.println("</head><body>");
+		out.println("<h1>"+htmlString(title)+"</h1>");
+		out.println("<p>"+numFiles+" files, "+numTokens+" tokens, "+numSyntaxErrors+" syntax errors; " +
+					"parsed in "+millis(parseTime)+" ms, "+millis(getTimeInPrediction())+" ms of it predicting.</p>");
+		if ( !filesWithErrors.isEmpty() ) {
+			out.println("<p>Files with syntax errors or that couldn't be read:</p><ul>");
+			for (String f : filesWithErrors) {
+				out.println("<li>"+htmlString(f)+"</li>");
+			}
+			out.println("</ul>");
+		}
+		out.println("<p>Decisions that fell back to full LL prediction are highlighted. " +
+					"Parsers generated with <code>-Xllk</code> predict the decisions with a fixed " +
+					"LL(k) lookahead without the simulator profiled here.</p>");
+		out.println("<table>");
+		out.println("<tr><th>decision</th><th>rule</th><th>line</th><th>grammar</th><th>LL(1)</th><th>LL(k)</th>" +
+					"<th>invocations</th><th>time (ms)</th><th>SLL lookahead</th><th>SLL max</th>" +
+					"<th>LL fallbacks</th><th>LL lookahead</th><th>LL max</th>" +
+					"<th>ambiguities</th><th>context sensitivities</th><th>errors</th><th>predicates</th></tr>");
+		for (DecisionProfile p : getDecisionProfiles()) {
+			out.println("<tr"+(p.LL_Fallback>0 ? " class=\"ll\"" : "")+">" +
+						"<td class=\"n\">"+p.decision+"</td>" +
+						"<td>"+htmlString(p.ruleName)+"</td>" +
+						"<td class=\"n\">"+p.line+":"+p.charPositionInLine+"</td>" +
+						"<td><code>"+htmlString(p.text)+"</code></td>" +
+						"<td>"+(p.ll1 ? "yes" : "no")+"</td>" +
+						"<td>"+(p.llk>0 ? "k="+p.llk : "")+"</td>" +
+						"<td class=\"n\">"+p.invocations+"</td>" +
+						"<td class=\"n\">"+millis(p.timeInPrediction)+"</td>" +
+						"<td class=\"n\">"+p.SLL_TotalLook+"</td>" +
+						"<td class=\"n\">"+p.SLL_MaxLook+"</td>" +
+						"<td class=\"n\">"+p.LL_Fallback+"</td>" +
+						"<td class=\"n\">"+p.LL_TotalLook+"</td>" +
+						"<td class=\"n\">"+p.LL_MaxLook+"</td>" +
+						"<td class=\"n\">"+p.ambiguities+"</td>" +
+						"<td class=\"n\">"+p.contextSensitivities+"</td>" +
+						"<td class=\"n\">"+p.errors+"</td>" +
+						"<td class=\"n\">"+p.predicateEvals+"</td></tr>");
+		}
+		out.println("</table>");
+		out.println("</body></html>");
+		out.flush();
+		return sw.toString();
+	}
+
+	protected static String millis(long nanos) {
+		return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+	}
+
+	protected static String join(List<String> items, String separator) {
+		StringBuilder buf = new StringBuilder();
+		for (int i = 0; i < items.size(); i++) {
+			if ( i>0 ) buf.append(separator);
+			buf.append(items.get(i));
+		}
+		return buf.toString();
+	}
+
+	protected static String jsonString(String s) {
+		StringBuilder buf = new StringBuilder("\"");
+		for (char c : s.toCharArray()) {
+			switch ( c ) {
+				case '"' : buf.append("\\\""); break;
+				case '\\' : buf.append("\\\\"); break;
+				case '\n' : buf.append("\\n"); break;
+				case '\r' : buf.append("\\r"); break;
+				case '\t' : buf.append("\\t"); break;
+				default :
+					if ( c<0x20 ) buf.append(String.format("\\u%04x", (int)c));
+					else buf.append(c);
+			}
+		}
+		return buf.append('"').toString();
+	}
+
+	protected static String htmlString(String s) {
+		return s.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+	}
+}
@@ -68,7 +68,13 @@ public class SemanticPipeline {
 		prevErrors = g.tool.errMgr.getNumErrors();
 		LeftRecursiveRuleTransformer lrtrans =
 			new LeftRecursiveRuleTransformer(g.ast, ruleCollector.rules.values(), g);
-		lrtrans.translateLeftRecursiveRules();
+		g.tool.startPhase("left-recursion");
+		try {
+			lrtrans.translateLeftRecursiveRules();
+		}
+		finally {
+			g.tool.stopPhase();
+		}
 
 		// don't continue if we got errors during left-recursion elimination
 		if ( g.tool.errMgr.getNumErrors()>prevErrors ) return;
@@ -0,0 +1,342 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.tool;
+
+import org.antlr.v4.Tool;
+import org.antlr.v4.analysis.AnalysisPipeline;
+import org.antlr.v4.analysis.LookaheadTree;
+import org.antlr.v4.parse.TokenVocabParser;
+import org.antlr.v4.runtime.atn.ATNSerializer;
+import org.antlr.v4.runtime.misc.Interval;
+import org.antlr.v4.runtime.misc.IntervalSet;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/** A content-addressed cache of tool results, kept between runs in the
+ *  {@code -Xcache} directory.
+ *
+ *  <p>The generated files of a grammar are stored under a key computed from
+ *  the tool version, the command line options and the grammar text. The
+ *  entry also lists the imported grammars and .tokens files the grammar
+ *  read, with the hash of their content; if they are all unchanged, the
+ *  tool writes the cached files instead of processing the grammar.</p>
+ *
+ *  <p>The decision lookahead sets computed by {@link
+ *  org.antlr.v4.analysis.AnalysisPipeline}, and the fixed-k lookahead of
+ *  decisions that aren't LL(1) if it was computed, are stored under the
+ *  hash of the serialized ATN. Actions are not part of the ATN, so a grammar whose
+ *  actions changed skips the analysis and only the semantic checks, ATN
+ *  construction and code generation run again.</p>
+ *
+ *  <p>Only results without errors or warnings are stored. Files are written
+ *  to a temporary name and renamed, so tools sharing a cache directory
+ *  don't see partial entries. A cache that can't be read or written is
+ *  ignored.</p>
+ *
+ *  @since 4.7.2
+ */
+public class BuildCache {
+	/** Changed whenever the layout or content of cache entries changes. */
+	public static final String FORMAT_VERSION = "2";
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	protected final Tool tool;
+	protected final File directory;
+
+	public BuildCache(Tool tool, File directory) {
+		this.tool = tool;
+		this.directory = directory;
+	}
+
+	/** Get the key of the outputs of the grammar in {@code fileName} when
+	 *  processed with the command line {@code options}, or null if the
+	 *  grammar file can't be read.
+	 */
+	public String getOutputsKey(String fileName, List<String> options) {
+		try {
+			MessageDigest digest = newDigest();
+			update(digest, FORMAT_VERSION);
+			update(digest, Tool.VERSION);
+			update(digest, new File(fileName).getAbsolutePath());
+			update(digest, new File("").getAbsolutePath()); // relative -o and -lib
+			for (String option : options) {
+				update(digest, option);
+			}
+			digest.update(Files.readAllBytes(new File(fileName).toPath()));
+			return toHex(digest.digest());
+		}
+		catch (IOException ioe) {
+			tool.log("cache", "can't read "+fileName+": "+ioe);
+			return null;
+		}
+	}
+
+	/** Write the outputs stored under {@code key} if the files the grammar
+	 *  read when they were stored are unchanged. Outputs that are already
+	 *  up to date are left alone. Return whether the outputs were restored.
+	 */
+	public boolean restoreOutputs(String key) {
+		File entry = new File(new File(directory, "outputs"), key);
+		if ( !entry.exists() ) return false;
+
+		try {
+			List<String[]> outputs = new ArrayList<String[]>();
+			for (String line : readLines(entry)) {
+				String[] fields = line.split(" ", 3);
+				if ( fields.length!=3 ) return false;
+				if ( fields[0].equals("in") ) {
+					File input = new File(fields[2]);
+					if ( !input.exists() || !fields[1].equals(hash(input)) ) {
+						tool.log("cache", "changed "+input);
+						return false;
+					}
+				}
+				else if ( fields[0].equals("out") ) {
+					if ( !getObject(fields[1]).exists() ) return false;
+					outputs.add(fields);
+				}
+			}
+
+			for (String[] output : outputs) {
+				File file = new File(output[2]);
+				if ( file.exists() && output[1].equals(hash(file)) ) continue;
+				File parent = file.getParentFile();
+				if ( parent!=null && !parent.exists() ) parent.mkdirs();
+				Files.copy(getObject(output[1]).toPath(), file.toPath(),
+						   StandardCopyOption.REPLACE_EXISTING);
+			}
+			return true;
+		}
+		catch (IOException ioe) {
+			tool.log("cache", "can't restore "+key+": "+ioe);
+			return false;
+		}
+	}
+
+	/** Store {@code outputs}, the files generated for grammar {@code g},
+	 *  under {@code key}.
+	 */
+	public void saveOutputs(String key, Grammar g, List<File> outputs) {
+		try {
+			StringBuilder entry = new StringBuilder();
+			for (File input : getInputs(g)) {
+				entry.append("in ").append(hash(input)).append(' ').append(input.getAbsolutePath()).append('\n');
+			}
+			for (File output : outputs) {
+				byte[] content = Files.readAllBytes(output.toPath());
+				String hash = toHex(newDigest().digest(content));
+				File object = getObject(hash);
+				if ( !object.exists() ) write(object, content);
+				entry.append("out ").append(hash).append(' ').append(output.getAbsolutePath()).append('\n');
+			}
+			write(new File(new File(directory, "outputs"), key), entry.toString().getBytes(UTF8));
+		}
+		catch (IOException ioe) {
+			tool.log("cache", "can't save "+key+": "+ioe);
+		}
+	}
+
+	/** Set the decision lookahead sets of {@code g} from the analysis of an
+	 *  identical ATN. Return whether one was found; the analysis must be run
+	 *  if not. Lexers have no lookahead sets, but the checks the analysis
+	 *  does on them are skipped as well.
+	 */
+	public boolean restoreAnalysis(Grammar g) {
+		File entry = new File(new File(directory, "analysis"), getAnalysisKey(g));
+		if ( !entry.exists() ) return false;
+
+		try {
+			List<IntervalSet[]> decisionLOOK = new ArrayList<IntervalSet[]>();
+			List<LookaheadTree> decisionLLk = new ArrayList<LookaheadTree>();
+			for (String line : readLines(entry)) {
+				int llk = line.indexOf('|');
+				decisionLLk.add(llk>=0 ? LookaheadTree.parse(line.substring(llk+1)) : null);
+				if ( llk>=0 ) line = line.substring(0, llk);
+
+				String[] alts = line.split(";", -1);
+				IntervalSet[] look = new IntervalSet[alts.length];
+				for (int i = 0; i < alts.length; i++) {
+					if ( alts[i].equals("-") ) continue;
+					look[i] = new IntervalSet();
+					if ( alts[i].isEmpty() ) continue;
+					for (String interval : alts[i].split(",")) {
+						int sep = interval.indexOf(':');
+						look[i].add(Integer.parseInt(interval.substring(0, sep)),
+									Integer.parseInt(interval.substring(sep+1)));
+					}
+				}
+				decisionLOOK.add(look);
+			}
+
+			if ( !g.isLexer() ) {
+				g.decisionLOOK = decisionLOOK;
+				g.decisionLLk = AnalysisPipeline.computesLLk(tool) ? decisionLLk : null;
+			}
+			return true;
+		}
+		catch (IOException ioe) {
+			tool.log("cache", "can't restore analysis of "+g.name+": "+ioe);
+			return false;
+		}
+		catch (RuntimeException re) { // corrupt entry
+			tool.log("cache", "can't restore analysis of "+g.name+": "+re);
+			return false;
+		}
+	}
+
+	/** Store the decision lookahead sets of {@code g}. */
+	public void saveAnalysis(Grammar g) {
+		StringBuilder entry = new StringBuilder();
+		if ( g.decisionLOOK!=null ) {
+			for (int decision = 0; decision < g.decisionLOOK.size(); decision++) {
+				IntervalSet[] look = g.decisionLOOK.get(decision);
+				for (int i = 0; i < look.length; i++) {
+					if ( i>0 ) entry.append(';');
+					if ( look[i]==null ) {
+						entry.append('-');
+						continue;
+					}
+
+					List<Interval> intervals = look[i].getIntervals();
+					for (int j = 0; j < intervals.size(); j++) {
+						if ( j>0 ) entry.append(',');
+						entry.append(intervals.get(j).a).append(':').append(intervals.get(j).b);
+					}
+				}
+				if ( g.decisionLLk!=null && g.decisionLLk.get(decision)!=null ) {
+					entry.append('|').append(g.decisionLLk.get(decision));
+				}
+				entry.append('\n');
+			}
+		}
+
+		try {
+			write(new File(new File(directory, "analysis"), getAnalysisKey(g)), entry.toString().getBytes(UTF8));
+		}
+		catch (IOException ioe) {
+			tool.log("cache", "can't save analysis of "+g.name+": "+ioe);
+		}
+	}
+
+	protected String getAnalysisKey(Grammar g) {
+		MessageDigest digest = newDigest();
+		update(digest, FORMAT_VERSION);
+		update(digest, Tool.VERSION);
+		update(digest, ATNSerializer.getSerializedAsString(g.atn));
+		// entries without the fixed-k lookahead can't serve runs that need it
+		update(digest, String.valueOf(AnalysisPipeline.computesLLk(tool)));
+		if ( g.isLexer() ) {
+			// fragment rules aren't part of the serialized ATN
+			for (Rule r : g.rules.values()) {
+				if ( r.isFragment() ) update(digest, r.name);
+			}
+		}
+		return toHex(digest.digest());
+	}
+
+	/** Get the files other than its own file that {@code g} was built from. */
+	protected Set<File> getInputs(Grammar g) {
+		Set<File> inputs = new LinkedHashSet<File>();
+		List<Grammar> grammars = new ArrayList<Grammar>();
+		grammars.add(g);
+		if ( g.implicitLexer!=null ) grammars.add(g.implicitLexer);
+		for (Grammar grammar : grammars) {
+			List<Grammar> imported = grammar.getAllImportedGrammars();
+			if ( imported!=null ) {
+				for (Grammar ig : imported) {
+					inputs.add(new File(ig.fileName).getAbsoluteFile());
+				}
+			}
+			if ( grammar.getOptionString("tokenVocab")!=null ) {
+				inputs.add(new TokenVocabParser(grammar).getImportedVocabFile().getAbsoluteFile());
+			}
+		}
+		return inputs;
+	}
+
+	protected File getObject(String hash) {
+		return new File(new File(new File(directory, "objects"), hash.substring(0, 2)), hash);
+	}
+
+	protected static List<String> readLines(File file) throws IOException {
+		List<String> lines = new ArrayList<String>();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), UTF8));
+		try {
+			String line;
+			while ( (line = reader.readLine())!=null ) lines.add(line);
+		}
+		finally {
+			reader.close();
+		}
+		return lines;
+	}
+
+	/** Write {@code content} to a temporary file next to {@code file} and
+	 *  rename it, so readers see either no file or the whole file.
+	 */
+	protected static void write(File file, byte[] content) throws IOException {
+		File parent = file.getParentFile();
+		if ( !parent.exists() ) parent.mkdirs();
+		File tmp = File.createTempFile(file.getName(), ".tmp", parent);
+		OutputStream out = new FileOutputStream(tmp);
+		try {
+			out.write(content);
+		}
+		finally {
+			out.close();
+		}
+		if ( !tmp.renameTo(file) ) {
+			// another tool may have stored the same content meanwhile
+			tmp.delete();
+			if ( !file.exists() ) throw new IOException("can't rename "+tmp+" to "+file);
+		}
+	}
+
+	protected static String hash(File file) throws IOException {
+		return toHex(newDigest().digest(Files.readAllBytes(file.toPath())));
+	}
+
+	protected static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		}
+		catch (NoSuchAlgorithmException nsae) {
+			throw new IllegalStateException("SHA-256 is required by every Java platform", nsae);
+		}
+	}
+
+	/** Add {@code s} and a separator, so ("ab","c") and ("a","bc") differ. */
+	protected static void update(MessageDigest digest, String s) {
+		digest.update(s.getBytes(UTF8));
+		digest.update((byte)0);
+	}
+
+	protected static String toHex(byte[] bytes) {
+		StringBuilder buf = new StringBuilder(bytes.length*2);
+		for (byte b : bytes) {
+			buf.append(Character.forDigit((b >> 4) & 0xF, 16));
+			buf.append(Character.forDigit(b & 0xF, 16));
+		}
+		return buf.toString();
+	}
+}
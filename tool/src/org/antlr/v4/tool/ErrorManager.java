@@ -14,8 +14,10 @@ import org.stringtemplate.v4.misc.ErrorBuffer;
 
 import java.io.File;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.EnumSet;
+import java.util.List;
 import java.util.Set;
 
 public class ErrorManager {
@@ -35,6 +37,9 @@ public class ErrorManager {
 
     ErrorBuffer initSTListener = new ErrorBuffer();
 
+	/** Messages held back for the current thread; see {@link #startBuffering}. */
+	private final ThreadLocal<MessageBuffer> buffer = new ThreadLocal<MessageBuffer>();
+
 	public ErrorManager(Tool tool) {
 		this.tool = tool;
 	}
@@ -164,15 +169,55 @@ public class ErrorManager {
 	}
 
 	public void leftRecursionCycles(String fileName, Collection<? extends Collection<Rule>> cycles) {
-		errors++;
 		ANTLRMessage msg = new LeftRecursionCyclesMessage(fileName, cycles);
+		MessageBuffer messages = buffer.get();
+		if ( messages!=null ) {
+			messages.add(ErrorType.LEFT_RECURSION_CYCLES, msg, false);
+			return;
+		}
+		errors++;
 		tool.error(msg);
 	}
 
+	/** Return the number of errors; while the current thread buffers its
+	 *  messages, only the errors in its buffer are counted.
+	 */
     public int getNumErrors() {
+		MessageBuffer messages = buffer.get();
+		if ( messages!=null ) return messages.errors;
         return errors;
     }
 
+	/** Return the number of warnings, counted like {@link #getNumErrors}. */
+	public int getNumWarnings() {
+		MessageBuffer messages = buffer.get();
+		if ( messages!=null ) return messages.warnings;
+		return warnings;
+	}
+
+	/** Hold back the errors and warnings of the current thread until
+	 *  {@link #stopBuffering}. The tool uses this to process grammars in
+	 *  parallel: each thread counts its own errors, and the buffers are
+	 *  passed to {@link #replay} in grammar order so the listeners see the
+	 *  messages in the same order every time.
+	 */
+	public MessageBuffer startBuffering() {
+		MessageBuffer messages = new MessageBuffer();
+		buffer.set(messages);
+		return messages;
+	}
+
+	public void stopBuffering() {
+		buffer.remove();
+	}
+
+	/** Emit the messages held back in {@code messages}. */
+	public void replay(MessageBuffer messages) {
+		for (int i = 0; i < messages.types.size(); i++) {
+			emit(messages.types.get(i), messages.messages.get(i));
+		}
+	}
+
     /** Return first non ErrorManager code location for generating messages */
     private static StackTraceElement getLastNonErrorManagerCodeLocation(Throwable e) {
         StackTraceElement[] stack = e.getStackTrace();
@@ -191,6 +236,12 @@ public class ErrorManager {
 
 	@SuppressWarnings("fallthrough")
 	public void emit(ErrorType etype, ANTLRMessage msg) {
+		MessageBuffer messages = buffer.get();
+		if ( messages!=null ) {
+			messages.add(etype, msg, tool.warnings_are_errors);
+			return;
+		}
+
 		switch ( etype.severity ) {
 			case WARNING_ONE_OFF:
 				if ( errorTypes.contains(etype) ) break;
@@ -300,4 +351,50 @@ public class ErrorManager {
         // one error manager
         throw new Error("ANTLR ErrorManager panic");
     }
+
+	/** The messages of one thread, in the order they were issued. One-off
+	 *  messages are only filtered within the buffer here; {@link #replay}
+	 *  filters them against the messages emitted before.
+	 */
+	public static class MessageBuffer {
+		final List<ErrorType> types = new ArrayList<ErrorType>();
+		final List<ANTLRMessage> messages = new ArrayList<ANTLRMessage>();
+		final Set<ErrorType> errorTypes = EnumSet.noneOf(ErrorType.class);
+		int errors;
+		int warnings;
+
+		public int getNumErrors() {
+			return errors;
+		}
+
+		public int getNumWarnings() {
+			return warnings;
+		}
+
+		@SuppressWarnings("fallthrough")
+		void add(ErrorType etype, ANTLRMessage msg, boolean warningsAreErrors) {
+			switch ( etype.severity ) {
+				case WARNING_ONE_OFF:
+					if ( errorTypes.contains(etype) ) break;
+					// fall thru
+				case WARNING:
+					warnings++;
+					if ( warningsAreErrors && errorTypes.add(ErrorType.WARNING_TREATED_AS_ERROR) ) {
+						errors++;
+					}
+					types.add(etype);
+					messages.add(msg);
+					break;
+				case ERROR_ONE_OFF:
+					if ( errorTypes.contains(etype) ) break;
+					// fall thru
+				case ERROR:
+					errors++;
+					types.add(etype);
+					messages.add(msg);
+					break;
+			}
+			errorTypes.add(etype);
+		}
+	}
 }
@@ -1089,6 +1089,125 @@ public enum ErrorType {
 			"One of the token <arg> values unreachable. <arg2> is always overlapped by token <arg3>",
 			ErrorSeverity.WARNING),
 
+	/**
+	 * Compiler Warning 185.
+	 *
+	 * <p>With {@code -Xlexer-dfa}, the lexer DFA can't be computed ahead of
+	 * time, so the generated lexer simulates its ATN as usual.</p>
+	 *
+	 * <pre>
+	 * ID : [a-z]+ {isKeyword()}? ; // warning with -Xlexer-dfa
+	 * </pre>
+	 *
+	 * @since 4.7.2
+	 */
+	LEXER_DFA_NOT_COMPILED(
+			185,
+			"cannot compute the lexer DFA of <arg> ahead of time: <arg2>",
+			ErrorSeverity.WARNING),
+
+	/**
+	 * Compiler Warning 186.
+	 *
+	 * <p>With {@code -Xperf-lint}, a decision needs more than three tokens of
+	 * lookahead to choose an alternative.</p>
+	 *
+	 * <pre>
+	 * a : ID ID ID ID ';' // warning with -Xperf-lint
+	 *   | ID ID ID ID '.'
+	 *   ;
+	 * </pre>
+	 *
+	 * @since 4.7.2
+	 */
+	DEEP_LOOKAHEAD_DECISION(
+			186,
+			"decision <arg2> in rule <arg> needs <arg3> tokens of lookahead to choose among alternatives <arg4>; " +
+			"consider left-factoring their common prefix into a subrule",
+			ErrorSeverity.WARNING),
+
+	/**
+	 * Compiler Warning 187.
+	 *
+	 * <p>With {@code -Xperf-lint}, the alternatives of a decision can only be
+	 * told apart by what follows the rule, which prediction may have to
+	 * resolve with the full invocation stack.</p>
+	 *
+	 * <pre>
+	 * s : a ';' | '(' a ')' ;
+	 * a : ID | ID ';' ; // warning with -Xperf-lint
+	 * </pre>
+	 *
+	 * @since 4.7.2
+	 */
+	FULL_CONTEXT_DECISION(
+			187,
+			"alternatives <arg3> of decision <arg2> in rule <arg> may only be told apart by what follows <arg>, " +
+			"which can need full-context prediction; consider making them differ within the rule " +
+			"or moving the choice into the invoking rules",
+			ErrorSeverity.WARNING),
+
+	/**
+	 * Compiler Warning 188.
+	 *
+	 * <p>With {@code -Xperf-lint}, a left-recursive rule has many operator
+	 * alternatives, each of which the precedence decision tries after every
+	 * operand.</p>
+	 *
+	 * @since 4.7.2
+	 */
+	MANY_OPERATOR_ALTS(
+			188,
+			"left-recursive rule <arg> has <arg2> operator alternatives to try after every operand; " +
+			"consider merging operators of the same precedence into one alternative, as in e : e op=('*'|'/') e",
+			ErrorSeverity.WARNING),
+
+	/**
+	 * Compiler Warning 189.
+	 *
+	 * <p>With {@code -Xperf-lint}, predicates take part in a decision, so
+	 * they are evaluated every time the decision is predicted.</p>
+	 *
+	 * @since 4.7.2
+	 */
+	PREDICATED_DECISION(
+			189,
+			"decision <arg2> in rule <arg> evaluates the predicates of alternatives <arg3> on every prediction; " +
+			"consider telling the alternatives apart by syntax where the predicate is not needed",
+			ErrorSeverity.WARNING),
+
+	/**
+	 * Compiler Warning 190.
+	 *
+	 * <p>With {@code -Xperf-lint}, a lexer rule has a predicate, which keeps
+	 * the lexer DFA from caching the edges that lead to it.</p>
+	 *
+	 * <pre>
+	 * ID : [a-z]+ {isKeyword()}? ; // warning with -Xperf-lint
+	 * </pre>
+	 *
+	 * @since 4.7.2
+	 */
+	LEXER_PREDICATE(
+			190,
+			"the predicate in lexer rule <arg> keeps the lexer DFA from caching the input that reaches it; " +
+			"consider testing the condition in the parser or setting the token type in an action",
+			ErrorSeverity.WARNING),
+
+	/**
+	 * Compiler Warning 191.
+	 *
+	 * <p>A code generation option such as {@code -Xbinary-atn} was given, but
+	 * the target of the grammar doesn't support it, so the recognizer is
+	 * generated as if it was not given.</p>
+	 *
+	 * @since 4.7.2
+	 */
+	OPTION_NOT_SUPPORTED_BY_TARGET(
+			191,
+			"<arg> is not supported by the <arg2> target and is ignored for <arg3>",
+			ErrorSeverity.WARNING),
+
 	/*
 	 * Backward incompatibility errors
 	 */
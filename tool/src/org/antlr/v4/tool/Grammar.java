@@ -8,6 +8,7 @@ package org.antlr.v4.tool;
 
 import org.antlr.v4.Tool;
 import org.antlr.v4.analysis.LeftRecursiveRuleTransformer;
+import org.antlr.v4.analysis.LookaheadTree;
 import org.antlr.v4.automata.ParserATNFactory;
 import org.antlr.v4.misc.CharSupport;
 import org.antlr.v4.misc.OrderedHashMap;
@@ -183,6 +184,14 @@ public class Grammar implements AttributeResolver {
 
 	public List<IntervalSet[]> decisionLOOK;
 
+	/** The fixed-k lookahead of decisions that aren't LL(1), by decision;
+	 *  null where there is none. The list itself is null unless {@link
+	 *  org.antlr.v4.analysis.AnalysisPipeline#computesLLk} is true.
+	 *
+	 *  @since 4.7.2
+	 */
+	public List<LookaheadTree> decisionLLk;
+
 	public final Tool tool;
 
 	/** Token names and literal tokens like "void" are uniquely indexed.
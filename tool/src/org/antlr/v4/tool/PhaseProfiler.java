@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2012-2017 The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v4.tool;
+
+import org.antlr.v4.runtime.misc.AllocationCounter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/** The time and memory the tool spends in each phase of processing
+ *  grammars, for {@code -Xphase-times} and the tool benchmarks.
+ *
+ *  <p>The tool calls {@link org.antlr.v4.Tool#startPhase} and {@link
+ *  org.antlr.v4.Tool#stopPhase} around its phases. A phase started while
+ *  another one runs on the same thread is nested in it and named by the
+ *  path of phases, such as {@code semantics/left-recursion}. The times and
+ *  allocated bytes of a phase include those of its nested phases; the
+ *  {@code self} values don't. Phases that run more than once, for each
+ *  grammar or each generated file, are summed.</p>
+ *
+ *  <p>Allocation is measured with {@link AllocationCounter} and is -1 on
+ *  JVMs it doesn't support.</p>
+ *
+ *  @since 4.7.2
+ */
+public class PhaseProfiler {
+	public static class Phase {
+		/** The path of phase names, separated by {@code /}. */
+		public final String name;
+		public int count;
+		public long nanos;
+		public long selfNanos;
+		public long allocatedBytes;
+		public long selfAllocatedBytes;
+
+		public Phase(String name) {
+			this.name = name;
+		}
+
+		/** The nesting depth; 0 for phases that aren't nested. */
+		public int getDepth() {
+			int depth = 0;
+			for (int i = 0; i < name.length(); i++) {
+				if ( name.charAt(i)=='/' ) depth++;
+			}
+			return depth;
+		}
+	}
+
+	/** A phase running on a thread. */
+	protected static class Frame {
+		public final String name;
+		public final long startNanos;
+		public final long startBytes;
+		public long childNanos;
+		public long childBytes;
+
+		public Frame(String name, long startNanos, long startBytes) {
+			this.name = name;
+			this.startNanos = startNanos;
+			this.startBytes = startBytes;
+		}
+	}
+
+	/** The phases in the order they were first started. */
+	protected final Map<String, Phase> phases = new LinkedHashMap<String, Phase>();
+
+	protected final ThreadLocal<Deque<Frame>> running = new ThreadLocal<Deque<Frame>>() {
+		@Override
+		protected Deque<Frame> initialValue() {
+			return new ArrayDeque<Frame>();
+		}
+	};
+
+	/** The bytes allocated by the current thread so far, or -1. */
+	public static long getAllocatedBytes() {
+		return AllocationCounter.getAllocatedBytes();
+	}
+
+	public static boolean isAllocationSupported() {
+		return AllocationCounter.isSupported();
+	}
+
+	/** Start phase {@code name}, nested in the phase running on this thread. */
+	public void start(String name) {
+		Deque<Frame> stack = running.get();
+		Frame parent = stack.peek();
+		String path = parent!=null ? parent.name+"/"+name : name;
+		stack.push(new Frame(path, System.nanoTime(), getAllocatedBytes()));
+	}
+
+	/** Stop the phase started last on this thread and add its time and
+	 *  allocation to the phase's totals.
+	 */
+	public void stop() {
+		long stopNanos = System.nanoTime();
+		long stopBytes = getAllocatedBytes();
+		Deque<Frame> stack = running.get();
+		Frame frame = stack.poll();
+		if ( frame==null ) return; // started before the profiler was set
+
+		long nanos = stopNanos - frame.startNanos;
+		long bytes = stopBytes>=0 ? stopBytes - frame.startBytes : -1;
+		Frame parent = stack.peek();
+		if ( parent!=null ) {
+			parent.childNanos += nanos;
+			parent.childBytes += bytes;
+		}
+
+		synchronized (phases) {
+			Phase phase = phases.get(frame.name);
+			if ( phase==null ) {
+				phase = new Phase(frame.name);
+				phases.put(frame.name, phase);
+			}
+			phase.count++;
+			phase.nanos += nanos;
+			phase.selfNanos += nanos - frame.childNanos;
+			if ( bytes>=0 ) {
+				phase.allocatedBytes += bytes;
+				phase.selfAllocatedBytes += bytes - frame.childBytes;
+			}
+			else {
+				phase.allocatedBytes = -1;
+				phase.selfAllocatedBytes = -1;
+			}
+		}
+	}
+
+	/** Return copies of the phases, with each nested phase listed after the
+	 *  phase it is nested in.
+	 */
+	public List<Phase> getPhases() {
+		List<Phase> result = new ArrayList<Phase>();
+		synchronized (phases) {
+			for (Phase phase : phases.values()) {
+				Phase copy = new Phase(phase.name);
+				copy.count = phase.count;
+				copy.nanos = phase.nanos;
+				copy.selfNanos = phase.selfNanos;
+				copy.allocatedBytes = phase.allocatedBytes;
+				copy.selfAllocatedBytes = phase.selfAllocatedBytes;
+				result.add(copy);
+			}
+		}
+		// a nested phase can first stop before a phase listed earlier
+		List<Phase> sorted = new ArrayList<Phase>(result.size());
+		addNested(result, "", sorted);
+		return sorted;
+	}
+
+	private static void addNested(List<Phase> phases, String prefix, List<Phase> sorted) {
+		for (Phase phase : phases) {
+			String name = phase.name;
+			if ( name.startsWith(prefix) && name.indexOf('/', prefix.length())<0 ) {
+				sorted.add(phase);
+				addNested(phases, name+"/", sorted);
+			}
+		}
+	}
+
+	/** Forget the phases measured so far. */
+	public void reset() {
+		synchronized (phases) {
+			phases.clear();
+		}
+		running.remove();
+	}
+
+	@Override
+	public String toString() {
+		return format(getPhases());
+	}
+
+	/** A table of {@code phases}, with nested phases indented. */
+	public static String format(List<Phase> phases) {
+		StringBuilder buf = new StringBuilder();
+		buf.append(String.format(Locale.ROOT, "%-32s %7s %10s %10s %10s %10s%n",
+								 "phase", "calls", "ms", "self ms", "MB", "self MB"));
+		for (Phase phase : phases) {
+			int depth = phase.getDepth();
+			String label = phase.name.substring(phase.name.lastIndexOf('/')+1);
+			StringBuilder indented = new StringBuilder();
+			for (int i = 0; i < depth; i++) indented.append("  ");
+			indented.append(label);
+			buf.append(String.format(Locale.ROOT, "%-32s %7d %10.1f %10.1f %10s %10s%n",
+									 indented, phase.count,
+									 phase.nanos/1e6, phase.selfNanos/1e6,
+									 formatMegabytes(phase.allocatedBytes),
+									 formatMegabytes(phase.selfAllocatedBytes)));
+		}
+		return buf.toString();
+	}
+
+	public static String formatMegabytes(long bytes) {
+		if ( bytes<0 ) return "n/a";
+		return String.format(Locale.ROOT, "%.1f", bytes/(1024.0*1024.0));
+	}
+}